@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONException;
+
+import edu.isi.karma.controller.update.UpdateContainer;
+import edu.isi.karma.kr2rml.mapping.KR2RMLMapping;
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.kr2rml.mapping.WorksheetR2RMLJenaModelParser;
+import edu.isi.karma.metadata.KarmaMetadataManager;
+import edu.isi.karma.metadata.UserConfigMetadata;
+import edu.isi.karma.metadata.UserPreferencesMetadata;
+import edu.isi.karma.rdf.RdfGenerator;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.webserver.ContextParametersRegistry;
+import edu.isi.karma.webserver.KarmaException;
+import edu.isi.karma.webserver.ServletContextParameterMap;
+
+/**
+ * Sets up Karma for the benchmarks like the offline RDF generation does,
+ * with the default Karma home
+ */
+public class BenchmarkEnvironment extends RdfGenerator {
+
+	private final ServletContextParameterMap contextParameters;
+
+	public BenchmarkEnvironment() throws KarmaException {
+		super(null);
+		contextParameters = ContextParametersRegistry.getInstance().registerByKarmaHome(null);
+		KarmaMetadataManager userMetadataManager = new KarmaMetadataManager(contextParameters);
+		UpdateContainer uc = new UpdateContainer();
+		userMetadataManager.register(new UserPreferencesMetadata(contextParameters), uc);
+		userMetadataManager.register(new UserConfigMetadata(contextParameters), uc);
+	}
+
+	public String getContextId() {
+		return contextParameters.getId();
+	}
+
+	public Workspace createWorkspace() {
+		return initializeWorkspace(contextParameters);
+	}
+
+	public void releaseWorkspace(Workspace workspace) {
+		removeWorkspace(workspace);
+	}
+
+	public void applyHistory(Workspace workspace, Worksheet worksheet, KR2RMLMapping mapping) throws JSONException {
+		applyHistoryToWorksheet(workspace, worksheet, mapping);
+	}
+
+	public KR2RMLMapping parseModel(File modelFile) throws IOException, KarmaException, JSONException {
+		R2RMLMappingIdentifier id = new R2RMLMappingIdentifier(SyntheticData.SOURCE_NAME, modelFile.toURI().toURL());
+		return new WorksheetR2RMLJenaModelParser(id).parse();
+	}
+
+	/**
+	 * Writes the data of a benchmark to a temporary file
+	 */
+	public static File writeTempFile(String suffix, String content) throws IOException {
+		File file = File.createTempFile("karma-benchmark", suffix);
+		file.deleteOnExit();
+		FileUtils.writeStringToFile(file, content, "UTF-8");
+		return file;
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.isi.karma.imp.csv.CSVImport;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+
+/**
+ * Imports a CSV file with {@link CSVImport} into a new worksheet, the
+ * workspace is created outside of the measurement
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CSVImportBenchmark {
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"5", "20"})
+	public int columns;
+
+	private BenchmarkEnvironment environment;
+	private Workspace workspace;
+	private byte[] csv;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		environment = new BenchmarkEnvironment();
+		csv = SyntheticData.createCSV(rows, columns).getBytes("UTF-8");
+	}
+
+	@Setup(Level.Invocation)
+	public void createWorkspace() {
+		workspace = environment.createWorkspace();
+	}
+
+	@TearDown(Level.Invocation)
+	public void releaseWorkspace() {
+		environment.releaseWorkspace(workspace);
+	}
+
+	@Benchmark
+	public Worksheet importCSV() throws Exception {
+		return new CSVImport(1, 2, ',', '"', "UTF-8", -1, SyntheticData.SOURCE_NAME,
+				new ByteArrayInputStream(csv), workspace, null).generateWorksheet();
+	}
+}
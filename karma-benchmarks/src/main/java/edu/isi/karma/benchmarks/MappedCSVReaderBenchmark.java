@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.opencsv.CSVReader;
+
+import edu.isi.karma.imp.csv.MappedCSVReader;
+import edu.isi.karma.util.EncodingDetector;
+
+/**
+ * Reads a local CSV file with the opencsv reader that CSVImport uses, and
+ * with {@link MappedCSVReader} decoding all the columns or only two of them.
+ * One row in ten has a quoted value with a line break, the mapped reader
+ * decodes all the values of these rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappedCSVReaderBenchmark {
+
+	@Param({"10000", "100000"})
+	public int rows;
+
+	@Param({"20"})
+	public int columns;
+
+	private File file;
+	private boolean[] projection;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		file = File.createTempFile("benchmark", ".csv");
+		Random random = new Random(42);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+			for (int c = 0; c < columns; c++)
+				writer.write((c > 0 ? "," : "") + "column" + c);
+			writer.write("\n");
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < columns; c++) {
+					if (c > 0)
+						writer.write(",");
+					if (r % 10 == 0 && c == 1)
+						writer.write("\"quoted, value\n" + random.nextInt(1000) + "\"");
+					else
+						writer.write("value " + random.nextInt(100000));
+				}
+				writer.write("\n");
+			}
+		}
+		projection = new boolean[columns];
+		projection[0] = true;
+		projection[columns / 2] = true;
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Benchmark
+	public long readWithOpenCSV() throws Exception {
+		long values = 0;
+		try (CSVReader reader = new CSVReader(new BufferedReader(EncodingDetector.getInputStreamReader(
+				new FileInputStream(file), "UTF-8")), ',', '"', '\\')) {
+			String[] row;
+			while ((row = reader.readNext()) != null)
+				values += row.length;
+		}
+		return values;
+	}
+
+	@Benchmark
+	public long readMapped() throws Exception {
+		return readMapped(null);
+	}
+
+	@Benchmark
+	public long readMappedTwoColumns() throws Exception {
+		return readMapped(projection);
+	}
+
+	private long readMapped(boolean[] columns) throws Exception {
+		long values = 0;
+		try (MappedCSVReader reader = new MappedCSVReader(file, ',', '"', '\\', "UTF-8")) {
+			String[] row;
+			while ((row = reader.readNext(columns)) != null) {
+				for (String value : row) {
+					if (value != null)
+						values++;
+				}
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.isi.karma.config.ModelingConfiguration;
+import edu.isi.karma.config.ModelingConfigurationRegistry;
+import edu.isi.karma.modeling.ontology.OntologyCache;
+import edu.isi.karma.modeling.ontology.OntologyManager;
+
+/**
+ * Builds the {@link OntologyCache} of an ontology with OntologyManager.updateCache.
+ * Without the ontology alignment, the cache only has the classes and the
+ * properties, with it the cache also has their domains, ranges and the
+ * connections between the classes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OntologyCacheBenchmark {
+
+	@Param({"100", "1000"})
+	public int classes;
+
+	@Param({"false", "true"})
+	public boolean ontologyAlignment;
+
+	private ModelingConfiguration modelingConfiguration;
+	private Boolean previousOntologyAlignment;
+	private OntologyManager ontologyManager;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkEnvironment environment = new BenchmarkEnvironment();
+		modelingConfiguration = ModelingConfigurationRegistry.getInstance().register(environment.getContextId());
+		previousOntologyAlignment = modelingConfiguration.getOntologyAlignment();
+		modelingConfiguration.setOntologyAlignment(ontologyAlignment);
+		ontologyManager = new OntologyManager(environment.getContextId());
+		ontologyManager.doImport(BenchmarkEnvironment.writeTempFile(".ttl", SyntheticData.createOntology(classes)), "UTF-8");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		modelingConfiguration.setOntologyAlignment(previousOntologyAlignment);
+	}
+
+	/**
+	 * @return the number of classes in the cache
+	 */
+	@Benchmark
+	public int init() {
+		ontologyManager.updateCache();
+		return ontologyManager.getClasses().size();
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.benchmarks;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.imp.json.JsonImport;
+import edu.isi.karma.kr2rml.ErrorReport;
+import edu.isi.karma.kr2rml.KR2RMLWorksheetRDFGenerator;
+import edu.isi.karma.kr2rml.URIFormatter;
+import edu.isi.karma.kr2rml.mapping.KR2RMLMapping;
+import edu.isi.karma.kr2rml.writer.JSONKR2RMLRDFWriter;
+import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
+import edu.isi.karma.kr2rml.writer.N3KR2RMLRDFWriter;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+
+/**
+ * Generates the RDF of a worksheet with {@link KR2RMLWorksheetRDFGenerator},
+ * through the N-Triples or the JSON-LD writer. The worksheet and the mapping
+ * are built once per trial, the output is only counted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RDFGenerationBenchmark {
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"5", "20"})
+	public int columns;
+
+	@Param({"0", "2"})
+	public int depth;
+
+	@Param({"n3", "json"})
+	public String writer;
+
+	private BenchmarkEnvironment environment;
+	private Workspace workspace;
+	private Worksheet worksheet;
+	private KR2RMLMapping mapping;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		environment = new BenchmarkEnvironment();
+		mapping = environment.parseModel(BenchmarkEnvironment.writeTempFile(".ttl", SyntheticData.createModel(columns, depth)));
+		workspace = environment.createWorkspace();
+		worksheet = new JsonImport(SyntheticData.createJSON(rows, columns, depth), SyntheticData.SOURCE_NAME,
+				workspace, "UTF-8", -1).generateWorksheet();
+		environment.applyHistory(workspace, worksheet, mapping);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		environment.releaseWorkspace(workspace);
+	}
+
+	/**
+	 * @return the number of bytes written
+	 */
+	@Benchmark
+	public long generateRDF() throws Exception {
+		CountingOutputStream out = new CountingOutputStream(new NullOutputStream());
+		PrintWriter pw = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
+		KR2RMLRDFWriter rdfWriter = writer.equals("json")
+				? new JSONKR2RMLRDFWriter(pw, SyntheticData.BASE_URI)
+				: new N3KR2RMLRDFWriter(new URIFormatter(), pw);
+		KR2RMLWorksheetRDFGenerator generator = new KR2RMLWorksheetRDFGenerator(worksheet, workspace,
+				Collections.<KR2RMLRDFWriter>singletonList(rdfWriter), false, mapping, new ErrorReport(),
+				SuperSelectionManager.DEFAULT_SELECTION);
+		generator.generateRDF(true);
+		return out.getByteCount();
+	}
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Generates the sources, models and ontologies of the benchmarks. The same
+ * parameters always give the same data, so the results of two commits are
+ * comparable.
+ *
+ * A record has an "id" and the columns c0 to cN. Below the last level of
+ * nesting, it also has a "child" array of CHILDREN nested records, and the
+ * model maps each level to its own class linked to the level above.
+ */
+public class SyntheticData {
+
+	public static final String NAMESPACE = "http://example.org/karma/benchmark/";
+	public static final String SOURCE_NAME = "benchmark";
+	public static final String BASE_URI = NAMESPACE + "data/";
+	public static final int CHILDREN = 2;
+
+	private SyntheticData() {
+	}
+
+	public static JSONArray createJSON(int rows, int columns, int depth) {
+		JSONArray records = new JSONArray();
+		for (int i = 0; i < rows; i++) {
+			records.put(createRecord(String.valueOf(i), columns, depth));
+		}
+		return records;
+	}
+
+	private static JSONObject createRecord(String id, int columns, int depth) {
+		JSONObject record = new JSONObject();
+		record.put("id", id);
+		for (int c = 0; c < columns; c++) {
+			record.put("c" + c, getValue(id, c));
+		}
+		if (depth > 0) {
+			JSONArray children = new JSONArray();
+			for (int i = 0; i < CHILDREN; i++) {
+				children.put(createRecord(id + "." + i, columns, depth - 1));
+			}
+			record.put("child", children);
+		}
+		return record;
+	}
+
+	/**
+	 * @return a CSV file with a header line, the rows are not nested
+	 */
+	public static String createCSV(int rows, int columns) {
+		StringBuilder sb = new StringBuilder("id");
+		for (int c = 0; c < columns; c++) {
+			sb.append(",c").append(c);
+		}
+		sb.append('\n');
+		for (int i = 0; i < rows; i++) {
+			String id = String.valueOf(i);
+			sb.append(id);
+			for (int c = 0; c < columns; c++) {
+				sb.append(',').append(getValue(id, c));
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static String getValue(String id, int column) {
+		// some values need to be escaped in N-Triples and JSON
+		return column % 4 == 3 ? "value \"" + id + "\" of c" + column : "v" + id + "_" + column;
+	}
+
+	/**
+	 * @return the R2RML model, in Turtle, of the records of
+	 * {@link #createJSON(int, int, int)} or of {@link #createCSV(int, int)}
+	 * with a depth of 0
+	 */
+	public static String createModel(int columns, int depth) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n");
+		sb.append("@prefix km-dev: <http://isi.edu/integration/karma/dev#> .\n");
+		sb.append("@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n");
+		sb.append("@prefix bm: <").append(NAMESPACE).append("> .\n\n");
+		sb.append("_:mapping a km-dev:R2RMLMapping ;\n");
+		sb.append("\tkm-dev:sourceName \"").append(SOURCE_NAME).append("\" ;\n");
+		sb.append("\tkm-dev:modelVersion \"1.7\" ;\n");
+		sb.append("\tkm-dev:hasBaseURI \"").append(BASE_URI).append("\" ;\n");
+		sb.append("\tkm-dev:hasWorksheetHistory \"[]\" .\n\n");
+		sb.append("_:table a rr:LogicalTable ;\n");
+		sb.append("\trr:tableName \"").append(SOURCE_NAME).append("\" ;\n");
+		sb.append("\tkm-dev:isPartOfMapping _:mapping .\n\n");
+		sb.append("_:mapping km-dev:hasLogicalTable _:table .\n\n");
+		for (int level = 0; level <= depth; level++) {
+			String triplesMap = "km-dev:TriplesMap_level" + level;
+			String subjectMap = "_:subject" + level;
+			sb.append(triplesMap).append(" a rr:TriplesMap ;\n");
+			sb.append("\tkm-dev:isPartOfMapping _:mapping ;\n");
+			sb.append("\trr:logicalTable _:table ;\n");
+			sb.append("\trr:subjectMap ").append(subjectMap).append(" .\n\n");
+			sb.append("_:mapping km-dev:hasTriplesMap ").append(triplesMap).append(" ;\n");
+			sb.append("\tkm-dev:hasSubjectMap ").append(subjectMap).append(" .\n\n");
+			sb.append(subjectMap).append(" a rr:SubjectMap ;\n");
+			if (level == 0) {
+				sb.append("\ta km-dev:steinerTreeRootNode ;\n");
+			}
+			sb.append("\tkm-dev:isPartOfMapping _:mapping ;\n");
+			sb.append("\tkm-dev:alignmentNodeId \"").append(NAMESPACE).append("Level").append(level).append("1\" ;\n");
+			sb.append("\trr:class bm:Level").append(level).append(" ;\n");
+			sb.append("\trr:template \"").append(NAMESPACE).append("level").append(level).append("/{")
+					.append(escape(getColumnName(level, "id"))).append("}\" .\n\n");
+			for (int c = 0; c <= columns; c++) {
+				String predicateObjectMap = "km-dev:PredicateObjectMap_level" + level + "_" + c;
+				String objectMap = "_:object" + level + "_" + c;
+				sb.append(predicateObjectMap).append(" a rr:PredicateObjectMap ;\n");
+				sb.append("\tkm-dev:isPartOfMapping _:mapping ;\n");
+				sb.append("\trr:objectMap ").append(objectMap).append(" ;\n");
+				if (c < columns) {
+					// the columns
+					sb.append("\trr:predicate bm:c").append(c).append(" .\n\n");
+					sb.append(objectMap).append(" a rr:ObjectMap ;\n");
+					sb.append("\tkm-dev:isPartOfMapping _:mapping ;\n");
+					sb.append("\trr:datatype \"http://www.w3.org/2001/XMLSchema#string\" ;\n");
+					sb.append("\trr:column \"").append(escape(getColumnName(level, "c" + c))).append("\" .\n\n");
+				} else if (level < depth) {
+					// the link to the next level
+					sb.append("\trr:predicate bm:child .\n\n");
+					sb.append(objectMap).append(" a rr:RefObjectMap , rr:ObjectMap ;\n");
+					sb.append("\tkm-dev:isPartOfMapping _:mapping ;\n");
+					sb.append("\trr:parentTriplesMap km-dev:TriplesMap_level").append(level + 1).append(" .\n\n");
+				} else {
+					// a constant
+					sb.append("\trr:predicate bm:source .\n\n");
+					sb.append(objectMap).append(" a rr:ObjectMap ;\n");
+					sb.append("\tkm-dev:isPartOfMapping _:mapping ;\n");
+					sb.append("\trr:constant \"").append(SOURCE_NAME).append("\" .\n\n");
+				}
+				sb.append(triplesMap).append(" rr:predicateObjectMap ").append(predicateObjectMap).append(" .\n");
+				sb.append("_:mapping km-dev:hasPredicateObjectMap ").append(predicateObjectMap).append(" ;\n");
+				sb.append("\tkm-dev:hasObjectMap ").append(objectMap).append(" .\n\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the name of a column in a model, a top level column is named
+	 * by itself and a nested column by its path
+	 */
+	private static String getColumnName(int level, String column) {
+		if (level == 0) {
+			return column;
+		}
+		JSONArray path = new JSONArray();
+		for (int i = 0; i < level; i++) {
+			path.put("child");
+		}
+		path.put(column);
+		return path.toString();
+	}
+
+	private static String escape(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	/**
+	 * @return an ontology, in Turtle, with a hierarchy of classes where each
+	 * class has a data property and an object property to the next class
+	 */
+	public static String createOntology(int classes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n");
+		sb.append("@prefix owl: <http://www.w3.org/2002/07/owl#> .\n");
+		sb.append("@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n");
+		sb.append("@prefix bm: <").append(NAMESPACE).append("> .\n\n");
+		sb.append("<").append(NAMESPACE).append("> a owl:Ontology .\n\n");
+		for (int i = 0; i < classes; i++) {
+			sb.append("bm:Class").append(i).append(" a owl:Class ;\n");
+			sb.append("\trdfs:label \"Class ").append(i).append("\"");
+			if (i > 0) {
+				// a tree with 4 subclasses per class
+				sb.append(" ;\n\trdfs:subClassOf bm:Class").append((i - 1) / 4);
+			}
+			sb.append(" .\n\n");
+			sb.append("bm:name").append(i).append(" a owl:DatatypeProperty ;\n");
+			sb.append("\trdfs:domain bm:Class").append(i).append(" ;\n");
+			sb.append("\trdfs:range xsd:string .\n\n");
+			sb.append("bm:link").append(i).append(" a owl:ObjectProperty ;\n");
+			sb.append("\trdfs:domain bm:Class").append(i).append(" ;\n");
+			sb.append("\trdfs:range bm:Class").append((i + 1) % classes).append(" .\n\n");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.isi.karma.kr2rml.ErrorReport;
+import edu.isi.karma.kr2rml.Prefix;
+import edu.isi.karma.kr2rml.URIFormatter;
+
+/**
+ * Expands and normalizes URIs with {@link URIFormatter}, the way the
+ * N-Triples writer formats its subjects, predicates and objects
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class URIFormatterBenchmark {
+
+	private static final int URIS = 1024;
+
+	/**
+	 * absolute: full URIs, prefixed: URIs with a prefix to expand,
+	 * unsafe: full URIs with characters to replace
+	 */
+	@Param({"absolute", "prefixed", "unsafe"})
+	public String uris;
+
+	private URIFormatter formatter;
+	private String[] values;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<Prefix> prefixes = new ArrayList<>();
+		prefixes.add(new Prefix("bm", SyntheticData.NAMESPACE));
+		prefixes.add(new Prefix("xsd", "http://www.w3.org/2001/XMLSchema#"));
+		formatter = new URIFormatter(prefixes, new ErrorReport());
+		values = new String[URIS];
+		for (int i = 0; i < URIS; i++) {
+			if (uris.equals("prefixed"))
+				values[i] = "bm:level0/" + i;
+			else if (uris.equals("unsafe"))
+				values[i] = SyntheticData.NAMESPACE + "level0/value " + i + " of {c" + i % 20 + "}";
+			else
+				values[i] = SyntheticData.NAMESPACE + "level0/" + i;
+		}
+	}
+
+	/**
+	 * Formats URIS URIs
+	 */
+	@Benchmark
+	public void getExpandedAndNormalizedUri(Blackhole blackhole) {
+		for (String value : values) {
+			blackhole.consume(formatter.getExpandedAndNormalizedUri(value));
+		}
+	}
+}
@@ -7,7 +7,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
@@ -27,6 +26,7 @@ import edu.isi.karma.controller.command.worksheet.AddValuesCommandFactory;
 import edu.isi.karma.controller.update.ErrorUpdate;
 import edu.isi.karma.controller.update.UpdateContainer;
 import edu.isi.karma.controller.update.WorksheetUpdateFactory;
+import edu.isi.karma.er.helper.AugmentDataFetcher;
 import edu.isi.karma.er.helper.CloneTableUtils;
 import edu.isi.karma.er.helper.TripleStoreUtil;
 import edu.isi.karma.kr2rml.ErrorReport;
@@ -37,7 +37,6 @@ import edu.isi.karma.modeling.alignment.AlignmentManager;
 import edu.isi.karma.modeling.ontology.OntologyManager;
 import edu.isi.karma.rep.HNode;
 import edu.isi.karma.rep.HNode.HNodeType;
-import edu.isi.karma.rep.HashValueManager;
 import edu.isi.karma.rep.Node;
 import edu.isi.karma.rep.RepFactory;
 import edu.isi.karma.rep.Row;
@@ -61,7 +60,6 @@ public class AugmentDataCommand extends WorksheetSelectionCommand{
 	private String newhNodeId;
 	private boolean incoming;
 	private String sameAsPredicate;
-	private final Integer limit = 200;
 	Stack<Command> appliedCommands;
 	public AugmentDataCommand(String id, String model, String dataRepoUrl, String worksheetId, String columnUri, String predicate, String otherClass, String hNodeId, Boolean incoming, String sameAsPredicate, String selectionId) {
 		super(id, model, worksheetId, selectionId);
@@ -103,16 +101,16 @@ public class AugmentDataCommand extends WorksheetSelectionCommand{
 	}
 
 	@Override
-	public UpdateContainer doIt(Workspace workspace) throws CommandException {
+	public UpdateContainer doIt(final Workspace workspace) throws CommandException {
 		appliedCommands.clear();
 		inputColumns.clear();
 		outputColumns.clear();
 		UpdateContainer c =  new UpdateContainer();
 		alignmentId = AlignmentManager.Instance().constructAlignmentId(workspace.getId(), worksheetId);
-		Alignment alignment = AlignmentManager.Instance().getAlignment(alignmentId);
+		final Alignment alignment = AlignmentManager.Instance().getAlignment(alignmentId);
 		RepFactory factory = workspace.getFactory();
 		Worksheet worksheet = factory.getWorksheet(worksheetId);
-		SuperSelection selection = getSuperSelection(worksheet);
+		final SuperSelection selection = getSuperSelection(worksheet);
 		if (alignment.GetTreeRoot() != null)
 			hNodeId = FetchHNodeIdFromAlignmentCommand.gethNodeId(alignmentId, columnUri);
 		if (hNodeId == null) {
@@ -120,14 +118,13 @@ public class AugmentDataCommand extends WorksheetSelectionCommand{
 			c.append(computeAlignmentAndSemanticTypesAndCreateUpdates(workspace));
 			return c;
 		}
-		HNode hnode = factory.getHNode(hNodeId);
+		final HNode hnode = factory.getHNode(hNodeId);
 		List<String> hNodeIds = new LinkedList<>();
 		hNodeIds.add(hNodeId);
 		inputColumns.addAll(hNodeIds);
 		List<Table> dataTables = new ArrayList<>();
 		CloneTableUtils.getDatatable(worksheet.getDataTable(), factory.getHTable(hnode.getHTableId()), dataTables, selection);
-		Map<String, String> rowHashToSubjectURI = new HashMap<>();
-		Map<String, List<String>> SubjectURIToRowId = new HashMap<>();
+		final Map<String, List<String>> SubjectURIToRowId = new HashMap<>();
 		for(Table t : dataTables) {
 			for(Row r : t.getRows(0, t.getNumRows(), selection)) {
 				Node n = r.getNode(hNodeId);
@@ -143,7 +140,6 @@ public class AugmentDataCommand extends WorksheetSelectionCommand{
 						// TODO Auto-generated catch block
 					}
 //					n.setValue(uri, n.getStatus(), factory);
-					rowHashToSubjectURI.put(HashValueManager.getHashValue(r, hNodeIds), uri);
 
 					if (SubjectURIToRowId.get(uri) == null)
 						SubjectURIToRowId.put(uri, new ArrayList<String>());
@@ -155,11 +151,9 @@ public class AugmentDataCommand extends WorksheetSelectionCommand{
 		TripleStoreUtil util = new TripleStoreUtil();
 
 		//String modelContext = worksheet.getMetadataContainer().getWorksheetProperties().getPropertyValue(Property.modelContext);
-		List<String> subjects = new LinkedList<>();
-		subjects.addAll(rowHashToSubjectURI.values());
+		List<String> subjects = new ArrayList<>(SubjectURIToRowId.keySet());
 		List<String> predicates = new LinkedList<>();
 		List<String> otherClasses = new LinkedList<>();
-		Map<String, List<String>> results = new HashMap<>();
 
 		URIFormatter uriFormatter = new URIFormatter(workspace.getOntologyManager(), new ErrorReport());
 		if(sameAsPredicate!= null && !sameAsPredicate.trim().isEmpty())
@@ -175,146 +169,135 @@ public class AugmentDataCommand extends WorksheetSelectionCommand{
 			otherClasses.add(otherClassarray.getJSONObject(i).getString("otherClass"));
 		}
 
-		while (!subjects.isEmpty()) {
-			ListIterator<String> subjectsIterator = subjects.listIterator();
-			LinkedList<String> tempSubjects = new LinkedList<>();
-			while(tempSubjects.size() < limit && !subjects.isEmpty())
-			{
-				tempSubjects.add(subjectsIterator.next());
-				subjectsIterator.remove();
-			}
-			try {
-				Map<String, List<String>> temp;
-				if (!incoming)
-					temp = util.getObjectsForSubjectsAndPredicates(dataRepoUrl, null, tempSubjects , predicates, otherClasses, sameAsPredicate);
-				else
-					temp = util.getSubjectsForPredicatesAndObjects(dataRepoUrl, null, tempSubjects , predicates, otherClasses, sameAsPredicate);
-				addMappingToResults(results, temp);
-				//				predicates.clear();
-				//				otherClasses.clear();
-			} catch (KarmaException e) {
-				LOG.error("Unable to load data to augment: ", e);
-				return new UpdateContainer(new ErrorUpdate(e.getMessage()));
-			}
-		}
+		AugmentDataFetcher fetcher = new AugmentDataFetcher(util, dataRepoUrl, predicates, otherClasses, sameAsPredicate, incoming);
+		final AddValuesCommandFactory addFactory = new AddValuesCommandFactory();
+		try {
+			fetcher.fetch(subjects, new AugmentDataFetcher.ResultHandler() {
 
+				@Override
+				public void result(String subject, String predicate, String object, String otherClass) throws KarmaException {
+					String uri = incoming ? object : subject;
+					List<String> rowIds = SubjectURIToRowId.get(uri);
+					boolean isNewNode = false;
+					for (String RowId : rowIds) {
+						JSONArray array = new JSONArray();
+						JSONObject obj = new JSONObject();
+						JSONObject obj2 = new JSONObject();
+						if (otherClass != null && !otherClass.trim().isEmpty())
+							obj.put("URIs", incoming ? subject : object);
+						else
+							obj.put("values", incoming ? subject : object);
+						obj2.put("rowId", RowId);
+						obj2.put("rowIdHash", "");
+						obj2.put("values", obj);
+						array.put(obj2);
+						JSONArray input = new JSONArray();
+						JSONObject obj3 = new JSONObject();
+						obj3.put("name", "AddValues");
+						obj3.put("value", array.toString());
+						obj3.put("type", "other");
+						input.put(obj3);
+						try {
+							OntologyManager ontMgr = workspace.getOntologyManager();
+							Label label = ontMgr.getUriLabel(incoming ? otherClass : predicate);
+							AddValuesCommand command = (AddValuesCommand) addFactory.createCommand(input, 
+									model, workspace, hNodeId, worksheetId, hnode.getHTableId(), label.getDisplayName(), HNodeType.AugmentData, selection.getName());
+							command.doIt(workspace);
+							outputColumns.addAll(command.getOutputColumns());
+							isNewNode |= command.isNewNode();
+							if (command.isNewNode())
+								appliedCommands.push(command);
+							newhNodeId = command.getNewHNodeId();
 
-		List<String> resultSubjects = results.get("resultSubjects");
-		List<String> resultPredicates = results.get("resultPredicates");
-		List<String> resultObjects = results.get("resultObjects");
-		List<String> resultClass = results.get("resultClasses");
-		AddValuesCommandFactory addFactory = new AddValuesCommandFactory();
 
-		for (int i = 0; i < resultPredicates.size(); i++) {
-			String subject = incoming ? resultObjects.get(i) : resultSubjects.get(i);
-			List<String> rowIds = SubjectURIToRowId.get(subject);
-			boolean isNewNode = false;
-			for (String RowId : rowIds) {
-				String predicate = resultPredicates.get(i);
-				String otherClass = resultClass.get(i);
-				JSONArray array = new JSONArray();
-				JSONObject obj = new JSONObject();
-				JSONObject obj2 = new JSONObject();
-				if (otherClass != null && !otherClass.trim().isEmpty())
-					obj.put("URIs", incoming ? resultSubjects.get(i) : resultObjects.get(i));
-				else
-					obj.put("values", incoming ? resultSubjects.get(i) : resultObjects.get(i));
-				obj2.put("rowId", RowId);
-				obj2.put("rowIdHash", "");
-				obj2.put("values", obj);
-				array.put(obj2);
-				JSONArray input = new JSONArray();
-				JSONObject obj3 = new JSONObject();
-				obj3.put("name", "AddValues");
-				obj3.put("value", array.toString());
-				obj3.put("type", "other");
-				input.put(obj3);
-				try {
-					OntologyManager ontMgr = workspace.getOntologyManager();
-					Label label = ontMgr.getUriLabel(incoming ? otherClass : predicate);
-					AddValuesCommand command = (AddValuesCommand) addFactory.createCommand(input, 
-							model, workspace, hNodeId, worksheetId, hnode.getHTableId(), label.getDisplayName(), HNodeType.AugmentData, selection.getName());
-					command.doIt(workspace);
-					outputColumns.addAll(command.getOutputColumns());
-					isNewNode |= command.isNewNode();
-					if (command.isNewNode())
-						appliedCommands.push(command);
-					newhNodeId = command.getNewHNodeId();
-
-
-				} catch(Exception e) {
-					e.printStackTrace();
-					return new UpdateContainer(new ErrorUpdate(e.getMessage()));
-				}
-			}
-			if (isNewNode && alignment.GetTreeRoot() != null) {
-				HNode tableHNode =workspace.getFactory().getHNode(newhNodeId);
-				String nestedHNodeId = tableHNode.getNestedTable().getHNodeIdFromColumnName("values");
-				if (nestedHNodeId == null)
-					nestedHNodeId = tableHNode.getNestedTable().getHNodeIdFromColumnName("URIs");
-				SetSemanticTypeCommandFactory sstFactory = new SetSemanticTypeCommandFactory();
-				JSONArray semanticTypesArray = new JSONArray();
-				JSONObject semanticType = new JSONObject();
-				edu.isi.karma.rep.alignment.Node n = alignment.getNodeById(columnUri);
+						} catch(Exception e) {
+							e.printStackTrace();
+							throw new KarmaException(e.getMessage(), e);
+						}
+					}
+					try {
+						if (isNewNode && alignment.GetTreeRoot() != null) {
+							HNode tableHNode =workspace.getFactory().getHNode(newhNodeId);
+							String nestedHNodeId = tableHNode.getNestedTable().getHNodeIdFromColumnName("values");
+							if (nestedHNodeId == null)
+								nestedHNodeId = tableHNode.getNestedTable().getHNodeIdFromColumnName("URIs");
+							SetSemanticTypeCommandFactory sstFactory = new SetSemanticTypeCommandFactory();
+							JSONArray semanticTypesArray = new JSONArray();
+							JSONObject semanticType = new JSONObject();
+							edu.isi.karma.rep.alignment.Node n = alignment.getNodeById(columnUri);
 
-				semanticType.put(ClientJsonKeys.isPrimary.name(), "true");
-				Set<edu.isi.karma.rep.alignment.Node> oldNodes = new HashSet<>(); 
-				if(resultClass.get(i).trim().isEmpty())
-				{
-					semanticType.put(ClientJsonKeys.DomainId.name(), n.getId());
-					semanticType.put(ClientJsonKeys.FullType.name(), resultPredicates.get(i));
-					semanticType.put(ClientJsonKeys.DomainUri.name(), n.getUri());
-				}
-				else
-				{
-					if (alignment.getNodesByUri(resultClass.get(i)) != null)
-						oldNodes.addAll( alignment.getNodesByUri(resultClass.get(i)));
-					semanticType.put(ClientJsonKeys.DomainId.name(), resultClass.get(i));
-					semanticType.put(ClientJsonKeys.FullType.name(), Uris.CLASS_INSTANCE_LINK_URI);
-				}
+							semanticType.put(ClientJsonKeys.isPrimary.name(), "true");
+							Set<edu.isi.karma.rep.alignment.Node> oldNodes = new HashSet<>(); 
+							if(otherClass.trim().isEmpty())
+							{
+								semanticType.put(ClientJsonKeys.DomainId.name(), n.getId());
+								semanticType.put(ClientJsonKeys.FullType.name(), predicate);
+								semanticType.put(ClientJsonKeys.DomainUri.name(), n.getUri());
+							}
+							else
+							{
+								if (alignment.getNodesByUri(otherClass) != null)
+									oldNodes.addAll( alignment.getNodesByUri(otherClass));
+								semanticType.put(ClientJsonKeys.DomainId.name(), otherClass);
+								semanticType.put(ClientJsonKeys.FullType.name(), Uris.CLASS_INSTANCE_LINK_URI);
+							}
 
 
-				semanticTypesArray.put(semanticType);
-				Command sstCommand = sstFactory.createCommand(model, workspace, worksheetId, nestedHNodeId, 
-						false, semanticTypesArray, false, "", "", selection.getName());
-				appliedCommands.push(sstCommand);
-				sstCommand.doIt(workspace);
-				if(!resultClass.get(i).trim().isEmpty())
-				{
-					ChangeInternalNodeLinksCommandFactory cinlcf = new ChangeInternalNodeLinksCommandFactory();
-					SetMetaPropertyCommandFactory smpcf = new SetMetaPropertyCommandFactory();
-					JSONArray newEdges = new JSONArray();
-					JSONObject newEdge = new JSONObject();
-					String sourceId = n.getId();
-					Set<edu.isi.karma.rep.alignment.Node> tempnodes = new HashSet<>();
-					tempnodes.addAll(alignment.getNodesByUri(resultClass.get(i)));
-					tempnodes.removeAll(oldNodes);
+							semanticTypesArray.put(semanticType);
+							Command sstCommand = sstFactory.createCommand(model, workspace, worksheetId, nestedHNodeId, 
+									false, semanticTypesArray, false, "", "", selection.getName());
+							sstCommand.doIt(workspace);
+							appliedCommands.push(sstCommand);
+							if(!otherClass.trim().isEmpty())
+							{
+								ChangeInternalNodeLinksCommandFactory cinlcf = new ChangeInternalNodeLinksCommandFactory();
+								SetMetaPropertyCommandFactory smpcf = new SetMetaPropertyCommandFactory();
+								JSONArray newEdges = new JSONArray();
+								JSONObject newEdge = new JSONObject();
+								String sourceId = n.getId();
+								Set<edu.isi.karma.rep.alignment.Node> tempnodes = new HashSet<>();
+								tempnodes.addAll(alignment.getNodesByUri(otherClass));
+								tempnodes.removeAll(oldNodes);
 
-					edu.isi.karma.rep.alignment.Node target = tempnodes.iterator().next();
-					String targetId = target.getId();
-					String targetUri = target.getLabel().getUri();
-					String edgeUri = resultPredicates.get(i);
-					if (!incoming) {
-						newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeSourceId.name(), sourceId);
-						newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeTargetId.name(), targetId);
-						newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeId.name(), edgeUri);
-					}
-					else {
-						newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeSourceId.name(), targetId);
-						newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeTargetId.name(), sourceId);
-						newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeId.name(), edgeUri);
+								edu.isi.karma.rep.alignment.Node target = tempnodes.iterator().next();
+								String targetId = target.getId();
+								String targetUri = target.getLabel().getUri();
+								String edgeUri = predicate;
+								if (!incoming) {
+									newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeSourceId.name(), sourceId);
+									newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeTargetId.name(), targetId);
+									newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeId.name(), edgeUri);
+								}
+								else {
+									newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeSourceId.name(), targetId);
+									newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeTargetId.name(), sourceId);
+									newEdge.put(ChangeInternalNodeLinksCommand.LinkJsonKeys.edgeId.name(), edgeUri);
+								}
+								newEdges.put(newEdge);
+								Command changeInternalNodeLinksCommand = cinlcf.createCommand(worksheetId, alignmentId, new JSONArray(), newEdges, model, workspace);
+								changeInternalNodeLinksCommand.doIt(workspace);
+								appliedCommands.push(changeInternalNodeLinksCommand);
+								Command setMetaDataCommand = smpcf.createCommand(model, workspace, nestedHNodeId, worksheetId, "isUriOfClass", 
+										targetUri, targetId, false, "", "", selection.getName());
+								setMetaDataCommand.doIt(workspace);
+								appliedCommands.push(setMetaDataCommand);
+							}
+						}
+					} catch (CommandException e) {
+						throw new KarmaException(e.getMessage(), e);
 					}
-					newEdges.put(newEdge);
-					Command changeInternalNodeLinksCommand = cinlcf.createCommand(worksheetId, alignmentId, new JSONArray(), newEdges, model, workspace);
-					changeInternalNodeLinksCommand.doIt(workspace);
-					appliedCommands.push(changeInternalNodeLinksCommand);
-					Command setMetaDataCommand = smpcf.createCommand(model, workspace, nestedHNodeId, worksheetId, "isUriOfClass", 
-							targetUri, targetId, false, "", "", selection.getName());
-					setMetaDataCommand.doIt(workspace);
-					appliedCommands.push(setMetaDataCommand);
 				}
-			}
 
+				@Override
+				public void rollback() {
+					// the columns added for the results fetched before the failure are removed
+					undoAppliedCommands(workspace);
+					outputColumns.clear();
+				}
+			});
+		} catch (KarmaException e) {
+			LOG.error("Unable to load data to augment: ", e);
+			return new UpdateContainer(new ErrorUpdate(e.getMessage()));
 		}
 
 		WorksheetUpdateFactory.detectSelectionStatusChange(worksheetId, workspace, this);
@@ -326,36 +309,17 @@ public class AugmentDataCommand extends WorksheetSelectionCommand{
 	@Override
 	public UpdateContainer undoIt(Workspace workspace) {
 		UpdateContainer c =  new UpdateContainer();
-		while (!appliedCommands.isEmpty()) {
-			Command command = appliedCommands.pop();
-			command.undoIt(workspace);
-		}
+		undoAppliedCommands(workspace);
 		c.append(WorksheetUpdateFactory.createRegenerateWorksheetUpdates(worksheetId, getSuperSelection(workspace), workspace.getContextId()));
 		c.append(computeAlignmentAndSemanticTypesAndCreateUpdates(workspace));
 		return c;
 	}
 
-	private void addMappingToResults(Map<String, List<String>> results, Map<String, List<String>> temp) {
-		List<String> resultSubjects = results.get("resultSubjects");
-		List<String> resultPredicates = results.get("resultPredicates");
-		List<String> resultObjects = results.get("resultObjects");
-		List<String> resultClasses = results.get("resultClasses");
-		if (resultSubjects == null)
-			resultSubjects = new LinkedList<>();
-		if (resultPredicates == null)
-			resultPredicates = new LinkedList<>();
-		if (resultObjects == null)
-			resultObjects = new LinkedList<>();
-		if (resultClasses == null)
-			resultClasses = new LinkedList<>();
-		resultSubjects.addAll(temp.get("resultSubjects"));
-		resultPredicates.addAll(temp.get("resultPredicates"));
-		resultObjects.addAll(temp.get("resultObjects"));
-		resultClasses.addAll(temp.get("resultClasses"));
-		results.put("resultSubjects", resultSubjects);
-		results.put("resultPredicates", resultPredicates);
-		results.put("resultObjects", resultObjects);
-		results.put("resultClasses", resultClasses);
+	private void undoAppliedCommands(Workspace workspace) {
+		while (!appliedCommands.isEmpty()) {
+			Command command = appliedCommands.pop();
+			command.undoIt(workspace);
+		}
 	}
 
 }
@@ -3,7 +3,6 @@ package edu.isi.karma.controller.command.alignment;
 import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,8 +14,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.hadoop.util.bloom.Key;
-import org.apache.hadoop.util.hash.Hash;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -27,10 +24,12 @@ import edu.isi.karma.controller.command.CommandType;
 import edu.isi.karma.controller.command.WorksheetSelectionCommand;
 import edu.isi.karma.controller.command.selection.SuperSelection;
 import edu.isi.karma.controller.update.AbstractUpdate;
+import edu.isi.karma.controller.update.ErrorUpdate;
 import edu.isi.karma.controller.update.UpdateContainer;
+import edu.isi.karma.er.helper.BloomFilterCache;
+import edu.isi.karma.er.helper.BloomFilterCache.DecodedBloomFilter;
 import edu.isi.karma.er.helper.BloomFilterTripleStoreUtil;
 import edu.isi.karma.er.helper.CloneTableUtils;
-import edu.isi.karma.kr2rml.writer.KR2RMLBloomFilter;
 import edu.isi.karma.modeling.alignment.AlignmentManager;
 import edu.isi.karma.rep.HNode;
 import edu.isi.karma.rep.Node;
@@ -46,12 +45,10 @@ import edu.isi.karma.webserver.KarmaException;
 
 public class SearchForDataToAugmentIncomingCommand extends WorksheetSelectionCommand{
 	private static final Logger LOG = LoggerFactory.getLogger(SearchForDataToAugmentIncomingCommand.class);
-	private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
 	private String tripleStoreUrl;
 	private String context;
 	private String nodeUri;
 	private String columnUri;
-	private final Integer limit = 100;
 	public SearchForDataToAugmentIncomingCommand(String id, String model, String url, String context, String nodeUri, String worksheetId, String columnUri, String selectionId) {
 		super(id, model, worksheetId, selectionId);
 		this.tripleStoreUrl = url;
@@ -111,7 +108,6 @@ public class SearchForDataToAugmentIncomingCommand extends WorksheetSelectionCom
 		HNode hnode = factory.getHNode(hNodeId);
 		List<Table> dataTables = new ArrayList<>();
 		CloneTableUtils.getDatatable(worksheet.getDataTable(), factory.getHTable(hnode.getHTableId()), dataTables, selection);
-		KR2RMLBloomFilter uris = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
 		Set<String> uriSet = new HashSet<>();
 		for(Table t : dataTables) {
 			for(Row r : t.getRows(0, t.getNumRows(), selection)) {
@@ -129,26 +125,22 @@ public class SearchForDataToAugmentIncomingCommand extends WorksheetSelectionCom
 					}
 					value = builder.append("<").append(value).append(">").toString(); //String builder
 					uriSet.add(value);
-					uris.add(new Key(value.getBytes(UTF8_CHARSET)));
 				}
 			}
 		}
 		Set<String> maps = new HashSet<>();
-		Map<String, String> bloomfilterMapping = new HashMap<>();
+		for (String concatenatedPredicateObjectMaps : concatenatedPredicateObjectMapsList) {
+			maps.addAll(Arrays.asList(concatenatedPredicateObjectMaps.split(",")));
+		}
+		Map<String, DecodedBloomFilter> bloomfilterMapping;
 		try{
-			for (String concatenatedPredicateObjectMaps : concatenatedPredicateObjectMapsList) {
-				List<String> predicateObjectMaps = new ArrayList<>(Arrays.asList(concatenatedPredicateObjectMaps.split(",")));
-				maps.addAll(predicateObjectMaps);
-				if (maps.size() > limit) {
-					bloomfilterMapping.putAll(util.getBloomFiltersForMaps(tripleStoreUrl, null, maps));
-					maps = new HashSet<>();
-				}
-			}
-			if (!maps.isEmpty())
-				bloomfilterMapping.putAll(util.getBloomFiltersForMaps(tripleStoreUrl, null, maps));
+			bloomfilterMapping = BloomFilterCache.getInstance(workspace).getBloomFilters(util, tripleStoreUrl, maps);
 		} catch (KarmaException e1) {
-			e1.printStackTrace();
+			LOG.error("Unable to get the bloom filters", e1);
+			return new UpdateContainer(new ErrorUpdate("Unable to get the bloom filters: " + e1.getMessage()));
 		}
+		List<String> uris = new ArrayList<>(uriSet);
+		long[] hashes = BloomFilterTripleStoreUtil.hashUris(uris);
 		while(concatenatedPredicateObjectMapsListItr.hasNext() && predicatesItr.hasNext() && otherClassesItr.hasNext())
 		{
 			String concatenatedPredicateObjectMaps = concatenatedPredicateObjectMapsListItr.next();
@@ -156,17 +148,14 @@ public class SearchForDataToAugmentIncomingCommand extends WorksheetSelectionCom
 			String predicate =  predicatesItr.next();
 			String otherClass = otherClassesItr.next();
 			try {
-				KR2RMLBloomFilter intersectionBF = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
+				List<DecodedBloomFilter> bfs = new ArrayList<>();
 				for (String triplemap : predicateObjectMaps) {
-					String serializedBloomFilter = bloomfilterMapping.get(triplemap);
-					if (serializedBloomFilter != null) {
-						KR2RMLBloomFilter bf = new KR2RMLBloomFilter();
-						bf.populateFromCompressedAndBase64EncodedString(serializedBloomFilter);
-						intersectionBF.or(bf);
+					DecodedBloomFilter bf = bloomfilterMapping.get(triplemap);
+					if (bf != null) {
+						bfs.add(bf);
 					}
 				}
-				intersectionBF.and(uris);
-				int estimate = intersectionBF.estimateNumberOfHashedValues();
+				int estimate = BloomFilterTripleStoreUtil.countUrisInBloomFilters(bfs, uris, hashes);
 				JSONObject obj = new JSONObject();
 				obj.put("predicate", predicate);
 				obj.put("otherClass", otherClass);
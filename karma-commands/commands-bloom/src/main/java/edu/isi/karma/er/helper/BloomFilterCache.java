@@ -0,0 +1,180 @@
+package edu.isi.karma.er.helper;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.util.bloom.Key;
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
+import edu.isi.karma.kr2rml.writer.KR2RMLBloomFilter;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.webserver.KarmaException;
+
+/**
+ * The decoded bloom filters of the triples maps, keyed by triple store URL
+ * and triples map. The filters that are not cached are fetched with one
+ * query, so searching for data to augment only goes to the triple store for
+ * the triples maps it has not seen in the workspace.
+ *
+ * There is one cache per workspace, which is released with the workspace.
+ * The filters written through {@link BloomFilterTripleStoreUtil} are removed
+ * from all the caches. The filters written by other processes are seen once
+ * the cached ones expire, after {@link #DEFAULT_TIME_TO_LIVE} ms. The
+ * triples maps without a filter are not cached, they are queried again.
+ */
+public class BloomFilterCache {
+
+	public static final long DEFAULT_TIME_TO_LIVE = 10 * 60 * 1000;
+
+	private static final Map<Workspace, BloomFilterCache> caches = Collections.synchronizedMap(new WeakHashMap<Workspace, BloomFilterCache>());
+
+	private final Map<String, CachedBloomFilter> filters = new ConcurrentHashMap<>();
+	private final long timeToLive;
+
+	public BloomFilterCache() {
+		this(DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * @param timeToLive the time in ms a filter is used before it is fetched again
+	 */
+	public BloomFilterCache(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	public static BloomFilterCache getInstance(Workspace workspace) {
+		synchronized (caches) {
+			BloomFilterCache cache = caches.get(workspace);
+			if (cache == null) {
+				cache = new BloomFilterCache();
+				caches.put(workspace, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Removes the filters of the triples maps from the caches of all the workspaces
+	 */
+	public static void invalidate(String tripleStoreURL, Collection<String> maps) {
+		List<BloomFilterCache> all;
+		synchronized (caches) {
+			all = new ArrayList<>(caches.values());
+		}
+		for (BloomFilterCache cache : all) {
+			for (String map : maps)
+				cache.filters.remove(getKey(tripleStoreURL, map));
+		}
+	}
+
+	/**
+	 * @return the filter of each triples map, the triples maps without a
+	 *         filter are not in the map
+	 * @throws KarmaException if the filters cannot be fetched or decoded,
+	 *         nothing is cached for the triples maps that were not fetched
+	 */
+	public Map<String, DecodedBloomFilter> getBloomFilters(BloomFilterTripleStoreUtil util, String tripleStoreURL, Collection<String> maps) throws KarmaException {
+		tripleStoreURL = util.normalizeTripleStoreURL(tripleStoreURL);
+		long now = System.currentTimeMillis();
+		Map<String, DecodedBloomFilter> result = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		for (String map : maps) {
+			String key = getKey(tripleStoreURL, map);
+			CachedBloomFilter cached = filters.get(key);
+			if (cached != null && now - cached.fetched >= timeToLive) {
+				filters.remove(key);
+				cached = null;
+			}
+			if (cached == null)
+				missing.add(map);
+			else
+				result.put(map, cached.bf);
+		}
+		if (missing.isEmpty())
+			return result;
+
+		Map<String, String> serializedBloomFilters = util.getBloomFiltersForMaps(tripleStoreURL, null, missing);
+		Map<String, DecodedBloomFilter> fetched = new HashMap<>();
+		for (String map : missing) {
+			String serializedBloomFilter = serializedBloomFilters.get(map);
+			if (serializedBloomFilter == null)
+				continue;
+			try {
+				fetched.put(map, DecodedBloomFilter.decode(serializedBloomFilter));
+			} catch (IOException e) {
+				throw new KarmaException("Unable to decode the bloom filter of " + map + ": " + e.getMessage(), e);
+			}
+		}
+		for (Map.Entry<String, DecodedBloomFilter> entry : fetched.entrySet()) {
+			filters.put(getKey(tripleStoreURL, entry.getKey()), new CachedBloomFilter(entry.getValue(), now));
+		}
+		result.putAll(fetched);
+		return result;
+	}
+
+	private static String getKey(String tripleStoreURL, String map) {
+		return tripleStoreURL + " " + map;
+	}
+
+	private static class CachedBloomFilter {
+
+		private final DecodedBloomFilter bf;
+		private final long fetched;
+
+		CachedBloomFilter(DecodedBloomFilter bf, long fetched) {
+			this.bf = bf;
+			this.fetched = fetched;
+		}
+	}
+
+	/**
+	 * A bloom filter in the encoding of {@link BlockedBloomFilter}, tested
+	 * with the hashes of the URIs, or in the encoding of
+	 * {@link KR2RMLBloomFilter}, tested with the URIs.
+	 */
+	public static class DecodedBloomFilter {
+
+		private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
+
+		private final BlockedBloomFilter bf;
+		private final KR2RMLBloomFilter legacy;
+
+		private DecodedBloomFilter(BlockedBloomFilter bf, KR2RMLBloomFilter legacy) {
+			this.bf = bf;
+			this.legacy = legacy;
+		}
+
+		public static DecodedBloomFilter decode(String serializedBloomFilter) throws IOException {
+			if (BlockedBloomFilter.isEncodedBlockedBloomFilter(serializedBloomFilter))
+				return new DecodedBloomFilter(BlockedBloomFilter.fromCompressedAndBase64EncodedString(serializedBloomFilter), null);
+			KR2RMLBloomFilter legacy = new KR2RMLBloomFilter();
+			legacy.populateFromCompressedAndBase64EncodedString(serializedBloomFilter);
+			return new DecodedBloomFilter(null, legacy);
+		}
+
+		/**
+		 * Marks the URIs that are in the filter, the URIs already marked are not tested
+		 * @param hashes the hashes of the URIs from {@link BlockedBloomFilter#hash(String)}
+		 */
+		public void membershipTest(List<String> uris, long[] hashes, boolean[] found) {
+			if (bf != null) {
+				for (int i = 0; i < hashes.length; i++) {
+					if (!found[i])
+						found[i] = bf.membershipTest(hashes[i]);
+				}
+			} else {
+				for (int i = 0; i < found.length; i++) {
+					if (!found[i])
+						found[i] = legacy.membershipTest(new Key(uris.get(i).getBytes(UTF8_CHARSET)));
+				}
+			}
+		}
+	}
+}
@@ -3,25 +3,23 @@ package edu.isi.karma.er.helper;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.lang.reflect.Field;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import org.apache.hadoop.util.bloom.BloomFilter;
-import org.apache.hadoop.util.hash.Hash;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.isi.karma.kr2rml.writer.KR2RMLBloomFilter;
+import edu.isi.karma.er.helper.BloomFilterCache.DecodedBloomFilter;
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
 import edu.isi.karma.modeling.Uris;
 import edu.isi.karma.util.HTTPUtil;
 import edu.isi.karma.webserver.KarmaException;
@@ -61,22 +59,16 @@ public class BloomFilterTripleStoreUtil extends TripleStoreUtil {
 		for (Entry<String, String> entry : verification.entrySet()) {
 			String key = entry.getKey();
 			String value = entry.getValue();
-			KR2RMLBloomFilter bf2 = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
-			KR2RMLBloomFilter bf = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
-			bf2.populateFromCompressedAndBase64EncodedString(value);
-			bf.populateFromCompressedAndBase64EncodedString(obj.getString(key));
-			bf2.and(bf);
-			bf2.xor(bf);
-			try {
-				Field f1 = BloomFilter.class.getDeclaredField("bits");
-				f1.setAccessible(true);
-				BitSet bits = (BitSet) f1.get(bf2);
-				if (bits.cardinality() != 0) {
-					verify = false;
-					break;
-				}
-			} catch (Exception e) {
-				
+			// a stored filter in the old encoding is replaced on the next update
+			if (!BlockedBloomFilter.isEncodedBlockedBloomFilter(value)) {
+				verify = false;
+				break;
+			}
+			BlockedBloomFilter bf2 = BlockedBloomFilter.fromCompressedAndBase64EncodedString(value);
+			BlockedBloomFilter bf = BlockedBloomFilter.fromCompressedAndBase64EncodedString(obj.getString(key));
+			if (!bf2.containsAll(bf)) {
+				verify = false;
+				break;
 			}
 		}
 		return verify;
@@ -85,12 +77,10 @@ public class BloomFilterTripleStoreUtil extends TripleStoreUtil {
 	public boolean updateTripleStore(JSONObject obj, Map<String, String> bloomfilterMapping, String modelRepoUrl, String modelContext) throws KarmaException, IOException {
 		Set<String> triplemaps = new HashSet<>(Arrays.asList(obj.getString("ids").split(",")));
 		bloomfilterMapping.putAll(getBloomFiltersForMaps(modelRepoUrl, modelContext, triplemaps));
-		Map<String, KR2RMLBloomFilter> bfs = new HashMap<>();
+		Map<String, BlockedBloomFilter> bfs = new HashMap<>();
 		for (String tripleUri : triplemaps) {
 			String serializedBloomFilter = obj.getString(tripleUri);
-			KR2RMLBloomFilter bf = new KR2RMLBloomFilter();
-			bf.populateFromCompressedAndBase64EncodedString(serializedBloomFilter);
-			bfs.put(tripleUri, bf);
+			bfs.put(tripleUri, BlockedBloomFilter.fromCompressedAndBase64EncodedString(serializedBloomFilter));
 		}
 		return updateTripleStoreWithBloomFilters(bfs, bloomfilterMapping, modelRepoUrl, modelContext);
 	}
@@ -100,6 +90,8 @@ public class BloomFilterTripleStoreUtil extends TripleStoreUtil {
 		testTripleStoreConnection(tripleStoreURL);
 
 		Map<String, String> bloomfilters = new HashMap<>();
+		if (maps.isEmpty())
+			return bloomfilters;
 		try {
 
 			StringBuilder query = new StringBuilder();
@@ -108,22 +100,16 @@ public class BloomFilterTripleStoreUtil extends TripleStoreUtil {
 			query.append("SELECT ?bf ?s \n");			
 			injectContext(context, query);
 			query.append("WHERE \n{\n");
-			Iterator<String> iterator = maps.iterator();
-			while(iterator.hasNext()) {
-				query.append("{");
-				query.append("\n ?s <");
-				query.append(Uris.KM_HAS_BLOOMFILTER);
-				query.append("> ?bf . ");
-				query.append("\n<");
-				query.append(iterator.next());
-				query.append("> <");
-				query.append(Uris.KM_HAS_BLOOMFILTER);
-				if (iterator.hasNext())
-					query.append("> ?bf . \n} UNION \n");
-				else
-					query.append("> ?bf . \n} \n");
+			query.append("VALUES ?s { ");
+			for (String map : maps) {
+				formatURI(map, query);
+				query.append(" ");
 			}
 			query.append("}\n");
+			query.append("?s <");
+			query.append(Uris.KM_HAS_BLOOMFILTER);
+			query.append("> ?bf . \n");
+			query.append("}\n");
 
 			String queryString = query.toString();
 			logger.debug("query: " + queryString);
@@ -147,7 +133,7 @@ public class BloomFilterTripleStoreUtil extends TripleStoreUtil {
 				}
 			}
 		} catch (Exception e) {
-			logger.error(e.getMessage());
+			throw new KarmaException("Unable to get the bloom filters from " + tripleStoreURL + ": " + e.getMessage(), e);
 		}
 		return bloomfilters;
 	}
@@ -155,6 +141,7 @@ public class BloomFilterTripleStoreUtil extends TripleStoreUtil {
 	public void deleteBloomFiltersForMaps(String tripleStoreURL, String context, Collection<String> maps) throws KarmaException
 	{
 		testTripleStoreConnection(tripleStoreURL);
+		BloomFilterCache.invalidate(normalizeTripleStoreURL(tripleStoreURL), maps);
 		tripleStoreURL = normalizeTripleStoreURL(tripleStoreURL) + "/statements";		
 
 		try {
@@ -203,27 +190,59 @@ public class BloomFilterTripleStoreUtil extends TripleStoreUtil {
 		}
 	}
 
-	public boolean updateTripleStoreWithBloomFilters(Map<String, KR2RMLBloomFilter> bfs, Map<String, String> bloomfilterMapping, String modelurl, String context) throws KarmaException, IOException {
+	/**
+	 * Adds the filters to the ones already stored for the maps. A stored filter
+	 * in the old KR2RMLBloomFilter encoding cannot be or-ed with a
+	 * {@link BlockedBloomFilter}, so it is replaced by the new filter and the
+	 * URIs only it had are lost until the source is published again.
+	 */
+	public boolean updateTripleStoreWithBloomFilters(Map<String, BlockedBloomFilter> bfs, Map<String, String> bloomfilterMapping, String modelurl, String context) throws KarmaException, IOException {
 		Set<String> triplemaps = bfs.keySet();
-		for (Entry<String, KR2RMLBloomFilter> stringKR2RMLBloomFilterEntry : bfs.entrySet()) {
-			KR2RMLBloomFilter bf = stringKR2RMLBloomFilterEntry.getValue();
-			String oldserializedBloomFilter = bloomfilterMapping.get(stringKR2RMLBloomFilterEntry.getKey());
+		for (Entry<String, BlockedBloomFilter> entry : bfs.entrySet()) {
+			BlockedBloomFilter bf = entry.getValue();
+			String oldserializedBloomFilter = bloomfilterMapping.get(entry.getKey());
 			if (oldserializedBloomFilter != null) {
-				KR2RMLBloomFilter bf2 = new KR2RMLBloomFilter();
-				bf2.populateFromCompressedAndBase64EncodedString(oldserializedBloomFilter);
-				bf.or(bf2);
+				if (BlockedBloomFilter.isEncodedBlockedBloomFilter(oldserializedBloomFilter)) {
+					bf.or(BlockedBloomFilter.fromCompressedAndBase64EncodedString(oldserializedBloomFilter));
+				} else {
+					logger.warn("Replacing the bloom filter of " + entry.getKey() + ", it has the old encoding and cannot be combined");
+				}
 			}
-			bfs.put(stringKR2RMLBloomFilterEntry.getKey(), bf);
 		}
 		deleteBloomFiltersForMaps(modelurl, null, triplemaps);
 		StringWriter sw = new StringWriter();
 		PrintWriter pw = new PrintWriter(sw);
-		for (Entry<String, KR2RMLBloomFilter> entry : bfs.entrySet()) {
+		for (Entry<String, BlockedBloomFilter> entry : bfs.entrySet()) {
 			pw.print("<" + entry.getKey() + "> ");
 			pw.print("<" + Uris.KM_HAS_BLOOMFILTER + "> ");
 			pw.println("\"" + entry.getValue().compressAndBase64Encode() + "\" . ");
 		}
 		pw.close();
-		return saveToStoreFromString(sw.toString(), modelurl, context, new Boolean(false), null);
+		boolean result = saveToStoreFromString(sw.toString(), modelurl, context, new Boolean(false), null);
+		BloomFilterCache.invalidate(normalizeTripleStoreURL(modelurl), triplemaps);
+		return result;
+	}
+
+	public static long[] hashUris(List<String> uris) {
+		long[] hashes = new long[uris.size()];
+		for (int i = 0; i < hashes.length; i++)
+			hashes[i] = BlockedBloomFilter.hash(uris.get(i));
+		return hashes;
+	}
+
+	/**
+	 * @param hashes the hashes of the URIs from {@link #hashUris(List)}
+	 * @return the number of URIs that are in at least one of the filters
+	 */
+	public static int countUrisInBloomFilters(Collection<DecodedBloomFilter> bfs, List<String> uris, long[] hashes) {
+		boolean[] found = new boolean[uris.size()];
+		for (DecodedBloomFilter bf : bfs)
+			bf.membershipTest(uris, hashes, found);
+		int count = 0;
+		for (boolean f : found) {
+			if (f)
+				count++;
+		}
+		return count;
 	}
 }
@@ -0,0 +1,340 @@
+package edu.isi.karma.kr2rml.writer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * A Bloom filter whose bits are split in blocks of 512 bits, the size of a
+ * cache line. All the bits of a key are set in one block, so adding or testing
+ * a key touches one cache line.
+ *
+ * The filter is sized from the expected number of keys and the false positive
+ * rate. The number of blocks is a power of 2 and the block of a key is given
+ * by the low bits of its hash. A key of a filter with fewer blocks may be in
+ * any of the blocks of a larger filter that have the same low bits, so
+ * {@link #or(BlockedBloomFilter)} and {@link #and(BlockedBloomFilter)} copy
+ * each block of the smaller filter to all of them. The result has the number
+ * of blocks of the larger filter, the bits of the larger filter are kept
+ * where they are and its false positive rate only grows by the bits of the
+ * smaller one. Filters sized for different numbers of keys can be combined
+ * as long as they have the same number of hashes, which only depends on the
+ * false positive rate.
+ *
+ * The keys can be hashed once with {@link #hash(String)} and passed as
+ * longs to the bulk methods.
+ */
+public class BlockedBloomFilter {
+
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
+	private static final int BLOCK_BITS = 512;
+	private static final int LONGS_PER_BLOCK = BLOCK_BITS / 64;
+	private static final int MAX_HASHES = 16;
+	private static final int MAX_BLOCKS = 1 << 24;
+	// "KBF", which Base64 encodes as "S0JG"
+	private static final byte[] MAGIC = {'K', 'B', 'F'};
+	private static final String ENCODED_MAGIC = "S0JG";
+	private static final int VERSION = 1;
+
+	private final int numHashes;
+	private int numBlocks;
+	private long[] bits;
+
+	public BlockedBloomFilter(long expectedNumberOfKeys) {
+		this(expectedNumberOfKeys, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	public BlockedBloomFilter(long expectedNumberOfKeys, double falsePositiveRate) {
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("The false positive rate must be between 0 and 1: " + falsePositiveRate);
+		double bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		long numBits = (long) Math.ceil(Math.max(1, expectedNumberOfKeys) * bitsPerKey);
+		long blocks = (numBits + BLOCK_BITS - 1) / BLOCK_BITS;
+		int numBlocks = 1;
+		while (numBlocks < blocks && numBlocks < MAX_BLOCKS)
+			numBlocks <<= 1;
+		this.numHashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerKey * Math.log(2))));
+		this.numBlocks = numBlocks;
+		this.bits = new long[numBlocks * LONGS_PER_BLOCK];
+	}
+
+	private BlockedBloomFilter(int numHashes, int numBlocks, long[] bits) {
+		this.numHashes = numHashes;
+		this.numBlocks = numBlocks;
+		this.bits = bits;
+	}
+
+	public int getNumberOfHashes() {
+		return numHashes;
+	}
+
+	public int getNumberOfBlocks() {
+		return numBlocks;
+	}
+
+	public void add(String key) {
+		add(hash(key));
+	}
+
+	public void add(long hash) {
+		int base = ((int) hash & (numBlocks - 1)) * LONGS_PER_BLOCK;
+		long g = mix(hash);
+		int h1 = (int) g;
+		int h2 = (int) (g >>> 32) | 1;
+		for (int i = 0; i < numHashes; i++) {
+			int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+			bits[base + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	public void addAll(Collection<String> keys) {
+		for (String key : keys)
+			add(hash(key));
+	}
+
+	public void addAll(long[] hashes, int from, int to) {
+		for (int i = from; i < to; i++)
+			add(hashes[i]);
+	}
+
+	public boolean membershipTest(String key) {
+		return membershipTest(hash(key));
+	}
+
+	public boolean membershipTest(long hash) {
+		int base = ((int) hash & (numBlocks - 1)) * LONGS_PER_BLOCK;
+		long g = mix(hash);
+		int h1 = (int) g;
+		int h2 = (int) (g >>> 32) | 1;
+		for (int i = 0; i < numHashes; i++) {
+			int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+			if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tests the hashes from index from to index to
+	 * @param results receives the result of each hash at the same index
+	 * @return the number of hashes that are in the filter
+	 */
+	public int membershipTest(long[] hashes, int from, int to, boolean[] results) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			boolean member = membershipTest(hashes[i]);
+			results[i] = member;
+			if (member)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the keys of another filter with the same number of hashes. This
+	 * filter grows to the number of blocks of the other one if it has more.
+	 */
+	public void or(BlockedBloomFilter other) {
+		long[] otherBits = combinableBits(other);
+		for (int i = 0; i < bits.length; i++)
+			bits[i] |= otherBits[i % otherBits.length];
+	}
+
+	/**
+	 * Keeps the keys that are also in another filter with the same number of
+	 * hashes. This filter grows to the number of blocks of the other one if
+	 * it has more.
+	 */
+	public void and(BlockedBloomFilter other) {
+		long[] otherBits = combinableBits(other);
+		for (int i = 0; i < bits.length; i++)
+			bits[i] &= otherBits[i % otherBits.length];
+	}
+
+	/**
+	 * @return true if the bits of another filter with the same number of
+	 *         hashes and at least as many blocks are all set in this filter
+	 */
+	public boolean containsAll(BlockedBloomFilter other) {
+		if (other.numHashes != numHashes || other.numBlocks < numBlocks)
+			return false;
+		long[] otherBits = other.numBlocks > numBlocks ? fold(other.bits, numBlocks) : other.bits;
+		for (int i = 0; i < bits.length; i++) {
+			if ((otherBits[i] & ~bits[i]) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the bits of the other filter, this filter is first grown to its
+	 *         number of blocks. The block i of a filter with more blocks
+	 *         matches the block i % numBlocks of the other one.
+	 */
+	private long[] combinableBits(BlockedBloomFilter other) {
+		if (other.numHashes != numHashes)
+			throw new IllegalArgumentException("Cannot combine filters with " + numHashes
+					+ " and " + other.numHashes + " hashes");
+		if (other.numBlocks > numBlocks) {
+			bits = unfold(bits, other.numBlocks);
+			numBlocks = other.numBlocks;
+		}
+		return other.bits;
+	}
+
+	private static long[] unfold(long[] bits, int numBlocks) {
+		long[] unfolded = new long[numBlocks * LONGS_PER_BLOCK];
+		for (int i = 0; i < unfolded.length; i += bits.length)
+			System.arraycopy(bits, 0, unfolded, i, bits.length);
+		return unfolded;
+	}
+
+	private static long[] fold(long[] bits, int numBlocks) {
+		long[] folded = Arrays.copyOf(bits, numBlocks * LONGS_PER_BLOCK);
+		for (int i = folded.length; i < bits.length; i++)
+			folded[i % folded.length] |= bits[i];
+		return folded;
+	}
+
+	/**
+	 * The estimate is too high after a filter with fewer blocks was combined
+	 * with this one, because its bits are copied to several blocks
+	 */
+	public int estimateNumberOfHashedValues() {
+		long setBits = 0;
+		for (long word : bits)
+			setBits += Long.bitCount(word);
+		double n = (double) numBlocks * BLOCK_BITS;
+		return (int) Math.round(-(n * Math.log(1 - (setBits / n))) / numHashes);
+	}
+
+	public static long hash(String key) {
+		return hash(key.getBytes(UTF8_CHARSET));
+	}
+
+	/**
+	 * 64 bit MurmurHash2 (MurmurHash64A) of the bytes
+	 */
+	public static long hash(byte[] data) {
+		final long m = 0xc6a4a7935bd1e995L;
+		final int r = 47;
+		int length = data.length;
+		long h = 0x9747b28cL ^ (length * m);
+		int end = length & ~7;
+		for (int i = 0; i < end; i += 8) {
+			long k = (data[i] & 0xffL) | (data[i + 1] & 0xffL) << 8 | (data[i + 2] & 0xffL) << 16
+					| (data[i + 3] & 0xffL) << 24 | (data[i + 4] & 0xffL) << 32 | (data[i + 5] & 0xffL) << 40
+					| (data[i + 6] & 0xffL) << 48 | (data[i + 7] & 0xffL) << 56;
+			k *= m;
+			k ^= k >>> r;
+			k *= m;
+			h ^= k;
+			h *= m;
+		}
+		int remaining = length - end;
+		if (remaining > 0) {
+			for (int i = remaining - 1; i >= 0; i--)
+				h ^= (data[end + i] & 0xffL) << (8 * i);
+			h *= m;
+		}
+		h ^= h >>> r;
+		h *= m;
+		h ^= h >>> r;
+		return h;
+	}
+
+	// the bits in a block do not depend on the number of blocks, so that a filter can be folded
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * The encoding is the magic bytes "KBF" and the version, followed by the
+	 * number of hashes, the number of blocks and the bits, deflated
+	 */
+	public byte[] toByteArray() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		baos.write(MAGIC);
+		baos.write(VERSION);
+		DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(baos));
+		out.writeByte(numHashes);
+		out.writeInt(numBlocks);
+		for (long word : bits)
+			out.writeLong(word);
+		out.close();
+		return baos.toByteArray();
+	}
+
+	public static BlockedBloomFilter fromByteArray(byte[] bytes) throws IOException {
+		if (!hasMagic(bytes))
+			throw new IOException("Not a blocked bloom filter");
+		if (bytes[MAGIC.length] != VERSION)
+			throw new IOException("Unsupported blocked bloom filter version: " + bytes[MAGIC.length]);
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+				new ByteArrayInputStream(bytes, MAGIC.length + 1, bytes.length - MAGIC.length - 1)))) {
+			int numHashes = in.readUnsignedByte();
+			int numBlocks = in.readInt();
+			if (numHashes < 1 || numHashes > MAX_HASHES || numBlocks < 1 || numBlocks > MAX_BLOCKS
+					|| Integer.bitCount(numBlocks) != 1)
+				throw new IOException("Invalid blocked bloom filter: " + numHashes + " hashes, " + numBlocks + " blocks");
+			long[] bits = new long[numBlocks * LONGS_PER_BLOCK];
+			for (int i = 0; i < bits.length; i++)
+				bits[i] = in.readLong();
+			return new BlockedBloomFilter(numHashes, numBlocks, bits);
+		}
+	}
+
+	private static boolean hasMagic(byte[] bytes) {
+		if (bytes.length <= MAGIC.length)
+			return false;
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (bytes[i] != MAGIC[i])
+				return false;
+		}
+		return true;
+	}
+
+	public String compressAndBase64Encode() throws IOException {
+		return Base64.encodeBase64String(toByteArray());
+	}
+
+	public static BlockedBloomFilter fromCompressedAndBase64EncodedString(String base64EncodedBloomFilter) throws IOException {
+		return fromByteArray(Base64.decodeBase64(base64EncodedBloomFilter));
+	}
+
+	/**
+	 * @return false for the filters encoded by {@link KR2RMLBloomFilter}
+	 */
+	public static boolean isEncodedBlockedBloomFilter(String base64EncodedBloomFilter) {
+		return base64EncodedBloomFilter.startsWith(ENCODED_MAGIC);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof BlockedBloomFilter))
+			return false;
+		BlockedBloomFilter other = (BlockedBloomFilter) obj;
+		return numHashes == other.numHashes && numBlocks == other.numBlocks && Arrays.equals(bits, other.bits);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * numHashes + Arrays.hashCode(bits);
+	}
+}
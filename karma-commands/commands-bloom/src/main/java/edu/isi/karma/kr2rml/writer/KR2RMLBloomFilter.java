@@ -16,6 +16,11 @@ import org.apache.hadoop.util.bloom.BloomFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The filters published before {@link BlockedBloomFilter}, with 1,000,000
+ * bits whatever the number of URIs. They are still read to search the
+ * filters already in a triple store, the new filters are blocked filters.
+ */
 public class KR2RMLBloomFilter extends BloomFilter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(KR2RMLBloomFilter.class);
@@ -1,12 +1,10 @@
 package edu.isi.karma.kr2rml.writer;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.hadoop.util.bloom.Key;
-import org.apache.hadoop.util.hash.Hash;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,57 +12,86 @@ import org.slf4j.LoggerFactory;
 import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
 import edu.isi.karma.modeling.Uris;
 
+/**
+ * Collects the URIs of each triples map, predicate object map and ref object
+ * map in a {@link BlockedBloomFilter}.
+ *
+ * The hashes of the URIs are kept until the filters are serialized or
+ * requested, so each filter is sized for the number of distinct URIs of its
+ * map.
+ */
 public class KR2RMLBloomFilterManager {
 
 	private static final Logger LOG = LoggerFactory.getLogger(KR2RMLBloomFilterManager.class);
-	private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
-	protected ConcurrentHashMap<String, KR2RMLBloomFilter> idToBloomFilter;
+	protected ConcurrentHashMap<String, BlockedBloomFilter> idToBloomFilter;
+	protected ConcurrentHashMap<String, HashBuffer> idToHashes;
 	protected R2RMLMappingIdentifier mappingIdentifier;
 	public KR2RMLBloomFilterManager(R2RMLMappingIdentifier mappingIdentifier)
 	{
 		idToBloomFilter = new ConcurrentHashMap<>();
+		idToHashes = new ConcurrentHashMap<>();
 		this.mappingIdentifier = mappingIdentifier;
 	}
 	public KR2RMLBloomFilterManager(JSONObject serializedManager) throws IOException
 	{
 		idToBloomFilter = new ConcurrentHashMap<>();
+		idToHashes = new ConcurrentHashMap<>();
 		String idsConcatenated = serializedManager.getString("ids");
 		String[] ids = idsConcatenated.split(",");
 		for(String id : ids)
 		{
 			String base64EncodedBloomFilter = serializedManager.getString(id);
-			KR2RMLBloomFilter bf = new KR2RMLBloomFilter();
-			bf.populateFromCompressedAndBase64EncodedString(base64EncodedBloomFilter);
-			idToBloomFilter.put(id, bf);
+			idToBloomFilter.put(id, BlockedBloomFilter.fromCompressedAndBase64EncodedString(base64EncodedBloomFilter));
 		}
 		this.mappingIdentifier = new R2RMLMappingIdentifier(serializedManager.getJSONObject("mappingIdentifier"));
 	}
 	
-	public KR2RMLBloomFilter getBloomFilter(String id)
+	public BlockedBloomFilter getBloomFilter(String id)
 	{
+		buildBloomFilters();
 		return idToBloomFilter.get(id);
 	}
 	public void addUriToBloomFilter(String id, String uri) {
-		KR2RMLBloomFilter bf = null;
-		if(!idToBloomFilter.containsKey(id))
+		HashBuffer hashes = idToHashes.get(id);
+		if(hashes == null)
 		{
-			idToBloomFilter.putIfAbsent(id, new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH));
+			idToHashes.putIfAbsent(id, new HashBuffer());
+			hashes = idToHashes.get(id);
 		}
-		bf = idToBloomFilter.get(id);
-		
-		Key k = new Key(uri.getBytes(UTF8_CHARSET));
-		bf.add(k);
+		hashes.add(BlockedBloomFilter.hash(uri));
 		return;
 	}
+
+	/**
+	 * Adds the URIs collected since the last call to the filters, a filter
+	 * that already exists is combined with a new one sized for the new URIs
+	 */
+	protected void buildBloomFilters()
+	{
+		for(Entry<String, HashBuffer> entry : idToHashes.entrySet())
+		{
+			BlockedBloomFilter bf = entry.getValue().toBloomFilter();
+			if(bf == null)
+			{
+				continue;
+			}
+			BlockedBloomFilter existing = idToBloomFilter.putIfAbsent(entry.getKey(), bf);
+			if(existing != null)
+			{
+				existing.or(bf);
+			}
+		}
+	}
 	
 	public JSONObject toJSON()
 	{
+		buildBloomFilters();
 		JSONObject filters = new JSONObject();
 		StringBuffer ids = new StringBuffer(); 
-		for(Entry<String, KR2RMLBloomFilter> entry : idToBloomFilter.entrySet())
+		for(Entry<String, BlockedBloomFilter> entry : idToBloomFilter.entrySet())
 		{
 			String key = entry.getKey();
-			KR2RMLBloomFilter bf = entry.getValue();
+			BlockedBloomFilter bf = entry.getValue();
 			
 			try
 			{
@@ -90,10 +117,11 @@ public class KR2RMLBloomFilterManager {
 	}
 	public String toRDF()
 	{
+		buildBloomFilters();
 		StringBuilder builder = new StringBuilder();
-		for(Entry<String, KR2RMLBloomFilter> entry : idToBloomFilter.entrySet())
+		for(Entry<String, BlockedBloomFilter> entry : idToBloomFilter.entrySet())
 		{
-			KR2RMLBloomFilter bf = entry.getValue();
+			BlockedBloomFilter bf = entry.getValue();
 			String key = entry.getKey();
 			StringBuilder tripleBuilder = new StringBuilder();
 			tripleBuilder.append("<");
@@ -117,4 +145,59 @@ public class KR2RMLBloomFilterManager {
 		return builder.toString();
 	}
 	
+
+	/**
+	 * The hashes of the URIs added to a map, duplicates are removed when the
+	 * buffer is full before it grows
+	 */
+	protected static class HashBuffer
+	{
+		private long[] hashes = new long[64];
+		private int size;
+
+		synchronized void add(long hash)
+		{
+			if(size == hashes.length)
+			{
+				removeDuplicates();
+				if(size > hashes.length / 2)
+				{
+					hashes = Arrays.copyOf(hashes, hashes.length * 2);
+				}
+			}
+			hashes[size++] = hash;
+		}
+
+		private void removeDuplicates()
+		{
+			Arrays.sort(hashes, 0, size);
+			int distinct = 0;
+			for(int i = 0; i < size; i++)
+			{
+				if(distinct == 0 || hashes[i] != hashes[distinct - 1])
+				{
+					hashes[distinct++] = hashes[i];
+				}
+			}
+			size = distinct;
+		}
+
+		/**
+		 * @return a filter sized for the distinct hashes, which are removed
+		 * from the buffer, or null if the buffer is empty
+		 */
+		synchronized BlockedBloomFilter toBloomFilter()
+		{
+			if(size == 0)
+			{
+				return null;
+			}
+			removeDuplicates();
+			BlockedBloomFilter bf = new BlockedBloomFilter(size);
+			bf.addAll(hashes, 0, size);
+			hashes = new long[64];
+			size = 0;
+			return bf;
+		}
+	}
 }
@@ -0,0 +1,116 @@
+package edu.isi.karma.er.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.isi.karma.er.helper.BloomFilterCache.DecodedBloomFilter;
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.WorkspaceManager;
+import edu.isi.karma.webserver.KarmaException;
+
+public class TestBloomFilterCache {
+
+	private static final String URL = "http://localhost:8080/openrdf-sesame/repositories/karma_data";
+
+	private final Map<String, String> store = new HashMap<>();
+	private final List<Collection<String>> queries = new ArrayList<>();
+	private boolean unavailable;
+	private final BloomFilterTripleStoreUtil util = new BloomFilterTripleStoreUtil() {
+		@Override
+		public Map<String, String> getBloomFiltersForMaps(String tripleStoreURL, String context, Collection<String> maps) throws KarmaException {
+			queries.add(new ArrayList<>(maps));
+			if (unavailable)
+				throw new KarmaException("Unable to get the bloom filters from " + tripleStoreURL);
+			Map<String, String> result = new HashMap<>();
+			for (String map : maps) {
+				if (store.containsKey(map))
+					result.put(map, store.get(map));
+			}
+			return result;
+		}
+	};
+
+	@Test
+	public void testFetchOnceAndCount() throws Exception {
+		BlockedBloomFilter bf1 = new BlockedBloomFilter(100);
+		BlockedBloomFilter bf2 = new BlockedBloomFilter(100);
+		for (int i = 0; i < 10; i++)
+			bf1.add("<http://example.org/" + i + ">");
+		for (int i = 5; i < 20; i++)
+			bf2.add("<http://example.org/" + i + ">");
+		store.put("map1", bf1.compressAndBase64Encode());
+		store.put("map2", bf2.compressAndBase64Encode());
+
+		BloomFilterCache cache = new BloomFilterCache();
+		Map<String, DecodedBloomFilter> bfs = cache.getBloomFilters(util, URL, Arrays.asList("map1", "map2", "map3"));
+		assertEquals(2, bfs.size());
+		assertEquals(1, queries.size());
+		cache.getBloomFilters(util, URL, Arrays.asList("map1", "map2"));
+		assertEquals(1, queries.size());
+
+		List<String> uris = new ArrayList<>();
+		for (int i = 0; i < 30; i++)
+			uris.add("<http://example.org/" + i + ">");
+		long[] hashes = BloomFilterTripleStoreUtil.hashUris(uris);
+		assertEquals(10, BloomFilterTripleStoreUtil.countUrisInBloomFilters(Arrays.asList(bfs.get("map1")), uris, hashes));
+		assertEquals(20, BloomFilterTripleStoreUtil.countUrisInBloomFilters(bfs.values(), uris, hashes));
+	}
+
+	@Test
+	public void testMissingFilterNotCached() throws Exception {
+		BloomFilterCache cache = new BloomFilterCache();
+		assertEquals(0, cache.getBloomFilters(util, URL, Arrays.asList("map1")).size());
+		// published by another process
+		BlockedBloomFilter bf = new BlockedBloomFilter(100);
+		bf.add("<http://example.org/0>");
+		store.put("map1", bf.compressAndBase64Encode());
+		assertEquals(1, cache.getBloomFilters(util, URL, Arrays.asList("map1")).size());
+		assertEquals(2, queries.size());
+	}
+
+	@Test
+	public void testErrorsPropagated() throws Exception {
+		store.put("map1", new BlockedBloomFilter(100).compressAndBase64Encode());
+		BloomFilterCache cache = new BloomFilterCache();
+		unavailable = true;
+		try {
+			cache.getBloomFilters(util, URL, Arrays.asList("map1"));
+			fail("the error of the triple store is not propagated");
+		} catch (KarmaException e) {
+		}
+		unavailable = false;
+		assertEquals(1, cache.getBloomFilters(util, URL, Arrays.asList("map1")).size());
+		assertEquals(2, queries.size());
+	}
+
+	@Test
+	public void testExpired() throws Exception {
+		store.put("map1", new BlockedBloomFilter(100).compressAndBase64Encode());
+		BloomFilterCache cache = new BloomFilterCache(0);
+		cache.getBloomFilters(util, URL, Arrays.asList("map1"));
+		cache.getBloomFilters(util, URL, Arrays.asList("map1"));
+		assertEquals(2, queries.size());
+
+		// published in this process
+		Workspace workspace = WorkspaceManager.getInstance().createWorkspace("test");
+		try {
+			cache = BloomFilterCache.getInstance(workspace);
+			cache.getBloomFilters(util, URL, Arrays.asList("map1"));
+			BloomFilterCache.invalidate(util.normalizeTripleStoreURL(URL), Arrays.asList("map1"));
+			cache.getBloomFilters(util, URL, Arrays.asList("map1"));
+			assertEquals(4, queries.size());
+		} finally {
+			WorkspaceManager.getInstance().removeWorkspace(workspace.getId());
+		}
+	}
+}
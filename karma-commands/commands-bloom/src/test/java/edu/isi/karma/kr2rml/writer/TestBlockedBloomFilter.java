@@ -0,0 +1,102 @@
+package edu.isi.karma.kr2rml.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.util.bloom.Key;
+import org.apache.hadoop.util.hash.Hash;
+import org.junit.Test;
+
+public class TestBlockedBloomFilter {
+
+	@Test
+	public void testFalsePositiveRate() {
+		int n = 100000;
+		BlockedBloomFilter bf = new BlockedBloomFilter(n, 0.01);
+		long[] hashes = new long[n];
+		for (int i = 0; i < n; i++)
+			hashes[i] = BlockedBloomFilter.hash("<http://example.org/item/" + i + ">");
+		bf.addAll(hashes, 0, n);
+
+		boolean[] results = new boolean[n];
+		assertEquals(n, bf.membershipTest(hashes, 0, n, results));
+		int falsePositives = 0;
+		for (int i = 0; i < n; i++) {
+			if (bf.membershipTest("<http://example.org/other/" + i + ">"))
+				falsePositives++;
+		}
+		assertTrue("false positives: " + falsePositives, falsePositives < n * 0.02);
+		int estimate = bf.estimateNumberOfHashedValues();
+		assertTrue("estimate: " + estimate, Math.abs(estimate - n) < n * 0.05);
+	}
+
+	@Test
+	public void testCombineFiltersOfDifferentSizes() {
+		BlockedBloomFilter small = new BlockedBloomFilter(100);
+		BlockedBloomFilter large = new BlockedBloomFilter(100000);
+		for (int i = 0; i < 100; i++)
+			small.add("<s" + i + ">");
+		for (int i = 0; i < 100000; i++)
+			large.add("<l" + i + ">");
+		large.add("<s0>");
+		double largeRate = falsePositiveRate(large);
+		assertTrue("false positive rate: " + largeRate, largeRate < 0.02);
+
+		// the accumulator grows to the large filter, which is not folded
+		BlockedBloomFilter union = new BlockedBloomFilter(100);
+		union.or(large);
+		assertEquals(large.getNumberOfBlocks(), union.getNumberOfBlocks());
+		assertEquals(largeRate, falsePositiveRate(union), 0);
+
+		union.or(small);
+		assertEquals(large.getNumberOfBlocks(), union.getNumberOfBlocks());
+		for (int i = 0; i < 100; i++)
+			assertTrue(union.membershipTest("<s" + i + ">"));
+		assertTrue(union.membershipTest("<l99999>"));
+		assertTrue(union.containsAll(large));
+		assertFalse(large.containsAll(small));
+		// the bits of the small filter are copied to every block, a folded
+		// filter would have almost all its bits set
+		double unionRate = falsePositiveRate(union);
+		assertTrue("false positive rate: " + unionRate, unionRate < 0.2);
+
+		BlockedBloomFilter intersection = new BlockedBloomFilter(100);
+		intersection.or(small);
+		intersection.and(large);
+		assertEquals(large.getNumberOfBlocks(), intersection.getNumberOfBlocks());
+		assertTrue(intersection.membershipTest("<s0>"));
+		double intersectionRate = falsePositiveRate(intersection);
+		assertTrue("false positive rate: " + intersectionRate, intersectionRate <= largeRate);
+
+		large.and(small);
+		assertEquals(intersection, large);
+	}
+
+	private static double falsePositiveRate(BlockedBloomFilter bf) {
+		int n = 100000;
+		int falsePositives = 0;
+		for (int i = 0; i < n; i++) {
+			if (bf.membershipTest("<http://example.org/other/" + i + ">"))
+				falsePositives++;
+		}
+		return (double) falsePositives / n;
+	}
+
+	@Test
+	public void testEncoding() throws Exception {
+		BlockedBloomFilter bf = new BlockedBloomFilter(1000);
+		KR2RMLBloomFilter legacy = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
+		for (int i = 0; i < 1000; i++) {
+			bf.add("<http://example.org/item/" + i + ">");
+			legacy.add(new Key(("<http://example.org/item/" + i + ">").getBytes("UTF-8")));
+		}
+		String encoded = bf.compressAndBase64Encode();
+		assertTrue(BlockedBloomFilter.isEncodedBlockedBloomFilter(encoded));
+		assertEquals(bf, BlockedBloomFilter.fromCompressedAndBase64EncodedString(encoded));
+
+		String legacyEncoded = legacy.compressAndBase64Encode();
+		assertFalse(BlockedBloomFilter.isEncodedBlockedBloomFilter(legacyEncoded));
+		assertTrue(encoded.length() < legacyEncoded.length());
+	}
+}
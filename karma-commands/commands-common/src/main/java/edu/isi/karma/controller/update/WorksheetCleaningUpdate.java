@@ -34,21 +34,19 @@ import edu.isi.karma.controller.command.selection.SuperSelection;
 import edu.isi.karma.rep.ColumnMetadata;
 import edu.isi.karma.rep.HNode;
 import edu.isi.karma.rep.HNodePath;
-import edu.isi.karma.rep.Node;
 import edu.isi.karma.rep.Worksheet;
-import edu.isi.karma.util.HTTPUtil;
+import edu.isi.karma.rep.profiling.ColumnProfile;
+import edu.isi.karma.rep.profiling.ColumnProfiler;
 import edu.isi.karma.view.VWorksheet;
 import edu.isi.karma.view.VWorkspace;
 import edu.isi.karma.view.ViewPreferences.ViewPreference;
-import edu.isi.karma.webserver.ContextParametersRegistry;
-import edu.isi.karma.webserver.WorkspaceKarmaHomeRegistry;
-import edu.isi.karma.webserver.ServletContextParameterMap.ContextParameter;
 
 public class WorksheetCleaningUpdate extends
 AbstractUpdate {
 
 	private String	worksheetId;
 	private boolean	forceUpdates;
+	private Set<String> changedHNodeIds;
 	private SuperSelection selection;
 	private static Logger logger = LoggerFactory.getLogger(
 			WorksheetCleaningUpdate.class);
@@ -58,8 +56,7 @@ AbstractUpdate {
 
 	private enum JsonKeys {
 		worksheetId, hNodeId, worksheetChartData, 
-		chartData, id, value, json, 
-		Preferred_Length, sampleSize, sampleRate
+		chartData, Preferred_Length
 	}
 
 	public WorksheetCleaningUpdate(String worksheetId, boolean forceUpdates, SuperSelection selection) {
@@ -68,6 +65,15 @@ AbstractUpdate {
 		this.selection = selection;
 	}
 
+	/**
+	 * Recomputes the charts of the changed columns only, and sends only those
+	 * charts. The charts of the other columns are still valid in the browser.
+	 */
+	public WorksheetCleaningUpdate(String worksheetId, Set<String> changedHNodeIds, SuperSelection selection) {
+		this(worksheetId, false, selection);
+		this.changedHNodeIds = changedHNodeIds;
+	}
+
 	@Override
 	public void generateJson(String prefix, PrintWriter pw,
 			VWorkspace vWorkspace) {
@@ -77,101 +83,45 @@ AbstractUpdate {
 		ColumnMetadata colMetadata = worksheet.getMetadataContainer().getColumnMetadata();
 
 		List<String> columnsInvoked = new ArrayList<>();
+		List<HNodePath> columnsToProfile = new ArrayList<>();
 
 		for (HNodePath path:columnPaths) {
 			String leafHNodeId = path.getLeaf().getId();
-			List<Node> nodes = new ArrayList<>(Math.max(1000, worksheet.getDataTable().getNumRows()));
-			worksheet.getDataTable().collectNodes(path, nodes, selection);
-			final int sampleSize = (nodes.size() > 1000) ? 1000 : nodes.size();
+			if (changedHNodeIds != null && !changedHNodeIds.contains(leafHNodeId))
+				continue;
 			columnsInvoked.add(leafHNodeId);
+			// Check if the column metadata doesn't contains the cleaning information
+			if (colMetadata.getColumnHistogramData(leafHNodeId) == null 
+					|| forceUpdates || changedHNodeIds != null) {
+				columnsToProfile.add(path);
+			}
+		}
+
+		// Profile all the columns at once, they are computed in parallel
+		Map<String, ColumnProfile> profiles = ColumnProfiler.profile(worksheet, columnsToProfile, selection);
+		for (HNodePath path : columnsToProfile) {
+			String leafHNodeId = path.getLeaf().getId();
+			ColumnProfile profile = profiles.get(leafHNodeId);
+			if (profile == null || profile.getTotalCount() == 0) {
+				logger.error("Empty values input for path" + path.toColumnNamePath());
+				continue;
+			}
 			try {
-				// Check if the column metadata doesn't contains the cleaning information
-				if (colMetadata.getColumnHistogramData(leafHNodeId) == null 
-						|| forceUpdates) {
-					// Prepare the input data for the cleaning service
-					JSONArray requestJsonArray = new JSONArray();  
-					if (sampleSize == nodes.size()) {
-						for (Node node : nodes) {
-							JSONObject jsonRecord = new JSONObject();
-							jsonRecord.put(JsonKeys.id.name(), node.getId());
-							String originalVal = node.getValue().asString();
-							originalVal = originalVal == null ? "" : originalVal;
-							jsonRecord.put(JsonKeys.value.name(), originalVal);
-							requestJsonArray.put(jsonRecord);
-						}
-					}
-					else {
-						Set<Integer> randomNums = new HashSet<>();
-						Random gen = new Random();
-						for (int i = 0; i < sampleSize; i++) {
-							int r = gen.nextInt(nodes.size());
-							while (randomNums.contains(r))
-								r = gen.nextInt(nodes.size());
-							randomNums.add(r);
-							Node node = nodes.get(r);
-							JSONObject jsonRecord = new JSONObject();
-							jsonRecord.put(JsonKeys.id.name(), node.getId());
-							String originalVal = node.getValue().asString();
-							originalVal = originalVal == null ? "" : originalVal;
-							jsonRecord.put(JsonKeys.value.name(), originalVal);
-							requestJsonArray.put(jsonRecord);
-						}
-					}
-					
-					//TODO put the estimate back
-					
-					if (requestJsonArray.length() == 0) {
-						logger.error("Empty values input for path" + path.toColumnNamePath());
-						continue;
-					}
-					String workspaceId = vWorkspace.getWorkspace().getId();
-					String cleaningServiceURL = ContextParametersRegistry.getInstance()
-													.getContextParameters(WorkspaceKarmaHomeRegistry.getInstance().getKarmaHome(workspaceId))
-													.getParameterValue(ContextParameter.CLEANING_SERVICE_URL);
-				
-					Map<String, String> formParams = new HashMap<>();
-					formParams.put(JsonKeys.json.name(), requestJsonArray.toString());
-					String reqResponse = HTTPUtil.executeHTTPPostRequest(cleaningServiceURL, null,
-							null, formParams);
-					//					
-					//					logger.debug("***");
-					//					logger.debug(path.getLeaf().getColumnName());
-					//					logger.debug(reqResponse);
-					try {
-						// Test if the output is valid JSON object. Throws exception if not.
-						JSONObject output = new JSONObject(reqResponse);
-						long sampleRate = Math.round(nodes.size() * 1.0 / sampleSize);
-						JSONArray array = new JSONArray(output.getString("histogram"));
-						for (int i = 0; i < array.length(); i++) {
-							JSONObject obj = array.getJSONObject(i);
-							long value = Integer.parseInt(obj.getString("Frequency")) * sampleRate;
-							obj.put("Frequency", value);
-						}
-						output.put("histogram", array.toString());
-						// Add to the metadata if valid
-						colMetadata.addColumnHistogramData(leafHNodeId, output);
-
-						// Parse the request response to populate the column metadata for the worksheet
-						int colLength = getColumnLength(path.getLeaf(), output, 
-								vWorkspace.getPreferences().getIntViewPreferenceValue(
-										ViewPreference.maxCharactersInCell));
-						colMetadata.addColumnPreferredLength(leafHNodeId, colLength);
-
-						// Add the hNodeId to the list for which we invoked successfully
-						
-					} catch (JSONException e) {
-						logger.error("Error occured with cleaning service for HNode: " 
-								+ path.toColumnNamePath());
-
-						// Set to a default column word length
-						colMetadata.addColumnPreferredLength(leafHNodeId, DEFAULT_COLUMN_LENGTH);
-						continue;
-					}	
-				}
-			} catch (Exception e) {
-				logger.error("Error while invoking cleaning service", e);
+				JSONObject output = profile.toChartData();
+				colMetadata.addColumnHistogramData(leafHNodeId, output);
+
+				// Parse the profile to populate the column metadata for the worksheet
+				int colLength = getColumnLength(path.getLeaf(), output, 
+						vWorkspace.getPreferences().getIntViewPreferenceValue(
+								ViewPreference.maxCharactersInCell));
+				colMetadata.addColumnPreferredLength(leafHNodeId, colLength);
+			} catch (JSONException e) {
+				logger.error("Error occured while profiling HNode: " 
+						+ path.toColumnNamePath());
+
+				// Set to a default column word length
+				colMetadata.addColumnPreferredLength(leafHNodeId, DEFAULT_COLUMN_LENGTH);
 			}
-			
 		}
 
 		// Prepare the Update that is going to be sent to the browser
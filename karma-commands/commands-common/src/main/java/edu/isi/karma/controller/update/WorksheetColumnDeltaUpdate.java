@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+
+package edu.isi.karma.controller.update;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.isi.karma.rep.Node;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.TablePager;
+import edu.isi.karma.util.JSONUtil;
+import edu.isi.karma.view.VHNode;
+import edu.isi.karma.view.VWorksheet;
+import edu.isi.karma.view.VWorkspace;
+import edu.isi.karma.view.ViewPreferences.ViewPreference;
+
+/**
+ * Sends the displayed cells of added columns and the columns that were
+ * removed. Used with {@link WorksheetHeadersUpdate} when a command adds or
+ * removes columns without nested tables and does not change the values of the
+ * other columns, so the browser inserts or removes those cells instead of
+ * rebuilding the table.
+ *
+ * Each added cell has the index of its column among the visible columns of
+ * its table, once all the columns are added.
+ */
+public class WorksheetColumnDeltaUpdate extends AbstractUpdate {
+
+	private final String worksheetId;
+	private final Set<String> addedHNodeIds;
+	private final Set<String> removedHNodeIds;
+	private static Logger logger = LoggerFactory.getLogger(WorksheetColumnDeltaUpdate.class);
+
+	private enum JsonKeys {
+		worksheetId, removedColumns, cells, rowId, index, columnClass, nodeId, displayValue, expandedValue
+	}
+
+	/**
+	 * @param addedHNodeIds the columns added by the command
+	 * @param removedHNodeIds the columns removed by the command
+	 */
+	public WorksheetColumnDeltaUpdate(String worksheetId, Set<String> addedHNodeIds, Set<String> removedHNodeIds) {
+		super();
+		this.worksheetId = worksheetId;
+		this.addedHNodeIds = addedHNodeIds == null ? Collections.<String>emptySet() : addedHNodeIds;
+		this.removedHNodeIds = removedHNodeIds == null ? Collections.<String>emptySet() : removedHNodeIds;
+	}
+
+	@Override
+	public void generateJson(String prefix, PrintWriter pw, VWorkspace vWorkspace) {
+		VWorksheet vWorksheet = vWorkspace.getViewFactory().getVWorksheetByWorksheetId(worksheetId);
+		try {
+			JSONObject response = new JSONObject();
+			response.put(GenericJsonKeys.updateType.name(), this.getClass().getSimpleName());
+			response.put(JsonKeys.worksheetId.name(), worksheetId);
+			JSONArray removedColumns = new JSONArray();
+			for (String hNodeId : removedHNodeIds) {
+				removedColumns.put(WorksheetHeadersUpdate.getColumnClass(hNodeId));
+			}
+			JSONArray cells = new JSONArray();
+			if (!addedHNodeIds.isEmpty()) {
+				collectCells(vWorksheet.getTopTablePager(), vWorksheet, vWorksheet.getHeaderViewNodes(),
+						vWorkspace.getPreferences().getIntViewPreferenceValue(ViewPreference.maxCharactersInCell),
+						cells);
+			}
+			response.put(JsonKeys.removedColumns.name(), removedColumns);
+			response.put(JsonKeys.cells.name(), cells);
+			pw.println(response.toString());
+		} catch (JSONException e) {
+			logger.error("JSONException", e);
+		}
+	}
+
+	private void collectCells(TablePager pager, VWorksheet vWorksheet, List<VHNode> orderedHNodes,
+			int maxDataDisplayLength, JSONArray cells) throws JSONException {
+		for (Row row : pager.getRows()) {
+			int index = 0;
+			for (VHNode vNode : orderedHNodes) {
+				if (!vNode.isVisible())
+					continue;
+				Node node = row.getNode(vNode.getId());
+				if (vNode.hasNestedTable()) {
+					collectCells(vWorksheet.getNestedTablePager(node.getNestedTable()), vWorksheet,
+							vNode.getNestedNodes(), maxDataDisplayLength, cells);
+				} else if (addedHNodeIds.contains(vNode.getId())) {
+					String value = node.getValue().asString();
+					value = (value == null) ? "" : value;
+					JSONObject cell = new JSONObject();
+					cell.put(JsonKeys.rowId.name(), row.getId());
+					cell.put(JsonKeys.index.name(), index);
+					cell.put(JsonKeys.columnClass.name(), WorksheetHeadersUpdate.getColumnClass(vNode.getId()));
+					cell.put(JsonKeys.nodeId.name(), node.getId());
+					cell.put(JsonKeys.expandedValue.name(), value);
+					cell.put(JsonKeys.displayValue.name(), value.length() > maxDataDisplayLength
+							? JSONUtil.truncateCellValue(value, maxDataDisplayLength) : value);
+					cells.put(cell);
+				}
+				index++;
+			}
+		}
+	}
+
+	public boolean equals(Object o) {
+		if (o instanceof WorksheetColumnDeltaUpdate) {
+			WorksheetColumnDeltaUpdate t = (WorksheetColumnDeltaUpdate)o;
+			return t.worksheetId.equals(worksheetId) && t.addedHNodeIds.equals(addedHNodeIds)
+					&& t.removedHNodeIds.equals(removedHNodeIds);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = this.worksheetId != null ? this.worksheetId.hashCode() : 0;
+		result = 31 * result + addedHNodeIds.hashCode();
+		result = 31 * result + removedHNodeIds.hashCode();
+		return result;
+	}
+}
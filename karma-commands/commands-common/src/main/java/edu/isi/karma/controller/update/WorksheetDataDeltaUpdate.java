@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+
+package edu.isi.karma.controller.update;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.isi.karma.controller.command.selection.SuperSelection;
+import edu.isi.karma.rep.Node;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.TablePager;
+import edu.isi.karma.util.JSONUtil;
+import edu.isi.karma.view.VHNode;
+import edu.isi.karma.view.VWorksheet;
+import edu.isi.karma.view.VWorkspace;
+import edu.isi.karma.view.ViewPreferences.ViewPreference;
+
+/**
+ * Sends the values of the displayed cells of some columns, and the selection
+ * status of the displayed rows. Used instead of {@link WorksheetDataUpdate}
+ * when a command changes values without changing the structure of the
+ * worksheet, so the browser patches the cells in place instead of rebuilding
+ * the table.
+ */
+public class WorksheetDataDeltaUpdate extends AbstractUpdate {
+
+	private final String worksheetId;
+	private final Set<String> hNodeIds;
+	private final SuperSelection selection;
+	private static Logger logger = LoggerFactory.getLogger(WorksheetDataDeltaUpdate.class);
+
+	private enum JsonKeys {
+		worksheetId, rows, cells, rowId, isSelected, nodeId, newStatus, displayValue, expandedValue
+	}
+
+	/**
+	 * @param hNodeIds the columns whose values changed
+	 */
+	public WorksheetDataDeltaUpdate(String worksheetId, Set<String> hNodeIds, SuperSelection selection) {
+		super();
+		this.worksheetId = worksheetId;
+		this.hNodeIds = hNodeIds;
+		this.selection = selection;
+	}
+
+	@Override
+	public void generateJson(String prefix, PrintWriter pw, VWorkspace vWorkspace) {
+		VWorksheet vWorksheet = vWorkspace.getViewFactory().getVWorksheetByWorksheetId(worksheetId);
+		try {
+			JSONObject response = new JSONObject();
+			response.put(GenericJsonKeys.updateType.name(), this.getClass().getSimpleName());
+			response.put(JsonKeys.worksheetId.name(), worksheetId);
+			JSONArray rows = new JSONArray();
+			JSONArray cells = new JSONArray();
+			collectChanges(vWorksheet.getTopTablePager(), vWorksheet, vWorksheet.getHeaderViewNodes(),
+					vWorkspace.getPreferences().getIntViewPreferenceValue(ViewPreference.maxCharactersInCell),
+					rows, cells);
+			response.put(JsonKeys.rows.name(), rows);
+			response.put(JsonKeys.cells.name(), cells);
+			pw.println(response.toString());
+		} catch (JSONException e) {
+			logger.error("JSONException", e);
+		}
+	}
+
+	private void collectChanges(TablePager pager, VWorksheet vWorksheet, List<VHNode> orderedHNodes,
+			int maxDataDisplayLength, JSONArray rows, JSONArray cells) throws JSONException {
+		for (Row row : pager.getRows()) {
+			JSONObject rowObj = new JSONObject();
+			rowObj.put(JsonKeys.rowId.name(), row.getId());
+			rowObj.put(JsonKeys.isSelected.name(), selection.isSelected(row));
+			rows.put(rowObj);
+			for (VHNode vNode : orderedHNodes) {
+				if (!vNode.isVisible())
+					continue;
+				Node node = row.getNode(vNode.getId());
+				if (vNode.hasNestedTable()) {
+					collectChanges(vWorksheet.getNestedTablePager(node.getNestedTable()), vWorksheet,
+							vNode.getNestedNodes(), maxDataDisplayLength, rows, cells);
+				} else if (hNodeIds.contains(vNode.getId())) {
+					String value = node.getValue().asString();
+					value = (value == null) ? "" : value;
+					JSONObject cell = new JSONObject();
+					cell.put(JsonKeys.nodeId.name(), node.getId());
+					cell.put(JsonKeys.newStatus.name(), node.getStatus().getCodedStatus());
+					cell.put(JsonKeys.expandedValue.name(), value);
+					cell.put(JsonKeys.displayValue.name(), value.length() > maxDataDisplayLength
+							? JSONUtil.truncateCellValue(value, maxDataDisplayLength) : value);
+					cells.put(cell);
+				}
+			}
+		}
+	}
+
+	public boolean equals(Object o) {
+		if (o instanceof WorksheetDataDeltaUpdate) {
+			WorksheetDataDeltaUpdate t = (WorksheetDataDeltaUpdate)o;
+			return t.worksheetId.equals(worksheetId) && t.hNodeIds.equals(hNodeIds);
+		}
+		return false;
+	}
+}
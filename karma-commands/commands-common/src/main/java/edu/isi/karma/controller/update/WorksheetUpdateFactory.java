@@ -75,6 +75,50 @@ public class WorksheetUpdateFactory {
 		createWorksheetHierarchicalAndCleaningResultsUpdates(worksheetId, c, sel, contextId);
 		return c;
 	}
+	/**
+	 * Updates for a command that only changed values in existing columns. The
+	 * browser patches the displayed cells of those columns and only their
+	 * charts are recomputed, instead of regenerating the whole worksheet.
+	 */
+	public static UpdateContainer createWorksheetValueChangeUpdates(String worksheetId, Set<String> changedHNodeIds, SuperSelection sel, String contextId) {
+		UpdateContainer c = new UpdateContainer();
+		UIConfiguration uiConfiguration = UIConfigurationRegistry.getInstance().getUIConfiguration(contextId);
+		if (uiConfiguration.isD3ChartsEnabled())
+			c.add(new WorksheetCleaningUpdate(worksheetId, changedHNodeIds, sel));
+		c.add(new WorksheetDataDeltaUpdate(worksheetId, changedHNodeIds, sel));
+		c.add(new WorksheetSuperSelectionListUpdate(worksheetId));
+		return c;
+	}
+
+	/**
+	 * Updates for a command that only changed the headers, such as the name of
+	 * a column. The headers are sent again with the charts kept in the column
+	 * metadata, the displayed rows are not sent.
+	 */
+	public static UpdateContainer createWorksheetHeadersChangedUpdates(String worksheetId, SuperSelection sel, String contextId) {
+		UpdateContainer c = new UpdateContainer();
+		c.add(new RegenerateWorksheetUpdate(worksheetId));
+		UIConfiguration uiConfiguration = UIConfigurationRegistry.getInstance().getUIConfiguration(contextId);
+		if (uiConfiguration.isD3ChartsEnabled())
+			c.add(new WorksheetCleaningUpdate(worksheetId, false, sel));
+		c.add(new WorksheetHeadersUpdate(worksheetId, sel));
+		return c;
+	}
+
+	/**
+	 * Updates for a command that added or removed columns without nested
+	 * tables and did not change the values of the other ones. The headers are
+	 * sent again, and the browser inserts or removes the cells of those
+	 * columns in the displayed rows. Only the charts of new columns are
+	 * computed, the others come from the column metadata.
+	 */
+	public static UpdateContainer createWorksheetColumnsChangedUpdates(String worksheetId, Set<String> addedHNodeIds,
+			Set<String> removedHNodeIds, SuperSelection sel, String contextId) {
+		UpdateContainer c = createWorksheetHeadersChangedUpdates(worksheetId, sel, contextId);
+		c.add(new WorksheetColumnDeltaUpdate(worksheetId, addedHNodeIds, removedHNodeIds));
+		return c;
+	}
+
 	public static UpdateContainer createSemanticTypesAndSVGAlignmentUpdates(String worksheetId, Workspace workspace)
 	{
 		Worksheet worksheet = workspace.getWorksheet(worksheetId);
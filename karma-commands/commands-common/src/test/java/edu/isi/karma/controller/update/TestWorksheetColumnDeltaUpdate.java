@@ -0,0 +1,108 @@
+package edu.isi.karma.controller.update;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.HNode.HNodeType;
+import edu.isi.karma.rep.Node.NodeStatus;
+import edu.isi.karma.rep.RepFactory;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.WorkspaceManager;
+import edu.isi.karma.view.VWorkspace;
+
+public class TestWorksheetColumnDeltaUpdate {
+
+	private Workspace workspace;
+	private RepFactory factory;
+	private Worksheet worksheet;
+	private VWorkspace vWorkspace;
+	private HNode first;
+
+	@Before
+	public void setUp() {
+		workspace = WorkspaceManager.getInstance().createWorkspace("columnDelta");
+		factory = workspace.getFactory();
+		worksheet = factory.createWorksheet("columnDelta", workspace, "UTF-8");
+		first = worksheet.addHNode("first", HNodeType.Regular, factory);
+		HNode second = worksheet.addHNode("second", HNodeType.Regular, factory);
+		for (int r = 0; r < 3; r++) {
+			Row row = worksheet.addRow(factory);
+			row.setValue(first.getId(), "first " + r, NodeStatus.original, factory);
+			row.setValue(second.getId(), "second " + r, NodeStatus.original, factory);
+		}
+		vWorkspace = new VWorkspace(workspace);
+		vWorkspace.createVWorksheetsForAllWorksheets();
+	}
+
+	@After
+	public void tearDown() {
+		WorkspaceManager.getInstance().removeWorkspace(workspace.getId());
+	}
+
+	@Test
+	public void testAddedColumn() throws Exception {
+		HNode added = worksheet.getHeaders().addNewHNodeAfter(first.getId(), HNodeType.Transformation,
+				factory, "added", worksheet, true);
+		int r = 0;
+		for (Row row : worksheet.getDataTable().getRows(0, 3, SuperSelectionManager.DEFAULT_SELECTION)) {
+			row.setValue(added.getId(), "added " + r++, NodeStatus.original, factory);
+		}
+
+		JSONObject json = generate(Collections.singleton(added.getId()), null);
+		assertEquals(0, json.getJSONArray("removedColumns").length());
+		JSONArray cells = json.getJSONArray("cells");
+		assertEquals(3, cells.length());
+		for (int i = 0; i < cells.length(); i++) {
+			JSONObject cell = cells.getJSONObject(i);
+			// inserted between the first and the second column
+			assertEquals(1, cell.getInt("index"));
+			assertEquals(WorksheetHeadersUpdate.getColumnClass(added.getId()), cell.getString("columnClass"));
+			assertEquals("added " + i, cell.getString("displayValue"));
+			Row row = factory.getRow(cell.getString("rowId"));
+			assertEquals(row.getNode(added.getId()).getId(), cell.getString("nodeId"));
+		}
+	}
+
+	@Test
+	public void testRemovedColumn() throws Exception {
+		JSONObject json = generate(null, Collections.singleton(first.getId()));
+		assertEquals(0, json.getJSONArray("cells").length());
+		JSONArray removed = json.getJSONArray("removedColumns");
+		assertEquals(1, removed.length());
+		assertEquals(WorksheetHeadersUpdate.getColumnClass(first.getId()), removed.getString(0));
+	}
+
+	@Test
+	public void testEquals() {
+		String id = worksheet.getId();
+		Set<String> columns = Collections.singleton(first.getId());
+		assertEquals(new WorksheetColumnDeltaUpdate(id, columns, null),
+				new WorksheetColumnDeltaUpdate(id, columns, null));
+		assertNotEquals(new WorksheetColumnDeltaUpdate(id, columns, null),
+				new WorksheetColumnDeltaUpdate(id, null, columns));
+	}
+
+	private JSONObject generate(Set<String> added, Set<String> removed) {
+		// the view is regenerated before the updates are sent
+		new RegenerateWorksheetUpdate(worksheet.getId()).applyUpdate(vWorkspace);
+		StringWriter sw = new StringWriter();
+		new WorksheetColumnDeltaUpdate(worksheet.getId(), added, removed)
+				.generateJson("", new PrintWriter(sw), vWorkspace);
+		return new JSONObject(sw.toString());
+	}
+}
@@ -23,6 +23,7 @@
 package edu.isi.karma.controller.command.importdata;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -38,6 +39,8 @@ import edu.isi.karma.controller.update.WorksheetUpdateFactory;
 import edu.isi.karma.imp.Import;
 import edu.isi.karma.imp.csv.CSVFileImport;
 import edu.isi.karma.imp.excel.ToCSV;
+import edu.isi.karma.imp.excel.XLSXImport;
+import edu.isi.karma.imp.excel.XLSXSheetReader;
 import edu.isi.karma.rep.Worksheet;
 import edu.isi.karma.rep.Workspace;
 import edu.isi.karma.webserver.ContextParametersRegistry;
@@ -72,7 +75,17 @@ public class ImportExcelFileCommand extends ImportFileCommand implements IPrevie
     	final ServletContextParameterMap contextParameters = ContextParametersRegistry.getInstance().getContextParameters(workspace.getContextId());
         UpdateContainer c = new UpdateContainer();
 
-        // Convert the Excel file to a CSV file.
+        try {
+            if (XLSXSheetReader.isXLSX(getFile())) {
+                return importXLSXSheets(workspace);
+            }
+        } catch (IOException e) {
+            String message = "Error occured while reading the Excel file.";
+            logger.error(message, e);
+            return new UpdateContainer(new ErrorUpdate(message));
+        }
+
+        // Convert the Excel (xls) file to a CSV file.
         ToCSV csvConverter = new ToCSV();
         try {
             csvConverter.convertExcelToCSV(getFile().getAbsolutePath(),
@@ -112,6 +125,45 @@ public class ImportExcelFileCommand extends ImportFileCommand implements IPrevie
         return c;
     }
 
+    /**
+     * Imports each sheet that has rows into its own worksheet, reading the
+     * rows of the sheet directly instead of going through a CSV file.
+     */
+    private UpdateContainer importXLSXSheets(Workspace workspace) {
+        UpdateContainer c = new UpdateContainer();
+        String fileName = getFile().getName();
+        if (fileName.lastIndexOf(".") > 0)
+            fileName = fileName.substring(0, fileName.lastIndexOf("."));
+        try {
+            List<String> sheetNames;
+            try (XLSXSheetReader reader = new XLSXSheetReader(getFile())) {
+                sheetNames = reader.getSheetNames();
+            }
+            for (int i = 0; i < sheetNames.size(); i++) {
+                XLSXImport imp = new XLSXImport(getFile(), i, 1, 2, fileName + "_" + sheetNames.get(i), 
+                		workspace, encoding, maxNumLines);
+                Worksheet wsht = imp.generateWorksheet();
+                if (wsht.getHeaders().getHNodes().isEmpty()) {
+                    workspace.removeWorksheet(wsht.getId());
+                    continue;
+                }
+
+                if (hasRevisionId()) {
+                    Worksheet revisedWorksheet = workspace.getWorksheet(getRevisionId());
+                    wsht.setRevisedWorksheet(revisedWorksheet);
+                }
+
+                c.add(new WorksheetListUpdate());
+                c.append(WorksheetUpdateFactory.createWorksheetHierarchicalAndCleaningResultsUpdates(wsht.getId(), SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId()));
+            }
+        } catch (Exception e) {
+            logger.error("Error occured while importing Excel file.", e);
+            return new UpdateContainer(new ErrorUpdate(
+                    "Error occured while importing Excel File."));
+        }
+        return c;
+    }
+
     @Override
     protected Import createImport(Workspace workspace) {
         throw new UnsupportedOperationException("Not supported yet.");
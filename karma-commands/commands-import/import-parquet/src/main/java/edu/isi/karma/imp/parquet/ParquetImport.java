@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.parquet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import edu.isi.karma.imp.Import;
+import edu.isi.karma.imp.json.JsonImportValues;
+import edu.isi.karma.rep.ColumnMetadata.DataStructure;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.metadata.WorksheetProperties.Property;
+import edu.isi.karma.rep.metadata.WorksheetProperties.SourceTypes;
+
+/**
+ * Imports the records of a Parquet file as the rows of a worksheet. The
+ * records are read and added to the worksheet one at a time, and only the
+ * given columns are read from the file.
+ */
+public class ParquetImport extends Import {
+
+	private final File file;
+	private final Collection<String> columnNames;
+	private final String worksheetName;
+	private final String encoding;
+	private final int maxNumLines;
+
+	public ParquetImport(File file, String worksheetName, Workspace workspace, 
+			String encoding, int maxNumLines) {
+		this(file, null, worksheetName, workspace, encoding, maxNumLines);
+	}
+
+	/**
+	 * @param columnNames top level columns to import, null to import all the columns
+	 */
+	public ParquetImport(File file, Collection<String> columnNames, String worksheetName, 
+			Workspace workspace, String encoding, int maxNumLines) {
+		super(worksheetName, workspace, encoding);
+		this.file = file;
+		this.columnNames = columnNames;
+		this.worksheetName = worksheetName;
+		this.encoding = encoding;
+		this.maxNumLines = maxNumLines;
+	}
+
+	@Override
+	public Import duplicate() throws IOException {
+		return new ParquetImport(file, columnNames, worksheetName, workspace, encoding, maxNumLines);
+	}
+
+	@Override
+	public Worksheet generateWorksheet() throws JSONException, IOException {
+		Worksheet worksheet = getWorksheet();
+		worksheet.getMetadataContainer().getWorksheetProperties().setWorksheetDataStructure(DataStructure.COLLECTION);
+		try (ParquetJSONReader reader = new ParquetJSONReader(new Path(file.toURI()), new Configuration(), columnNames)) {
+			int numRecords = 0;
+			JSONObject record;
+			while ((maxNumLines <= 0 || numRecords < maxNumLines)
+					&& (record = reader.next()) != null) {
+				JsonImportValues values = new JsonImportValues(-1, 0, getFactory(), worksheet, null);
+				values.addListElement(record, worksheet.getHeaders(), worksheet.getDataTable());
+				numRecords++;
+			}
+		}
+		worksheet.getMetadataContainer().getWorksheetProperties().setPropertyValue(Property.sourceType, SourceTypes.JSON.toString());
+		return worksheet;
+	}
+}
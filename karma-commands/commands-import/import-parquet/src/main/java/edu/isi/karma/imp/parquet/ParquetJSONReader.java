@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.parquet;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.NanoTime;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Type.Repetition;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import edu.isi.karma.imp.json.RecordReader;
+
+/**
+ * Reads the records of a Parquet file one at a time as JSON objects. When a
+ * set of columns is given only the column chunks of those columns are read
+ * from the file, the other columns are not loaded at all.
+ */
+public class ParquetJSONReader implements RecordReader {
+
+	private static final long JULIAN_DAY_OF_EPOCH = 2440588;
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+	private final ParquetReader<Group> reader;
+
+	/**
+	 * @param columnNames top level columns to read, null to read all the columns
+	 */
+	public ParquetJSONReader(Path file, Configuration conf, Collection<String> columnNames) throws IOException {
+		this.reader = ParquetReader.builder(new ParquetProjectionReadSupport(columnNames), file)
+				.withConf(conf).build();
+	}
+
+	/**
+	 * @return the fields of the schema that are in columnNames, null if all
+	 * the fields are needed or if none of them is, as Parquet cannot read an
+	 * empty schema
+	 */
+	public static MessageType getProjection(MessageType schema, Collection<String> columnNames) {
+		if (columnNames == null)
+			return null;
+		Set<String> names = new HashSet<>(columnNames);
+		List<Type> fields = new ArrayList<>();
+		for (Type field : schema.getFields()) {
+			if (names.contains(field.getName()))
+				fields.add(field);
+		}
+		if (fields.isEmpty() || fields.size() == schema.getFieldCount())
+			return null;
+		return new MessageType(schema.getName(), fields);
+	}
+
+	@Override
+	public JSONObject next() throws IOException, JSONException {
+		Group record = reader.read();
+		if (record == null)
+			return null;
+		return toJSON(record);
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Converts a record field by field, following its schema. Repeated fields
+	 * and LIST groups become arrays, MAP groups and the other groups become
+	 * objects, and the fields with no value are null.
+	 */
+	public static JSONObject toJSON(Group group) throws JSONException {
+		JSONObject json = new JSONObject();
+		GroupType type = group.getType();
+		for (int i = 0; i < type.getFieldCount(); i++) {
+			json.put(type.getFieldName(i), getFieldValue(group, i));
+		}
+		return json;
+	}
+
+	private static Object getFieldValue(Group group, int field) throws JSONException {
+		Type type = group.getType().getType(field);
+		int count = group.getFieldRepetitionCount(field);
+		if (type.isRepetition(Repetition.REPEATED)) {
+			JSONArray array = new JSONArray();
+			for (int i = 0; i < count; i++) {
+				array.put(getValue(group, field, i));
+			}
+			return array;
+		}
+		return count == 0 ? JSONObject.NULL : getValue(group, field, 0);
+	}
+
+	private static Object getValue(Group group, int field, int index) throws JSONException {
+		Type type = group.getType().getType(field);
+		if (type.isPrimitive())
+			return getPrimitiveValue(group, field, index, type.asPrimitiveType());
+		Group value = group.getGroup(field, index);
+		if (type.getOriginalType() == OriginalType.LIST)
+			return getList(value);
+		if (type.getOriginalType() == OriginalType.MAP)
+			return getMap(value);
+		return toJSON(value);
+	}
+
+	private static Object getList(Group list) throws JSONException {
+		GroupType type = list.getType();
+		if (type.getFieldCount() != 1)
+			return toJSON(list);
+		Type repeated = type.getType(0);
+		JSONArray array = new JSONArray();
+		for (int i = 0; i < list.getFieldRepetitionCount(0); i++) {
+			if (isElementWrapper(repeated))
+				array.put(getFieldValue(list.getGroup(0, i), 0));
+			else
+				array.put(getValue(list, 0, i));
+		}
+		return array;
+	}
+
+	/**
+	 * The lists wrap each element in a repeated group of one field, except the
+	 * lists of the older writers that repeat the element itself
+	 */
+	private static boolean isElementWrapper(Type repeated) {
+		return !repeated.isPrimitive() && repeated.asGroupType().getFieldCount() == 1
+				&& !repeated.getName().equals("array") && !repeated.getName().endsWith("_tuple");
+	}
+
+	private static Object getMap(Group map) throws JSONException {
+		GroupType type = map.getType();
+		if (type.getFieldCount() != 1 || type.getType(0).isPrimitive())
+			return toJSON(map);
+		JSONObject json = new JSONObject();
+		for (int i = 0; i < map.getFieldRepetitionCount(0); i++) {
+			Group entry = map.getGroup(0, i);
+			Object value = entry.getType().getFieldCount() > 1 ? getFieldValue(entry, 1) : JSONObject.NULL;
+			json.put(getFieldValue(entry, 0).toString(), value);
+		}
+		return json;
+	}
+
+	/**
+	 * @return the value as one of the types the JSON import handles
+	 */
+	private static Object getPrimitiveValue(Group group, int field, int index, PrimitiveType type) {
+		boolean decimal = type.getOriginalType() == OriginalType.DECIMAL;
+		switch (type.getPrimitiveTypeName()) {
+		case BOOLEAN:
+			return group.getBoolean(field, index);
+		case INT32:
+			if (decimal)
+				return getDecimal(BigInteger.valueOf(group.getInteger(field, index)), type);
+			return group.getInteger(field, index);
+		case INT64:
+			if (decimal)
+				return getDecimal(BigInteger.valueOf(group.getLong(field, index)), type);
+			return group.getLong(field, index);
+		case FLOAT:
+			// through the string so that 0.1f stays 0.1
+			return getDouble(Double.valueOf(Float.toString(group.getFloat(field, index))));
+		case DOUBLE:
+			return getDouble(group.getDouble(field, index));
+		case INT96:
+			return getTimestamp(group.getInt96(field, index));
+		default:
+			Binary binary = group.getBinary(field, index);
+			if (decimal)
+				return getDecimal(new BigInteger(binary.getBytes()), type);
+			// some writers do not annotate their strings as UTF8
+			return binary.toStringUsingUTF8();
+		}
+	}
+
+	private static String getDecimal(BigInteger unscaled, PrimitiveType type) {
+		return new BigDecimal(unscaled, type.getDecimalMetadata().getScale()).toPlainString();
+	}
+
+	private static Object getDouble(double value) {
+		// JSON has no NaN or infinite numbers
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return Double.toString(value);
+		return value;
+	}
+
+	/**
+	 * @return the INT96 timestamp of Hive and Impala, in UTC
+	 */
+	private static String getTimestamp(Binary int96) {
+		NanoTime time = NanoTime.fromBinary(int96);
+		long millis = (time.getJulianDay() - JULIAN_DAY_OF_EPOCH) * MILLIS_PER_DAY
+				+ time.getTimeOfDayNanos() / 1000000;
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(new Date(millis));
+	}
+}
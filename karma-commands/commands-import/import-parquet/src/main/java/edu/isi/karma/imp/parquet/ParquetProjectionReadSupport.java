@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.parquet;
+
+import java.util.Collection;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.schema.MessageType;
+
+/**
+ * Reads the records of a Parquet file as Groups, reading only the column
+ * chunks of the given top level columns. The projection is made from the
+ * schema of each file when it is opened.
+ */
+public class ParquetProjectionReadSupport extends GroupReadSupport {
+
+	private final Collection<String> columnNames;
+
+	/**
+	 * @param columnNames top level columns to read, null to read all the columns
+	 */
+	public ParquetProjectionReadSupport(Collection<String> columnNames) {
+		this.columnNames = columnNames;
+	}
+
+	/**
+	 * @return the top level columns to read, null to read all the columns
+	 */
+	protected Collection<String> getColumnNames(Configuration conf) {
+		return columnNames;
+	}
+
+	@Override
+	public ReadContext init(InitContext context) {
+		MessageType projection = ParquetJSONReader.getProjection(context.getFileSchema(),
+				getColumnNames(context.getConfiguration()));
+		if (projection == null)
+			return super.init(context);
+		return new ReadContext(projection);
+	}
+}
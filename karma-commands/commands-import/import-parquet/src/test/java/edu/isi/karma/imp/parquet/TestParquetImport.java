@@ -0,0 +1,101 @@
+package edu.isi.karma.imp.parquet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.HTable;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.WorkspaceManager;
+import edu.isi.karma.rep.metadata.WorksheetProperties.Property;
+import edu.isi.karma.rep.metadata.WorksheetProperties.SourceTypes;
+
+public class TestParquetImport {
+
+	private Workspace workspace;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		workspace = WorkspaceManager.getInstance().createWorkspace("test");
+		file = new File(getClass().getClassLoader().getResource("people.parquet").toURI());
+	}
+
+	@After
+	public void tearDown() {
+		WorkspaceManager.getInstance().removeWorkspace(workspace.getId());
+	}
+
+	@Test
+	public void testImport() throws Exception {
+		Worksheet worksheet = new ParquetImport(file, "people", workspace, "UTF-8", -1).generateWorksheet();
+		assertEquals(SourceTypes.JSON.toString(), worksheet.getMetadataContainer()
+				.getWorksheetProperties().getPropertyValue(Property.sourceType));
+		HTable headers = worksheet.getHeaders();
+		assertEquals(Arrays.asList("address", "codes", "id", "name", "phones", "price", "score", "tags", "updated"),
+				getColumnNames(headers));
+
+		List<Row> rows = getRows(worksheet);
+		assertEquals(3, rows.size());
+		assertEquals("Alice", getValue(rows.get(0), headers, "name"));
+		assertEquals("19.99", getValue(rows.get(0), headers, "price"));
+		HNode address = headers.getHNodeFromColumnName("address");
+		Row addressRow = rows.get(0).getNode(address.getId()).getNestedTable()
+				.getRows(0, 1, SuperSelectionManager.DEFAULT_SELECTION).get(0);
+		assertEquals("Los Angeles", getValue(addressRow, address.getNestedTable(), "city"));
+		HNode phones = headers.getHNodeFromColumnName("phones");
+		assertEquals(3, rows.get(0).getNode(phones.getId()).getNestedTable().getNumRows());
+		assertEquals("Carol", getValue(rows.get(2), headers, "name"));
+	}
+
+	@Test
+	public void testImportColumns() throws Exception {
+		Worksheet worksheet = new ParquetImport(file, Arrays.asList("name", "id"), "people", workspace, "UTF-8", -1)
+				.generateWorksheet();
+		HTable headers = worksheet.getHeaders();
+		assertEquals(Arrays.asList("id", "name"), getColumnNames(headers));
+		assertNull(headers.getHNodeFromColumnName("address"));
+		List<Row> rows = getRows(worksheet);
+		assertEquals(3, rows.size());
+		assertEquals("2", getValue(rows.get(1), headers, "id"));
+		assertEquals("Bob", getValue(rows.get(1), headers, "name"));
+	}
+
+	@Test
+	public void testMaxNumLines() throws Exception {
+		Worksheet worksheet = new ParquetImport(file, "people", workspace, "UTF-8", 2).generateWorksheet();
+		assertEquals(2, worksheet.getDataTable().getNumRows());
+	}
+
+	private static List<String> getColumnNames(HTable headers) {
+		List<String> names = new ArrayList<>();
+		for (HNode hNode : headers.getSortedHNodes()) {
+			names.add(hNode.getColumnName());
+		}
+		return names;
+	}
+
+	private static List<Row> getRows(Worksheet worksheet) {
+		return worksheet.getDataTable().getRows(0, worksheet.getDataTable().getNumRows(),
+				SuperSelectionManager.DEFAULT_SELECTION);
+	}
+
+	private static String getValue(Row row, HTable headers, String columnName) {
+		HNode hNode = headers.getHNodeFromColumnName(columnName);
+		assertNotNull(columnName, hNode);
+		return row.getNode(hNode.getId()).getValue().asString();
+	}
+}
@@ -0,0 +1,106 @@
+package edu.isi.karma.imp.parquet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class TestParquetJSONReader {
+
+	@Test
+	public void testConversion() throws Exception {
+		List<JSONObject> records = read(null);
+		assertEquals(3, records.size());
+
+		JSONObject alice = records.get(0);
+		assertEquals(9, alice.length());
+		assertEquals(1, alice.get("id"));
+		assertEquals("Alice", alice.get("name"));
+		assertEquals(0.1, alice.get("score"));
+		assertEquals("19.99", alice.get("price"));
+		assertEquals("2015-10-19T01:00:00.000Z", alice.get("updated"));
+		assertEquals("Los Angeles", alice.getJSONObject("address").get("city"));
+		assertEquals("90292", alice.getJSONObject("address").get("zip"));
+		// the elements of a LIST and the entries of a MAP, with their nulls
+		JSONArray phones = alice.getJSONArray("phones");
+		assertEquals(3, phones.length());
+		assertEquals("555-1234", phones.get(0));
+		assertSame(JSONObject.NULL, phones.get(1));
+		assertEquals("555-5678", phones.get(2));
+		JSONObject tags = alice.getJSONObject("tags");
+		assertEquals(2, tags.length());
+		assertEquals(1L, tags.get("a"));
+		assertSame(JSONObject.NULL, tags.get("b"));
+		JSONArray codes = alice.getJSONArray("codes");
+		assertEquals(2, codes.length());
+		assertEquals(7, codes.get(0));
+		assertEquals(8, codes.get(1));
+
+		JSONObject bob = records.get(1);
+		assertEquals("NaN", bob.get("score"));
+		assertSame(JSONObject.NULL, bob.getJSONObject("address").get("zip"));
+		assertEquals(0, bob.getJSONArray("phones").length());
+		assertSame(JSONObject.NULL, bob.get("tags"));
+
+		// the missing fields are null, a repeated field is an empty array
+		JSONObject carol = records.get(2);
+		assertEquals(9, carol.length());
+		assertSame(JSONObject.NULL, carol.get("address"));
+		assertSame(JSONObject.NULL, carol.get("phones"));
+		assertEquals(0, carol.getJSONArray("codes").length());
+	}
+
+	@Test
+	public void testProjection() throws Exception {
+		List<JSONObject> records = read(Arrays.asList("name", "tags", "unknown"));
+		assertEquals(3, records.size());
+		for (JSONObject record : records) {
+			assertEquals(2, record.length());
+			assertTrue(record.has("name"));
+			assertTrue(record.has("tags"));
+		}
+		assertEquals("Bob", records.get(1).get("name"));
+		assertEquals(1L, records.get(0).getJSONObject("tags").get("a"));
+	}
+
+	@Test
+	public void testGetProjection() throws Exception {
+		MessageType schema = MessageTypeParser.parseMessageType(
+				"message m { required int32 a; optional binary b (UTF8); optional group c { required int32 d; } }");
+		MessageType projection = ParquetJSONReader.getProjection(schema, Arrays.asList("c", "a"));
+		assertEquals(2, projection.getFieldCount());
+		assertEquals("a", projection.getFieldName(0));
+		assertEquals("c", projection.getFieldName(1));
+		assertEquals(schema.getType("c"), projection.getType("c"));
+
+		assertNull(ParquetJSONReader.getProjection(schema, null));
+		assertNull(ParquetJSONReader.getProjection(schema, Arrays.asList("a", "b", "c")));
+		// Parquet cannot read no column at all
+		assertNull(ParquetJSONReader.getProjection(schema, Arrays.asList("x")));
+	}
+
+	private List<JSONObject> read(Collection<String> columnNames) throws Exception {
+		Path file = new Path(getClass().getClassLoader().getResource("people.parquet").toURI());
+		List<JSONObject> records = new ArrayList<>();
+		try (ParquetJSONReader reader = new ParquetJSONReader(file, new Configuration(), columnNames)) {
+			JSONObject record;
+			while ((record = reader.next()) != null) {
+				records.add(record);
+			}
+		}
+		return records;
+	}
+}
@@ -77,6 +77,7 @@ import edu.isi.karma.rep.Worksheet;
 import edu.isi.karma.rep.Workspace;
 import edu.isi.karma.rep.metadata.WorksheetProperties.Property;
 import edu.isi.karma.view.VWorkspace;
+import edu.isi.karma.webserver.CommandJob;
 import edu.isi.karma.webserver.ContextParametersRegistry;
 import edu.isi.karma.webserver.KarmaException;
 import edu.isi.karma.webserver.ServletContextParameterMap;
@@ -234,6 +235,7 @@ public class PublishRDFCommand extends WorksheetSelectionCommand {
 					workspace, 
 					writers, false, mapping, errorReport, selection);
 
+			rdfGen.setProgressListener(CommandJob.getCurrentJob());
 			rdfGen.generateRDF(true);
 			logger.info("RDF written to file: " + rdfFileLocalPath);
 			if(saveToStore){
@@ -35,6 +35,7 @@ import edu.isi.karma.modeling.alignment.AlignmentManager;
 import edu.isi.karma.rep.Worksheet;
 import edu.isi.karma.rep.Workspace;
 import edu.isi.karma.view.VWorkspace;
+import edu.isi.karma.webserver.CommandJob;
 import edu.isi.karma.webserver.ContextParametersRegistry;
 import edu.isi.karma.webserver.KarmaException;
 import edu.isi.karma.webserver.ServletContextParameterMap;
@@ -143,6 +144,7 @@ public class ExportAvroCommand extends WorksheetSelectionCommand {
 			RootStrategy strategy = new UserSpecifiedRootStrategy(rootTriplesMapId, new SteinerTreeRootStrategy(new WorksheetDepthRootStrategy()));
 			KR2RMLWorksheetRDFGenerator generator = new KR2RMLWorksheetRDFGenerator(worksheet, workspace, writer, 
 					false, strategy, mapping, errorReport, selection);
+			generator.setProgressListener(CommandJob.getCurrentJob());
 			try {
 				generator.generateRDF(true);
 				logger.info("RDF written to file.");
@@ -51,6 +51,7 @@ import edu.isi.karma.modeling.alignment.AlignmentManager;
 import edu.isi.karma.rep.Worksheet;
 import edu.isi.karma.rep.Workspace;
 import edu.isi.karma.view.VWorkspace;
+import edu.isi.karma.webserver.CommandJob;
 import edu.isi.karma.webserver.ContextParametersRegistry;
 import edu.isi.karma.webserver.KarmaException;
 import edu.isi.karma.webserver.ServletContextParameterMap;
@@ -225,6 +226,7 @@ public class ExportCSVCommand extends WorksheetSelectionCommand {
 				workspace,
 				generatedRDFFileName, false, mapping, errorReport, selection);
 		
+			rdfGen.setProgressListener(CommandJob.getCurrentJob());
 			rdfGen.generateRDF(true);
 			logger.info("RDF written to file: " + generatedRDFFileName);
 		} catch (Exception e1) {
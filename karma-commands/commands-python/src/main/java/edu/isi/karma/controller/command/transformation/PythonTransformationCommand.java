@@ -22,6 +22,7 @@
 package edu.isi.karma.controller.command.transformation;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -54,6 +55,7 @@ import edu.isi.karma.rep.RepFactory;
 import edu.isi.karma.rep.Row;
 import edu.isi.karma.rep.Worksheet;
 import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.webserver.CommandJob;
 import edu.isi.karma.webserver.ContextParametersRegistry;
 import edu.isi.karma.webserver.ServletContextParameterMap;
 import edu.isi.karma.webserver.ServletContextParameterMap.ContextParameter;
@@ -147,8 +149,18 @@ public abstract class PythonTransformationCommand extends WorksheetSelectionComm
 		PyCode py = repo.getTransformCode();
 
 		int numRowsWithErrors = 0;
+		int numNodes = 0;
 
 		for (Node node : nodes) {
+			// a command running as a job reports its progress and stops when cancelled
+			if (numNodes % 1000 == 0) {
+				if (CommandJob.isCancelRequested()) {
+					throw new InterruptedIOException("Python transformation cancelled after " + numNodes + " values");
+				}
+				CommandJob.reportProgress((double) numNodes / nodes.size(),
+						"Transformed " + numNodes + " of " + nodes.size() + " values");
+			}
+			numNodes++;
 			Row row = node.getBelongsToRow();
 			
 			locals.__setitem__("nodeid", new PyString(node.getId()));
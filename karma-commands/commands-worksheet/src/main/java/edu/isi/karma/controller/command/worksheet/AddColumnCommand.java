@@ -22,6 +22,7 @@ package edu.isi.karma.controller.command.worksheet;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -154,7 +155,8 @@ public class AddColumnCommand extends WorksheetSelectionCommand {
 			//create container and return hNodeId of newly created column
 			UpdateContainer c =  new UpdateContainer(new AddColumnUpdate(newHNodeId, worksheetId));
 			
-			c.append(WorksheetUpdateFactory.createRegenerateWorksheetUpdates(worksheetId, getSuperSelection(worksheet), workspace.getContextId()));
+			c.append(WorksheetUpdateFactory.createWorksheetColumnsChangedUpdates(worksheetId, 
+					Collections.singleton(newHNodeId), null, getSuperSelection(worksheet), workspace.getContextId()));
 			c.append(computeAlignmentAndSemanticTypesAndCreateUpdates(workspace));
 			inputColumns.add(hNodeId);
 			outputColumns.add(newHNodeId);
@@ -191,7 +193,8 @@ public class AddColumnCommand extends WorksheetSelectionCommand {
 		//remove the new column
 		currentTable.removeHNode(newHNodeId, worksheet);
 
-		return WorksheetUpdateFactory.createRegenerateWorksheetUpdates(worksheetId, getSuperSelection(worksheet), workspace.getContextId());
+		return WorksheetUpdateFactory.createWorksheetColumnsChangedUpdates(worksheetId, 
+				null, Collections.singleton(newHNodeId), getSuperSelection(worksheet), workspace.getContextId());
 	}
 
 
@@ -23,6 +23,8 @@
  */
 package edu.isi.karma.controller.command.worksheet;
 
+import java.util.Collections;
+
 import edu.isi.karma.controller.command.CommandException;
 import edu.isi.karma.controller.command.CommandType;
 import edu.isi.karma.controller.command.WorksheetSelectionCommand;
@@ -86,7 +88,7 @@ public class EditCellCommand extends WorksheetSelectionCommand {
 		node.setValue(newValueArg, Node.NodeStatus.edited,
 				workspace.getFactory());
 		WorksheetUpdateFactory.detectSelectionStatusChange(worksheetId, workspace, this);
-		UpdateContainer uc = WorksheetUpdateFactory.createWorksheetHierarchicalAndCleaningResultsUpdates(worksheetId, sel, workspace.getContextId());
+		UpdateContainer uc = WorksheetUpdateFactory.createWorksheetValueChangeUpdates(worksheetId, outputColumns, sel, workspace.getContextId());
 		uc.add(new NodeChangedUpdate(worksheetId,
 				nodeIdArg, newValueArg, Node.NodeStatus.edited));
 		return uc;
@@ -97,7 +99,8 @@ public class EditCellCommand extends WorksheetSelectionCommand {
 		Node node = workspace.getFactory().getNode(nodeIdArg);
 		SuperSelection sel = getSuperSelection(workspace);
 		node.setValue(previousValue, previousStatus, workspace.getFactory());
-		UpdateContainer uc = WorksheetUpdateFactory.createWorksheetHierarchicalAndCleaningResultsUpdates(worksheetId, sel, workspace.getContextId());
+		UpdateContainer uc = WorksheetUpdateFactory.createWorksheetValueChangeUpdates(worksheetId,
+				Collections.singleton(node.getHNodeId()), sel, workspace.getContextId());
 		uc.add(new NodeChangedUpdate(worksheetId,
 				nodeIdArg, previousValue, previousStatus));
 		return uc;
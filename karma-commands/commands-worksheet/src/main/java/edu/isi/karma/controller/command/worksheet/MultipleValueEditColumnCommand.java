@@ -1,5 +1,6 @@
 package edu.isi.karma.controller.command.worksheet;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -65,7 +66,7 @@ public class MultipleValueEditColumnCommand extends WorksheetCommand {
 			String newCellValue = stringStringEntry.getValue();
 			row.setValue(hNodeID, newCellValue, factory);
 		}
-		return WorksheetUpdateFactory.createWorksheetHierarchicalAndCleaningResultsUpdates(this.worksheetId, SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
+		return WorksheetUpdateFactory.createWorksheetValueChangeUpdates(this.worksheetId, Collections.singleton(hNodeID), SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
 	}
 
 	@Override
@@ -82,7 +83,7 @@ public class MultipleValueEditColumnCommand extends WorksheetCommand {
 			String oldCellValue = stringStringEntry.getValue();
 			row.setValue(hNodeID, oldCellValue, factory);
 		}
-		return WorksheetUpdateFactory.createRegenerateWorksheetUpdates(worksheetId, SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
+		return WorksheetUpdateFactory.createWorksheetValueChangeUpdates(worksheetId, Collections.singleton(hNodeID), SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
 	}
 
 }
@@ -102,7 +102,7 @@ public class RenameColumnCommand extends WorksheetCommand {
 		
 		
 		// Prepare the output to be sent
-		UpdateContainer c = WorksheetUpdateFactory.createRegenerateWorksheetUpdates(worksheetId, SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
+		UpdateContainer c = WorksheetUpdateFactory.createWorksheetHeadersChangedUpdates(worksheetId, SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
 		c.append(computeAlignmentAndSemanticTypesAndCreateUpdates(workspace));
 		return c;
 	}
@@ -140,7 +140,7 @@ public class RenameColumnCommand extends WorksheetCommand {
 		
 		// Prepare the output to be sent
 	
-		UpdateContainer c = WorksheetUpdateFactory.createRegenerateWorksheetUpdates(worksheetId, SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
+		UpdateContainer c = WorksheetUpdateFactory.createWorksheetHeadersChangedUpdates(worksheetId, SuperSelectionManager.DEFAULT_SELECTION, workspace.getContextId());
 		c.append(computeAlignmentAndSemanticTypesAndCreateUpdates(workspace));
 		return c;
 	}
@@ -0,0 +1,27 @@
+package edu.isi.karma.controller.command.selection;
+
+import java.util.Collection;
+
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Workspace;
+
+/**
+ * A selection of rows that were selected before it was created, such as a
+ * selection read from a worksheet snapshot. It has no expression to select
+ * the rows again, so updating it keeps the same rows.
+ */
+public class StoredSelection extends Selection {
+
+	public StoredSelection(Workspace workspace, String worksheetId,
+			String hTableId, String name, String superSelectionName, Collection<Row> selectedRows) {
+		super(workspace, worksheetId, hTableId, name, superSelectionName);
+		for (Row row : selectedRows) {
+			selectedRowsCache.put(row, true);
+		}
+	}
+
+	@Override
+	public void updateSelection() {
+		this.status = SelectionStatus.UP_TO_DATE;
+	}
+}
@@ -137,64 +137,68 @@ public class CommandHistory implements Cloneable{
 		Pair<ICommand, Object> consolidatedCommand = null;
 		String consolidatorName = null;
 		String worksheetId = worksheetCommandHistory.getWorksheetId(command);
-		List<ICommand> potentialConsolidateCommands = worksheetCommandHistory.getCommandsFromWorksheetIdAndCommandTag(worksheetId, command.getTagFromPriority());
-		for (CommandConsolidator consolidator : consolidators) {
-			consolidatedCommand = consolidator.consolidateCommand(potentialConsolidateCommands, command, workspace);
-			if (consolidatedCommand != null) {
-				consolidatorName = consolidator.getConsolidatorName();
-				break;
+		// the consolidation, the command and the changes of the history of a
+		// worksheet are not interleaved with another command on the worksheet
+		synchronized (worksheetCommandHistory.getLock(worksheetId)) {
+			List<ICommand> potentialConsolidateCommands = worksheetCommandHistory.getCommandsFromWorksheetIdAndCommandTag(worksheetId, command.getTagFromPriority());
+			for (CommandConsolidator consolidator : consolidators) {
+				consolidatedCommand = consolidator.consolidateCommand(potentialConsolidateCommands, command, workspace);
+				if (consolidatedCommand != null) {
+					consolidatorName = consolidator.getConsolidatorName();
+					break;
+				}
 			}
-		}
 		
-		if (consolidatedCommand != null) {
-			worksheetCommandHistory.setStale(worksheetId, true);
-			if (consolidatorName.equals("PyTransformConsolidator")) {
-				effects.append(consolidatedCommand.getLeft().doIt(workspace));
-			}
-			if (consolidatorName.equals("UnassignSemanticTypesConsolidator")) {
-				worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(consolidatedCommand.getLeft()));
-				effects.append(command.doIt(workspace));
-			}
-			if (consolidatorName.equals("SemanticTypesConsolidator")) {
-				worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
-				effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
-			}
-			if (consolidatorName.equals("OrganizeColumnsConsolidator")) {
-				effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
-				worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
-			}
-			if (consolidatorName.equals("DeleteNodeConsolidator")) {
-				worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(consolidatedCommand.getLeft()));
-				effects.append(command.doIt(workspace));
-			}
-			if (consolidatorName.equals("AddLiteralNodeConsolidator")) {
-				worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
-				effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
+			if (consolidatedCommand != null) {
+				worksheetCommandHistory.setStale(worksheetId, true);
+				if (consolidatorName.equals("PyTransformConsolidator")) {
+					effects.append(consolidatedCommand.getLeft().doIt(workspace));
+				}
+				if (consolidatorName.equals("UnassignSemanticTypesConsolidator")) {
+					worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(consolidatedCommand.getLeft()));
+					effects.append(command.doIt(workspace));
+				}
+				if (consolidatorName.equals("SemanticTypesConsolidator")) {
+					worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
+					effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
+				}
+				if (consolidatorName.equals("OrganizeColumnsConsolidator")) {
+					effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
+					worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
+				}
+				if (consolidatorName.equals("DeleteNodeConsolidator")) {
+					worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(consolidatedCommand.getLeft()));
+					effects.append(command.doIt(workspace));
+				}
+				if (consolidatorName.equals("AddLiteralNodeConsolidator")) {
+					worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
+					effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
+				}
+				if (consolidatorName.equals("DeleteLinkConsolidator")) {
+					worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(consolidatedCommand.getLeft()));
+					effects.append(command.doIt(workspace));
+				}
+				if (consolidatorName.equals("AddLinkConsolidator")) {
+					worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
+					effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
+				}
 			}
-			if (consolidatorName.equals("DeleteLinkConsolidator")) {
-				worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(consolidatedCommand.getLeft()));
+			else {
 				effects.append(command.doIt(workspace));
 			}
-			if (consolidatorName.equals("AddLinkConsolidator")) {
-				worksheetCommandHistory.replaceCommandFromHistory(consolidatedCommand.getKey(), (ICommand)consolidatedCommand.getRight());
-				effects.append(((ICommand) consolidatedCommand.getRight()).doIt(workspace));
-			}
-		}
-		else {
-			effects.append(command.doIt(workspace));
-		}
-		command.setExecuted(true);
+			command.setExecuted(true);
 
 		
 		
-		if (command.getCommandType() != CommandType.notInHistory) {
-			worksheetId = worksheetCommandHistory.getWorksheetId(command);
-			worksheetCommandHistory.clearRedoCommand(worksheetId);
-			worksheetCommandHistory.setCurrentCommand(command, consolidatedCommand);
-			if (consolidatedCommand == null) {
-				worksheetCommandHistory.insertCommandToHistory(command);
+			if (command.getCommandType() != CommandType.notInHistory) {
+				worksheetId = worksheetCommandHistory.getWorksheetId(command);
+				worksheetCommandHistory.clearRedoCommand(worksheetId);
+				worksheetCommandHistory.setCurrentCommand(command, consolidatedCommand);
+				if (consolidatedCommand == null) {
+					worksheetCommandHistory.insertCommandToHistory(command);
+				}
+				effects.add(new HistoryUpdate(this));
 			}
-			effects.add(new HistoryUpdate(this));
 		}
 
 		if(saveToHistory) {
@@ -223,6 +227,7 @@ public class CommandHistory implements Cloneable{
 		String workspaceId = workspace.getId();
 		Map<String, JSONArray> comMap = new HashMap<>();
 
+		// a copy of the history, each worksheet is copied under its lock
 		for(ICommand command : _getHistory()) {
 			if(command.isSavedInHistory() &&
 					(command.hasTag(CommandTag.Modeling)
@@ -404,33 +409,37 @@ public class CommandHistory implements Cloneable{
 	 * @throws CommandException
 	 */
 	public UpdateContainer undoOrRedoCommand(Workspace workspace, String worksheetId) throws CommandException {
-		RedoCommandObject currentCommand = worksheetCommandHistory.getCurrentRedoCommandObject(worksheetId);
-		RedoCommandObject lastCommand = worksheetCommandHistory.getLastRedoCommandObject(worksheetId);
 		UpdateContainer container = new UpdateContainer();
-		if (lastCommand == null) {
-			worksheetCommandHistory.setLastRedoCommandObject(currentCommand);
-			Pair<ICommand, Object> pair = currentCommand.getConsolidatedCommand();
-			if (pair == null) {
-				container.append(currentCommand.getCommand().undoIt(workspace));
-				worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(currentCommand.getCommand()));
-			} else {
-				if (pair.getLeft().getCommandName().equals("SubmitPythonTransformationCommand")) {
-					pair.getLeft().setInputParameterJson(pair.getRight().toString());
-					try {
-						Method method = pair.getLeft().getClass().getMethod("setTransformationCode", String.class);
-						method.invoke(pair.getLeft(), HistoryJsonUtil.getStringValue("transformationCode", (JSONArray)pair.getRight()));
+		RedoCommandObject lastCommand;
+		synchronized (worksheetCommandHistory.getLock(worksheetId)) {
+			RedoCommandObject currentCommand = worksheetCommandHistory.getCurrentRedoCommandObject(worksheetId);
+			lastCommand = worksheetCommandHistory.getLastRedoCommandObject(worksheetId);
+			if (lastCommand == null) {
+				worksheetCommandHistory.setLastRedoCommandObject(currentCommand);
+				Pair<ICommand, Object> pair = currentCommand.getConsolidatedCommand();
+				if (pair == null) {
+					container.append(currentCommand.getCommand().undoIt(workspace));
+					worksheetCommandHistory.removeCommandFromHistory(Arrays.asList(currentCommand.getCommand()));
+				} else {
+					if (pair.getLeft().getCommandName().equals("SubmitPythonTransformationCommand")) {
+						pair.getLeft().setInputParameterJson(pair.getRight().toString());
+						try {
+							Method method = pair.getLeft().getClass().getMethod("setTransformationCode", String.class);
+							method.invoke(pair.getLeft(), HistoryJsonUtil.getStringValue("transformationCode", (JSONArray)pair.getRight()));
+							container.append(pair.getLeft().doIt(workspace));
+						} catch (Exception e) {
+							logger.warn("Method invocation failure", e);
+						}
+					}
+					else if (pair.getLeft().getCommandName().equals("SetSemanticTypeCommand") || pair.getLeft().getCommandName().equals("SetMetaPropertyCommand")) {
 						container.append(pair.getLeft().doIt(workspace));
-					} catch (Exception e) {
-						logger.warn("Method invocation failure", e);
+						worksheetCommandHistory.insertCommandToHistory(pair.getLeft());
 					}
 				}
-				else if (pair.getLeft().getCommandName().equals("SetSemanticTypeCommand") || pair.getLeft().getCommandName().equals("SetMetaPropertyCommand")) {
-					container.append(pair.getLeft().doIt(workspace));
-					worksheetCommandHistory.insertCommandToHistory(pair.getLeft());
-				}
 			}
 		}
-		else {
+		// doCommand takes the lock again, the history is saved after it is released
+		if (lastCommand != null) {
 			container.append(doCommand((Command) lastCommand.getCommand(), workspace));
 		}
 		container.add(new HistoryUpdate(this));
@@ -479,12 +488,15 @@ public class CommandHistory implements Cloneable{
 	}
 
 	public void removeCommands(String worksheetId) {
-		List<ICommand> commandsFromWorksheet = worksheetCommandHistory.getCommandsFromWorksheetId(worksheetId);
-		this.worksheetCommandHistory.removeCommandFromHistory(commandsFromWorksheet);
+		synchronized (worksheetCommandHistory.getLock(worksheetId)) {
+			List<ICommand> commandsFromWorksheet = worksheetCommandHistory.getCommandsFromWorksheetId(worksheetId);
+			this.worksheetCommandHistory.removeCommandFromHistory(commandsFromWorksheet);
+		}
 	}
 
 	public List<Command> getCommandsFromWorksheetId(String worksheetId) {
 		List<Command> commandsFromWorksheet = new ArrayList<>();
+		// a copy taken under the lock of the worksheet
 		List<ICommand> history = worksheetCommandHistory.getCommandsFromWorksheetId(worksheetId);
 		for(ICommand command : history) {
 			if(command instanceof Command && command.isSavedInHistory() &&
@@ -500,6 +512,10 @@ public class CommandHistory implements Cloneable{
 		return commandsFromWorksheet;
 	}
 
+	public String getWorksheetId(ICommand command) {
+		return worksheetCommandHistory.getWorksheetId(command);
+	}
+
 	public void addPreviewCommand(Command c) {
 		previewCommand = c;
 	}
@@ -6,62 +6,106 @@ import org.apache.commons.lang3.tuple.Pair;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Created by Frank on 9/14/15.
  */
 public class WorksheetCommandHistory implements Cloneable {
 
+    /**
+     * The history of one worksheet. Its lists and commands are only read and
+     * changed while holding its lock, see {@link #getLock(String)}.
+     */
     private class CommandTagListMap {
+        private final Object lock;
         private final Map<ICommand.CommandTag, List<ICommand> > commandTagListHashMap = new HashMap<>();
         private RedoCommandObject lastRedoCommand;
         private RedoCommandObject currentCommand;
         private boolean stale;
-        public CommandTagListMap() {
+        public CommandTagListMap(String worksheetId) {
+            this.lock = getLock(worksheetId);
             for (ICommand.CommandTag tag : ICommand.CommandTag.values()) {
                 commandTagListHashMap.put(tag, new ArrayList<ICommand>());
             }
         }
 
         public List<ICommand> getCommands() {
-            List<ICommand> commands = new ArrayList<>();
-            commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Import));
-            commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Transformation));
-            commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Selection));
-            commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.SemanticType));
-            commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Modeling));
-            commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Other));
-            return commands;
+            synchronized (lock) {
+                List<ICommand> commands = new ArrayList<>();
+                commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Import));
+                commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Transformation));
+                commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Selection));
+                commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.SemanticType));
+                commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Modeling));
+                commands.addAll(commandTagListHashMap.get(ICommand.CommandTag.Other));
+                return commands;
+            }
         }
 
         public List<ICommand> getCommands(ICommand.CommandTag commandTag) {
-            List<ICommand> commands = new ArrayList<>();
-            commands.addAll(commandTagListHashMap.get(commandTag));
-            return commands;
+            synchronized (lock) {
+                List<ICommand> commands = new ArrayList<>();
+                commands.addAll(commandTagListHashMap.get(commandTag));
+                return commands;
+            }
         }
 
         public void addCommandToHistory(ICommand command) {
-            commandTagListHashMap.get(command.getTagFromPriority()).add(command);
+            synchronized (lock) {
+                commandTagListHashMap.get(command.getTagFromPriority()).add(command);
+            }
         }
 
         public void removeCommandFromHistory(List<ICommand> commands) {
-            for (ICommand.CommandTag tag : ICommand.CommandTag.values()) {
-                commandTagListHashMap.get(tag).removeAll(commands);
+            synchronized (lock) {
+                for (ICommand.CommandTag tag : ICommand.CommandTag.values()) {
+                    commandTagListHashMap.get(tag).removeAll(commands);
+                }
+            }
+        }
+
+        public void replaceCommand(ICommand oldCommand, ICommand newCommand) {
+            synchronized (lock) {
+                for (List<ICommand> commands : commandTagListHashMap.values()) {
+                    int index = commands.indexOf(oldCommand);
+                    if (index != -1) {
+                        commands.set(index, newCommand);
+                    }
+                }
             }
         }
     }
 
-    private final Map<String, CommandTagListMap> historyWorksheetMap = new TreeMap<>();
+    // commands on different worksheets can run concurrently
+    private final ConcurrentMap<String, CommandTagListMap> historyWorksheetMap = new ConcurrentSkipListMap<>();
     private static final String IMPORT_COMMANDS = "ImportCommands";
+    // a worksheet id always maps to the same lock, whether or not the worksheet
+    // has a history yet, worksheets that share a lock do not run concurrently
+    private final Object[] locks = new Object[64];
 
 
     public WorksheetCommandHistory() {
-        historyWorksheetMap.put(IMPORT_COMMANDS, new CommandTagListMap());
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        historyWorksheetMap.put(IMPORT_COMMANDS, new CommandTagListMap(IMPORT_COMMANDS));
     }
 
     public void removeCommandFromHistory(List<ICommand> commands) {
-        for(Map.Entry<String, CommandTagListMap> entry : historyWorksheetMap.entrySet()) {
-            entry.getValue().removeCommandFromHistory(commands);
+        // only the histories of the worksheets of the commands are locked, a
+        // command holding the lock of its worksheet never waits for another one
+        Set<String> worksheetIds = new HashSet<>();
+        for (ICommand command : commands) {
+            String worksheetId = getWorksheetId(command);
+            worksheetIds.add(worksheetId == null ? IMPORT_COMMANDS : worksheetId);
+        }
+        for (String worksheetId : worksheetIds) {
+            CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
+            if (commandTagListMap != null) {
+                commandTagListMap.removeCommandFromHistory(commands);
+            }
         }
     }
 
@@ -72,12 +116,7 @@ public class WorksheetCommandHistory implements Cloneable {
         }
         CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
         if (commandTagListMap != null) {
-            for (Map.Entry<ICommand.CommandTag, List<ICommand>> entry : commandTagListMap.commandTagListHashMap.entrySet()) {
-                int index = entry.getValue().indexOf(oldCommand);
-                if (index != -1) {
-                    entry.getValue().set(index, newCommand);
-                }
-            }
+            commandTagListMap.replaceCommand(oldCommand, newCommand);
         }
     }
 
@@ -86,11 +125,7 @@ public class WorksheetCommandHistory implements Cloneable {
         if (worksheetId == null) {
             worksheetId = IMPORT_COMMANDS;
         }
-        CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
-        if (commandTagListMap == null) {
-            commandTagListMap = new CommandTagListMap();
-            historyWorksheetMap.put(worksheetId, commandTagListMap);
-        }
+        CommandTagListMap commandTagListMap = getCommandTagListMap(worksheetId);
         commandTagListMap.addCommandToHistory(command);
     }
 
@@ -100,13 +135,11 @@ public class WorksheetCommandHistory implements Cloneable {
         if (worksheetId == null) {
             worksheetId = IMPORT_COMMANDS;
         }
-        CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
-        if (commandTagListMap == null) {
-            commandTagListMap = new CommandTagListMap();
-            historyWorksheetMap.put(worksheetId, commandTagListMap);
-        }
-        if (commandTagListMap.lastRedoCommand == null) {
-            commandTagListMap.lastRedoCommand = command;
+        CommandTagListMap commandTagListMap = getCommandTagListMap(worksheetId);
+        synchronized (commandTagListMap.lock) {
+            if (commandTagListMap.lastRedoCommand == null) {
+                commandTagListMap.lastRedoCommand = command;
+            }
         }
     }
 
@@ -115,12 +148,10 @@ public class WorksheetCommandHistory implements Cloneable {
         if (worksheetId == null) {
             worksheetId = IMPORT_COMMANDS;
         }
-        CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
-        if (commandTagListMap == null) {
-            commandTagListMap = new CommandTagListMap();
-            historyWorksheetMap.put(worksheetId, commandTagListMap);
+        CommandTagListMap commandTagListMap = getCommandTagListMap(worksheetId);
+        synchronized (commandTagListMap.lock) {
+            commandTagListMap.currentCommand = new RedoCommandObject(command, consolidatedCommand);
         }
-        commandTagListMap.currentCommand = new RedoCommandObject(command, consolidatedCommand);
     }
 
     public void setStale(String worksheetId, boolean stale) {
@@ -129,7 +160,9 @@ public class WorksheetCommandHistory implements Cloneable {
         }
         CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
         if (commandTagListMap != null) {
-            commandTagListMap.stale = stale;
+            synchronized (commandTagListMap.lock) {
+                commandTagListMap.stale = stale;
+            }
         }
     }
 
@@ -139,7 +172,9 @@ public class WorksheetCommandHistory implements Cloneable {
         }
         CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
         if (commandTagListMap != null) {
-            commandTagListMap.lastRedoCommand = null;
+            synchronized (commandTagListMap.lock) {
+                commandTagListMap.lastRedoCommand = null;
+            }
         }
     }
 
@@ -149,7 +184,9 @@ public class WorksheetCommandHistory implements Cloneable {
         }
         CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
         if (commandTagListMap != null) {
-            commandTagListMap.currentCommand = null;
+            synchronized (commandTagListMap.lock) {
+                commandTagListMap.currentCommand = null;
+            }
         }
     }
 
@@ -208,7 +245,9 @@ public class WorksheetCommandHistory implements Cloneable {
         if (map == null) {
             return null;
         }
-        return map.lastRedoCommand;
+        synchronized (map.lock) {
+            return map.lastRedoCommand;
+        }
     }
 
     public RedoCommandObject getCurrentRedoCommandObject(String worksheetId) {
@@ -219,7 +258,9 @@ public class WorksheetCommandHistory implements Cloneable {
         if (map == null) {
             return null;
         }
-        return map.currentCommand;
+        synchronized (map.lock) {
+            return map.currentCommand;
+        }
     }
 
     public boolean isStale(String worksheetId) {
@@ -228,11 +269,35 @@ public class WorksheetCommandHistory implements Cloneable {
         }
         CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
         if (commandTagListMap != null) {
-            return commandTagListMap.stale;
+            synchronized (commandTagListMap.lock) {
+                return commandTagListMap.stale;
+            }
         }
         return false;
     }
 
+    /**
+     * @return the object to synchronize on to read and change the history of a
+     * worksheet, or of the commands that are not tied to a worksheet if the id
+     * is null, in several steps. Getting the lock does not add a history for
+     * the worksheet.
+     */
+    public Object getLock(String worksheetId) {
+        if (worksheetId == null) {
+            worksheetId = IMPORT_COMMANDS;
+        }
+        return locks[(worksheetId.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    private CommandTagListMap getCommandTagListMap(String worksheetId) {
+        CommandTagListMap commandTagListMap = historyWorksheetMap.get(worksheetId);
+        if (commandTagListMap == null) {
+            historyWorksheetMap.putIfAbsent(worksheetId, new CommandTagListMap(worksheetId));
+            commandTagListMap = historyWorksheetMap.get(worksheetId);
+        }
+        return commandTagListMap;
+    }
+
     public List<String> getAllWorksheetId() {
         return new ArrayList<>(historyWorksheetMap.keySet());
     }
@@ -241,7 +306,7 @@ public class WorksheetCommandHistory implements Cloneable {
     public WorksheetCommandHistory clone() {
         WorksheetCommandHistory worksheetCommandHistory = new WorksheetCommandHistory();
         for (String worksheetId : getAllWorksheetId()) {
-            worksheetCommandHistory.historyWorksheetMap.put(worksheetId, new CommandTagListMap());
+            worksheetCommandHistory.historyWorksheetMap.put(worksheetId, new CommandTagListMap(worksheetId));
         }
         for (ICommand command : getAllCommands()) {
             worksheetCommandHistory.insertCommandToHistory(command);
@@ -250,13 +315,15 @@ public class WorksheetCommandHistory implements Cloneable {
             CommandTagListMap newMap = worksheetCommandHistory.historyWorksheetMap.get(worksheetId);
             CommandTagListMap oldMap = this.historyWorksheetMap.get(worksheetId);
             if (oldMap != null && newMap != null) {
-                if (oldMap.currentCommand != null) {
-                    newMap.currentCommand = new RedoCommandObject(oldMap.currentCommand.getCommand(), oldMap.currentCommand.getConsolidatedCommand());
-                }
-                if (oldMap.lastRedoCommand != null) {
-                    newMap.lastRedoCommand = new RedoCommandObject(oldMap.lastRedoCommand.getCommand(), oldMap.lastRedoCommand.getConsolidatedCommand());
+                synchronized (oldMap.lock) {
+                    if (oldMap.currentCommand != null) {
+                        newMap.currentCommand = new RedoCommandObject(oldMap.currentCommand.getCommand(), oldMap.currentCommand.getConsolidatedCommand());
+                    }
+                    if (oldMap.lastRedoCommand != null) {
+                        newMap.lastRedoCommand = new RedoCommandObject(oldMap.lastRedoCommand.getCommand(), oldMap.lastRedoCommand.getConsolidatedCommand());
+                    }
+                    newMap.stale = oldMap.stale;
                 }
-                newMap.stale = oldMap.stale;
             }
         }
         return worksheetCommandHistory;
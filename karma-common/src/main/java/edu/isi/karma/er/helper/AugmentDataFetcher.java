@@ -0,0 +1,288 @@
+package edu.isi.karma.er.helper;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.isi.karma.util.HTTPUtil;
+import edu.isi.karma.webserver.KarmaException;
+
+/**
+ * Fetches the objects of the predicates for a list of subjects, or the
+ * subjects for a list of objects, with the queries of {@link TripleStoreUtil}.
+ * The subjects are split in chunks that are queried concurrently, and the
+ * results are read as a stream and passed to the handler on the calling
+ * thread while the other chunks are queried. If a chunk fails after results
+ * were passed to the handler, the handler is asked to roll them back.
+ *
+ * The chunk size starts at the initial size and is halved when a query is
+ * slower than the target latency or returns more than the maximum number of
+ * results, and doubled when a query is fast and small.
+ */
+public class AugmentDataFetcher {
+
+	private static Logger logger = LoggerFactory.getLogger(AugmentDataFetcher.class);
+
+	public static final int DEFAULT_CONCURRENCY = 4;
+	public static final int DEFAULT_CHUNK_SIZE = 200;
+	public static final int DEFAULT_MIN_CHUNK_SIZE = 10;
+	public static final int DEFAULT_MAX_CHUNK_SIZE = 5000;
+	public static final long DEFAULT_TARGET_LATENCY = 2000;
+	public static final int DEFAULT_MAX_RESULTS_PER_QUERY = 50000;
+
+	private static final int QUEUE_SIZE = 10000;
+
+	/**
+	 * Receives the results on the thread that called {@link AugmentDataFetcher#fetch(List, ResultHandler)}
+	 */
+	public interface ResultHandler {
+		/**
+		 * @param otherClass the class of the object, or of the subject when
+		 *                   fetching incoming links, empty if not filtered by class
+		 */
+		void result(String subject, String predicate, String object, String otherClass) throws KarmaException;
+
+		/**
+		 * Undoes the results passed so far, called once the queries are
+		 * stopped when the fetch fails after the first result
+		 */
+		void rollback();
+	}
+
+	private final TripleStoreUtil util;
+	private final String tripleStoreURL;
+	private final List<String> predicates;
+	private final List<String> otherClasses;
+	private final String sameAsPredicate;
+	private final boolean incoming;
+	private int concurrency = DEFAULT_CONCURRENCY;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+	private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+	private long targetLatency = DEFAULT_TARGET_LATENCY;
+	private int maxResultsPerQuery = DEFAULT_MAX_RESULTS_PER_QUERY;
+	private int numberOfQueries;
+
+	/**
+	 * @param incoming true to fetch the subjects that link to the URIs with the predicates
+	 */
+	public AugmentDataFetcher(TripleStoreUtil util, String tripleStoreURL, List<String> predicates,
+			List<String> otherClasses, String sameAsPredicate, boolean incoming) {
+		this.util = util;
+		this.tripleStoreURL = util.normalizeTripleStoreURL(tripleStoreURL);
+		this.predicates = predicates;
+		this.otherClasses = otherClasses;
+		this.sameAsPredicate = sameAsPredicate;
+		this.incoming = incoming;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = Math.max(1, concurrency);
+	}
+
+	public void setChunkSize(int chunkSize, int minChunkSize, int maxChunkSize) {
+		this.minChunkSize = Math.max(1, minChunkSize);
+		this.maxChunkSize = Math.max(this.minChunkSize, maxChunkSize);
+		this.chunkSize = Math.min(this.maxChunkSize, Math.max(this.minChunkSize, chunkSize));
+	}
+
+	public void setTargetLatency(long targetLatency) {
+		this.targetLatency = targetLatency;
+	}
+
+	public void setMaxResultsPerQuery(int maxResultsPerQuery) {
+		this.maxResultsPerQuery = maxResultsPerQuery;
+	}
+
+	/**
+	 * @return the chunk size of the next query
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public int getNumberOfQueries() {
+		return numberOfQueries;
+	}
+
+	public void fetch(List<String> uris, ResultHandler handler) throws KarmaException {
+		if (uris.isEmpty())
+			return;
+		util.testTripleStoreConnection(tripleStoreURL);
+		BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		int numberOfResults = 0;
+		boolean completed = false;
+		try {
+			int next = 0;
+			int running = 0;
+			while (next < uris.size() || running > 0) {
+				while (running < concurrency && next < uris.size()) {
+					int end = Math.min(uris.size(), next + chunkSize);
+					executor.execute(new ChunkQuery(uris.subList(next, end), queue));
+					numberOfQueries++;
+					running++;
+					next = end;
+				}
+				Object item = queue.take();
+				if (item instanceof String[]) {
+					String[] result = (String[]) item;
+					numberOfResults++;
+					handler.result(result[0], result[1], result[2], result[3]);
+				} else {
+					ChunkQuery query = (ChunkQuery) item;
+					running--;
+					if (query.error != null)
+						throw new KarmaException("Unable to load data to augment: " + query.error.getMessage(), query.error);
+					adaptChunkSize(query);
+				}
+			}
+			completed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new KarmaException("Interrupted while loading data to augment", e);
+		} finally {
+			executor.shutdownNow();
+			if (!completed && numberOfResults > 0)
+				handler.rollback();
+		}
+	}
+
+	private void adaptChunkSize(ChunkQuery query) {
+		int previous = chunkSize;
+		if (query.latency > targetLatency || query.numberOfResults > maxResultsPerQuery)
+			chunkSize = Math.max(minChunkSize, chunkSize / 2);
+		else if (query.latency < targetLatency / 2 && query.numberOfResults < maxResultsPerQuery / 2
+				&& query.uris.size() == chunkSize)
+			chunkSize = Math.min(maxChunkSize, chunkSize * 2);
+		if (chunkSize != previous)
+			logger.debug("Query of " + query.uris.size() + " URIs took " + query.latency + "ms for "
+					+ query.numberOfResults + " results, chunk size is now " + chunkSize);
+	}
+
+	/**
+	 * Queries the triple store for a chunk of URIs and puts the results in the
+	 * queue as they are read, followed by itself once done. The latency does
+	 * not include the time spent waiting for room in the queue.
+	 */
+	private class ChunkQuery implements Runnable, ResponseHandler<Void> {
+
+		private final List<String> uris;
+		private final BlockingQueue<Object> queue;
+		private long latency;
+		private long waiting;
+		private int numberOfResults;
+		private Exception error;
+
+		ChunkQuery(List<String> uris, BlockingQueue<Object> queue) {
+			this.uris = uris;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			long start = System.currentTimeMillis();
+			try {
+				String queryString = incoming
+						? util.getSubjectsForPredicatesAndObjectsQuery(null, uris, predicates, otherClasses, sameAsPredicate)
+						: util.getObjectsForSubjectsAndPredicatesQuery(null, uris, predicates, otherClasses, sameAsPredicate);
+				Map<String, String> formparams = new HashMap<>();
+				formparams.put("query", queryString);
+				formparams.put("queryLn", "SPARQL");
+				HTTPUtil.executeHTTPPostRequest(tripleStoreURL, "application/sparql-results+json", formparams, this);
+			} catch (Exception e) {
+				error = e;
+			}
+			latency = System.currentTimeMillis() - start - waiting;
+			try {
+				queue.put(this);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public Void handleResponse(HttpResponse response) throws IOException {
+			if (response.getStatusLine().getStatusCode() >= 300)
+				throw new IOException("The triple store returned " + response.getStatusLine());
+			HttpEntity entity = response.getEntity();
+			if (entity == null)
+				return null;
+			try (InputStreamReader reader = new InputStreamReader(entity.getContent(), "UTF-8")) {
+				readObject(new JSONTokener(reader), "results");
+			} catch (JSONException e) {
+				throw new IOException("Unable to parse the results: " + e.getMessage(), e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			return null;
+		}
+
+		/**
+		 * Reads an object, skipping the values of the keys other than the one
+		 * given. The value of "results" is read as an object with "bindings",
+		 * whose value is read one binding at a time.
+		 */
+		private void readObject(JSONTokener x, String key) throws JSONException, InterruptedException {
+			if (x.nextClean() != '{')
+				throw x.syntaxError("A JSONObject text must begin with '{'");
+			while (true) {
+				char c = x.nextClean();
+				if (c == '}')
+					return;
+				if (c == ',')
+					continue;
+				x.back();
+				String k = x.nextValue().toString();
+				if (x.nextClean() != ':')
+					throw x.syntaxError("Expected a ':' after a key");
+				if (!k.equals(key))
+					x.nextValue();
+				else if ("results".equals(k))
+					readObject(x, "bindings");
+				else
+					readBindings(x);
+			}
+		}
+
+		private void readBindings(JSONTokener x) throws JSONException, InterruptedException {
+			if (x.nextClean() != '[')
+				throw x.syntaxError("A JSONArray text must start with '['");
+			while (true) {
+				char c = x.nextClean();
+				if (c == ']')
+					return;
+				if (c == ',')
+					continue;
+				x.back();
+				JSONObject o = (JSONObject) x.nextValue();
+				String[] result = new String[] {
+						o.getJSONObject("s").getString("value"),
+						o.getJSONObject("p").getString("value"),
+						o.getJSONObject("o").getString("value"),
+						o.has("filteredtype") ? o.getJSONObject("filteredtype").getString("value") : ""
+				};
+				numberOfResults++;
+				long start = System.currentTimeMillis();
+				queue.put(result);
+				waiting += System.currentTimeMillis() - start;
+			}
+		}
+	}
+}
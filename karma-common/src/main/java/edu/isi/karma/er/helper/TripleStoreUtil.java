@@ -244,98 +244,102 @@ public class TripleStoreUtil {
 		return false;
 	}
 
-	public Map<String, List<String>> getObjectsForSubjectsAndPredicates(String tripleStoreURL, String context, List<String> subjects, List<String> predicates, List<String> otherClasses, String sameAsProperty) throws KarmaException
+	public String getObjectsForSubjectsAndPredicatesQuery(String context, List<String> subjects, List<String> predicates, List<String> otherClasses, String sameAsProperty)
 	{
+		StringBuilder query = new StringBuilder();
+		query.append("PREFIX km-dev:<http://isi.edu/integration/karma/dev#>\n");
+		query.append("PREFIX rr:<http://www.w3.org/ns/r2rml#>\n");
+		query.append("SELECT ?s ?p ?o ?filteredtype\n");			
+		injectContext(context, query);
+		query.append("{\n");
+		query.append("VALUES ?s { ");
+		for(String subject : subjects)
+		{
+			formatURI(subject, query);
+			query.append(" ");
+		}
+		query.append("}\n");
+		Iterator<String> predicateIterator = predicates.iterator();
+		Iterator<String> otherClassIterator = otherClasses.iterator();
 
-		tripleStoreURL = normalizeTripleStoreURL(tripleStoreURL);
-		testTripleStoreConnection(tripleStoreURL);
-		Map<String, List<String>> results = new HashMap<>();
-		List<String> resultSubjects = new LinkedList<>();
-		List<String> resultPredicates = new LinkedList<>();
-		List<String> resultObjects = new LinkedList<>();
-		List<String> resultClasses = new LinkedList<>();
-		results.put("resultSubjects", resultSubjects);
-		results.put("resultPredicates", resultPredicates);
-		results.put("resultObjects", resultObjects);
-		results.put("resultClasses", resultClasses);
-		try {
 
-			StringBuilder query = new StringBuilder();
-			query.append("PREFIX km-dev:<http://isi.edu/integration/karma/dev#>\n");
-			query.append("PREFIX rr:<http://www.w3.org/ns/r2rml#>\n");
-			query.append("SELECT ?s ?p ?o ?filteredtype\n");			
-			injectContext(context, query);
+		String predicate;
+		String otherClass;
+		while(predicateIterator.hasNext() && otherClassIterator.hasNext())
+		{
 			query.append("{\n");
-			query.append("VALUES ?s { ");
-			for(String subject : subjects)
-			{
-				formatURI(subject, query);
-				query.append(" ");
-			}
-			query.append("}\n");
-			Iterator<String> predicateIterator = predicates.iterator();
-			Iterator<String> otherClassIterator = otherClasses.iterator();
+			predicate = predicateIterator.next();
+			otherClass = otherClassIterator.next();
 
-
-			String predicate;
-			String otherClass;
-			while(predicateIterator.hasNext() && otherClassIterator.hasNext())
+			if(!otherClass.trim().isEmpty())
 			{
-				query.append("{\n");
-				predicate = predicateIterator.next();
-				otherClass = otherClassIterator.next();
+				query.append("BIND ( ");
+				formatURI(otherClass, query);
+				query.append(" AS ?filteredtype )\n");
 
-				if(!otherClass.trim().isEmpty())
-				{
-					query.append("BIND ( ");
-					formatURI(otherClass, query);
-					query.append(" AS ?filteredtype )\n");
+			}
+			query.append("BIND ( ");
+			formatURI(predicate, query);
+			query.append(" AS ?p )\n");
+			query.append("{\n");
+			query.append("?s ");
+			formatURI(predicate, query);
+			query.append(" ?o .\n");
 
-				}
-				query.append("BIND ( ");
-				formatURI(predicate, query);
-				query.append(" AS ?p )\n");
+			query.append("}\n");
+			if(sameAsProperty != null && !sameAsProperty.isEmpty())
+			{
+				query.append("UNION\n");
 				query.append("{\n");
 				query.append("?s ");
+				formatURI(sameAsProperty, query);
+				query.append("?sprime .\n");
+				query.append("?sprime ");
 				formatURI(predicate, query);
 				query.append(" ?o .\n");
-
 				query.append("}\n");
-				if(sameAsProperty != null && !sameAsProperty.isEmpty())
-				{
-					query.append("UNION\n");
-					query.append("{\n");
-					query.append("?s ");
-					formatURI(sameAsProperty, query);
-					query.append("?sprime .\n");
-					query.append("?sprime ");
-					formatURI(predicate, query);
-					query.append(" ?o .\n");
-					query.append("}\n");
-					query.append("UNION\n");
-					query.append("{\n");
-					query.append("?sprime ");
-					formatURI(sameAsProperty, query);
-					query.append("?s .\n");
-					query.append("?sprime ");
-					formatURI(predicate, query);
-					query.append(" ?o .\n");
-					query.append("}\n");
-				}
-				if(!otherClass.trim().isEmpty())
-				{
-					query.append("?o a ?filteredtype .\n");
-				}
+				query.append("UNION\n");
+				query.append("{\n");
+				query.append("?sprime ");
+				formatURI(sameAsProperty, query);
+				query.append("?s .\n");
+				query.append("?sprime ");
+				formatURI(predicate, query);
+				query.append(" ?o .\n");
 				query.append("}\n");
-				if(predicateIterator.hasNext() && otherClassIterator.hasNext())
-				{
-					query.append("UNION \n");
-				}
 			}
-
+			if(!otherClass.trim().isEmpty())
+			{
+				query.append("?o a ?filteredtype .\n");
+			}
 			query.append("}\n");
+			if(predicateIterator.hasNext() && otherClassIterator.hasNext())
+			{
+				query.append("UNION \n");
+			}
+		}
 
-			String queryString = query.toString();
+		query.append("}\n");
+		return query.toString();
+	}
+
+	public Map<String, List<String>> getObjectsForSubjectsAndPredicates(String tripleStoreURL, String context, List<String> subjects, List<String> predicates, List<String> otherClasses, String sameAsProperty) throws KarmaException
+	{
+
+		tripleStoreURL = normalizeTripleStoreURL(tripleStoreURL);
+		testTripleStoreConnection(tripleStoreURL);
+		Map<String, List<String>> results = new HashMap<>();
+		List<String> resultSubjects = new LinkedList<>();
+		List<String> resultPredicates = new LinkedList<>();
+		List<String> resultObjects = new LinkedList<>();
+		List<String> resultClasses = new LinkedList<>();
+		results.put("resultSubjects", resultSubjects);
+		results.put("resultPredicates", resultPredicates);
+		results.put("resultObjects", resultObjects);
+		results.put("resultClasses", resultClasses);
+		try {
+
+			String queryString = getObjectsForSubjectsAndPredicatesQuery(context, subjects, predicates, otherClasses, sameAsProperty);
 			logger.debug("query: " + queryString);
 
 
@@ -372,92 +376,96 @@ public class TripleStoreUtil {
 		return results;
 	}
 
-	public Map<String, List<String>> getSubjectsForPredicatesAndObjects(String tripleStoreURL, String context, List<String> subjects, List<String> predicates, List<String> otherClasses, String sameAsPredicate) throws KarmaException
+	public String getSubjectsForPredicatesAndObjectsQuery(String context, List<String> subjects, List<String> predicates, List<String> otherClasses, String sameAsPredicate)
 	{
+		StringBuilder query = new StringBuilder();
+		query.append("PREFIX km-dev:<http://isi.edu/integration/karma/dev#>\n");
+		query.append("PREFIX rr:<http://www.w3.org/ns/r2rml#>\n");
+		query.append("SELECT ?s ?p ?o ?filteredtype\n");			
+		injectContext(context, query);
+		query.append("{\n");
+		query.append("VALUES ?o { ");
+		for(String subject : subjects)
+		{
+			formatURI(subject, query);
+			query.append(" ");
+		}
+		query.append("}\n");
+		Iterator<String> predicateIterator = predicates.iterator();
+		Iterator<String> otherClassIterator = otherClasses.iterator();
 
-		tripleStoreURL = normalizeTripleStoreURL(tripleStoreURL);
-		testTripleStoreConnection(tripleStoreURL);
-		Map<String, List<String>> results = new HashMap<>();
-		List<String> resultSubjects = new LinkedList<>();
-		List<String> resultPredicates = new LinkedList<>();
-		List<String> resultObjects = new LinkedList<>();
-		List<String> resultClasses = new LinkedList<>();
-		results.put("resultSubjects", resultSubjects);
-		results.put("resultPredicates", resultPredicates);
-		results.put("resultObjects", resultObjects);
-		results.put("resultClasses", resultClasses);
-		try {
 
-			StringBuilder query = new StringBuilder();
-			query.append("PREFIX km-dev:<http://isi.edu/integration/karma/dev#>\n");
-			query.append("PREFIX rr:<http://www.w3.org/ns/r2rml#>\n");
-			query.append("SELECT ?s ?p ?o ?filteredtype\n");			
-			injectContext(context, query);
+		String predicate;
+		String otherClass;
+		while(predicateIterator.hasNext() && otherClassIterator.hasNext())
+		{
 			query.append("{\n");
-			query.append("VALUES ?o { ");
-			for(String subject : subjects)
+			predicate = predicateIterator.next();
+			otherClass = otherClassIterator.next();
+			query.append("BIND ( ");
+			formatURI(predicate, query);
+			query.append(" AS ?p )\n");
+			if(!otherClass.trim().isEmpty())
 			{
-				formatURI(subject, query);
-				query.append(" ");
+				query.append("BIND ( ");
+				formatURI(otherClass, query);
+				query.append(" AS ?filteredtype )\n");
+
 			}
+			query.append("{\n");
+			query.append("?s ?p ?o .\n");
 			query.append("}\n");
-			Iterator<String> predicateIterator = predicates.iterator();
-			Iterator<String> otherClassIterator = otherClasses.iterator();
-
-
-			String predicate;
-			String otherClass;
-			while(predicateIterator.hasNext() && otherClassIterator.hasNext())
+			if(sameAsPredicate != null && !sameAsPredicate.isEmpty())
 			{
+				query.append("UNION \n");
 				query.append("{\n");
-				predicate = predicateIterator.next();
-				otherClass = otherClassIterator.next();
-				query.append("BIND ( ");
-				formatURI(predicate, query);
-				query.append(" AS ?p )\n");
-				if(!otherClass.trim().isEmpty())
-				{
-					query.append("BIND ( ");
-					formatURI(otherClass, query);
-					query.append(" AS ?filteredtype )\n");
-
-				}
+				query.append("?oprime ");
+				query.append(sameAsPredicate);
+				query.append(" ?o .\n");
+				query.append("?s ?p ?oprime .\n");
+				query.append("}\n");
+				query.append("UNION \n");
 				query.append("{\n");
-				query.append("?s ?p ?o .\n");
+				query.append("?o ");
+				query.append(sameAsPredicate);
+				query.append(" ?oprime .\n");
+				query.append("?s ?p ?oprime .\n");
 				query.append("}\n");
-				if(sameAsPredicate != null && !sameAsPredicate.isEmpty())
-				{
-					query.append("UNION \n");
-					query.append("{\n");
-					query.append("?oprime ");
-					query.append(sameAsPredicate);
-					query.append(" ?o .\n");
-					query.append("?s ?p ?oprime .\n");
-					query.append("}\n");
-					query.append("UNION \n");
-					query.append("{\n");
-					query.append("?o ");
-					query.append(sameAsPredicate);
-					query.append(" ?oprime .\n");
-					query.append("?s ?p ?oprime .\n");
-					query.append("}\n");
-				}
-				if(!otherClass.trim().isEmpty())
-				{
-					query.append("?s a ?filteredtype .\n");
-
-				}
+			}
+			if(!otherClass.trim().isEmpty())
+			{
+				query.append("?s a ?filteredtype .\n");
 
-				query.append("}\n");
-				if(predicateIterator.hasNext() && otherClassIterator.hasNext())
-				{
-					query.append("UNION \n");
-				}
 			}
 
 			query.append("}\n");
+			if(predicateIterator.hasNext() && otherClassIterator.hasNext())
+			{
+				query.append("UNION \n");
+			}
+		}
 
-			String queryString = query.toString();
+		query.append("}\n");
+		return query.toString();
+	}
+
+	public Map<String, List<String>> getSubjectsForPredicatesAndObjects(String tripleStoreURL, String context, List<String> subjects, List<String> predicates, List<String> otherClasses, String sameAsPredicate) throws KarmaException
+	{
+
+		tripleStoreURL = normalizeTripleStoreURL(tripleStoreURL);
+		testTripleStoreConnection(tripleStoreURL);
+		Map<String, List<String>> results = new HashMap<>();
+		List<String> resultSubjects = new LinkedList<>();
+		List<String> resultPredicates = new LinkedList<>();
+		List<String> resultObjects = new LinkedList<>();
+		List<String> resultClasses = new LinkedList<>();
+		results.put("resultSubjects", resultSubjects);
+		results.put("resultPredicates", resultPredicates);
+		results.put("resultObjects", resultObjects);
+		results.put("resultClasses", resultClasses);
+		try {
+
+			String queryString = getSubjectsForPredicatesAndObjectsQuery(context, subjects, predicates, otherClasses, sameAsPredicate);
 			logger.debug("query: " + queryString);
 
 
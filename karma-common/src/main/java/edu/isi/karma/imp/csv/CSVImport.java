@@ -76,34 +76,36 @@ public class CSVImport extends Import {
         int rowCount = 0;
         Map<Integer, String> hNodeIdList = new HashMap<>();
 
-        CSVReader reader = getCSVReader();
-
-        // Populate the worksheet model
-        String[] rowValues = null;
-        while ((rowValues = reader.readNext()) != null) {
-            // logger.debug("Read line: '" + line + "'");
-            // Check for the header row
-            if (rowCount + 1 == headerRowIndex) {
-                hNodeIdList = addHeaders(getWorksheet(), getFactory(), rowValues, reader);
-                rowCount++;
-                continue;
-            }
-
-            // Populate the model with data rows
-            if (rowCount + 1 >= dataStartRowIndex) {
-                boolean added = addRow(getWorksheet(), getFactory(), rowValues, hNodeIdList, dataTable);
-                if(added) {
+        RowReader reader = getRowReader();
+        try {
+            // Populate the worksheet model
+            String[] rowValues = null;
+            while ((rowValues = reader.readNext(hNodeIdList)) != null) {
+                // logger.debug("Read line: '" + line + "'");
+                // Check for the header row
+                if (rowCount + 1 == headerRowIndex) {
+                    hNodeIdList = addHeaders(getWorksheet(), getFactory(), rowValues);
                     rowCount++;
-                    if(maxNumLines > 0 && (rowCount - dataStartRowIndex) >= maxNumLines-1) {
-                        break;
+                    continue;
+                }
+
+                // Populate the model with data rows
+                if (rowCount + 1 >= dataStartRowIndex) {
+                    boolean added = addRow(getWorksheet(), getFactory(), rowValues, hNodeIdList, dataTable);
+                    if(added) {
+                        rowCount++;
+                        if(maxNumLines > 0 && (rowCount - dataStartRowIndex) >= maxNumLines-1) {
+                            break;
+                        }
                     }
+                    continue;
                 }
-                continue;
-            }
 
-            rowCount++;
+                rowCount++;
+            }
+        } finally {
+            reader.close();
         }
-        reader.close();
         getWorksheet().getMetadataContainer().getWorksheetProperties().setPropertyValue(Property.sourceType, SourceTypes.CSV.toString());
         return getWorksheet();
     }
@@ -119,8 +121,35 @@ public class CSVImport extends Import {
         return new CSVReader(br, delimiter, quoteCharacter, escapeCharacter);
     }
 
+    /**
+     * Reads the rows of the source. The values of the columns that are not
+     * imported may be null.
+     */
+    protected interface RowReader extends Closeable {
+        /**
+         * @param hNodeIdMap the ids of the HNodes of the columns read so far, by column index
+         * @return the values of the next row, or null at the end of the source
+         */
+        String[] readNext(Map<Integer, String> hNodeIdMap) throws IOException;
+    }
+
+    protected RowReader getRowReader() throws IOException {
+        final CSVReader reader = getCSVReader();
+        return new RowReader() {
+            @Override
+            public String[] readNext(Map<Integer, String> hNodeIdMap) throws IOException {
+                return reader.readNext();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
     private Map<Integer, String> addHeaders(Worksheet worksheet, RepFactory fac,
-            String[] rowValues, CSVReader reader) throws IOException {
+            String[] rowValues) throws IOException {
         HTable headers = worksheet.getHeaders();
         Map<Integer, String> headersMap = new HashMap<>();
 
@@ -160,7 +189,7 @@ public class CSVImport extends Import {
             }
             if (i < size) {
                 String hNodeId = hNodeIdMap.get(i);
-                if (hNodeId != null)
+                if (hNodeId != null && rowValues[i] != null)
                     row.setValue(hNodeId, rowValues[i], fac);
             } else {
                 // TODO Our model does not allow a value to be added to a row
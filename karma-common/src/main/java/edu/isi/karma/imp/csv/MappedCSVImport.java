@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.csv;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONArray;
+
+import edu.isi.karma.rep.HTable;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.util.EncodingDetector;
+
+/**
+ * Imports a local CSV file with {@link MappedCSVReader}. When the names of the
+ * columns that are used are given, all the columns get a header but only the
+ * values of these columns are decoded and added to the worksheet.
+ *
+ * Files in encodings the mapped reader does not support are read as CSVImport does.
+ */
+public class MappedCSVImport extends CSVImport {
+
+	private final File csvFile;
+	private final char quote;
+	private final Set<String> columnNames;
+
+	/**
+	 * @param columnNames the names of the columns to import the values of, null for all the columns
+	 */
+	public MappedCSVImport(int headerRowIndex, int dataStartRowIndex,
+			char delimiter, char quoteCharacter, String encoding,
+			int maxNumLines,
+			String sourceName,
+			File csvFile,
+			Workspace workspace,
+			JSONArray columnsJson,
+			Set<String> columnNames) throws IOException {
+		super(headerRowIndex, dataStartRowIndex, delimiter, quoteCharacter, encoding, maxNumLines, 
+				sourceName, null, workspace, columnsJson);
+		this.csvFile = csvFile;
+		this.quote = quoteCharacter;
+		this.columnNames = columnNames;
+	}
+
+	@Override
+	public MappedCSVImport duplicate() throws IOException {
+		return new MappedCSVImport(headerRowIndex, dataStartRowIndex, delimiter, quote, encoding, maxNumLines, 
+				sourceName, csvFile, workspace, columnsJson, columnNames);
+	}
+
+	/**
+	 * The file is only opened as a stream if the mapped reader does not support it
+	 */
+	@Override
+	protected BufferedReader getLineReader() throws IOException {
+		return new BufferedReader(EncodingDetector.getInputStreamReader(new FileInputStream(csvFile), getFileEncoding()));
+	}
+
+	private String getFileEncoding() {
+		return encoding != null ? encoding : EncodingDetector.detect(csvFile);
+	}
+
+	@Override
+	protected RowReader getRowReader() throws IOException {
+		String fileEncoding = getFileEncoding();
+		if (!MappedCSVReader.isSupported(fileEncoding, delimiter, quoteCharacter, escapeCharacter))
+			return super.getRowReader();
+		final MappedCSVReader reader = new MappedCSVReader(csvFile, delimiter, quoteCharacter, escapeCharacter, fileEncoding);
+		return new RowReader() {
+			private boolean[] columns;
+			private int numColumns;
+
+			@Override
+			public String[] readNext(Map<Integer, String> hNodeIdMap) throws IOException {
+				if (columnNames != null && hNodeIdMap.size() != numColumns) {
+					columns = getColumns(hNodeIdMap);
+					numColumns = hNodeIdMap.size();
+				}
+				return reader.readNext(columns);
+			}
+
+			@Override
+			public void close() throws IOException {
+				reader.close();
+			}
+		};
+	}
+
+	private boolean[] getColumns(Map<Integer, String> hNodeIdMap) {
+		int length = 0;
+		for (Integer i : hNodeIdMap.keySet())
+			length = Math.max(length, i + 1);
+		boolean[] columns = new boolean[length];
+		HTable headers = getWorksheet().getHeaders();
+		for (Map.Entry<Integer, String> entry : hNodeIdMap.entrySet()) {
+			String name = headers.getHNode(entry.getValue()).getColumnName();
+			columns[entry.getKey()] = columnNames.contains(name);
+		}
+		return columns;
+	}
+}
@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.opencsv.CSVParser;
+
+/**
+ * Reads a delimited file that is mapped in memory. The file is split into
+ * segments that end after a line feed, and the segments are parsed in
+ * parallel a few at a time ahead of the rows being read.
+ *
+ * A line without quote and escape characters is not copied nor decoded when
+ * it is parsed, only the positions of its separators are kept, and the values
+ * are decoded when the row is read. The other lines are parsed by the opencsv
+ * {@link CSVParser} the import uses, so the rows are the same as the ones read
+ * by opencsv's CSVReader with the same separator, quote and escape characters.
+ *
+ * A segment that starts inside a quoted value that spans several lines is
+ * parsed again after the segment before it.
+ *
+ * Only encodings in which the ASCII characters are single bytes that are not
+ * part of other characters are supported, see {@link #isSupported}.
+ */
+public class MappedCSVReader implements Closeable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long size;
+	private final char separator;
+	private final char quoteCharacter;
+	private final char escapeCharacter;
+	private final Charset charset;
+	private final int segmentSize;
+	private final int maxSegmentsAhead;
+	private final ExecutorService executor;
+	private final Deque<Future<Segment>> segments = new ArrayDeque<>();
+	private long nextSegmentStart;
+	private Segment current;
+	private int nextRecord;
+	private byte[] decodeBuffer = new byte[256];
+
+	public MappedCSVReader(File file, char separator, char quoteCharacter, char escapeCharacter,
+			String encoding) throws IOException {
+		this(file, separator, quoteCharacter, escapeCharacter, encoding, DEFAULT_SEGMENT_SIZE,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	public MappedCSVReader(File file, char separator, char quoteCharacter, char escapeCharacter,
+			String encoding, int segmentSize, int numThreads) throws IOException {
+		if (!isSupported(encoding, separator, quoteCharacter, escapeCharacter))
+			throw new IllegalArgumentException("Unsupported encoding or characters for a mapped file: " + encoding);
+		this.separator = separator;
+		this.quoteCharacter = quoteCharacter;
+		this.escapeCharacter = escapeCharacter;
+		this.charset = Charset.forName(encoding);
+		this.segmentSize = segmentSize;
+		this.maxSegmentsAhead = numThreads + 1;
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		try {
+			this.size = channel.size();
+			// the BOM is removed as the BOMInputStream of EncodingDetector does
+			if (size >= 3) {
+				ByteBuffer bom = ByteBuffer.allocate(3);
+				channel.read(bom, 0);
+				if (bom.get(0) == (byte) 0xEF && bom.get(1) == (byte) 0xBB && bom.get(2) == (byte) 0xBF)
+					nextSegmentStart = 3;
+			}
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+		this.executor = Executors.newFixedThreadPool(numThreads);
+	}
+
+	/**
+	 * @return true if the bytes of the separator, quote, escape and line
+	 * terminator characters cannot be part of another character in the encoding
+	 */
+	public static boolean isSupported(String encoding, char separator, char quoteCharacter, char escapeCharacter) {
+		if (encoding == null || !Charset.isSupported(encoding))
+			return false;
+		if (separator >= 128 || quoteCharacter >= 128 || escapeCharacter >= 128)
+			return false;
+		Charset charset = Charset.forName(encoding);
+		if (charset.equals(StandardCharsets.UTF_8))
+			return true;
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1)
+			return false;
+		byte[] ascii = new byte[128];
+		for (int i = 0; i < ascii.length; i++)
+			ascii[i] = (byte) i;
+		String decoded = new String(ascii, charset);
+		for (int i = 0; i < ascii.length; i++) {
+			if (decoded.charAt(i) != i)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the values of the next row, or null at the end of the file
+	 */
+	public String[] readNext() throws IOException {
+		return readNext(null);
+	}
+
+	/**
+	 * @param columns the columns whose values are decoded, the values of the
+	 * other columns are null. Null or columns past the end of the array are decoded.
+	 * @return the values of the next row, or null at the end of the file
+	 */
+	public String[] readNext(boolean[] columns) throws IOException {
+		while (current == null || nextRecord == current.records.size()) {
+			if (!nextSegment())
+				return null;
+		}
+		Object record = current.records.get(nextRecord++);
+		if (record instanceof String[])
+			return (String[]) record;
+		int[] bounds = (int[]) record;
+		String[] values = new String[bounds.length - 1];
+		for (int i = 0; i < values.length; i++) {
+			if (columns == null || i >= columns.length || columns[i])
+				values[i] = decode(current.buffer, bounds[i] + 1, bounds[i + 1]);
+		}
+		return values;
+	}
+
+	private boolean nextSegment() throws IOException {
+		while (segments.size() < maxSegmentsAhead && nextSegmentStart < size) {
+			long end = findSegmentEnd(nextSegmentStart);
+			final Segment segment = new Segment(channel.map(FileChannel.MapMode.READ_ONLY,
+					nextSegmentStart, end - nextSegmentStart), end == size);
+			segments.add(executor.submit(new Callable<Segment>() {
+				@Override
+				public Segment call() throws Exception {
+					return parse(segment, newParser(), null);
+				}
+			}));
+			nextSegmentStart = end;
+		}
+		Future<Segment> future = segments.poll();
+		if (future == null)
+			return false;
+		Segment previous = current;
+		boolean restart = previous != null && previous.parser.isPending();
+		Segment segment;
+		try {
+			segment = future.get();
+		} catch (ExecutionException e) {
+			if (!restart || !(e.getCause() instanceof SegmentParseException))
+				throw new IOException("Unable to parse the file: " + e.getCause().getMessage(), e.getCause());
+			segment = ((SegmentParseException) e.getCause()).segment;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing the file", e);
+		}
+		if (restart) {
+			// the segment starts inside the record that the previous one did not finish
+			try {
+				segment = parse(segment, previous.parser, previous.partial);
+			} catch (SegmentParseException e) {
+				throw new IOException("Unable to parse the file: " + e.getMessage(), e.getCause());
+			}
+		}
+		current = segment;
+		nextRecord = 0;
+		return true;
+	}
+
+	/**
+	 * @return the position after the first line feed at or after the start plus the segment size
+	 */
+	private long findSegmentEnd(long start) throws IOException {
+		long position = start + segmentSize - 1;
+		ByteBuffer bytes = ByteBuffer.allocate(8192);
+		while (position < size) {
+			bytes.clear();
+			int n = channel.read(bytes, position);
+			for (int i = 0; i < n; i++) {
+				if (bytes.get(i) == '\n')
+					return checkSegmentSize(start, position + i + 1);
+			}
+			position += n;
+		}
+		return checkSegmentSize(start, size);
+	}
+
+	private static long checkSegmentSize(long start, long end) throws IOException {
+		if (end - start > Integer.MAX_VALUE)
+			throw new IOException("Line too long at offset " + start);
+		return end;
+	}
+
+	private CSVParser newParser() {
+		return new CSVParser(separator, quoteCharacter, escapeCharacter);
+	}
+
+	/**
+	 * Splits the segment into lines the way BufferedReader.readLine does and
+	 * combines the lines of a record the way CSVReader.readNext does.
+	 * @param parser a parser, pending if the segment starts inside a record
+	 * @param partial the values of the pending record read before the segment
+	 */
+	private Segment parse(Segment segment, CSVParser parser, String[] partial) throws SegmentParseException {
+		ByteBuffer buffer = segment.buffer;
+		List<Object> records = new ArrayList<>();
+		int limit = buffer.limit();
+		int position = 0;
+		try {
+			while (position < limit) {
+				int lineStart = position;
+				int separators = 0;
+				boolean quoted = false;
+				byte b = 0;
+				for (; position < limit; position++) {
+					b = buffer.get(position);
+					if (b == '\n' || b == '\r')
+						break;
+					if (b == separator)
+						separators++;
+					else if (b == quoteCharacter || b == escapeCharacter)
+						quoted = true;
+				}
+				int lineEnd = position;
+				if (position < limit) {
+					position++;
+					if (b == '\r' && position < limit && buffer.get(position) == '\n')
+						position++;
+				}
+				if (quoted || parser.isPending()) {
+					String[] values = parser.parseLineMulti(decode(buffer, lineStart, lineEnd, new byte[lineEnd - lineStart]));
+					if (values.length > 0)
+						partial = partial == null ? values : concat(partial, values);
+					if (!parser.isPending()) {
+						records.add(partial);
+						partial = null;
+					}
+				} else {
+					int[] bounds = new int[separators + 2];
+					bounds[0] = lineStart - 1;
+					int n = 1;
+					for (int i = lineStart; i < lineEnd; i++) {
+						if (buffer.get(i) == separator)
+							bounds[n++] = i;
+					}
+					bounds[n] = lineEnd;
+					records.add(bounds);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new SegmentParseException(segment, e);
+		}
+		if (segment.last && partial != null) {
+			// CSVReader returns what it has of a record that is not finished at the end of the file
+			records.add(partial);
+			partial = null;
+		}
+		segment.records = records;
+		segment.parser = parser;
+		segment.partial = partial;
+		return segment;
+	}
+
+	private static String[] concat(String[] first, String[] second) {
+		String[] values = new String[first.length + second.length];
+		System.arraycopy(first, 0, values, 0, first.length);
+		System.arraycopy(second, 0, values, first.length, second.length);
+		return values;
+	}
+
+	private String decode(ByteBuffer bytes, int start, int end) {
+		if (end - start > decodeBuffer.length)
+			decodeBuffer = new byte[Math.max(end - start, 2 * decodeBuffer.length)];
+		return decode(bytes, start, end, decodeBuffer);
+	}
+
+	private String decode(ByteBuffer bytes, int start, int end, byte[] buffer) {
+		if (end <= start)
+			return "";
+		for (int i = start; i < end; i++)
+			buffer[i - start] = bytes.get(i);
+		return new String(buffer, 0, end - start, charset);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			segments.clear();
+			current = null;
+			file.close();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static class Segment {
+		private final MappedByteBuffer buffer;
+		private final boolean last;
+		private List<Object> records;
+		private CSVParser parser;
+		private String[] partial;
+
+		Segment(MappedByteBuffer buffer, boolean last) {
+			this.buffer = buffer;
+			this.last = last;
+		}
+	}
+
+	/**
+	 * Keeps the segment, which is parsed again if the parsing started inside a record
+	 */
+	private static class SegmentParseException extends Exception {
+		private static final long serialVersionUID = 1L;
+		private final transient Segment segment;
+
+		SegmentParseException(Segment segment, Exception cause) {
+			super(cause.getMessage(), cause);
+			this.segment = segment;
+		}
+	}
+}
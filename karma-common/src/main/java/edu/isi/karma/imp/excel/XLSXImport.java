@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.excel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.isi.karma.imp.Import;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.HNode.HNodeType;
+import edu.isi.karma.rep.HTable;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.metadata.WorksheetProperties.Property;
+import edu.isi.karma.rep.metadata.WorksheetProperties.SourceTypes;
+
+/**
+ * Imports a sheet of an XLSX workbook with {@link XLSXSheetReader}, adding the
+ * rows to the worksheet as they are read. The header and data start indexes
+ * are 1 based row numbers, as in CSVImport; a header index of 0 means the
+ * sheet has no header row and the columns are named Column_1, Column_2...
+ */
+public class XLSXImport extends Import {
+
+	private final File file;
+	private final XLSXSheetReader reader;
+	private final int sheetIndex;
+	private final int headerRowIndex;
+	private final int dataStartRowIndex;
+	private final String worksheetName;
+	private final String encoding;
+	private final int maxNumLines;
+	private int numRows;
+
+	public XLSXImport(File file, int sheetIndex, int headerRowIndex, int dataStartRowIndex,
+			String worksheetName, Workspace workspace, String encoding, int maxNumLines) {
+		this(file, null, sheetIndex, headerRowIndex, dataStartRowIndex, worksheetName, workspace, encoding, maxNumLines);
+	}
+
+	/**
+	 * @param reader an open reader, which is not closed by the import
+	 */
+	public XLSXImport(XLSXSheetReader reader, int sheetIndex, int headerRowIndex, int dataStartRowIndex,
+			String worksheetName, Workspace workspace, String encoding, int maxNumLines) {
+		this(null, reader, sheetIndex, headerRowIndex, dataStartRowIndex, worksheetName, workspace, encoding, maxNumLines);
+	}
+
+	private XLSXImport(File file, XLSXSheetReader reader, int sheetIndex, int headerRowIndex, int dataStartRowIndex,
+			String worksheetName, Workspace workspace, String encoding, int maxNumLines) {
+		super(worksheetName, workspace, encoding);
+		this.file = file;
+		this.reader = reader;
+		this.sheetIndex = sheetIndex;
+		this.headerRowIndex = headerRowIndex;
+		this.dataStartRowIndex = dataStartRowIndex;
+		this.worksheetName = worksheetName;
+		this.encoding = encoding;
+		this.maxNumLines = maxNumLines;
+	}
+
+	@Override
+	public Import duplicate() throws IOException {
+		return new XLSXImport(file, reader, sheetIndex, headerRowIndex, dataStartRowIndex,
+				worksheetName, workspace, encoding, maxNumLines);
+	}
+
+	@Override
+	public Worksheet generateWorksheet() throws IOException {
+		if (reader != null) {
+			reader.readSheet(sheetIndex, new SheetRowHandler());
+		} else {
+			try (XLSXSheetReader fileReader = new XLSXSheetReader(file)) {
+				fileReader.readSheet(sheetIndex, new SheetRowHandler());
+			}
+		}
+		getWorksheet().getMetadataContainer().getWorksheetProperties().setPropertyValue(Property.sourceType, SourceTypes.CSV.toString());
+		return getWorksheet();
+	}
+
+	/**
+	 * @return number of data rows imported by {@link #generateWorksheet()}
+	 */
+	public int getNumberOfRows() {
+		return numRows;
+	}
+
+	private class SheetRowHandler implements XLSXSheetReader.RowHandler {
+
+		private final Map<Integer, String> hNodeIds = new HashMap<>();
+
+		@Override
+		public boolean row(int rowIndex, List<String> values) {
+			int rowNumber = rowIndex + 1;
+			if (rowNumber == headerRowIndex) {
+				addHeaders(values);
+			} else if (rowNumber >= dataStartRowIndex) {
+				addRow(values);
+				numRows++;
+				if (maxNumLines > 0 && numRows >= maxNumLines)
+					return false;
+			}
+			return true;
+		}
+
+		private void addHeaders(List<String> values) {
+			HTable headers = getWorksheet().getHeaders();
+			for (int i = 0; i < values.size(); i++) {
+				HNode hNode = headers.addHNode(values.get(i), HNodeType.Regular, getWorksheet(), getFactory());
+				hNodeIds.put(i, hNode.getId());
+			}
+		}
+
+		private void addRow(List<String> values) {
+			Row row = getWorksheet().getDataTable().addRow(getFactory());
+			for (int i = 0; i < values.size(); i++) {
+				String hNodeId = hNodeIds.get(i);
+				if (hNodeId == null) {
+					if (values.get(i).isEmpty())
+						continue;
+					HNode hNode = getWorksheet().getHeaders().addHNode("Column_" + (i + 1),
+							HNodeType.Regular, getWorksheet(), getFactory());
+					hNodeId = hNode.getId();
+					hNodeIds.put(i, hNodeId);
+				}
+				row.setValue(hNodeId, values.get(i), getFactory());
+			}
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.json;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import edu.isi.karma.rep.ColumnMetadata.DataStructure;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.HNode.HNodeType;
+import edu.isi.karma.rep.HTable;
+import edu.isi.karma.rep.RepFactory;
+import edu.isi.karma.rep.Worksheet;
+
+/**
+ * The union of the columns of the records seen so far, including the columns
+ * of the nested tables, built the same way {@link JsonImportValues} builds the
+ * headers of a worksheet.
+ *
+ * When records are imported into several worksheets, each worksheet gets the
+ * columns of all the records before it, so the commands in the history find
+ * their columns even in a worksheet whose records do not have them.
+ */
+public class JsonHeaderUnion {
+
+	private final Map<String, Column> columns = new LinkedHashMap<>();
+
+	private static class Column {
+		private final DataStructure dataStructure;
+		private String nestedTableName;
+		private JsonHeaderUnion nested;
+		private boolean hasValues;
+
+		Column(DataStructure dataStructure) {
+			this.dataStructure = dataStructure;
+		}
+	}
+
+	/**
+	 * Adds the columns of a record that is a row of the worksheet
+	 */
+	public void addRecord(JSONObject record) throws JSONException {
+		String[] names = JSONObject.getNames(record);
+		if (names == null)
+			return;
+		for (String key : new TreeSet<>(Arrays.asList(names))) {
+			Object value = record.get(key);
+			Column column = getColumn(key, DataStructure.OBJECT);
+			if (value instanceof JSONObject) {
+				getNested(column, "Table for " + key).addRecord((JSONObject) value);
+			} else if (value instanceof JSONArray) {
+				addListElements(getNested(column, "Table for " + key), (JSONArray) value);
+			} else if (value != JSONObject.NULL) {
+				column.hasValues = true;
+			}
+		}
+	}
+
+	/**
+	 * Adds the columns of an element of an array whose elements are rows of the table
+	 */
+	void addListElement(Object value) throws JSONException {
+		if (value instanceof JSONObject) {
+			addRecord((JSONObject) value);
+		} else if (value instanceof JSONArray) {
+			Column column = getColumn("nested array", DataStructure.COLLECTION);
+			addListElements(getNested(column, "nested array values"), (JSONArray) value);
+		} else {
+			getColumn(HTable.VALUES_COLUMN, DataStructure.PRIMITIVE).hasValues = true;
+		}
+	}
+
+	private static void addListElements(JsonHeaderUnion union, JSONArray values) throws JSONException {
+		for (int i = 0; i < values.length(); i++)
+			union.addListElement(values.get(i));
+	}
+
+	private Column getColumn(String name, DataStructure dataStructure) {
+		Column column = columns.get(name);
+		if (column == null) {
+			column = new Column(dataStructure);
+			columns.put(name, column);
+		}
+		return column;
+	}
+
+	private static JsonHeaderUnion getNested(Column column, String tableName) {
+		if (column.nested == null) {
+			column.nested = new JsonHeaderUnion();
+			column.nestedTableName = tableName;
+		}
+		return column.nested;
+	}
+
+	/**
+	 * Adds the columns of another union after the columns of this one
+	 */
+	void addUnion(JsonHeaderUnion union) {
+		for (Map.Entry<String, Column> entry : union.columns.entrySet()) {
+			Column other = entry.getValue();
+			Column column = getColumn(entry.getKey(), other.dataStructure);
+			column.hasValues |= other.hasValues;
+			if (other.nested != null)
+				getNested(column, other.nestedTableName).addUnion(other.nested);
+		}
+	}
+
+	/**
+	 * @return true if a column gets both values and a nested table, counting
+	 *         the nested tables of the headers. JsonImportValues then moves the
+	 *         values to the nested table as orphan values.
+	 */
+	boolean hasValuesInNestedTables(HTable headers) {
+		for (Map.Entry<String, Column> entry : columns.entrySet()) {
+			Column column = entry.getValue();
+			HNode hNode = headers == null ? null : headers.getHNodeFromColumnName(entry.getKey());
+			boolean nested = column.nested != null || (hNode != null && hNode.hasNestedTable());
+			if (column.hasValues && nested)
+				return true;
+			if (column.nested != null) {
+				// the values already in the column would be moved
+				if (hNode != null && !hNode.hasNestedTable())
+					return true;
+				if (column.nested.hasValuesInNestedTables(hNode == null ? null : hNode.getNestedTable()))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the columns that are missing in the headers of the worksheet
+	 */
+	public void addHeaders(HTable headers, Worksheet worksheet, RepFactory factory) {
+		for (Map.Entry<String, Column> entry : columns.entrySet()) {
+			Column column = entry.getValue();
+			HNode hNode = headers.getHNodeFromColumnName(entry.getKey());
+			if (hNode == null) {
+				hNode = headers.addHNode(entry.getKey(), HNodeType.Regular, worksheet, factory);
+				worksheet.getMetadataContainer().getColumnMetadata()
+						.addColumnDataStructure(hNode.getId(), column.dataStructure);
+			}
+			if (column.nested != null) {
+				HTable nestedHTable = hNode.getNestedTable();
+				if (nestedHTable == null)
+					nestedHTable = hNode.addNestedTable(column.nestedTableName, worksheet, factory);
+				column.nested.addHeaders(nestedHTable, worksheet, factory);
+			}
+		}
+	}
+
+	public boolean isEmpty() {
+		return columns.isEmpty();
+	}
+}
@@ -26,6 +26,7 @@
 package edu.isi.karma.imp.json;
 
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -61,6 +62,7 @@ public class JsonImport extends Import {
 	private JSONArray columnsJson;
 	private String worksheetName;
 	private String encoding;
+	private int numThreads = 1;
 	
 	private class FileObject {
 		File file;
@@ -83,7 +85,22 @@ public class JsonImport extends Import {
 	}
 
 	public JsonImport duplicate() {
-		return new JsonImport(this.json, this.worksheetName, this.workspace, this.encoding, this.maxNumLines);
+		JsonImport imp = new JsonImport(this.json, this.worksheetName, this.workspace, this.encoding, this.maxNumLines);
+		imp.setNumThreads(numThreads);
+		return imp;
+	}
+
+	/**
+	 * Imports the elements of a top level array on several threads, see
+	 * {@link ParallelJsonImport}. The elements are imported on one thread when
+	 * the number of lines is limited or the visible columns are given.
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	private boolean isParallel() {
+		return numThreads > 1 && maxNumLines <= 0 && columnsJson == null;
 	}
 	
 	public JsonImport(File jsonFile, String worksheetName, Workspace workspace,String encoding, int maxNumLines, JSONArray tree,boolean isJSONLines) throws FileNotFoundException, Exception {
@@ -145,13 +162,17 @@ public class JsonImport extends Import {
 		if (json instanceof JSONArray) {
 			getWorksheet().getMetadataContainer().getWorksheetProperties().setWorksheetDataStructure(DataStructure.COLLECTION);
 			JSONArray a = (JSONArray) json;
-			for (int i = 0; i < a.length(); i++) {
-				JsonImportValues JsonImportValues = new JsonImportValues(maxNumLines, numObjects, getFactory(), getWorksheet(), columnsJson);
-				JsonImportValues.addListElement(a.get(i), getWorksheet().getHeaders(),
-						getWorksheet().getDataTable());
-				numObjects = JsonImportValues.getNumberOfObjectsImported();
-				if (maxNumLines > 0 && numObjects >= maxNumLines)
-					break;
+			if (isParallel()) {
+				new ParallelJsonImport(getWorksheet(), getFactory(), numThreads).importElements(a);
+			} else {
+				for (int i = 0; i < a.length(); i++) {
+					JsonImportValues JsonImportValues = new JsonImportValues(maxNumLines, numObjects, getFactory(), getWorksheet(), columnsJson);
+					JsonImportValues.addListElement(a.get(i), getWorksheet().getHeaders(),
+							getWorksheet().getDataTable());
+					numObjects = JsonImportValues.getNumberOfObjectsImported();
+					if (maxNumLines > 0 && numObjects >= maxNumLines)
+						break;
+				}
 			}
 		} else if (json instanceof JSONObject) {
 			getWorksheet().getMetadataContainer().getWorksheetProperties().setWorksheetDataStructure(DataStructure.OBJECT);
@@ -163,7 +184,9 @@ public class JsonImport extends Import {
 			FileObject fo = (FileObject)json;
 			boolean flag = true;
 			try {
-				JSONTokener tokener = new JSONTokener(new InputStreamReader(new FileInputStream(fo.file), fo.encoding));
+				// buffered here, so that the tokener reads from it without buffering ahead
+				BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fo.file), fo.encoding));
+				JSONTokener tokener = new JSONTokener(reader);
 				char c = tokener.nextClean();			
 				if (c == '{') {
 					getWorksheet().getMetadataContainer().getWorksheetProperties().setWorksheetDataStructure(DataStructure.OBJECT);
@@ -174,8 +197,12 @@ public class JsonImport extends Import {
 				else if (c == '['){
 					flag = false;
 					getWorksheet().getMetadataContainer().getWorksheetProperties().setWorksheetDataStructure(DataStructure.COLLECTION);
-					JsonImportValues JsonImportValues = new JsonImportValues(maxNumLines, numObjects, getFactory(), getWorksheet(), columnsJson);
-					JsonImportValues.addListElement(tokener, getWorksheet().getHeaders(), getWorksheet().getDataTable());
+					if (isParallel()) {
+						new ParallelJsonImport(getWorksheet(), getFactory(), numThreads).importElements(reader);
+					} else {
+						JsonImportValues JsonImportValues = new JsonImportValues(maxNumLines, numObjects, getFactory(), getWorksheet(), columnsJson);
+						JsonImportValues.addListElement(tokener, getWorksheet().getHeaders(), getWorksheet().getDataTable());
+					}
 				}
 			}catch(Exception e) {
 				String worksheetname = getWorksheet().getHeaders().getTableName();
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a JSON Lines stream one line at a time. Blank lines are ignored and
+ * lines that are not JSON objects are logged and skipped, so a bad line does
+ * not stop the rest of the file from being read.
+ */
+public class JsonLinesReader implements RecordReader {
+
+	private static Logger logger = LoggerFactory.getLogger(JsonLinesReader.class);
+
+	private final BufferedReader reader;
+	private int lineNumber;
+	private int numMalformedLines;
+
+	/**
+	 * @param is the JSON Lines stream, closed by {@link #close()}
+	 * @param encoding encoding of the stream, null for UTF-8
+	 */
+	public JsonLinesReader(InputStream is, String encoding) throws IOException {
+		if (encoding == null)
+			encoding = "UTF-8";
+		this.reader = new BufferedReader(new InputStreamReader(is, encoding));
+	}
+
+	@Override
+	public JSONObject next() throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+			try {
+				return new JSONObject(line);
+			} catch (JSONException e) {
+				numMalformedLines++;
+				logger.warn("Skipping malformed JSON on line " + lineNumber + ": " + e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return number of lines skipped because they are not JSON objects
+	 */
+	public int getNumberOfMalformedLines() {
+		return numMalformedLines;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
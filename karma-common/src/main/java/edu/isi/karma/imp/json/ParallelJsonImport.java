@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.HTable;
+import edu.isi.karma.rep.Node;
+import edu.isi.karma.rep.RepFactory;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Table;
+import edu.isi.karma.rep.Worksheet;
+
+/**
+ * Imports the elements of a top level JSON array on several threads, in
+ * batches of BATCH_SIZE elements. The elements of a batch are split into one
+ * shard per thread:
+ * <ol>
+ * <li>each thread parses its shard and collects its columns in a {@link JsonHeaderUnion}</li>
+ * <li>the columns of the shards are added to the worksheet in the order of the shards</li>
+ * <li>each thread builds the rows of its shard in a fragment of the data
+ * table with {@link JsonImportValues}, taking the ids in blocks</li>
+ * <li>the fragments are added to the data table in order</li>
+ * </ol>
+ * JsonImportValues adds an empty row to the nested tables of the rows before
+ * the one where a nested table is created, this is done once the fragments
+ * are added, so the worksheet is the one JsonImportValues builds alone.
+ *
+ * A batch where a column gets both values and a nested table is imported on
+ * one thread, since the orphan values add columns while the rows are built.
+ *
+ * The shards run on a pool of daemon threads shared by all the imports, the
+ * idle threads are kept for a minute and then stopped.
+ */
+class ParallelJsonImport {
+
+	static final int BATCH_SIZE = 10000;
+
+	private static final ExecutorService pool = createPool();
+
+	private static ExecutorService createPool() {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "karma-json-import-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	private final Worksheet worksheet;
+	private final RepFactory factory;
+	private final int numThreads;
+
+	ParallelJsonImport(Worksheet worksheet, RepFactory factory, int numThreads) {
+		this.worksheet = worksheet;
+		this.factory = factory;
+		this.numThreads = numThreads;
+	}
+
+	void importElements(JSONArray array) throws JSONException {
+		for (int start = 0; start < array.length(); start += BATCH_SIZE) {
+			List<Object> batch = new ArrayList<>();
+			for (int i = start; i < Math.min(start + BATCH_SIZE, array.length()); i++)
+				batch.add(array.get(i));
+			importBatch(batch);
+		}
+	}
+
+	/**
+	 * @param reader a reader positioned after the opening bracket of the array
+	 */
+	void importElements(Reader reader) throws IOException, JSONException {
+		ElementReader elements = new ElementReader(reader);
+		List<Object> batch;
+		while (!(batch = elements.next(BATCH_SIZE)).isEmpty())
+			importBatch(batch);
+	}
+
+	private static class Shard {
+		private final List<Object> elements;
+		private final List<Object> values = new ArrayList<>();
+		private final JsonHeaderUnion union = new JsonHeaderUnion();
+		private Table fragment;
+		private Map<HNode, Node> firstNestedNodes;
+
+		Shard(List<Object> elements) {
+			this.elements = elements;
+		}
+	}
+
+	private void importBatch(List<Object> batch) throws JSONException {
+		List<Shard> shards = new ArrayList<>();
+		int shardSize = (batch.size() + numThreads - 1) / numThreads;
+		for (int start = 0; start < batch.size(); start += shardSize)
+			shards.add(new Shard(batch.subList(start, Math.min(start + shardSize, batch.size()))));
+
+		List<Callable<Void>> parseTasks = new ArrayList<>();
+		for (final Shard shard : shards) {
+			parseTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws JSONException {
+					for (Object element : shard.elements) {
+						Object value = element instanceof String ? new JSONTokener((String) element).nextValue() : element;
+						shard.values.add(value);
+						shard.union.addListElement(value);
+					}
+					return null;
+				}
+			});
+		}
+		invokeAll(parseTasks);
+
+		final HTable headers = worksheet.getHeaders();
+		JsonHeaderUnion union = new JsonHeaderUnion();
+		for (Shard shard : shards)
+			union.addUnion(shard.union);
+		if (union.hasValuesInNestedTables(headers)) {
+			importSequentially(shards);
+			return;
+		}
+		Set<HNode> nestedHNodes = getNestedHNodes(headers, new LinkedHashSet<HNode>());
+		union.addHeaders(headers, worksheet, factory);
+		Set<HNode> newNestedHNodes = getNestedHNodes(headers, new LinkedHashSet<HNode>());
+		newNestedHNodes.removeAll(nestedHNodes);
+
+		List<Callable<Void>> rowTasks = new ArrayList<>();
+		for (final Shard shard : shards) {
+			rowTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws JSONException {
+					factory.beginIdBlocks();
+					try {
+						shard.fragment = worksheet.getDataTable().createFragment();
+						FragmentValues values = new FragmentValues();
+						for (Object value : shard.values)
+							values.addListElement(value, headers, shard.fragment);
+						shard.firstNestedNodes = values.firstNestedNodes;
+					} finally {
+						factory.endIdBlocks();
+					}
+					return null;
+				}
+			});
+		}
+		invokeAll(rowTasks);
+
+		for (Shard shard : shards)
+			worksheet.getDataTable().addRows(shard.fragment);
+		for (HNode hNode : newNestedHNodes) {
+			for (Shard shard : shards) {
+				Node node = shard.firstNestedNodes.get(hNode);
+				if (node != null) {
+					addEmptyRowsBefore(hNode, node);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Imports a batch whose orphan values would change the headers
+	 */
+	private void importSequentially(List<Shard> shards) throws JSONException {
+		JsonImportValues values = new JsonImportValues(-1, 0, factory, worksheet, null);
+		for (Shard shard : shards) {
+			for (Object value : shard.values)
+				values.addListElement(value, worksheet.getHeaders(), worksheet.getDataTable());
+		}
+	}
+
+	private static void invokeAll(List<Callable<Void>> tasks) throws JSONException {
+		try {
+			for (Future<Void> future : pool.invokeAll(tasks))
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JSONException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof JSONException)
+				throw (JSONException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new JSONException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return the HNodes with a nested table, parents before children
+	 */
+	private static Set<HNode> getNestedHNodes(HTable headers, Set<HNode> nestedHNodes) {
+		for (HNode hNode : headers.getHNodes()) {
+			if (hNode.hasNestedTable()) {
+				nestedHNodes.add(hNode);
+				getNestedHNodes(hNode.getNestedTable(), nestedHNodes);
+			}
+		}
+		return nestedHNodes;
+	}
+
+	/**
+	 * Does what JsonImportValues.addNestedHTable does to the nodes before the
+	 * node where the nested table of the HNode is created
+	 */
+	private void addEmptyRowsBefore(HNode hNode, Node first) {
+		List<Node> nodes = new ArrayList<>();
+		worksheet.getDataTable().collectNodes(hNode.getHNodePath(factory), nodes, SuperSelectionManager.DEFAULT_SELECTION);
+		JsonImportValues values = new JsonImportValues(-1, 0, factory, worksheet, null);
+		for (Node node : nodes) {
+			if (node == first)
+				break;
+			if (node.getNestedTable().getNumRows() == 0)
+				values.addEmptyRow(node.getNestedTable(), hNode);
+		}
+	}
+
+	/**
+	 * Builds rows with the headers of the whole batch, and records the first
+	 * node of each HNode with a nested table where a nested value was added
+	 */
+	private class FragmentValues extends JsonImportValues {
+
+		private final Map<HNode, Node> firstNestedNodes = new HashMap<>();
+
+		FragmentValues() {
+			super(-1, 0, factory, worksheet, null);
+		}
+
+		@Override
+		public HTable addNestedHTable(HNode hNode, String key, Row row) {
+			if (!firstNestedNodes.containsKey(hNode))
+				firstNestedNodes.put(hNode, row.getNode(hNode.getId()));
+			return hNode.getNestedTable();
+		}
+	}
+
+	/**
+	 * Reads the text of the elements of a JSON array without parsing them
+	 */
+	static class ElementReader {
+
+		private final Reader reader;
+		private int next = -2;
+
+		ElementReader(Reader reader) {
+			this.reader = reader;
+		}
+
+		List<Object> next(int maxElements) throws IOException {
+			List<Object> elements = new ArrayList<>();
+			String element;
+			while (elements.size() < maxElements && (element = next()) != null)
+				elements.add(element);
+			return elements;
+		}
+
+		/**
+		 * @return the text of the next element, or null after the closing bracket
+		 */
+		String next() throws IOException {
+			int c = nextClean();
+			if (c == ',')
+				c = nextClean();
+			if (c == ']' || c == -1)
+				return null;
+			StringBuilder sb = new StringBuilder();
+			int depth = 0;
+			int quote = 0;
+			while (c != -1) {
+				if (quote == 0 && depth == 0 && (c == ',' || c == ']')) {
+					next = c;
+					break;
+				}
+				sb.append((char) c);
+				if (quote != 0) {
+					if (c == '\\') {
+						c = reader.read();
+						if (c != -1)
+							sb.append((char) c);
+					} else if (c == quote) {
+						quote = 0;
+					}
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+				} else if (c == '{' || c == '[') {
+					depth++;
+				} else if (c == '}' || c == ']') {
+					depth--;
+				}
+				c = reader.read();
+			}
+			return sb.toString();
+		}
+
+		private int nextClean() throws IOException {
+			int c = next != -2 ? next : reader.read();
+			next = -2;
+			while (c != -1 && Character.isWhitespace(c))
+				c = reader.read();
+			return c;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.json;
+
+import java.io.IOException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import edu.isi.karma.imp.Import;
+import edu.isi.karma.rep.ColumnMetadata.DataStructure;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.metadata.WorksheetProperties.Property;
+import edu.isi.karma.rep.metadata.WorksheetProperties.SourceTypes;
+
+/**
+ * Imports the next maxNumRecords records of a {@link RecordReader} as the rows
+ * of a worksheet. Creating one import after the other on the same reader
+ * imports a large input into several worksheets, and a shared
+ * {@link JsonHeaderUnion} gives all of them the columns seen so far.
+ */
+public class RecordImport extends Import {
+
+	private final RecordReader reader;
+	private final JsonHeaderUnion headerUnion;
+	private final SourceTypes sourceType;
+	private final String worksheetName;
+	private final int maxNumRecords;
+	private int numRecords;
+
+	/**
+	 * @param reader an open reader, which is not closed by the import
+	 * @param headerUnion the columns of the previous records, null to only use those of the imported records
+	 */
+	public RecordImport(RecordReader reader, JsonHeaderUnion headerUnion, SourceTypes sourceType,
+			String worksheetName, Workspace workspace, String encoding, int maxNumRecords) {
+		super(worksheetName, workspace, encoding);
+		this.reader = reader;
+		this.headerUnion = headerUnion;
+		this.sourceType = sourceType;
+		this.worksheetName = worksheetName;
+		this.maxNumRecords = maxNumRecords;
+	}
+
+	@Override
+	public Import duplicate() throws IOException {
+		throw new IOException("The records of " + worksheetName + " cannot be read again");
+	}
+
+	@Override
+	public Worksheet generateWorksheet() throws JSONException, IOException {
+		Worksheet worksheet = getWorksheet();
+		worksheet.getMetadataContainer().getWorksheetProperties().setWorksheetDataStructure(DataStructure.COLLECTION);
+		if (headerUnion != null)
+			headerUnion.addHeaders(worksheet.getHeaders(), worksheet, getFactory());
+		JSONObject record;
+		while ((maxNumRecords <= 0 || numRecords < maxNumRecords)
+				&& (record = reader.next()) != null) {
+			JsonImportValues values = new JsonImportValues(-1, 0, getFactory(), worksheet, null);
+			values.addListElement(record, worksheet.getHeaders(), worksheet.getDataTable());
+			if (headerUnion != null)
+				headerUnion.addRecord(record);
+			numRecords++;
+		}
+		worksheet.getMetadataContainer().getWorksheetProperties().setPropertyValue(Property.sourceType, sourceType.toString());
+		return worksheet;
+	}
+
+	/**
+	 * @return number of records imported by {@link #generateWorksheet()}
+	 */
+	public int getNumberOfRecords() {
+		return numRecords;
+	}
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.XML;
+
+/**
+ * Reads the elements with a given name out of an XML stream, one at a time,
+ * with StAX. Each element is converted to JSON the way org.json.XML does it:
+ * attributes and child elements become keys, repeated children become arrays
+ * and text becomes the "content" key.
+ *
+ * Only the element being read is kept in memory, so documents of any size can
+ * be split into records. Record elements nested in another record are part of
+ * that record.
+ */
+public class XMLRecordReader implements RecordReader {
+
+	private static final String CONTENT = "content";
+
+	private final XMLStreamReader reader;
+	private final String recordElement;
+
+	/**
+	 * @param is the XML document
+	 * @param encoding encoding of the document, null to use the one in the XML declaration
+	 * @param recordElement name of the repeating element, with its prefix if it has one
+	 */
+	public XMLRecordReader(InputStream is, String encoding, String recordElement) throws IOException {
+		this.recordElement = recordElement;
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		try {
+			if (encoding == null)
+				reader = factory.createXMLStreamReader(is);
+			else
+				reader = factory.createXMLStreamReader(is, encoding);
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to read XML: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public JSONObject next() throws IOException, JSONException {
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT
+						&& recordElement.equals(getName(reader.getPrefix(), reader.getLocalName()))) {
+					Object value = readElement();
+					if (value instanceof JSONObject)
+						return (JSONObject) value;
+					JSONObject record = new JSONObject();
+					if (!"".equals(value))
+						record.put(CONTENT, value);
+					return record;
+				}
+			}
+			return null;
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to read XML: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the element the reader is on, up to its end tag
+	 * @return a JSONObject, or the value of the element if it only has text
+	 */
+	private Object readElement() throws XMLStreamException, JSONException {
+		JSONObject object = new JSONObject();
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			String name = prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix;
+			object.accumulate(name, XML.stringToValue(reader.getNamespaceURI(i)));
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			object.accumulate(getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+					XML.stringToValue(reader.getAttributeValue(i)));
+		}
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = getName(reader.getPrefix(), reader.getLocalName());
+				object.accumulate(name, readElement());
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+				String text = reader.getText().trim();
+				if (!text.isEmpty())
+					object.accumulate(CONTENT, XML.stringToValue(text));
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		if (object.length() == 0)
+			return "";
+		if (object.length() == 1 && object.has(CONTENT))
+			return object.get(CONTENT);
+		return object;
+	}
+
+	private static String getName(String prefix, String localName) {
+		if (prefix == null || prefix.isEmpty())
+			return localName;
+		return prefix + ":" + localName;
+	}
+
+	/**
+	 * Releases the parser. The input stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -56,9 +56,11 @@ import edu.isi.karma.kr2rml.planning.TriplesMapPlanGenerator;
 import edu.isi.karma.kr2rml.planning.TriplesMapWorkerPlan;
 import edu.isi.karma.kr2rml.planning.WorksheetDepthRootStrategy;
 import edu.isi.karma.kr2rml.writer.AvroKR2RMLRDFWriter;
+import edu.isi.karma.kr2rml.writer.CountingKR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.N3KR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.SFKR2RMLRDFWriter;
+import edu.isi.karma.metrics.MetricsRegistry;
 import edu.isi.karma.modeling.Namespaces;
 import edu.isi.karma.modeling.Uris;
 import edu.isi.karma.rep.HNode;
@@ -86,6 +88,8 @@ public class KR2RMLWorksheetRDFGenerator {
 	private URIFormatter uriFormatter;
 	private RootStrategy strategy;
 	private SuperSelection selection;
+	private MetricsRegistry metrics = MetricsRegistry.DISABLED;
+	private RDFGenerationProgressListener progressListener;
 	public KR2RMLWorksheetRDFGenerator(Worksheet worksheet, Workspace workspace, 
 			String outputFileName, boolean addColumnContextInformation, 
 			KR2RMLMapping kr2rmlMapping, ErrorReport errorReport, SuperSelection sel) throws UnsupportedEncodingException, FileNotFoundException {
@@ -162,9 +166,38 @@ public class KR2RMLWorksheetRDFGenerator {
 		this.outWriters = new LinkedList<>();
 	}
 
+	/**
+	 * Sets the registry of the timers and the counters of the generation, it
+	 * is also set on the URI formatter and on the writers during generateRDF
+	 */
+	public void setMetrics(MetricsRegistry metrics) {
+		this.metrics = metrics == null ? MetricsRegistry.DISABLED : metrics;
+	}
+
+	/**
+	 * Sets the listener told of the rows generated every 2000 rows, which can
+	 * stop the generation
+	 */
+	public void setProgressListener(RDFGenerationProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public void generateRDF(boolean closeWriterAfterGeneration) throws IOException {
 
+		List<KR2RMLRDFWriter> outWriters = this.outWriters;
+		// the writers belong to the caller, their registries are restored after the generation
+		List<MetricsRegistry> writerMetrics = null;
+		if (metrics.isEnabled()) {
+			uriFormatter.setMetrics(metrics);
+			writerMetrics = new ArrayList<>();
+			for (KR2RMLRDFWriter writer : outWriters) {
+				writerMetrics.add(writer.getMetrics());
+				writer.setMetrics(metrics);
+			}
+			outWriters = new LinkedList<>(outWriters);
+			outWriters.add(new CountingKR2RMLRDFWriter(metrics));
+		}
 		try {
 
 			// RDF Generation starts at the top level rows
@@ -172,7 +205,7 @@ public class KR2RMLWorksheetRDFGenerator {
 					this.worksheet.getDataTable().getNumRows(), selection);
 
 
-
+			MetricsRegistry.Timer planningTimer = metrics.start(MetricsRegistry.PLANNING);
 			Map<TriplesMapGraph, List<String>> graphTriplesMapsProcessingOrder = new HashMap<>();
 			for(TriplesMapGraph graph : kr2rmlMapping.getAuxInfo().getTriplesMapGraph().getGraphs())
 			{
@@ -214,6 +247,7 @@ public class KR2RMLWorksheetRDFGenerator {
 			}
 			int i=1;
 			TriplesMapPlanExecutor e = new TriplesMapPlanExecutor(false);
+			e.setMetrics(metrics);
 			Map<TriplesMap, TriplesMapWorkerPlan> triplesMapToWorkerPlan = new HashMap<>() ;
 			for(TriplesMap triplesMap : kr2rmlMapping.getTriplesMapList())
 			{
@@ -226,22 +260,40 @@ public class KR2RMLWorksheetRDFGenerator {
 					logger.error("unable to generate working plan for " + triplesMap.getId(), ex.getMessage());
 				}
 			}
-			for (Row row:rows) {
-				for(Entry<TriplesMapGraph, List<String>> entry : graphTriplesMapsProcessingOrder.entrySet())
-				{
-					TriplesMapPlanGenerator g = new TriplesMapPlanGenerator(triplesMapToWorkerPlan, row, outWriters);
-					TriplesMapPlan plan = g.generatePlan(entry.getKey(), entry.getValue(), strategy);
-					errorReport.combine(e.execute(plan));
-				}
-				for(KR2RMLRDFWriter outWriter : outWriters)
-				{
-					outWriter.finishRow();
-				}
-				if (i++%2000 == 0)
-					logger.info("Done processing " + i + " rows");
+			planningTimer.stop();
+			// the plan executor is shut down even if a row fails or the generation is cancelled
+			try {
+				for (Row row:rows) {
+					for(Entry<TriplesMapGraph, List<String>> entry : graphTriplesMapsProcessingOrder.entrySet())
+					{
+						planningTimer = metrics.start(MetricsRegistry.PLANNING);
+						TriplesMapPlanGenerator g = new TriplesMapPlanGenerator(triplesMapToWorkerPlan, row, outWriters);
+						TriplesMapPlan plan = g.generatePlan(entry.getKey(), entry.getValue(), strategy);
+						planningTimer.stop();
+						errorReport.combine(e.execute(plan));
+					}
+					MetricsRegistry.Timer serializationTimer = metrics.start(MetricsRegistry.SERIALIZATION);
+					for(KR2RMLRDFWriter outWriter : outWriters)
+					{
+						outWriter.finishRow();
+					}
+					serializationTimer.stop();
+					uriFormatter.flushMetrics();
+					metrics.increment(MetricsRegistry.ROWS, 1);
+					if (i++%2000 == 0) {
+						logger.info("Done processing " + i + " rows");
+						if (progressListener != null) {
+							progressListener.rowsGenerated(i, rows.size());
+							if (progressListener.isCancelled()) {
+								throw new InterruptedException("RDF generation cancelled after " + i + " rows");
+							}
+						}
+					}
 
+				}
+			} finally {
+				e.shutdown(errorReport);
 			}
-			e.shutdown(errorReport);
 			// Generate column provenance information if required
 			if (addColumnContextInformation) {
 				generateColumnProvenanceInformation();
@@ -255,11 +307,19 @@ public class KR2RMLWorksheetRDFGenerator {
 		}
 		finally {
 			if (closeWriterAfterGeneration) {
+				MetricsRegistry.Timer serializationTimer = metrics.start(MetricsRegistry.SERIALIZATION);
 				for(KR2RMLRDFWriter outWriter : outWriters)
 				{
 					outWriter.flush();
 					outWriter.close();
 				}
+				serializationTimer.stop();
+			}
+			if (writerMetrics != null) {
+				for (int w = 0; w < writerMetrics.size(); w++) {
+					this.outWriters.get(w).setMetrics(writerMetrics.get(w));
+				}
+				uriFormatter.setMetrics(MetricsRegistry.DISABLED);
 			}
 		}
 		// An attempt to prevent an occasional error that occurs on Windows platform
@@ -0,0 +1,18 @@
+package edu.isi.karma.kr2rml;
+
+/**
+ * Follows the rows of a worksheet RDF generation, and can stop it between
+ * the rows. The generator calls it on the thread that generates the RDF.
+ */
+public interface RDFGenerationProgressListener {
+
+	/**
+	 * @param rows the number of rows generated so far, out of totalRows
+	 */
+	public void rowsGenerated(int rows, int totalRows);
+
+	/**
+	 * @return true if the generation should stop
+	 */
+	public boolean isCancelled();
+}
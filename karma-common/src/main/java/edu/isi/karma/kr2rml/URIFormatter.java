@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 
 import edu.isi.karma.kr2rml.ErrorReport.Priority;
+import edu.isi.karma.metrics.MetricsRegistry;
 import edu.isi.karma.modeling.Uris;
 import edu.isi.karma.modeling.ontology.OntologyManager;
 
@@ -34,6 +35,11 @@ public class URIFormatter {
 	private final ErrorReport errorReport;
 	private final boolean reportErrors;
 	private final boolean replacePrefixesWithNamespaces;
+	private MetricsRegistry metrics = MetricsRegistry.DISABLED;
+	private boolean timed = false;
+	// the normalizations since the last flushMetrics
+	private long normalizations;
+	private long normalizationNanos;
 	public URIFormatter()
 	{
 		reportErrors = false;
@@ -58,7 +64,45 @@ public class URIFormatter {
 		populatePrefixToNamespaceMap(prefixes);
 		this.errorReport = errorReport;
 	}
+
+	/**
+	 * The normalizations are added up by the formatter, and only recorded in
+	 * the registry by {@link #flushMetrics()}
+	 */
+	public void setMetrics(MetricsRegistry metrics) {
+		flushMetrics();
+		this.metrics = metrics;
+		this.timed = metrics.isEnabled();
+	}
+
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Records the normalizations since the last call, the owner of the
+	 * formatter calls it once per row, on the thread that waited for the
+	 * formatter to be used
+	 */
+	public void flushMetrics() {
+		if (normalizations > 0) {
+			metrics.record(MetricsRegistry.URI_NORMALIZATION, normalizations, normalizationNanos, -1);
+			normalizations = 0;
+			normalizationNanos = 0;
+		}
+	}
+
 	public String getExpandedAndNormalizedUri(String uri) {
+		if (!timed)
+			return expandAndNormalizeUri(uri);
+		long start = System.nanoTime();
+		String result = expandAndNormalizeUri(uri);
+		normalizationNanos += System.nanoTime() - start;
+		normalizations++;
+		return result;
+	}
+
+	private String expandAndNormalizeUri(String uri) {
 		// Check if the predicate contains a predicate.
 		if (replacePrefixesWithNamespaces && !uri.startsWith("<") && !uri.startsWith("http:") && !uri.startsWith("https:") && uri.contains(":") && !uri.startsWith("_:")) {
 			// Replace the prefix with proper namespace by looking into the ontology manager
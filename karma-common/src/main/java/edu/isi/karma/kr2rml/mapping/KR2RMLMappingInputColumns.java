@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.kr2rml.mapping;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import edu.isi.karma.kr2rml.ObjectMap;
+import edu.isi.karma.kr2rml.PredicateObjectMap;
+import edu.isi.karma.kr2rml.SubjectMap;
+import edu.isi.karma.kr2rml.planning.TriplesMap;
+import edu.isi.karma.kr2rml.template.ColumnTemplateTerm;
+import edu.isi.karma.kr2rml.template.TemplateTermSet;
+
+/**
+ * Finds the columns of the source that a mapping reads: the columns of the
+ * term maps, the columns the commands of the worksheet history are applied to
+ * and the columns read with getValue in python transformations. A source that
+ * can read a subset of its columns only needs to read these.
+ *
+ * The names are top level column names, a nested column counts as the top
+ * level column it is in. Columns created by the history are included as well,
+ * a source does not have them and ignores them.
+ *
+ * The columns cannot be known when a python transformation reads a column
+ * whose name is not a string literal, getValue(name) for example, the
+ * mapping then needs all the columns.
+ */
+public class KR2RMLMappingInputColumns {
+
+	// the functions of PythonTransformationHelper that read a column, the name
+	// of the column is only captured if it is a string literal
+	private static final Pattern COLUMN_FUNCTION = Pattern.compile(
+			"\\b(?:getValue|getValueFromNestedColumnByIndex|hasSelectedRows|isEmpty|v)\\s*\\("
+			+ "(?:\\s*([\"'])([^\"'\\\\]*)\\1\\s*[,)])?");
+
+	private KR2RMLMappingInputColumns() {
+	}
+
+	/**
+	 * @return the names of the columns, or null if all the columns are needed
+	 */
+	public static Set<String> getColumnNames(KR2RMLMapping mapping) throws JSONException {
+		Set<String> columnNames = new LinkedHashSet<>();
+		for (TriplesMap triplesMap : mapping.getTriplesMapList()) {
+			SubjectMap subject = triplesMap.getSubject();
+			if (subject != null) {
+				addTemplateColumns(subject.getTemplate(), columnNames);
+				for (TemplateTermSet type : subject.getRdfsType())
+					addTemplateColumns(type, columnNames);
+			}
+			for (PredicateObjectMap pom : triplesMap.getPredicateObjectMaps()) {
+				if (pom.getPredicate() != null)
+					addTemplateColumns(pom.getPredicate().getTemplate(), columnNames);
+				ObjectMap object = pom.getObject();
+				if (object != null) {
+					addTemplateColumns(object.getTemplate(), columnNames);
+					addTemplateColumns(object.getRdfLiteralType(), columnNames);
+					addTemplateColumns(object.getLanguage(), columnNames);
+				}
+			}
+		}
+		if (mapping.getWorksheetHistory() != null
+				&& !addHistoryColumns(mapping.getWorksheetHistory(), columnNames))
+			return null;
+		return columnNames;
+	}
+
+	private static void addTemplateColumns(TemplateTermSet template, Set<String> columnNames) throws JSONException {
+		if (template == null)
+			return;
+		for (ColumnTemplateTerm term : template.getAllColumnNameTermElements()) {
+			String value = term.getTemplateTermValue();
+			if (value == null)
+				continue;
+			value = value.trim();
+			if (value.startsWith("[")) {
+				JSONArray path = new JSONArray(value);
+				if (path.length() > 0)
+					columnNames.add(path.getString(0));
+			} else {
+				columnNames.add(value);
+			}
+		}
+	}
+
+	/**
+	 * @return false if a column is read by a name that is not known
+	 */
+	private static boolean addHistoryColumns(Object value, Set<String> columnNames) throws JSONException {
+		if (value instanceof JSONArray) {
+			JSONArray array = (JSONArray) value;
+			if (array.length() > 0 && array.opt(0) instanceof JSONObject
+					&& ((JSONObject) array.get(0)).has("columnName")) {
+				// a column path, the first column is the top level one
+				columnNames.add(((JSONObject) array.get(0)).getString("columnName"));
+				return true;
+			}
+			for (int i = 0; i < array.length(); i++) {
+				if (!addHistoryColumns(array.get(i), columnNames))
+					return false;
+			}
+		} else if (value instanceof JSONObject) {
+			JSONObject object = (JSONObject) value;
+			Iterator<?> keys = object.keys();
+			while (keys.hasNext()) {
+				if (!addHistoryColumns(object.get((String) keys.next()), columnNames))
+					return false;
+			}
+		} else if (value instanceof String) {
+			String s = ((String) value).trim();
+			if (s.startsWith("[{") && s.contains("columnName")) {
+				try {
+					return addHistoryColumns(new JSONArray(s), columnNames);
+				} catch (JSONException e) {
+					// not a column path
+				}
+			}
+			Matcher matcher = COLUMN_FUNCTION.matcher(s);
+			while (matcher.find()) {
+				if (matcher.group(1) == null)
+					return false;
+				columnNames.add(matcher.group(2));
+			}
+		}
+		return true;
+	}
+}
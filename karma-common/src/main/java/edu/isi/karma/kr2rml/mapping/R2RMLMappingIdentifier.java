@@ -50,8 +50,9 @@ public class R2RMLMappingIdentifier {
 	{
 		this.name = id.getString("name");
 		this.location = new URL(id.getString("location"));
-		this.content = id.getString("content");
-		if(this.content.equals("null"))
+		// toJSON leaves the content out when there is none
+		this.content = id.optString("content", null);
+		if("null".equals(this.content))
 			this.content = null;
 	}
 	
@@ -34,12 +34,14 @@ import org.slf4j.LoggerFactory;
 import edu.isi.karma.kr2rml.ErrorReport;
 import edu.isi.karma.kr2rml.ErrorReport.Priority;
 import edu.isi.karma.kr2rml.ReportMessage;
+import edu.isi.karma.metrics.MetricsRegistry;
 
 public class TriplesMapPlanExecutor {
 
 	private static Logger LOG = LoggerFactory.getLogger(TriplesMapPlanExecutor.class);
 	private ExecutorService service;
 	private boolean submitPlansIndividually = false;
+	private MetricsRegistry metrics = MetricsRegistry.DISABLED;
 	
 	public TriplesMapPlanExecutor(boolean submitPlansIndividually){
 		this.submitPlansIndividually = submitPlansIndividually;
@@ -53,6 +55,10 @@ public class TriplesMapPlanExecutor {
 		}
 	}
 	
+	public void setMetrics(MetricsRegistry metrics) {
+		this.metrics = metrics;
+	}
+
 	public ErrorReport execute(final TriplesMapPlan plan)
 	{
 		ErrorReport errorReport = new ErrorReport();
@@ -61,10 +67,16 @@ public class TriplesMapPlanExecutor {
 			
 			if(submitPlansIndividually)
 			{
-				List<Future<Boolean>> results = service.invokeAll(plan.workers);
-				for(Future<Boolean> result : results)
-				{
-					result.get(1, TimeUnit.MINUTES);
+				// the workers run on several threads, their allocations are not counted
+				MetricsRegistry.Timer timer = metrics.start(MetricsRegistry.EXECUTION);
+				try {
+					List<Future<Boolean>> results = service.invokeAll(plan.workers);
+					for(Future<Boolean> result : results)
+					{
+						result.get(1, TimeUnit.MINUTES);
+					}
+				} finally {
+					timer.stop();
 				}
 			}
 			else
@@ -73,9 +85,14 @@ public class TriplesMapPlanExecutor {
 
 						@Override
 						public Boolean call() throws Exception {
-							for(TriplesMapWorker worker : plan.workers)
-							{
-								worker.call();
+							MetricsRegistry.Timer timer = metrics.start(MetricsRegistry.EXECUTION);
+							try {
+								for(TriplesMapWorker worker : plan.workers)
+								{
+									worker.call();
+								}
+							} finally {
+								timer.stop();
 							}
 							return true;
 						}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.kr2rml.writer;
+
+/**
+ * Streaming deduplicator with bounded memory. A Bloom filter sized for the
+ * expected number of values answers most lookups. When the filter reports a
+ * value as already seen, a table of 128 bit fingerprints of the values
+ * written so far tells a real duplicate from a false positive.
+ *
+ * The fingerprint table never grows beyond its budget. Once it is full,
+ * values the filter reports as seen but that are not in the table are written
+ * anyway, so unique values are never dropped; only some duplicates may get
+ * through.
+ */
+public class BloomTripleDeduplicator extends TripleDeduplicator {
+
+	private static final long SEED1 = 0x3C6EF372FE94F82BL;
+	private static final long SEED2 = 0xA54FF53A5F1D36F1L;
+	private static final double LOAD_FACTOR = 0.75;
+
+	private final long[] bits;
+	private final long numBits;
+	private final int numHashes;
+
+	private final long[] fingerprintsHigh;
+	private final long[] fingerprintsLow;
+	private final boolean[] used;
+	private final int fingerprintMask;
+	private final int maxFingerprints;
+	private int numFingerprints = 0;
+	private long unverified = 0;
+
+	/**
+	 * @param expectedValues number of distinct values the filter is sized for
+	 * @param falsePositiveRate target false positive rate of the filter
+	 * @param maxFingerprintMemory bytes available for the fingerprint table
+	 */
+	public BloomTripleDeduplicator(long expectedValues, double falsePositiveRate, long maxFingerprintMemory) {
+		expectedValues = Math.max(expectedValues, 1);
+		long m = (long) Math.ceil(-expectedValues * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		m = Math.max(64, Math.min(m, (long) Integer.MAX_VALUE * 64));
+		this.bits = new long[(int) ((m + 63) / 64)];
+		this.numBits = bits.length * 64L;
+		this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedValues * Math.log(2)));
+
+		// two longs and a flag per slot, no more than needed for twice the expected values
+		long slots = Math.max(16, Math.min(maxFingerprintMemory / 17, (long) (2 * expectedValues / LOAD_FACTOR)));
+		int capacity = Integer.highestOneBit((int) Math.min(slots, 1 << 30));
+		this.fingerprintsHigh = new long[capacity];
+		this.fingerprintsLow = new long[capacity];
+		this.used = new boolean[capacity];
+		this.fingerprintMask = capacity - 1;
+		this.maxFingerprints = (int) (capacity * LOAD_FACTOR);
+	}
+
+	@Override
+	public boolean add(String value) {
+		added++;
+		long h1 = hash64(value, SEED1);
+		long h2 = hash64(value, SEED2);
+		boolean maybeSeen = testAndSet(h1, h2);
+		if (!maybeSeen) {
+			addFingerprint(h1, h2);
+			return true;
+		}
+		if (containsFingerprint(h1, h2)) {
+			duplicates++;
+			return false;
+		}
+		if (numFingerprints >= maxFingerprints) {
+			unverified++;
+		} else {
+			addFingerprint(h1, h2);
+		}
+		return true;
+	}
+
+	private boolean testAndSet(long h1, long h2) {
+		boolean allSet = true;
+		long combined = h1;
+		for (int i = 0; i < numHashes; i++) {
+			long bit = (combined & Long.MAX_VALUE) % numBits;
+			int word = (int) (bit >>> 6);
+			long mask = 1L << (bit & 63);
+			if ((bits[word] & mask) == 0) {
+				allSet = false;
+				bits[word] |= mask;
+			}
+			combined += h2;
+		}
+		return allSet;
+	}
+
+	private boolean containsFingerprint(long high, long low) {
+		int slot = (int) mix(high ^ low) & fingerprintMask;
+		while (used[slot]) {
+			if (fingerprintsHigh[slot] == high && fingerprintsLow[slot] == low)
+				return true;
+			slot = (slot + 1) & fingerprintMask;
+		}
+		return false;
+	}
+
+	private void addFingerprint(long high, long low) {
+		if (numFingerprints >= maxFingerprints)
+			return;
+		int slot = (int) mix(high ^ low) & fingerprintMask;
+		while (used[slot]) {
+			slot = (slot + 1) & fingerprintMask;
+		}
+		used[slot] = true;
+		fingerprintsHigh[slot] = high;
+		fingerprintsLow[slot] = low;
+		numFingerprints++;
+	}
+
+	/**
+	 * @return the number of values that were written without being verified
+	 * because the fingerprint table was full
+	 */
+	public long getUnverifiedCount() {
+		return unverified;
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return bits.length * 8L + fingerprintsHigh.length * 17L;
+	}
+
+	@Override
+	public String getStatistics() {
+		return super.getStatistics() + ", " + unverified + " values written unverified";
+	}
+}
@@ -0,0 +1,74 @@
+package edu.isi.karma.kr2rml.writer;
+
+import edu.isi.karma.kr2rml.PredicateObjectMap;
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.metrics.MetricsRegistry;
+
+/**
+ * Counts the triples generated for the other writers, before any writer
+ * removes duplicates, so they are counted once however many writers there are.
+ * The triples of a row are added up and recorded when the row is finished.
+ */
+public class CountingKR2RMLRDFWriter extends KR2RMLRDFWriter {
+
+	private long triples;
+
+	public CountingKR2RMLRDFWriter(MetricsRegistry metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void setR2RMLMappingIdentifier(R2RMLMappingIdentifier mappingIdentifer) {
+	}
+
+	@Override
+	public void outputTripleWithURIObject(String subjUri, String predicateUri, String objectUri) {
+		triples++;
+	}
+
+	@Override
+	public void outputTripleWithURIObject(PredicateObjectMap predicateObjectMap, String subjUri,
+			String predicateUri, String objectUri) {
+		triples++;
+	}
+
+	@Override
+	public void outputTripleWithLiteralObject(String subjUri, String predicateUri, String value,
+			String literalType, String language) {
+		triples++;
+	}
+
+	@Override
+	public void outputTripleWithLiteralObject(PredicateObjectMap predicateObjectMap, String subjUri,
+			String predicateUri, String value, String literalType, String language) {
+		triples++;
+	}
+
+	@Override
+	public void outputQuadWithLiteralObject(String subjUri, String predicateUri, String value,
+			String literalType, String language, String graph) {
+		triples++;
+	}
+
+	@Override
+	public void outputQuadWithLiteralObject(PredicateObjectMap predicateObjectMap, String subjUri,
+			String predicateUri, String value, String literalType, String language, String graph) {
+		triples++;
+	}
+
+	@Override
+	public void finishRow() {
+		metrics.increment(MetricsRegistry.TRIPLES, triples);
+		triples = 0;
+	}
+
+	@Override
+	public void flush() {
+		finishRow();
+	}
+
+	@Override
+	public void close() {
+		finishRow();
+	}
+}
@@ -20,6 +20,7 @@
  ******************************************************************************/
 package edu.isi.karma.kr2rml.writer;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URL;
@@ -30,6 +31,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.collections.IteratorUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import edu.isi.karma.kr2rml.ContextIdentifier;
 import edu.isi.karma.kr2rml.PredicateObjectMap;
@@ -38,12 +41,17 @@ import edu.isi.karma.modeling.Uris;
 
 public class JSONKR2RMLRDFWriter extends SFKR2RMLRDFWriter<JSONObject> {
 
+	private static final Logger LOG = LoggerFactory.getLogger(JSONKR2RMLRDFWriter.class);
+	private static final char DEDUPLICATOR_OUTPUT = 'j';
+
 	private Map<String, String> contextInverseAtIdMapping = new HashMap<>();
 	private Map<String, Boolean> contextInverseAtContainerMapping = new HashMap<>();
 	private URL location;
 	private JSONObject context;
 	private String atType = "@type";
 	private String atId = "@id";
+	private TripleDeduplicator deduplicator;
+	private boolean closed = false;
 	public JSONKR2RMLRDFWriter (PrintWriter outWriter) {
 		super(outWriter);
 	}
@@ -56,6 +64,17 @@ public class JSONKR2RMLRDFWriter extends SFKR2RMLRDFWriter<JSONObject> {
 		super(outWriter, baseURI, disableNesting);
 	}
 
+	/**
+	 * Removes objects identical to an object already written by a previous row.
+	 * Objects are compared on their serialization, so objects with the same
+	 * id but different properties are all kept. The deduplicator can be
+	 * shared with the other writers of the generation.
+	 */
+	public void setDeduplicator(TripleDeduplicator deduplicator) {
+		this.deduplicator = deduplicator;
+		deduplicator.register(DEDUPLICATOR_OUTPUT);
+	}
+
 	public void setGlobalContext(JSONObject context, ContextIdentifier contextId) {
 		if (context.has("@context")) {
 			if (contextId != null) {
@@ -192,17 +211,15 @@ public class JSONKR2RMLRDFWriter extends SFKR2RMLRDFWriter<JSONObject> {
 					
 				}
 				collapseSameType(value);
-				if (!firstObject) {
-					outWriter.println(",");
-				}
-				firstObject = false;
 				if (location != null) {
 					value.put("@context", location.toString());
 				}
 				else if (context != null) {
 					value.put("@context", context);
 				}
-				outWriter.print(value.toString(4));
+				if (deduplicator == null || addToDeduplicator(value.toString())) {
+					writeObject(value);
+				}
 			}
 		}
 		for(Entry<String, ConcurrentHashMap<String, JSONObject>> entry : this.rootObjectsByTriplesMapId.entrySet())
@@ -216,6 +233,30 @@ public class JSONKR2RMLRDFWriter extends SFKR2RMLRDFWriter<JSONObject> {
 		this.generatedObjectsWithoutTriplesMap.clear();
 	}
 
+	/**
+	 * Writes an object of the output, once its row is finished
+	 */
+	protected void writeObject(JSONObject object) {
+		printObject(object.toString(4));
+	}
+
+	private void printObject(String object) {
+		if (!firstObject) {
+			outWriter.println(",");
+		}
+		firstObject = false;
+		outWriter.print(object);
+	}
+
+	private boolean addToDeduplicator(String object) {
+		try {
+			return deduplicator.add(DEDUPLICATOR_OUTPUT, object);
+		} catch (IOException e) {
+			LOG.error("Unable to deduplicate object", e);
+			return true;
+		}
+	}
+
 	private boolean isValidBlankNode(String id) {
 		
 		return id.startsWith("_:");
@@ -228,10 +269,27 @@ public class JSONKR2RMLRDFWriter extends SFKR2RMLRDFWriter<JSONObject> {
 
 	@Override
 	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (deduplicator != null) {
+			try {
+				Iterator<String> remaining = deduplicator.finish(DEDUPLICATOR_OUTPUT);
+				while (remaining.hasNext()) {
+					writeObject(new JSONObject(remaining.next()));
+				}
+				deduplicator.release();
+			} catch (IOException e) {
+				LOG.error("Unable to write deduplicated objects", e);
+			}
+		}
+		finishOutput();
+		outWriter.close();
+	}
 
+	protected void finishOutput() {
 		outWriter.println("");
 		outWriter.println("]");
-		outWriter.close();
 	}
 
 	@Override
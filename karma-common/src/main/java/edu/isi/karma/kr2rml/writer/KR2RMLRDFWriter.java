@@ -25,17 +25,27 @@ import java.util.Properties;
 
 import edu.isi.karma.kr2rml.PredicateObjectMap;
 import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.metrics.MetricsRegistry;
 
 
 public abstract class KR2RMLRDFWriter {
 
 
 	protected PrintWriter outWriter;
+	protected MetricsRegistry metrics = MetricsRegistry.DISABLED;
 	
 	public void setWriter(PrintWriter outWriter)
 	{
 		this.outWriter = outWriter;
 	}
+	public void setMetrics(MetricsRegistry metrics)
+	{
+		this.metrics = metrics;
+	}
+	public MetricsRegistry getMetrics()
+	{
+		return metrics;
+	}
 	public void initialize(Properties p)
 	{
 		
@@ -20,11 +20,13 @@
  ******************************************************************************/
 package edu.isi.karma.kr2rml.writer;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,13 +38,17 @@ import org.slf4j.LoggerFactory;
 import edu.isi.karma.kr2rml.PredicateObjectMap;
 import edu.isi.karma.kr2rml.URIFormatter;
 import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.metrics.MetricsRegistry;
 
 public class N3KR2RMLRDFWriter extends KR2RMLRDFWriter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(N3KR2RMLRDFWriter.class);
+	private static final char DEDUPLICATOR_OUTPUT = 'n';
 	protected URIFormatter uriFormatter;
 	protected PrintWriter outWriter;
 	protected Map<String,String> generatedTriples;
+	protected TripleDeduplicator deduplicator;
+	private boolean closed = false;
 	String baseURI;
 	public N3KR2RMLRDFWriter(URIFormatter uriFormatter, OutputStream outputStream)
 	{
@@ -149,29 +155,87 @@ public class N3KR2RMLRDFWriter extends KR2RMLRDFWriter {
 		outputQuadWithLiteralObject(subjUri, predicateUri, value, literalType, language, graph);
 	}
 
+	/**
+	 * Removes duplicate triples across rows, instead of only within a row. The
+	 * deduplicator can be shared with the other writers of the generation.
+	 */
+	public void setDeduplicator(TripleDeduplicator deduplicator) {
+		this.deduplicator = deduplicator;
+		deduplicator.register(DEDUPLICATOR_OUTPUT);
+	}
+
 	@Override
-	public void finishRow()
+	public void setMetrics(MetricsRegistry metrics) {
+		super.setMetrics(metrics);
+		if (uriFormatter != null)
+			uriFormatter.setMetrics(metrics);
+	}
+
+	/**
+	 * @return 1 if the triple is written, 0 if it is a duplicate
+	 */
+	private int printTriple(String triple)
+	{
+		try {
+			if (deduplicator == null || deduplicator.add(DEDUPLICATOR_OUTPUT, triple)) {
+				outWriter.println(triple);
+				return 1;
+			}
+			return 0;
+		} catch (IOException e) {
+			LOG.error("Unable to deduplicate triple", e);
+			outWriter.println(triple);
+			return 1;
+		}
+	}
+
+	private void printGeneratedTriples()
 	{
+		long written = 0;
 		for(String value : generatedTriples.keySet())
 		{
-			outWriter.println(value);
+			written += printTriple(value);
 		}
-		outWriter.println("");
+		metrics.increment(MetricsRegistry.WRITTEN_TRIPLES, written);
+		if (uriFormatter != null)
+			uriFormatter.flushMetrics();
+	}
+
+	@Override
+	public void finishRow()
+	{
+		printGeneratedTriples();
+		if (deduplicator == null)
+			outWriter.println("");
 		generatedTriples = new ConcurrentHashMap<>();
 	}
 	@Override
 	public void flush() {
 		LOG.debug("Flushing writer");
-		for(String value : generatedTriples.keySet())
-		{
-			outWriter.println(value);
-		}
+		printGeneratedTriples();
 		outWriter.flush();
 		LOG.debug("Flushed writer");
 
 	}
 	@Override
 	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (deduplicator != null) {
+			try {
+				Iterator<String> remaining = deduplicator.finish(DEDUPLICATOR_OUTPUT);
+				long written = 0;
+				while (remaining.hasNext()) {
+					outWriter.println(remaining.next());
+					written++;
+				}
+				metrics.increment(MetricsRegistry.WRITTEN_TRIPLES, written);
+				deduplicator.release();
+			} catch (IOException e) {
+				LOG.error("Unable to write deduplicated triples", e);
+			}
+		}
 		outWriter.close();
 
 	}
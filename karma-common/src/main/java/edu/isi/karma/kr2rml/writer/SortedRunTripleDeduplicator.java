@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.kr2rml.writer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exact deduplicator for batch output. Values are buffered in memory; when
+ * the buffer exceeds its budget it is sorted and spilled to a temporary file
+ * as a run of unique values. {@link #remaining()} merges the runs and returns
+ * every distinct value once, in sorted order.
+ *
+ * Values must not contain line breaks, which holds for N-Triples lines and
+ * compact JSON.
+ */
+public class SortedRunTripleDeduplicator extends TripleDeduplicator {
+
+	private static Logger logger = LoggerFactory.getLogger(SortedRunTripleDeduplicator.class);
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	// String header, array reference and char array header
+	private static final int VALUE_OVERHEAD = 64;
+
+	private final File tempDirectory;
+	private final long maxBufferMemory;
+	private final List<String> buffer = new ArrayList<>();
+	private final List<File> runs = new ArrayList<>();
+	private long bufferMemory = 0;
+	private long peakMemory = 0;
+	private final List<BufferedReader> openReaders = new ArrayList<>();
+
+	/**
+	 * @param tempDirectory directory for the sorted runs, null for the default
+	 * temporary directory
+	 * @param maxBufferMemory approximate bytes of values kept in memory
+	 * before spilling a run
+	 */
+	public SortedRunTripleDeduplicator(File tempDirectory, long maxBufferMemory) {
+		this.tempDirectory = tempDirectory;
+		this.maxBufferMemory = maxBufferMemory;
+	}
+
+	@Override
+	public boolean add(String value) throws IOException {
+		added++;
+		buffer.add(value);
+		bufferMemory += VALUE_OVERHEAD + 2L * value.length();
+		peakMemory = Math.max(peakMemory, bufferMemory);
+		if (bufferMemory >= maxBufferMemory) {
+			spill();
+		}
+		return false;
+	}
+
+	private List<String> sortAndRemoveDuplicates() {
+		Collections.sort(buffer);
+		List<String> unique = new ArrayList<>(buffer.size());
+		String previous = null;
+		for (String value : buffer) {
+			if (value.equals(previous)) {
+				duplicates++;
+			} else {
+				unique.add(value);
+				previous = value;
+			}
+		}
+		buffer.clear();
+		bufferMemory = 0;
+		return unique;
+	}
+
+	private void spill() throws IOException {
+		List<String> unique = sortAndRemoveDuplicates();
+		File run = File.createTempFile("karma-dedup-", ".run", tempDirectory);
+		run.deleteOnExit();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(run), UTF8), 64 * 1024)) {
+			for (String value : unique) {
+				writer.write(value);
+				writer.write('\n');
+			}
+		}
+		runs.add(run);
+		logger.debug("Spilled " + unique.size() + " values to " + run);
+	}
+
+	@Override
+	public Iterator<String> remaining() throws IOException {
+		return remaining("");
+	}
+
+	/**
+	 * Merges the runs, the values are sorted so the values with the prefix
+	 * are contiguous and the merge stops after them
+	 */
+	@Override
+	protected Iterator<String> remaining(final String prefix) throws IOException {
+		if (runs.isEmpty() && prefix.isEmpty()) {
+			return sortAndRemoveDuplicates().iterator();
+		}
+		if (!buffer.isEmpty()) {
+			spill();
+		}
+		final PriorityQueue<RunCursor> queue = new PriorityQueue<>();
+		for (File run : runs) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(run), UTF8), 64 * 1024);
+			openReaders.add(reader);
+			RunCursor cursor = new RunCursor(reader);
+			if (cursor.advance()) {
+				queue.add(cursor);
+			}
+		}
+		return new Iterator<String>() {
+			private String next = fetch();
+
+			private String fetch() {
+				try {
+					while (!queue.isEmpty()) {
+						RunCursor cursor = queue.poll();
+						String value = cursor.current;
+						if (cursor.advance()) {
+							queue.add(cursor);
+						}
+						if (!value.startsWith(prefix)) {
+							if (value.compareTo(prefix) > 0)
+								break;
+							continue;
+						}
+						value = value.substring(prefix.length());
+						if (value.equals(next)) {
+							duplicates++;
+							continue;
+						}
+						return value;
+					}
+				} catch (IOException e) {
+					throw new IllegalStateException("Unable to read sorted run", e);
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public String next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				String value = next;
+				// fetch skips the values equal to the one being returned
+				next = fetch();
+				return value;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return peakMemory;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (BufferedReader reader : openReaders) {
+			reader.close();
+		}
+		openReaders.clear();
+		for (File run : runs) {
+			if (!run.delete()) {
+				logger.debug("Unable to delete " + run);
+			}
+		}
+		runs.clear();
+	}
+
+	private static class RunCursor implements Comparable<RunCursor> {
+		private final BufferedReader reader;
+		private String current;
+
+		RunCursor(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		boolean advance() throws IOException {
+			current = reader.readLine();
+			return current != null;
+		}
+
+		@Override
+		public int compareTo(RunCursor o) {
+			return current.compareTo(o.current);
+		}
+	}
+}
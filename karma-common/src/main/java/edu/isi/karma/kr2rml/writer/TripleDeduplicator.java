@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.kr2rml.writer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes duplicate serialized triples (or objects) across rows. Writers pass
+ * every value they are about to output to {@link #add(String)} and only write
+ * it when it returns true. Deduplicators that defer output return the unique
+ * values from {@link #remaining()} once all the rows have been processed.
+ *
+ * One deduplicator is shared by all the writers of a generation, so its
+ * memory budget holds for the whole generation and the duplicates are removed
+ * across partitions and files. The writers register the output they write
+ * with {@link #register(char)} and prefix their values with it, so the values
+ * of the N-Triples and the JSON outputs are kept apart.
+ */
+public abstract class TripleDeduplicator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TripleDeduplicator.class);
+
+	protected long added = 0;
+	protected long duplicates = 0;
+
+	private final Map<Character, Integer> outputs = new HashMap<>();
+	private int writers = 0;
+
+	/**
+	 * @return true if the value should be written now, false if it is a
+	 * duplicate or if its output is deferred to {@link #remaining()}
+	 */
+	public abstract boolean add(String value) throws IOException;
+
+	/**
+	 * @return the deferred unique values, in the order they should be written
+	 */
+	public Iterator<String> remaining() throws IOException {
+		return Collections.<String>emptyIterator();
+	}
+
+	/**
+	 * @return the number of bytes used by the deduplicator, beyond the values
+	 * written out
+	 */
+	public abstract long getMemoryUsage();
+
+	/**
+	 * @return the deferred unique values that start with the prefix, without
+	 * the prefix. It can be called once for each prefix.
+	 */
+	protected Iterator<String> remaining(String prefix) throws IOException {
+		return Collections.<String>emptyIterator();
+	}
+
+	/**
+	 * Registers a writer of an output, the writer calls {@link #finish(char)}
+	 * and then {@link #release()} when it is closed
+	 */
+	public synchronized void register(char output) {
+		Integer count = outputs.get(output);
+		outputs.put(output, count == null ? 1 : count + 1);
+		writers++;
+	}
+
+	/**
+	 * Adds a value of an output, it can be called by several threads
+	 */
+	public synchronized boolean add(char output, String value) throws IOException {
+		return add(output + value);
+	}
+
+	/**
+	 * @return the deferred values of the output once its last writer is
+	 * finished, so that writer writes them, and no values for the others
+	 */
+	public synchronized Iterator<String> finish(char output) throws IOException {
+		Integer count = outputs.get(output);
+		if (count == null)
+			return Collections.<String>emptyIterator();
+		if (count > 1) {
+			outputs.put(output, count - 1);
+			return Collections.<String>emptyIterator();
+		}
+		outputs.remove(output);
+		return remaining(String.valueOf(output));
+	}
+
+	/**
+	 * Closes the deduplicator once every writer that registered has released
+	 * it, releasing it again after that does nothing
+	 */
+	public synchronized void release() throws IOException {
+		if (writers <= 0 || --writers > 0)
+			return;
+		LOG.info(getStatistics());
+		close();
+	}
+
+	public long getAddedCount() {
+		return added;
+	}
+
+	public long getDuplicateCount() {
+		return duplicates;
+	}
+
+	public String getStatistics() {
+		return getClass().getSimpleName() + ": " + added + " values, " + duplicates
+				+ " duplicates removed, " + (getMemoryUsage() / 1024) + " KB used";
+	}
+
+	public void close() throws IOException {
+
+	}
+
+	/**
+	 * 64 bit hash of the characters of a string, used to build fingerprints.
+	 * Different seeds give independent hashes.
+	 */
+	static long hash64(String value, long seed) {
+		long h = seed ^ (value.length() * 0x9E3779B97F4A7C15L);
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001B3L;
+			h ^= (h >>> 29);
+		}
+		return mix(h);
+	}
+
+	static long mix(long h) {
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= (h >>> 33);
+		return h;
+	}
+}
@@ -0,0 +1,106 @@
+package edu.isi.karma.metrics;
+
+/**
+ * Collects the timers and the counters of the RDF generation. The stages are
+ * nested: the execution of the plans includes the URI normalization and the
+ * output of the triples to the writers.
+ *
+ * {@link #DISABLED} is the registry of the generators unless another one is
+ * set, its timers and counters do nothing, so the instrumented code only pays
+ * for a call to {@link #start(String)} or {@link #increment(String, long)}.
+ */
+public abstract class MetricsRegistry {
+
+	// stages
+	public static final String IMPORT = "import";
+	public static final String HISTORY = "history";
+	public static final String PLANNING = "planning";
+	public static final String EXECUTION = "execution";
+	public static final String URI_NORMALIZATION = "uriNormalization";
+	public static final String SERIALIZATION = "serialization";
+
+	// counters
+	public static final String ROWS = "rows";
+	public static final String TRIPLES = "triples";
+	public static final String WRITTEN_TRIPLES = "writtenTriples";
+
+	public static final MetricsRegistry DISABLED = new MetricsRegistry() {
+
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void record(String stage, long count, long nanos, long allocatedBytes) {
+		}
+
+		@Override
+		public void increment(String counter, long delta) {
+		}
+	};
+
+	private static final Timer NO_TIMER = new Timer(null, null, 0, 0);
+
+	public abstract boolean isEnabled();
+
+	/**
+	 * @param count the number of executions of the stage, the code called for
+	 * every term adds up its executions and records them once per row
+	 * @param allocatedBytes the bytes allocated by the thread during the
+	 * stage, or -1 if unknown
+	 */
+	public abstract void record(String stage, long count, long nanos, long allocatedBytes);
+
+	public abstract void increment(String counter, long delta);
+
+	/**
+	 * @return the bytes allocated so far by the current thread, or -1 if the
+	 * allocations are not tracked
+	 */
+	protected long getAllocatedBytes() {
+		return -1;
+	}
+
+	public Timer start(String stage) {
+		if (!isEnabled())
+			return NO_TIMER;
+		return new Timer(this, stage, System.nanoTime(), getAllocatedBytes());
+	}
+
+	/**
+	 * Times one execution of a stage, on the thread that started it
+	 */
+	public static class Timer implements AutoCloseable {
+
+		private final MetricsRegistry registry;
+		private final String stage;
+		private final long start;
+		private final long allocatedBytes;
+
+		private Timer(MetricsRegistry registry, String stage, long start, long allocatedBytes) {
+			this.registry = registry;
+			this.stage = stage;
+			this.start = start;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		public void stop() {
+			if (registry == null)
+				return;
+			long nanos = System.nanoTime() - start;
+			long allocated = -1;
+			if (allocatedBytes >= 0) {
+				long end = registry.getAllocatedBytes();
+				if (end >= 0)
+					allocated = end - allocatedBytes;
+			}
+			registry.record(stage, 1, nanos, allocated);
+		}
+
+		@Override
+		public void close() {
+			stop();
+		}
+	}
+}
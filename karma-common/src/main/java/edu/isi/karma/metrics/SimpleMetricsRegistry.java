@@ -0,0 +1,190 @@
+package edu.isi.karma.metrics;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+/**
+ * Keeps the totals of the timers and the counters in memory. It can be used
+ * by several threads, and the registries of several tasks can be merged.
+ *
+ * The allocations are estimated with the allocation counter of the thread of
+ * the HotSpot JVM, which is not available on every JVM, and only include the
+ * allocations of the thread that timed the stage.
+ */
+public class SimpleMetricsRegistry extends MetricsRegistry implements Serializable {
+
+	private static final long serialVersionUID = 3925126733262451052L;
+
+	private final ConcurrentMap<String, Stage> stages = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+	private final boolean trackAllocations;
+
+	public SimpleMetricsRegistry() {
+		this(false);
+	}
+
+	public SimpleMetricsRegistry(boolean trackAllocations) {
+		this.trackAllocations = trackAllocations && AllocationCounter.isSupported();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	protected long getAllocatedBytes() {
+		return trackAllocations ? AllocationCounter.getAllocatedBytes() : -1;
+	}
+
+	@Override
+	public void record(String stage, long count, long nanos, long allocatedBytes) {
+		getStage(stage).add(count, nanos, allocatedBytes);
+	}
+
+	@Override
+	public void increment(String counter, long delta) {
+		AtomicLong value = counters.get(counter);
+		if (value == null) {
+			counters.putIfAbsent(counter, new AtomicLong());
+			value = counters.get(counter);
+		}
+		value.addAndGet(delta);
+	}
+
+	private Stage getStage(String name) {
+		Stage stage = stages.get(name);
+		if (stage == null) {
+			stages.putIfAbsent(name, new Stage());
+			stage = stages.get(name);
+		}
+		return stage;
+	}
+
+	/**
+	 * Adds the timers and the counters of another registry to this one
+	 */
+	public void merge(SimpleMetricsRegistry other) {
+		for (Entry<String, Stage> entry : other.stages.entrySet()) {
+			Stage stage = entry.getValue();
+			getStage(entry.getKey()).add(stage.count.get(), stage.nanos.get(), stage.allocatedBytes.get());
+		}
+		for (Entry<String, AtomicLong> entry : other.counters.entrySet()) {
+			increment(entry.getKey(), entry.getValue().get());
+		}
+	}
+
+	public Map<String, Stage> getStages() {
+		return stages;
+	}
+
+	public long getCounter(String counter) {
+		AtomicLong value = counters.get(counter);
+		return value == null ? 0 : value.get();
+	}
+
+	public Map<String, AtomicLong> getCounters() {
+		return counters;
+	}
+
+	/**
+	 * @return {"stages": {stage: {"count", "millis", "allocatedBytes"}}, "counters": {counter: value}},
+	 * allocatedBytes is only there if the allocations are tracked
+	 */
+	public JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		JSONObject stagesJSON = new JSONObject();
+		for (Entry<String, Stage> entry : stages.entrySet()) {
+			Stage stage = entry.getValue();
+			JSONObject stageJSON = new JSONObject();
+			stageJSON.put("count", stage.getCount());
+			stageJSON.put("millis", stage.getMillis());
+			if (stage.getAllocatedBytes() >= 0)
+				stageJSON.put("allocatedBytes", stage.getAllocatedBytes());
+			stagesJSON.put(entry.getKey(), stageJSON);
+		}
+		json.put("stages", stagesJSON);
+		JSONObject countersJSON = new JSONObject();
+		for (Entry<String, AtomicLong> entry : counters.entrySet()) {
+			countersJSON.put(entry.getKey(), entry.getValue().get());
+		}
+		json.put("counters", countersJSON);
+		return json;
+	}
+
+	@Override
+	public String toString() {
+		return toJSON().toString();
+	}
+
+	public static class Stage implements Serializable {
+
+		private static final long serialVersionUID = -6119390167411867470L;
+
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+		// -1 until an allocation is recorded
+		private final AtomicLong allocatedBytes = new AtomicLong(-1);
+
+		private void add(long count, long nanos, long allocatedBytes) {
+			this.count.addAndGet(count);
+			this.nanos.addAndGet(nanos);
+			if (allocatedBytes >= 0) {
+				this.allocatedBytes.compareAndSet(-1, 0);
+				this.allocatedBytes.addAndGet(allocatedBytes);
+			}
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		public long getNanos() {
+			return nanos.get();
+		}
+
+		public long getMillis() {
+			return nanos.get() / 1000000;
+		}
+
+		/**
+		 * @return the bytes allocated during the stage, or -1 if unknown
+		 */
+		public long getAllocatedBytes() {
+			return allocatedBytes.get();
+		}
+	}
+
+	/**
+	 * Reads the allocation counter of the current thread, only loaded when the
+	 * allocations are tracked
+	 */
+	private static class AllocationCounter {
+
+		private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+		static boolean isSupported() {
+			try {
+				if (THREADS instanceof com.sun.management.ThreadMXBean) {
+					com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+					return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+				}
+			} catch (LinkageError e) {
+				// not a HotSpot JVM
+			}
+			return false;
+		}
+
+		static long getAllocatedBytes() {
+			return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+}
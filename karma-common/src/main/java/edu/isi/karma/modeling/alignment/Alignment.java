@@ -969,7 +969,7 @@ public LiteralNode addLiteralNode(String nodeId, String value, String type, Stri
 		}
 
 		logger.debug("computing steiner tree ...");
-		SteinerTree steinerTree = new SteinerTree(undirectedGraph, steinerNodes);
+		SteinerTree steinerTree = new SteinerTree(undirectedGraph, steinerNodes, this.graphBuilder.getShortestPaths());
 		WeightedMultigraph<Node, DefaultLink> tree = steinerTree.getDefaultSteinerTree();
 		if (tree == null) {
 			logger.debug("resulting tree is null ...");
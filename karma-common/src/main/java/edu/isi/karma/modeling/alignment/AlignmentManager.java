@@ -30,15 +30,11 @@ import edu.isi.karma.rep.Worksheet;
 import edu.isi.karma.rep.WorkspaceManager;
 
 public class AlignmentManager {
-	private static Map<String, Alignment> alignmentMap = null;
-	private static AlignmentManager _InternalInstance = null;
+	// commands on different worksheets create and read the alignments concurrently
+	private static final Map<String, Alignment> alignmentMap = new ConcurrentHashMap<>();
+	private static final AlignmentManager _InternalInstance = new AlignmentManager();
 	public static AlignmentManager Instance()
 	{
-		if (_InternalInstance == null)
-		{
-			_InternalInstance = new AlignmentManager();
-			alignmentMap = new ConcurrentHashMap<>();
-		}
 		return _InternalInstance;
 	}
 	
@@ -64,7 +60,7 @@ public class AlignmentManager {
 	}
 
 	
-	public Alignment createAlignment(String workspaceId, String worksheetId, OntologyManager ontologyManager){
+	public synchronized Alignment createAlignment(String workspaceId, String worksheetId, OntologyManager ontologyManager){
 		String alignmentId = AlignmentManager.Instance().constructAlignmentId(
 				workspaceId, worksheetId);
 		
@@ -29,6 +29,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jgrapht.graph.DirectedWeightedMultigraph;
 import org.slf4j.Logger;
@@ -98,6 +99,11 @@ public class GraphBuilder {
 	private HashMap<String, Set<Node>> nodeDataProperties; // nodeId + dataPropertyUri --> ColumnNode
 	private HashMap<String, Set<LabeledLink>> nodeIncomingLinks;
 	private HashMap<String, Set<LabeledLink>> nodeOutgoingLinks;
+	
+	// incremented on every change of the nodes, links or weights of the graph
+	private final AtomicLong graphVersion = new AtomicLong();
+	private MultiSourceShortestPaths shortestPaths;
+	private long shortestPathsVersion;
 	private HashMap<String, Set<SemanticTypeMapping>> semanticTypeMatches; // nodeUri + dataPropertyUri --> SemanticType Mapping
 	private HashMap<String, List<LabeledLink>> patternLinks;
 	private int numberOfModelLinks = 0;
@@ -187,6 +193,38 @@ public class GraphBuilder {
 	
 	public void setGraph(DirectedWeightedMultigraph<Node, DefaultLink> graph) {
 		this.graph = graph;
+		graphChanged();
+	}
+	
+	public long getGraphVersion() {
+		return graphVersion.get();
+	}
+	
+	/**
+	 * Starts a new version of the graph and drops the searches of the previous one.
+	 * The methods of this class that change the graph call it, code that changes
+	 * the graph returned by {@link #getGraph()} directly has to call it too.
+	 */
+	public void graphChanged() {
+		graphVersion.incrementAndGet();
+		synchronized (this) {
+			shortestPaths = null;
+		}
+	}
+	
+	/**
+	 * Returns the shortest paths of the graph, ignoring the direction of the links.
+	 * The object is created once for each version of the graph, and keeps the 
+	 * searches done by the Steiner tree computations on that version.
+	 * @return null if the graph has negative weights
+	 */
+	public synchronized MultiSourceShortestPaths getShortestPaths() {
+		long version = graphVersion.get();
+		if (shortestPaths == null || shortestPathsVersion != version) {
+			shortestPaths = MultiSourceShortestPaths.create(this.graph);
+			shortestPathsVersion = version;
+		}
+		return shortestPaths;
 	}
 	
 	public HashMap<String, Node> getIdToNodeMap() {
@@ -396,6 +434,7 @@ public class GraphBuilder {
 			this.forcedNodes.add(node);
 		
 		this.graph.addVertex(node);
+		graphChanged();
 		
 		this.idToNodeMap.put(node.getId(), node);
 //		logger.info("Added in idToNodeMap:" + node.getId());
@@ -525,6 +564,9 @@ public class GraphBuilder {
 		double w = computeWeight(link);
 		
 		this.graph.setEdgeWeight(link, w);
+		// the new version starts once the link has its weight, the shortest
+		// paths of a version are computed with the weights
+		graphChanged();
 				
 		if (link instanceof CompactLink) {
 			logger.debug("exit>");		
@@ -692,6 +734,7 @@ public class GraphBuilder {
 	
 	public void changeLinkWeight(DefaultLink link, double weight) {
 		this.graph.setEdgeWeight(link, weight);
+		graphChanged();
 	}
 	
 	public boolean removeLink(DefaultLink link) {
@@ -713,6 +756,7 @@ public class GraphBuilder {
 		
 		if (!this.graph.removeEdge(link))
 			return false;
+		graphChanged();
 
 		// update hashmaps
 
@@ -780,6 +824,7 @@ public class GraphBuilder {
 		
 		if (!this.graph.removeVertex(node))
 			return false;
+		graphChanged();
 		
 		// updating hashmaps
 		
@@ -7,6 +7,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jgrapht.graph.DirectedWeightedMultigraph;
 import org.jgrapht.graph.WeightedMultigraph;
@@ -22,6 +23,7 @@ import edu.isi.karma.modeling.steiner.topk.Fact;
 import edu.isi.karma.modeling.steiner.topk.ResultGraph;
 import edu.isi.karma.modeling.steiner.topk.SteinerEdge;
 import edu.isi.karma.modeling.steiner.topk.SteinerNode;
+import edu.isi.karma.modeling.steiner.topk.SteinerSearchGraph;
 import edu.isi.karma.rep.alignment.CompactObjectPropertyLink;
 import edu.isi.karma.rep.alignment.DefaultLink;
 import edu.isi.karma.rep.alignment.InternalNode;
@@ -44,6 +46,12 @@ public class GraphBuilderTopK extends GraphBuilder {
 	private HashMap<SteinerNode, TreeSet<SteinerEdge>> topKGraph;
 	private HashMap<String, SteinerNode> topKGraphNodes;
 	
+	// incremented after every change of topKGraph, not initialized here because 
+	// the super constructor already adds nodes and links
+	private AtomicLong topKGraphVersion;
+	private SteinerSearchGraph searchGraph;
+	private long searchGraphVersion;
+	
 	public GraphBuilderTopK(OntologyManager ontologyManager, boolean addThingNode) { 
 		super(ontologyManager, addThingNode);
 		if (topKGraph == null) topKGraph = new HashMap<>();
@@ -68,11 +76,42 @@ public class GraphBuilderTopK extends GraphBuilder {
 		return topKGraphNodes;
 	}
 	
+	/**
+	 * Returns the compact graph searched by the top-k algorithms. It is built once
+	 * for each version of the graph and shared by the searches that run on that version.
+	 * @return the search graph
+	 */
+	public synchronized SteinerSearchGraph getSearchGraph() {
+		long version = getTopKGraphVersion().get();
+		if (searchGraph == null || searchGraphVersion != version) {
+			searchGraph = SteinerSearchGraph.fromAdjacency(getTopKGraph());
+			searchGraphVersion = version;
+		}
+		return searchGraph;
+	}
+	
+	private synchronized AtomicLong getTopKGraphVersion() {
+		if (topKGraphVersion == null)
+			topKGraphVersion = new AtomicLong();
+		return topKGraphVersion;
+	}
+	
+	/**
+	 * Starts a new version of the top-k graph and drops the search graph of the previous one
+	 */
+	private void topKGraphChanged() {
+		getTopKGraphVersion().incrementAndGet();
+		synchronized (this) {
+			searchGraph = null;
+		}
+	}
+	
 	public boolean addNode(Node node) {
 		if (super.addNode(node)) {
 			SteinerNode n = new SteinerNode(node.getId());
 			getTopKGraphNodes().put(n.getNodeId(), n);
 			getTopKGraph().put(n, new TreeSet<SteinerEdge>());
+			topKGraphChanged();
 			return true;
 		} else
 			return false;
@@ -89,6 +128,7 @@ public class GraphBuilderTopK extends GraphBuilder {
 			}
 //			getTopKGraph().get(n1).add(e);
 			getTopKGraph().get(n2).add(e); // each node only stores its incoming links
+			topKGraphChanged();
 			return true;
 		} else
 			return false;
@@ -104,6 +144,7 @@ public class GraphBuilderTopK extends GraphBuilder {
 			}
 //			getTopKGraph().get(n1).add(e);
 			getTopKGraph().get(n2).add(e); // each node only stores its incoming links
+			topKGraphChanged();
 			return true;
 		} else
 			return false;
@@ -116,6 +157,7 @@ public class GraphBuilderTopK extends GraphBuilder {
 			SteinerEdge e = new SteinerEdge(n1, link.getId(), n2, (float)link.getWeight());
 //			getTopKGraph().get(n1).remove(e);
 			getTopKGraph().get(n2).remove(e);
+			topKGraphChanged();
 			return true;
 		} else
 			return false;
@@ -136,6 +178,7 @@ public class GraphBuilderTopK extends GraphBuilder {
 				e.setForced(status == LinkStatus.ForcedByUser);
 			}
 			getTopKGraph().get(n2).add(e);
+			topKGraphChanged();
 		}
 	}
 	
@@ -151,6 +194,7 @@ public class GraphBuilderTopK extends GraphBuilder {
 				e.setForced(((LabeledLink)link).getStatus() == LinkStatus.ForcedByUser);
 			}
 			getTopKGraph().get(n2).add(e);
+			topKGraphChanged();
 		}
 	}
 
@@ -207,9 +251,7 @@ public class GraphBuilderTopK extends GraphBuilder {
 //		BANKSfromMM.graph = this.getTopKGraph();
 //		BANKSfromMM.nodes = this.getTopKGraphNodes();
 
-		CustomizedBANKS N = new CustomizedBANKS(terminals, recursiveLevel, maxPermutations, ontologyManager.getContextId());
-		CustomizedBANKS.graph = this.getTopKGraph();
-		CustomizedBANKS.nodes = this.getTopKGraphNodes();
+		CustomizedBANKS N = new CustomizedBANKS(this.getSearchGraph(), terminals, recursiveLevel, maxPermutations, ontologyManager.getContextId());
 		
 		List<DirectedWeightedMultigraph<Node, LabeledLink>> results = new
 				LinkedList<>();
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.modeling.alignment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jgrapht.Graph;
+
+import edu.isi.karma.rep.alignment.DefaultLink;
+import edu.isi.karma.rep.alignment.Node;
+
+/**
+ * Shortest paths between the nodes of a graph, ignoring the direction of the links.
+ * The graph is copied into primitive arrays when the object is created, so later
+ * changes of the graph are not seen.
+ *
+ * There is one Dijkstra search per source node. A search only runs until the
+ * requested target is settled, and it is kept with its predecessor tree, so
+ * the next queries from the same source continue it instead of starting again.
+ * Only the searches of the {@link #MAX_SEARCHES} sources used last are kept,
+ * each one holds arrays of the size of the graph.
+ */
+public class MultiSourceShortestPaths {
+
+	public static final int MAX_SEARCHES = 128;
+
+	private final Node[] nodes;
+	private final Map<Node, Integer> nodeIds;
+
+	private final int[] offsets;
+	private final int[] neighbors;
+	private final double[] weights;
+	private final DefaultLink[] links;
+
+	private final Map<Integer, Search> searches;
+
+	private MultiSourceShortestPaths(Node[] nodes, Map<Node, Integer> nodeIds,
+			int[] offsets, int[] neighbors, double[] weights, DefaultLink[] links) {
+		this.nodes = nodes;
+		this.nodeIds = nodeIds;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+		this.links = links;
+		this.searches = new LinkedHashMap<Integer, Search>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<Integer, Search> eldest) {
+				return size() > MAX_SEARCHES;
+			}
+		};
+	}
+
+	/**
+	 * copies the graph
+	 * @param graph
+	 * @return null if the graph has a link with a negative weight, Dijkstra cannot be used on such graphs
+	 */
+	public static MultiSourceShortestPaths create(Graph<Node, DefaultLink> graph) {
+
+		Node[] nodes = graph.vertexSet().toArray(new Node[0]);
+		Map<Node, Integer> nodeIds = new HashMap<>(nodes.length * 2);
+		for (int i = 0; i < nodes.length; i++)
+			nodeIds.put(nodes[i], i);
+
+		int[] degrees = new int[nodes.length];
+		for (DefaultLink e : graph.edgeSet()) {
+			int s = nodeIds.get(graph.getEdgeSource(e));
+			int t = nodeIds.get(graph.getEdgeTarget(e));
+			if (s == t) continue;
+			if (graph.getEdgeWeight(e) < 0) return null;
+			degrees[s]++;
+			degrees[t]++;
+		}
+
+		int[] offsets = new int[nodes.length + 1];
+		for (int i = 0; i < nodes.length; i++)
+			offsets[i + 1] = offsets[i] + degrees[i];
+
+		int[] neighbors = new int[offsets[nodes.length]];
+		double[] weights = new double[neighbors.length];
+		DefaultLink[] links = new DefaultLink[neighbors.length];
+		int[] next = Arrays.copyOf(offsets, nodes.length);
+		for (DefaultLink e : graph.edgeSet()) {
+			int s = nodeIds.get(graph.getEdgeSource(e));
+			int t = nodeIds.get(graph.getEdgeTarget(e));
+			if (s == t) continue;
+			double w = graph.getEdgeWeight(e);
+			neighbors[next[s]] = t; weights[next[s]] = w; links[next[s]++] = e;
+			neighbors[next[t]] = s; weights[next[t]] = w; links[next[t]++] = e;
+		}
+
+		return new MultiSourceShortestPaths(nodes, nodeIds, offsets, neighbors, weights, links);
+	}
+
+	/**
+	 * @return the cost of the shortest path, Double.POSITIVE_INFINITY if target cannot be reached from source
+	 */
+	public synchronized double getCost(Node source, Node target) {
+		Integer s = nodeIds.get(source);
+		Integer t = nodeIds.get(target);
+		if (s == null || t == null)
+			return Double.POSITIVE_INFINITY;
+		return getSearch(s).settle(t);
+	}
+
+	/**
+	 * @return the links of the shortest path from source to target, null if there is no path
+	 */
+	public synchronized List<DefaultLink> getPathEdgeList(Node source, Node target) {
+		Integer s = nodeIds.get(source);
+		Integer t = nodeIds.get(target);
+		if (s == null || t == null)
+			return null;
+		Search search = getSearch(s);
+		if (search.settle(t) == Double.POSITIVE_INFINITY)
+			return null;
+		LinkedList<DefaultLink> path = new LinkedList<>();
+		int n = t;
+		while (n != s) {
+			int edge = search.predecessorEdge[n];
+			path.addFirst(links[edge]);
+			n = search.predecessor[n];
+		}
+		return path;
+	}
+
+	/**
+	 * @return number of sources that have a search
+	 */
+	public synchronized int getNumberOfSearches() {
+		return searches.size();
+	}
+
+	private Search getSearch(int source) {
+		Search search = searches.get(source);
+		if (search == null) {
+			search = new Search(source);
+			searches.put(source, search);
+		}
+		return search;
+	}
+
+	/**
+	 * A Dijkstra search that can be stopped and continued later.
+	 * The queue is a binary heap of (distance, node) pairs in which a node
+	 * can appear more than once; the stale pairs are skipped when polled.
+	 */
+	private class Search {
+
+		private final double[] distance;
+		private final int[] predecessor;
+		private final int[] predecessorEdge;
+		private final boolean[] settled;
+
+		private int[] heapNodes = new int[16];
+		private double[] heapKeys = new double[16];
+		private int heapSize = 0;
+
+		Search(int source) {
+			distance = new double[nodes.length];
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			predecessor = new int[nodes.length];
+			predecessorEdge = new int[nodes.length];
+			settled = new boolean[nodes.length];
+			distance[source] = 0;
+			predecessor[source] = -1;
+			predecessorEdge[source] = -1;
+			push(source, 0);
+		}
+
+		/**
+		 * runs the search until target is settled or there is nothing left to visit
+		 * @return the distance of the target
+		 */
+		double settle(int target) {
+			while (!settled[target] && heapSize > 0) {
+				double d = heapKeys[0];
+				int n = pop();
+				if (settled[n] || d > distance[n])
+					continue;
+				settled[n] = true;
+				for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+					int m = neighbors[e];
+					if (settled[m])
+						continue;
+					double newDistance = d + weights[e];
+					if (newDistance < distance[m]) {
+						distance[m] = newDistance;
+						predecessor[m] = n;
+						predecessorEdge[m] = e;
+						push(m, newDistance);
+					}
+				}
+			}
+			return distance[target];
+		}
+
+		private void push(int node, double key) {
+			if (heapSize == heapNodes.length) {
+				heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+				heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+			}
+			int i = heapSize++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (heapKeys[parent] <= key)
+					break;
+				heapNodes[i] = heapNodes[parent];
+				heapKeys[i] = heapKeys[parent];
+				i = parent;
+			}
+			heapNodes[i] = node;
+			heapKeys[i] = key;
+		}
+
+		private int pop() {
+			int top = heapNodes[0];
+			heapSize--;
+			int node = heapNodes[heapSize];
+			double key = heapKeys[heapSize];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= heapSize)
+					break;
+				if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child])
+					child++;
+				if (key <= heapKeys[child])
+					break;
+				heapNodes[i] = heapNodes[child];
+				heapKeys[i] = heapKeys[child];
+				i = child;
+			}
+			heapNodes[i] = node;
+			heapKeys[i] = key;
+			return top;
+		}
+	}
+}
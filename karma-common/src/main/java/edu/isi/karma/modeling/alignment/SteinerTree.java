@@ -50,10 +50,21 @@ public class SteinerTree {
 	UndirectedGraph<Node, DefaultLink> graph;
 	WeightedMultigraph<Node, DefaultLink> tree;
 	List<Node> steinerNodes;
+	MultiSourceShortestPaths shortestPaths;
 	
 	public SteinerTree(UndirectedGraph<Node, DefaultLink> graph, List<Node> steinerNodes) {
+		this(graph, steinerNodes, MultiSourceShortestPaths.create(graph));
+	}
+	
+	/**
+	 * @param shortestPaths shortest paths of the graph, they can be shared by the trees computed 
+	 * on the same version of the graph. If null, the paths are computed with Bellman-Ford and Dijkstra.
+	 */
+	public SteinerTree(UndirectedGraph<Node, DefaultLink> graph, List<Node> steinerNodes, 
+			MultiSourceShortestPaths shortestPaths) {
 		this.graph = graph;
 		this.steinerNodes = steinerNodes;
+		this.shortestPaths = shortestPaths;
 		
 		runAlgorithm();
 	}
@@ -73,10 +84,11 @@ public class SteinerTree {
 			g.addVertex(n);
 		}
 		
-		BellmanFordShortestPath<Node, DefaultLink> path;
+		BellmanFordShortestPath<Node, DefaultLink> path = null;
 		
 		for (Node n1 : this.steinerNodes) {
-			path = new BellmanFordShortestPath<>(this.graph, n1);
+			if (this.shortestPaths == null)
+				path = new BellmanFordShortestPath<>(this.graph, n1);
 			
 			for (Node n2 : this.steinerNodes) {
 				
@@ -88,7 +100,10 @@ public class SteinerTree {
 				
 				DefaultLink e = new DefaultLink();
 				g.addEdge(n1, n2, e);
-				g.setEdgeWeight(e, path.getCost(n2));
+				if (this.shortestPaths != null)
+					g.setEdgeWeight(e, this.shortestPaths.getCost(n1, n2));
+				else
+					g.setEdgeWeight(e, path.getCost(n2));
 				
 			}
 
@@ -151,7 +166,6 @@ public class SteinerTree {
 				new WeightedMultigraph<>(DefaultLink.class);
 		
 		Set<DefaultLink> edges = g2.edgeSet();
-		DijkstraShortestPath<Node, DefaultLink> path;
 		
 		Node source, target;
 		
@@ -159,8 +173,12 @@ public class SteinerTree {
 			source = edge.getSource();
 			target = edge.getTarget();
 			
-			path = new DijkstraShortestPath<>(this.graph, source, target);
-			List<DefaultLink> pathEdges = path.getPathEdgeList();
+			// the search from source has already been run in step1
+			List<DefaultLink> pathEdges;
+			if (this.shortestPaths != null)
+				pathEdges = this.shortestPaths.getPathEdgeList(source, target);
+			else
+				pathEdges = new DijkstraShortestPath<>(this.graph, source, target).getPathEdgeList();
 			
 			if (pathEdges == null)
 				continue;
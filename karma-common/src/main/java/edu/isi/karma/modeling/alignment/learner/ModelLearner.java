@@ -240,7 +240,8 @@ public class ModelLearner {
 			{
 				topKSteinerTrees = new LinkedList<>();
 				SteinerTree steinerTree = new SteinerTree(
-						new AsUndirectedGraph<>(this.graphBuilder.getGraph()), Lists.newLinkedList(sn.getNodes()));
+						new AsUndirectedGraph<>(this.graphBuilder.getGraph()), Lists.newLinkedList(sn.getNodes()), 
+						this.graphBuilder.getShortestPaths());
 				WeightedMultigraph<Node, DefaultLink> t = steinerTree.getDefaultSteinerTree();
 				TreePostProcess treePostProcess = new TreePostProcess(this.graphBuilder, t);
 				if (treePostProcess.getTree() != null)
@@ -599,6 +599,7 @@ public class ModelLearner_Old {
 
 		for (DefaultLink link : oldLinks)
 			this.graphBuilder.getGraph().removeEdge(link);
+		this.graphBuilder.graphChanged();
 
 		LabeledLink newLink;
 		for (int i = 0; i < newLinks.size(); i++) {
@@ -23,11 +23,11 @@ package edu.isi.karma.modeling.ontology;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,14 +45,16 @@ public class OntologyManager  {
 	static Logger logger = LoggerFactory.getLogger(OntologyManager.class.getName());
 
 	private OntologyHandler ontHandler = null;
-	private OntologyCache ontCache = null;
+	// the cache is replaced when an ontology is imported, while the commands
+	// of the worksheets read it and subscribe their alignments
+	private volatile OntologyCache ontCache = null;
 	private List<OntologyUpdateListener> ontUpdateListeners; 
 	private String contextId; 
 	public OntologyManager(String contextId) {
 		this.contextId = contextId;
 		ontHandler = new OntologyHandler();
 		ontCache = new OntologyCache(ontHandler, contextId);
-		ontUpdateListeners = new ArrayList<>();	
+		ontUpdateListeners = new CopyOnWriteArrayList<>();
 	}
 	
 	public String getContextId()
@@ -97,7 +99,7 @@ public class OntologyManager  {
 			o.ontologyModelUpdated();
 	}
 	
-	public boolean doImportAndUpdateCache(File sourceFile, String encoding) throws IOException {
+	public synchronized boolean doImportAndUpdateCache(File sourceFile, String encoding) throws IOException {
 
 		if (sourceFile == null) {
 			logger.debug("input file is null.");
@@ -132,7 +134,7 @@ public class OntologyManager  {
 		return true;
 	}
 	
-	public boolean doImport(File sourceFile, String encoding) throws IOException {
+	public synchronized boolean doImport(File sourceFile, String encoding) throws IOException {
 
 		if (sourceFile == null) {
 			logger.debug("input file is null.");
@@ -174,7 +176,7 @@ public class OntologyManager  {
 		return true;
 	}
 	
-	public void updateCache() {
+	public synchronized void updateCache() {
 		ontCache = new OntologyCache(ontHandler, contextId);
 		ontCache.init();
 	}
@@ -80,8 +80,8 @@ public class BANKSfromMM_Old extends TopKSteinertrees {
 	protected Queue<BANKSIterator> banksIterators;
 	
 
-	public BANKSfromMM_Old(TreeSet<SteinerNode> terminals, Integer recursiveLevel, Integer maxPermutations, String contextId) throws Exception {
-		super(terminals);
+	public BANKSfromMM_Old(SteinerSearchGraph graph, TreeSet<SteinerNode> terminals, Integer recursiveLevel, Integer maxPermutations, String contextId) throws Exception {
+		super(graph, terminals);
 		this.contextId = contextId;
 		this.recursiveLevel = recursiveLevel;
 		this.maxPermutations = maxPermutations;
@@ -350,37 +350,27 @@ public class BANKSfromMM_Old extends TopKSteinertrees {
 					
 					if (count>k) break;
 					
-					Queue<SteinerEdge> rs= new PriorityQueue<>(10, new Comparator<SteinerEdge>() {
-						public int compare(SteinerEdge e1, SteinerEdge e2) {
-							if (e1.weight() > e2.weight()) return 1;
-							else if (e1.weight() < e2.weight()) return -1;
-							else return 0;
-						}
-					});
-											
-					rs.addAll(graph.get(replacedNode));
+					// the edges of a node are stored by increasing weight
+					int nodeId = graph.getId(replacedNode.name());
+					int firstEdge = nodeId < 0 ? 0 : graph.getFirstEdge(nodeId);
+					int endEdge = nodeId < 0 ? 0 : graph.getEndEdge(nodeId);
 					
-					while(!rs.isEmpty()){
+					for(int edge = firstEdge; edge < endEdge; edge++){
 						
 						accessedEdges++;
 						SteinerNode newNode;
 						
 						// getting (creating) neighbor of n
-						SteinerEdge e= rs.poll();
+						SteinerEdge e= graph.getEdge(edge);
+						float weight= graph.getWeight(edge);
 						
-						if(!replacedNode.equals(e.sourceNode)){
-							newNode= new SteinerNode(e.sourceNode.name());
-							newNode.wasArg1=true;
-						}
-						else{
-							newNode= new SteinerNode(e.sinkNode.name());
-							newNode.wasArg1=false;
-						}
+						newNode= new SteinerNode(graph.getName(graph.getNeighbor(edge)));
+						newNode.wasArg1=graph.isNeighborSource(edge);
 						
 //						if(processedNodes.get(queue.id).containsKey(newNode.name())) continue;
 						
 						newNode.relationToPredecessor=e.getEdgeLabel();
-						newNode.weightToPredecessor=e.getWeight();
+						newNode.weightToPredecessor=weight;
 						
 						//check whether newNode has been visited
 						SteinerNode v=visitedNodes.get(queue.id).get(newNode.name());
@@ -412,7 +402,7 @@ public class BANKSfromMM_Old extends TopKSteinertrees {
 													
 							newId = queue.id + ":" + newNode.name + "///" + (recurseCount);							
 							newNode.name = newId;
-							newNode.distancesToSources[0]=n.distancesToSources[0]+e.getWeight();
+							newNode.distancesToSources[0]=n.distancesToSources[0]+weight;
 							newNode.predecessor= n;
 							queue.banksIterator.add(newNode);		
 							recurseNodeMap.put(newNode, v);
@@ -427,7 +417,7 @@ public class BANKSfromMM_Old extends TopKSteinertrees {
 						//in case newNode has not been visited
 						else
 						{
-							newNode.distancesToSources[0]=n.distancesToSources[0]+e.getWeight();
+							newNode.distancesToSources[0]=n.distancesToSources[0]+weight;
 							newNode.predecessor= n;
 							
 							queue.banksIterator.add(newNode);
@@ -0,0 +1,170 @@
+package edu.isi.karma.modeling.steiner.topk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only graph searched by the top-k Steiner tree algorithms. Nodes have
+ * int ids and the edges of each node are stored in compressed sparse row
+ * form: the edges of node i are the positions offsets[i] to offsets[i+1]-1
+ * of the edge arrays, ordered by increasing weight.
+ *
+ * A graph is never changed after it is built, so several searches can use
+ * the same instance at the same time.
+ */
+public class SteinerSearchGraph {
+
+	private final String[] names;
+	private final Map<String, Integer> ids;
+
+	private final int[] offsets;
+	private final int[] neighbors;
+	private final float[] weights;
+	/* true when the neighbor is the source of the edge */
+	private final boolean[] neighborIsSource;
+	private final SteinerEdge[] edges;
+
+	private SteinerSearchGraph(String[] names, Map<String, Integer> ids, int[] offsets,
+			int[] neighbors, float[] weights, boolean[] neighborIsSource, SteinerEdge[] edges) {
+		this.names = names;
+		this.ids = ids;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+		this.neighborIsSource = neighborIsSource;
+		this.edges = edges;
+	}
+
+	/**
+	 * builds a search graph from an adjacency map. The edges listed for a node
+	 * are the ones the search follows from that node; the node can be either
+	 * the source or the sink of the edge.
+	 * @param adjacency the edges of each node
+	 * @return the search graph
+	 */
+	public static SteinerSearchGraph fromAdjacency(Map<SteinerNode, ? extends Collection<SteinerEdge>> adjacency) {
+
+		Map<String, Integer> ids = new HashMap<>(adjacency.size() * 2);
+		List<String> names = new ArrayList<>(adjacency.size());
+		for (SteinerNode n : adjacency.keySet())
+			addNode(n.name(), ids, names);
+
+		List<List<SteinerEdge>> nodeEdges = new ArrayList<>(names.size());
+		for (int i = 0; i < names.size(); i++)
+			nodeEdges.add(null);
+		int numOfEdges = 0;
+		Comparator<SteinerEdge> byWeight = new Comparator<SteinerEdge>() {
+			public int compare(SteinerEdge e1, SteinerEdge e2) {
+				return Float.compare(e1.weight(), e2.weight());
+			}
+		};
+		for (Map.Entry<SteinerNode, ? extends Collection<SteinerEdge>> entry : adjacency.entrySet()) {
+			if (entry.getValue() == null || entry.getValue().isEmpty())
+				continue;
+			List<SteinerEdge> sorted = new ArrayList<>(entry.getValue());
+			Collections.sort(sorted, byWeight);
+			for (SteinerEdge e : sorted) {
+				addNode(e.sourceNode.name(), ids, names);
+				addNode(e.sinkNode.name(), ids, names);
+			}
+			nodeEdges.set(ids.get(entry.getKey().name()), sorted);
+			numOfEdges += sorted.size();
+		}
+
+		int[] offsets = new int[names.size() + 1];
+		int[] neighbors = new int[numOfEdges];
+		float[] weights = new float[numOfEdges];
+		boolean[] neighborIsSource = new boolean[numOfEdges];
+		SteinerEdge[] edges = new SteinerEdge[numOfEdges];
+
+		int pos = 0;
+		for (int i = 0; i < names.size(); i++) {
+			offsets[i] = pos;
+			List<SteinerEdge> list = i < nodeEdges.size() ? nodeEdges.get(i) : null;
+			if (list == null)
+				continue;
+			String name = names.get(i);
+			for (SteinerEdge e : list) {
+				boolean isSource = !name.equals(e.sourceNode.name());
+				neighbors[pos] = ids.get(isSource ? e.sourceNode.name() : e.sinkNode.name());
+				weights[pos] = e.weight();
+				neighborIsSource[pos] = isSource;
+				edges[pos] = e;
+				pos++;
+			}
+		}
+		offsets[names.size()] = pos;
+
+		return new SteinerSearchGraph(names.toArray(new String[names.size()]), ids,
+				offsets, neighbors, weights, neighborIsSource, edges);
+	}
+
+	private static void addNode(String name, Map<String, Integer> ids, List<String> names) {
+		if (!ids.containsKey(name)) {
+			ids.put(name, names.size());
+			names.add(name);
+		}
+	}
+
+	/**
+	 * @return number of nodes
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * @return number of entries in the adjacency arrays
+	 */
+	public int getNumberOfEdges() {
+		return neighbors.length;
+	}
+
+	/**
+	 * @param name name of a node
+	 * @return the id of the node, or -1 if the graph does not have the node
+	 */
+	public int getId(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id.intValue();
+	}
+
+	public String getName(int node) {
+		return names[node];
+	}
+
+	/**
+	 * @return position of the first edge of the node
+	 */
+	public int getFirstEdge(int node) {
+		return offsets[node];
+	}
+
+	/**
+	 * @return position after the last edge of the node
+	 */
+	public int getEndEdge(int node) {
+		return offsets[node + 1];
+	}
+
+	public int getNeighbor(int edge) {
+		return neighbors[edge];
+	}
+
+	public float getWeight(int edge) {
+		return weights[edge];
+	}
+
+	public boolean isNeighborSource(int edge) {
+		return neighborIsSource[edge];
+	}
+
+	public SteinerEdge getEdge(int edge) {
+		return edges[edge];
+	}
+}
@@ -31,14 +31,8 @@ public abstract class TopKSteinertrees {
 	
 	/******* data structures and methods for main memory algorithms ************/
 	
-	//	graph which can be loaded  into main memory
-	public static Map<SteinerNode, TreeSet<SteinerEdge>> graph;
-	
-	//nodes of the graph
-	public static Map<String, SteinerNode> nodes;
-	
-	//maps node names to ids
-	public static Map<String, Integer> nodeToId= new HashMap<>();
+	//	graph which can be loaded  into main memory, shared read-only by the searches
+	protected SteinerSearchGraph graph;
 
 	
 	
@@ -53,26 +47,24 @@ public abstract class TopKSteinertrees {
 		
 		FileWriter fw= new FileWriter(folder+fileName+"BL.graph");
 		fw.write(graph.size()+"\n");
-		for(SteinerNode n: graph.keySet()){
-			fw.write(nodeToId.get(n.name())+" "+"0.0 "+nodeToId.get(n.name())+" \n");
+		for(int n=0; n<graph.size(); n++){
+			fw.write(n+" "+"0.0 "+n+" \n");
 		}
-		for(Map.Entry<SteinerNode, TreeSet<SteinerEdge>> steinerNodeTreeSetEntry : graph.entrySet()){
-			for(SteinerEdge e: steinerNodeTreeSetEntry.getValue()){
-				if(nodeToId.get(steinerNodeTreeSetEntry.getKey().name())==null) nodeToId.put(steinerNodeTreeSetEntry.getKey().name(),1);
-				fw.write(nodeToId.get(steinerNodeTreeSetEntry.getKey().name())+" "
-						+nodeToId.get(steinerNodeTreeSetEntry.getKey().getNeighborInEdge(e).name())+" "+e.weight()+"\n");
+		for(int n=0; n<graph.size(); n++){
+			for(int e=graph.getFirstEdge(n); e<graph.getEndEdge(n); e++){
+				fw.write(n+" "+graph.getNeighbor(e)+" "+graph.getWeight(e)+"\n");
 			}
 		}
 		fw.close();
 		
 		fw= new FileWriter(folder+fileName+"BL.key");
-		for(SteinerNode n: graph.keySet()){
-			fw.write(nodeToId.get(n.name())+"---"+nodeToId.get(n.name())+"---"+"1\n");
+		for(int n=0; n<graph.size(); n++){
+			fw.write(n+"---"+n+"---"+"1\n");
 		}
 		fw.close();
 		fw= new FileWriter(folder+fileName+"BLStringToId.list");
-		for(SteinerNode n: graph.keySet()){
-			fw.write(nodeToId.get(n.name())+"---"+n.name()+"\n");
+		for(int n=0; n<graph.size(); n++){
+			fw.write(n+"---"+graph.getName(n)+"\n");
 		}
 		fw.close();
 	}
@@ -90,10 +82,11 @@ public abstract class TopKSteinertrees {
 		
 		FileWriter fw= new FileWriter(folder+fileName+"STAR.txt");
 		TreeSet<SteinerEdge> ts = new TreeSet<>();
-		for(Map.Entry<SteinerNode, TreeSet<SteinerEdge>> steinerNodeTreeSetEntry : graph.entrySet()){
-			for(SteinerEdge e: steinerNodeTreeSetEntry.getValue()){
+		for(int n=0; n<graph.size(); n++){
+			for(int i=graph.getFirstEdge(n); i<graph.getEndEdge(n); i++){
+				SteinerEdge e=graph.getEdge(i);
 				if(ts.contains(e))continue;
-				fw.write(e.getEdgeLabel()+" : "+e.weight()+" : "+ steinerNodeTreeSetEntry.getKey().name()+" : "+ steinerNodeTreeSetEntry.getKey().getNeighborInEdge(e).name()+" : "+e.sourceNode.equals(steinerNodeTreeSetEntry.getKey())+"\n");
+				fw.write(e.getEdgeLabel()+" : "+e.weight()+" : "+ graph.getName(n)+" : "+ graph.getName(graph.getNeighbor(i))+" : "+!graph.isNeighborSource(i)+"\n");
 				ts.add(e);
 			}
 		}
@@ -109,8 +102,8 @@ public abstract class TopKSteinertrees {
 	 * @throws IOException
 	 */
 	public void loadGraphFromFiles(boolean uniformWeights)throws IOException{
-		graph= new HashMap<>();
-		nodes = new HashMap<>();
+		Map<SteinerNode, TreeSet<SteinerEdge>> adjacency= new HashMap<>();
+		Map<String, SteinerNode> nodes = new HashMap<>();
 		//FileReader fr = new FileReader("d:\\DBLPgraph\\IMDBSTAR.txt");
 		FileReader fr = new FileReader("d:\\DBLPgraph\\dblpgraphNeighS.txt");
 		//FileReader fr = new FileReader("d:\\DBLPgraph\\DBLPSTAR.txt");
@@ -128,11 +121,11 @@ public abstract class TopKSteinertrees {
 			if(!nodes.containsKey(
 					arr[2])){
 				nodes.put(arr[2], new SteinerNode(arr[2]));
-				graph.put(nodes.get(arr[2]), new TreeSet<SteinerEdge>());
+				adjacency.put(nodes.get(arr[2]), new TreeSet<SteinerEdge>());
 			}
 			if(nodes.get(arr[3])==null){
 				nodes.put(arr[3], new SteinerNode(arr[3]));
-				graph.put(nodes.get(arr[3]), new TreeSet<SteinerEdge>());
+				adjacency.put(nodes.get(arr[3]), new TreeSet<SteinerEdge>());
 			}
 			SteinerEdge e;
 			if(!uniformWeights){
@@ -143,19 +136,20 @@ public abstract class TopKSteinertrees {
 			else e= new SteinerEdge(nodes.get(arr[2]), arr[0].intern(), nodes.get(arr[3]),Float.valueOf(arr[1]));
 				
 				
-			graph.get(nodes.get(arr[2])).add(e);
-			graph.get(nodes.get(arr[3])).add(e);
+			adjacency.get(nodes.get(arr[2])).add(e);
+			adjacency.get(nodes.get(arr[3])).add(e);
 			
 			line=br.readLine();
 			
 		}
 		System.out.println(k + " edges loaded...");
 		br.close();
+		graph = SteinerSearchGraph.fromAdjacency(adjacency);
 	}
 	
 	public void loadGraphFromFile(String filename)throws IOException{
-		graph= new HashMap<>();
-		nodes = new HashMap<>();
+		Map<SteinerNode, TreeSet<SteinerEdge>> adjacency= new HashMap<>();
+		Map<String, SteinerNode> nodes = new HashMap<>();
 		//FileReader fr = new FileReader("d:\\DBLPgraph\\IMDBSTAR.txt");
 		FileReader fr = new FileReader(filename);
 		//FileReader fr = new FileReader("d:\\DBLPgraph\\DBLPSTAR.txt");
@@ -173,25 +167,26 @@ public abstract class TopKSteinertrees {
 			if(!nodes.containsKey(
 					arr[2])){
 				nodes.put(arr[2], new SteinerNode(arr[2]));
-				graph.put(nodes.get(arr[2]), new TreeSet<SteinerEdge>());
+				adjacency.put(nodes.get(arr[2]), new TreeSet<SteinerEdge>());
 			}
 			if(nodes.get(arr[3])==null){
 				nodes.put(arr[3], new SteinerNode(arr[3]));
-				graph.put(nodes.get(arr[3]), new TreeSet<SteinerEdge>());
+				adjacency.put(nodes.get(arr[3]), new TreeSet<SteinerEdge>());
 			}
 			SteinerEdge e;
 			if(isArg1) e= new SteinerEdge(nodes.get(arr[3]), arr[0].intern(), nodes.get(arr[2]) ,Float.valueOf(arr[1])); 
 			else e= new SteinerEdge(nodes.get(arr[2]), arr[0].intern(), nodes.get(arr[3]),Float.valueOf(arr[1]));
 				
 				
-			graph.get(nodes.get(arr[2])).add(e);
-			graph.get(nodes.get(arr[3])).add(e);
+			adjacency.get(nodes.get(arr[2])).add(e);
+			adjacency.get(nodes.get(arr[3])).add(e);
 			
 			line=br.readLine();
 			
 		}
 		System.out.println(k + " edges loaded...");
 		br.close();
+		graph = SteinerSearchGraph.fromAdjacency(adjacency);
 	}
 	
 	
@@ -222,10 +217,12 @@ public abstract class TopKSteinertrees {
 	
 	/**
 	 * 
+	 * @param graph the graph to search, it is not modified by the search
 	 * @param terminals the terminal nodes for which the Steiner trees are going to be constructed
 	 * @throws Exception
 	 */
-	public TopKSteinertrees(TreeSet<SteinerNode> terminals)throws Exception {
+	public TopKSteinertrees(SteinerSearchGraph graph, TreeSet<SteinerNode> terminals)throws Exception {
+		this.graph=graph;
 		terminalNodes=terminals;
 		iterators= new ArrayList<>(terminals.size());
 		visitedNodes= new ArrayList<>();
@@ -466,4 +463,9 @@ public abstract class TopKSteinertrees {
 		return resultQueue;
 	}
 
+
+	public SteinerSearchGraph getGraph() {
+		return graph;
+	}
+
 }
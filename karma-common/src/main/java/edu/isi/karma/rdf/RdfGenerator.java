@@ -36,6 +36,7 @@ import edu.isi.karma.controller.command.CommandException;
 import edu.isi.karma.controller.command.ICommand.CommandTag;
 import edu.isi.karma.controller.history.WorksheetCommandHistoryExecutor;
 import edu.isi.karma.kr2rml.mapping.KR2RMLMapping;
+import edu.isi.karma.metrics.MetricsRegistry;
 import edu.isi.karma.rep.Worksheet;
 import edu.isi.karma.rep.Workspace;
 import edu.isi.karma.rep.WorkspaceManager;
@@ -49,9 +50,22 @@ public abstract class RdfGenerator {
 
 	private static Logger logger = LoggerFactory.getLogger(RdfGenerator.class);
 	protected String selectionName;
+	protected MetricsRegistry metrics = MetricsRegistry.DISABLED;
 	public RdfGenerator(String selectionName) {
 		this.selectionName = selectionName;
 	}
+
+	/**
+	 * Sets the registry of the timers and the counters of the generation,
+	 * they are disabled by default
+	 */
+	public void setMetrics(MetricsRegistry metrics) {
+		this.metrics = metrics == null ? MetricsRegistry.DISABLED : metrics;
+	}
+
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
 	protected Workspace initializeWorkspace(ServletContextParameterMap contextParameters) {
 		
 		Workspace workspace = WorkspaceManager.getInstance().createWorkspace(contextParameters.getId());
@@ -73,6 +87,7 @@ public abstract class RdfGenerator {
 	protected void applyHistoryToWorksheet(Workspace workspace, Worksheet worksheet,
 			KR2RMLMapping mapping) throws JSONException {
 		WorksheetCommandHistoryExecutor wchr = new WorksheetCommandHistoryExecutor(worksheet.getId(), workspace);
+		MetricsRegistry.Timer timer = metrics.start(MetricsRegistry.HISTORY);
 		try
 		{
 			List<CommandTag> tags = new ArrayList<>();
@@ -89,6 +104,10 @@ public abstract class RdfGenerator {
 		{
 			logger.error("Unable to execute column transformations", e);
 		}
+		finally
+		{
+			timer.stop();
+		}
 	}
 	
 }
@@ -23,6 +23,7 @@ package edu.isi.karma.rep;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.isi.karma.controller.command.selection.SuperSelectionManager;
 import edu.isi.karma.controller.history.CommandHistory;
@@ -41,7 +42,10 @@ public class RepFactory {
 	private final Map<String, Table> tables = new ConcurrentHashMap<>(10);
 	private final Map<String, Row> rows = new ConcurrentHashMap<>(1000);
 	private final Map<String, Node> nodes = new ConcurrentHashMap<>(10000);
-	private int id = 0;
+	private final AtomicInteger id = new AtomicInteger();
+	// next id and end of the block of the threads that take ids in blocks
+	private final ThreadLocal<int[]> idBlocks = new ThreadLocal<>();
+	public static final int ID_BLOCK_SIZE = 1024;
 	
 	public Worksheet createWorksheet(String tableName, Workspace workspace, String encoding) {
 		String id = getNewId("WS");
@@ -101,9 +105,28 @@ public class RepFactory {
 	}
 	
 	
-	// We need a thread safe version of this
 	public String getNewId(String prefix) {
-		return prefix + id++;
+		int[] block = idBlocks.get();
+		if (block == null)
+			return prefix + id.getAndIncrement();
+		if (block[0] == block[1]) {
+			block[0] = id.getAndAdd(ID_BLOCK_SIZE);
+			block[1] = block[0] + ID_BLOCK_SIZE;
+		}
+		return prefix + block[0]++;
+	}
+
+	/**
+	 * Makes the current thread take its ids in blocks of ID_BLOCK_SIZE
+	 * until {@link #endIdBlocks()}, for threads that create many rows in
+	 * parallel. The ids left in the last block are not used.
+	 */
+	public void beginIdBlocks() {
+		idBlocks.set(new int[2]);
+	}
+
+	public void endIdBlocks() {
+		idBlocks.remove();
 	}
 
 	HNode createHNode(String id, String hTableId, String columnName,
@@ -90,6 +90,26 @@ public class Table extends RepEntity {
 		return r;
 	}
 	
+	/**
+	 * Creates a table with the same headers that is not part of the
+	 * worksheet, so that rows can be built on another thread. The rows are
+	 * moved to this table with {@link #addRows(Table)}.
+	 */
+	public Table createFragment() {
+		return new Table(worksheetId, getId(), hTableId);
+	}
+
+	/**
+	 * Moves the rows of a fragment created by {@link #createFragment()} to the end of this table
+	 */
+	public void addRows(Table fragment) {
+		for (Row r : fragment.rows) {
+			rows.add(r);
+			r.setBelongsToTable(this);
+		}
+		fragment.rows.clear();
+	}
+	
 	public boolean removeRow(Row r) {
 		return rows.remove(r);
 	}
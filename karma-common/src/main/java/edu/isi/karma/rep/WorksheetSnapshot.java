@@ -0,0 +1,461 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.rep;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.isi.karma.controller.command.selection.Selection;
+import edu.isi.karma.controller.command.selection.Selection.Tag;
+import edu.isi.karma.controller.command.selection.StoredSelection;
+import edu.isi.karma.controller.command.selection.SuperSelection;
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode.HNodeType;
+import edu.isi.karma.rep.Node.NodeStatus;
+
+/**
+ * Binary snapshot of a worksheet, so that a source does not have to be parsed
+ * and the history of a model does not have to be applied again every time the
+ * model is applied to it. The snapshot is taken after the history, so it
+ * keeps the selections with the rows they select.
+ *
+ * The snapshot stores the HTable hierarchy followed by the data tables and
+ * the selections. Data is written column by column: all the values of a
+ * column in a table are written together, using a per column dictionary so
+ * repeated values are stored once. Nested tables are written recursively in
+ * the same layout. HTables and rows are referred to by the order they are
+ * written in. The whole stream is deflated.
+ *
+ * A snapshot carries a key, usually computed with {@link #computeKey}, that
+ * identifies the source data, the parameters it was imported with and the
+ * history applied to it.
+ */
+public class WorksheetSnapshot {
+
+	private static Logger logger = LoggerFactory.getLogger(WorksheetSnapshot.class);
+
+	public static final String FILE_EXTENSION = ".kws";
+
+	private static final int MAGIC = 0x4B575353; // KWSS
+	private static final int VERSION = 3;
+	private static final int NO_TYPE = -1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private WorksheetSnapshot() {
+	}
+
+	/**
+	 * Computes a digest of the source data. The stream is read fully but not
+	 * closed.
+	 */
+	public static String digest(InputStream source) throws IOException {
+		MessageDigest digest = DigestUtils.getSha1Digest();
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = source.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * Computes a digest of a local file from its path, length and time of
+	 * last modification, without reading it
+	 */
+	public static String digest(File source) {
+		return DigestUtils.shaHex(source.getAbsolutePath() + '\n' + source.length() + '\n' + source.lastModified());
+	}
+
+	/**
+	 * Computes the key identifying a source and the way it was imported.
+	 * @param importParameters all the parameters that change the worksheet,
+	 * such as the type of the source, its name, the input properties and the
+	 * history, always in the same order
+	 */
+	public static String computeKey(String sourceDigest, List<String> importParameters) {
+		StringBuilder key = new StringBuilder(sourceDigest);
+		for (String parameter : importParameters) {
+			key.append('\n').append(parameter == null ? "" : parameter);
+		}
+		return DigestUtils.shaHex(key.toString());
+	}
+
+	public static File getSnapshotFile(File directory, String key) {
+		return new File(directory, key + FILE_EXTENSION);
+	}
+
+	public static void write(Worksheet worksheet, String key, File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		try (OutputStream os = new FileOutputStream(tmp)) {
+			write(worksheet, key, os);
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to replace worksheet snapshot " + file);
+		}
+		if (!tmp.renameTo(file)) {
+			throw new IOException("Unable to create worksheet snapshot " + file);
+		}
+	}
+
+	public static void write(Worksheet worksheet, String key, OutputStream os) throws IOException {
+		DataOutputStream header = new DataOutputStream(os);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.writeUTF(key == null ? "" : key);
+		header.flush();
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		DeflaterOutputStream dos = new DeflaterOutputStream(os, deflater, 64 * 1024);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(dos, 64 * 1024));
+		writeString(out, worksheet.getTitle());
+		writeString(out, worksheet.getEncoding());
+		Map<String, Integer> hTables = new HashMap<>();
+		hTables.put(worksheet.getHeaders().getId(), 0);
+		writeHTable(out, worksheet.getHeaders(), hTables);
+		Map<Row, Integer> rows = new HashMap<>();
+		writeTable(out, worksheet.getDataTable(), worksheet.getHeaders(), rows);
+		writeSelections(out, worksheet.getSuperSelectionManager(), hTables, rows);
+		out.flush();
+		dos.finish();
+		deflater.end();
+	}
+
+	/**
+	 * @return the key stored in the snapshot, or null if the stream is not a
+	 * snapshot this version can read
+	 */
+	public static String readKey(File file) throws IOException {
+		try (InputStream is = new FileInputStream(file)) {
+			DataInputStream in = new DataInputStream(is);
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			return in.readUTF();
+		}
+	}
+
+	/**
+	 * Reads the snapshot into a new worksheet of the workspace.
+	 * @param expectedKey if not null, the key the snapshot must have
+	 * @return the worksheet or null if the snapshot does not match
+	 */
+	public static Worksheet read(File file, String expectedKey, Workspace workspace) throws IOException {
+		try (InputStream is = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+			return read(is, expectedKey, workspace);
+		}
+	}
+
+	public static Worksheet read(InputStream is, String expectedKey, Workspace workspace) throws IOException {
+		DataInputStream header = new DataInputStream(is);
+		if (header.readInt() != MAGIC) {
+			logger.info("Not a worksheet snapshot");
+			return null;
+		}
+		int version = header.readInt();
+		if (version != VERSION) {
+			logger.info("Unsupported worksheet snapshot version " + version);
+			return null;
+		}
+		String key = header.readUTF();
+		if (expectedKey != null && !expectedKey.equals(key)) {
+			logger.info("Worksheet snapshot is for a different source or history");
+			return null;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(is), 64 * 1024));
+		RepFactory factory = workspace.getFactory();
+		String title = readString(in);
+		String encoding = readString(in);
+		Worksheet worksheet = factory.createWorksheet(title, workspace, encoding);
+		Map<String, HNode> hNodesBySnapshotId = new HashMap<>();
+		Map<HNode, String> derivedFrom = new HashMap<>();
+		List<HTable> hTables = new ArrayList<>();
+		hTables.add(worksheet.getHeaders());
+		readHTable(in, worksheet.getHeaders(), worksheet, factory, hNodesBySnapshotId, derivedFrom, hTables);
+		for (Map.Entry<HNode, String> entry : derivedFrom.entrySet()) {
+			HNode original = hNodesBySnapshotId.get(entry.getValue());
+			entry.getKey().setAsDerivedFromAnotherColumn(original != null ? original.getId() : entry.getValue());
+		}
+		List<Row> rows = new ArrayList<>();
+		readTable(in, worksheet.getDataTable(), worksheet.getHeaders(), factory, rows);
+		readSelections(in, worksheet, workspace, hTables, rows);
+		return worksheet;
+	}
+
+	private static void writeHTable(DataOutputStream out, HTable hTable, Map<String, Integer> hTables) throws IOException {
+		List<HNode> hNodes = hTable.getSortedHNodes();
+		writeVarInt(out, hNodes.size());
+		for (HNode hNode : hNodes) {
+			writeString(out, hNode.getId());
+			writeString(out, hNode.getColumnName());
+			out.writeBoolean(hNode.isAutomaticallyAdded());
+			out.writeInt(hNode.getHNodeType() == null ? NO_TYPE : hNode.getHNodeType().ordinal());
+			out.writeBoolean(hNode.isDerivedFromAnotherColumn());
+			if (hNode.isDerivedFromAnotherColumn()) {
+				writeString(out, hNode.getOriginalColumnHNodeId());
+			}
+			out.writeBoolean(hNode.hasNestedTable());
+			if (hNode.hasNestedTable()) {
+				writeString(out, hNode.getNestedTable().getTableName());
+				hTables.put(hNode.getNestedTable().getId(), hTables.size());
+				writeHTable(out, hNode.getNestedTable(), hTables);
+			}
+		}
+	}
+
+	private static void readHTable(DataInputStream in, HTable hTable, Worksheet worksheet, RepFactory factory,
+			Map<String, HNode> hNodesBySnapshotId, Map<HNode, String> derivedFrom, List<HTable> hTables) throws IOException {
+		int numHNodes = readVarInt(in);
+		for (int i = 0; i < numHNodes; i++) {
+			String snapshotId = readString(in);
+			String columnName = readString(in);
+			boolean automaticallyAdded = in.readBoolean();
+			int type = in.readInt();
+			HNode hNode = hTable.addHNode(columnName, automaticallyAdded,
+					type == NO_TYPE ? HNodeType.Regular : HNodeType.values()[type], worksheet, factory);
+			hNodesBySnapshotId.put(snapshotId, hNode);
+			if (in.readBoolean()) {
+				derivedFrom.put(hNode, readString(in));
+			}
+			if (in.readBoolean()) {
+				HTable nestedTable = hNode.addNestedTable(readString(in), worksheet, factory);
+				hTables.add(nestedTable);
+				readHTable(in, nestedTable, worksheet, factory, hNodesBySnapshotId, derivedFrom, hTables);
+			}
+		}
+	}
+
+	private static void writeTable(DataOutputStream out, Table table, HTable hTable, Map<Row, Integer> allRows) throws IOException {
+		List<Row> rows = table.getRows(0, table.getNumRows(), SuperSelectionManager.DEFAULT_SELECTION);
+		writeVarInt(out, rows.size());
+		if (rows.isEmpty())
+			return;
+		for (Row row : rows) {
+			allRows.put(row, allRows.size());
+		}
+		for (HNode hNode : hTable.getSortedHNodes()) {
+			if (hNode.hasNestedTable()) {
+				for (Row row : rows) {
+					writeTable(out, row.getNode(hNode.getId()).getNestedTable(), hNode.getNestedTable(), allRows);
+				}
+			} else {
+				writeColumn(out, rows, hNode.getId());
+			}
+		}
+	}
+
+	private static void readTable(DataInputStream in, Table table, HTable hTable, RepFactory factory, List<Row> allRows) throws IOException {
+		int numRows = readVarInt(in);
+		if (numRows == 0)
+			return;
+		List<Row> rows = new ArrayList<>(numRows);
+		for (int i = 0; i < numRows; i++) {
+			rows.add(table.addRow(factory));
+		}
+		allRows.addAll(rows);
+		for (HNode hNode : hTable.getSortedHNodes()) {
+			if (hNode.hasNestedTable()) {
+				for (Row row : rows) {
+					readTable(in, row.getNode(hNode.getId()).getNestedTable(), hNode.getNestedTable(), factory, allRows);
+				}
+			} else {
+				readColumn(in, rows, hNode.getId(), factory);
+			}
+		}
+	}
+
+	/**
+	 * Each value is written as a dictionary index. An index equal to the size
+	 * of the dictionary introduces a new value, which is written inline.
+	 */
+	private static void writeColumn(DataOutputStream out, List<Row> rows, String hNodeId) throws IOException {
+		Map<String, Integer> dictionary = new HashMap<>();
+		for (Row row : rows) {
+			Node node = row.getNode(hNodeId);
+			String value = node.getValue().asString();
+			Integer index = dictionary.get(value);
+			if (index == null) {
+				writeVarInt(out, dictionary.size());
+				writeString(out, value);
+				dictionary.put(value, dictionary.size());
+			} else {
+				writeVarInt(out, index);
+			}
+		}
+		for (Row row : rows) {
+			out.writeBoolean(row.getNode(hNodeId).getStatus() == NodeStatus.edited);
+		}
+	}
+
+	private static void readColumn(DataInputStream in, List<Row> rows, String hNodeId, RepFactory factory) throws IOException {
+		List<String> dictionary = new ArrayList<>();
+		String[] values = new String[rows.size()];
+		for (int i = 0; i < values.length; i++) {
+			int index = readVarInt(in);
+			if (index == dictionary.size()) {
+				String value = readString(in);
+				dictionary.add(value == null ? "" : value);
+			}
+			values[i] = dictionary.get(index);
+		}
+		for (int i = 0; i < values.length; i++) {
+			NodeStatus status = in.readBoolean() ? NodeStatus.edited : NodeStatus.original;
+			if (!values[i].isEmpty() || status != NodeStatus.original) {
+				rows.get(i).getNode(hNodeId).setValue(values[i], status, factory);
+			}
+		}
+	}
+
+	/**
+	 * Writes the selections of the super selections other than the default
+	 * one, with the rows they select
+	 */
+	private static void writeSelections(DataOutputStream out, SuperSelectionManager manager,
+			Map<String, Integer> hTables, Map<Row, Integer> rows) throws IOException {
+		List<SuperSelection> superSelections = new ArrayList<>();
+		for (SuperSelection superSelection : manager.getAllDefinedSelection()) {
+			if (superSelection != SuperSelectionManager.DEFAULT_SELECTION)
+				superSelections.add(superSelection);
+		}
+		writeVarInt(out, superSelections.size());
+		for (SuperSelection superSelection : superSelections) {
+			writeString(out, superSelection.getName());
+			List<Selection> selections = new ArrayList<>();
+			for (Selection selection : superSelection.getAllSelection()) {
+				if (selection != null && hTables.containsKey(selection.getHTableId()))
+					selections.add(selection);
+			}
+			writeVarInt(out, selections.size());
+			for (Selection selection : selections) {
+				if (selection.getStatus() == Selection.SelectionStatus.OUT_OF_DATE)
+					selection.updateSelection();
+				writeString(out, selection.getId());
+				writeVarInt(out, hTables.get(selection.getHTableId()));
+				writeVarInt(out, selection.getTags().size());
+				for (Tag tag : selection.getTags()) {
+					writeVarInt(out, tag.ordinal());
+				}
+				List<Integer> selectedRows = new ArrayList<>();
+				for (Map.Entry<Row, Boolean> entry : selection.getCache().entrySet()) {
+					Integer index = rows.get(entry.getKey());
+					if (index != null && entry.getValue())
+						selectedRows.add(index);
+				}
+				Collections.sort(selectedRows);
+				writeVarInt(out, selectedRows.size());
+				for (Integer index : selectedRows) {
+					writeVarInt(out, index);
+				}
+			}
+		}
+	}
+
+	private static void readSelections(DataInputStream in, Worksheet worksheet, Workspace workspace,
+			List<HTable> hTables, List<Row> rows) throws IOException {
+		SuperSelectionManager manager = worksheet.getSuperSelectionManager();
+		int numSuperSelections = readVarInt(in);
+		for (int i = 0; i < numSuperSelections; i++) {
+			String name = readString(in);
+			SuperSelection superSelection = manager.hasSelection(name) ? manager.getSuperSelection(name)
+					: manager.defineSelection(name);
+			int numSelections = readVarInt(in);
+			for (int j = 0; j < numSelections; j++) {
+				String id = readString(in);
+				HTable hTable = hTables.get(readVarInt(in));
+				int numTags = readVarInt(in);
+				List<Tag> tags = new ArrayList<>(numTags);
+				for (int k = 0; k < numTags; k++) {
+					tags.add(Tag.values()[readVarInt(in)]);
+				}
+				int numSelectedRows = readVarInt(in);
+				List<Row> selectedRows = new ArrayList<>(numSelectedRows);
+				for (int k = 0; k < numSelectedRows; k++) {
+					selectedRows.add(rows.get(readVarInt(in)));
+				}
+				Selection selection = new StoredSelection(workspace, worksheet.getId(), hTable.getId(), id, name, selectedRows);
+				selection.setTags(tags);
+				superSelection.addSelection(selection);
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF8);
+		writeVarInt(out, bytes.length + 1);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = readVarInt(in);
+		if (length == 0)
+			return null;
+		byte[] bytes = new byte[length - 1];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
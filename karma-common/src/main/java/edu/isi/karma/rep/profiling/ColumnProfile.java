@@ -0,0 +1,421 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.rep.profiling;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Summary of the values of a column, computed in one pass with bounded memory:
+ * <ul>
+ * <li>the number of values of each type (integer, decimal, date, ...)</li>
+ * <li>the most frequent values and value formats (space saving counters)</li>
+ * <li>the number of distinct values (HyperLogLog estimate)</li>
+ * <li>a uniform sample of the numeric values (reservoir) for the range histogram</li>
+ * <li>the distribution of the value lengths</li>
+ * </ul>
+ * {@link #toChartData()} returns the summary in the format of the cleaning
+ * service, which the cleaning charts of the browser draw.
+ */
+public class ColumnProfile {
+
+	public enum ValueType {
+		Missing, Integer, Decimal, Boolean, DayOfWeek, Date, String
+	}
+
+	private enum ChartKeys {
+		histogram, histogram_Colwidth, xLabel, yLabel, Total_ID_Count, Valid_ID_Count,
+		Invalid_ID_Count, Preferred_Length, Distinct_Count, formats, Value, Frequency
+	}
+
+	private static final int HISTOGRAM_BARS = 10;
+	private static final int TOP_VALUES = 100;
+	private static final int TOP_FORMATS = 20;
+	private static final int RESERVOIR_SIZE = 1000;
+	private static final int MAX_LENGTH = 256;
+	private static final int HLL_BITS = 12;
+
+	private static final Pattern INTEGER = Pattern.compile("[-+]?\\d{1,3}(,\\d{3})+|[-+]?\\d+");
+	private static final Pattern DECIMAL = Pattern.compile("[-+]?(\\d{1,3}(,\\d{3})+|\\d*)\\.\\d+([eE][-+]?\\d+)?|[-+]?\\d+[eE][-+]?\\d+");
+	private static final Pattern DATE = Pattern.compile(
+			"\\d{4}-\\d{1,2}-\\d{1,2}([T ]\\d{1,2}:\\d{2}(:\\d{2}(\\.\\d+)?)?(Z|[-+]\\d{2}:?\\d{2})?)?"
+			+ "|\\d{1,2}[/.-]\\d{1,2}[/.-]\\d{2,4}"
+			+ "|(?i)(jan|feb|mar|apr|may|jun|jul|aug|sep|oct|nov|dec)[a-z]*\\.? \\d{1,2},? \\d{4}");
+	private static final Pattern DAY_OF_WEEK = Pattern.compile(
+			"(?i)(mon|tue|tues|wed|thu|thur|thurs|fri|sat|sun)(day|sday|nesday|rsday|urday)?\\.?");
+
+	private long total;
+	private final long[] typeCounts = new long[ValueType.values().length];
+
+	private final SpaceSaving topValues = new SpaceSaving(TOP_VALUES);
+	private final SpaceSaving topFormats = new SpaceSaving(TOP_FORMATS);
+
+	private final byte[] registers = new byte[1 << HLL_BITS];
+
+	private final double[] reservoir = new double[RESERVOIR_SIZE];
+	private long numericCount;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private final Random random = new Random(0);
+
+	private final long[] lengths = new long[MAX_LENGTH + 1];
+
+	/**
+	 * @param value a cell value, null or empty if the cell is missing
+	 */
+	public void add(String value) {
+		total++;
+		if (value == null || value.trim().isEmpty()) {
+			typeCounts[ValueType.Missing.ordinal()]++;
+			return;
+		}
+		String trimmed = value.trim();
+		ValueType type = detectType(trimmed);
+		typeCounts[type.ordinal()]++;
+
+		topValues.add(trimmed);
+		topFormats.add(format(trimmed));
+		addToRegisters(trimmed);
+		lengths[Math.min(value.length(), MAX_LENGTH)]++;
+
+		if (type == ValueType.Integer || type == ValueType.Decimal)
+			addNumber(Double.parseDouble(trimmed.replace(",", "")));
+	}
+
+	public static ValueType detectType(String value) {
+		if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false"))
+			return ValueType.Boolean;
+		char c = value.charAt(0);
+		if (Character.isDigit(c) || c == '-' || c == '+' || c == '.') {
+			if (INTEGER.matcher(value).matches())
+				return ValueType.Integer;
+			if (DECIMAL.matcher(value).matches())
+				return ValueType.Decimal;
+		}
+		if (DATE.matcher(value).matches())
+			return ValueType.Date;
+		if (value.length() <= 10 && DAY_OF_WEEK.matcher(value).matches())
+			return ValueType.DayOfWeek;
+		return ValueType.String;
+	}
+
+	/**
+	 * @return the shape of the value: upper case letters become A, lower case letters a,
+	 * digits 9, and runs of the same class are collapsed
+	 */
+	public static String format(String value) {
+		StringBuilder sb = new StringBuilder();
+		char last = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			char f;
+			if (Character.isDigit(c)) f = '9';
+			else if (Character.isUpperCase(c)) f = 'A';
+			else if (Character.isLetter(c)) f = 'a';
+			else if (Character.isWhitespace(c)) f = ' ';
+			else f = c;
+			if (f != last || !(f == '9' || f == 'A' || f == 'a' || f == ' '))
+				sb.append(f);
+			last = f;
+		}
+		return sb.toString();
+	}
+
+	private void addNumber(double d) {
+		if (d < min) min = d;
+		if (d > max) max = d;
+		if (numericCount < RESERVOIR_SIZE) {
+			reservoir[(int) numericCount] = d;
+		} else {
+			long r = (long) (random.nextDouble() * (numericCount + 1));
+			if (r < RESERVOIR_SIZE)
+				reservoir[(int) r] = d;
+		}
+		numericCount++;
+	}
+
+	private void addToRegisters(String value) {
+		long h = hash(value);
+		int index = (int) (h >>> (64 - HLL_BITS));
+		long rest = h << HLL_BITS;
+		int rank = rest == 0 ? 64 - HLL_BITS + 1 : Long.numberOfLeadingZeros(rest) + 1;
+		if (rank > registers[index])
+			registers[index] = (byte) rank;
+	}
+
+	/* FNV-1a followed by the murmur3 finalizer */
+	private static long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	public long getTotalCount() {
+		return total;
+	}
+
+	public long getCount(ValueType type) {
+		return typeCounts[type.ordinal()];
+	}
+
+	public long getMissingCount() {
+		return getCount(ValueType.Missing);
+	}
+
+	/**
+	 * @return the type of most of the non missing values, integers and decimals
+	 * count as decimals when the column has both
+	 */
+	public ValueType getType() {
+		long integers = getCount(ValueType.Integer);
+		long decimals = getCount(ValueType.Decimal);
+		ValueType best = ValueType.String;
+		long bestCount = 0;
+		for (ValueType t : ValueType.values()) {
+			if (t == ValueType.Missing) continue;
+			long count = typeCounts[t.ordinal()];
+			if (t == ValueType.Decimal || t == ValueType.Integer)
+				count = integers + decimals;
+			if (count > bestCount) {
+				best = t;
+				bestCount = count;
+			}
+		}
+		if (best == ValueType.Integer && decimals > 0)
+			best = ValueType.Decimal;
+		return best;
+	}
+
+	/**
+	 * @return number of non missing values of the type of the column
+	 */
+	public long getValidCount() {
+		ValueType type = getType();
+		if (type == ValueType.Decimal || type == ValueType.Integer)
+			return getCount(ValueType.Integer) + getCount(ValueType.Decimal);
+		if (type == ValueType.String)
+			return total - getMissingCount();
+		return getCount(type);
+	}
+
+	public long getInvalidCount() {
+		return total - getMissingCount() - getValidCount();
+	}
+
+	/**
+	 * @return HyperLogLog estimate of the number of distinct non missing values
+	 */
+	public long getDistinctCount() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte r : registers) {
+			sum += 1.0 / (1L << r);
+			if (r == 0) zeros++;
+		}
+		double alpha = 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0)
+			estimate = m * Math.log((double) m / zeros);
+		return Math.round(estimate);
+	}
+
+	/**
+	 * @return the length that 90% of the values do not exceed
+	 */
+	public int getPreferredLength() {
+		long count = total - getMissingCount();
+		if (count == 0)
+			return -1;
+		long seen = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			seen += lengths[i];
+			if (seen >= 0.9 * count)
+				return i;
+		}
+		return MAX_LENGTH;
+	}
+
+	/**
+	 * @return the most frequent values with their counts, the counts are
+	 * exact unless the column has more than {@value #TOP_VALUES} distinct values
+	 */
+	public List<Map.Entry<String, Long>> getTopValues(int k) {
+		return topValues.top(k);
+	}
+
+	public List<Map.Entry<String, Long>> getTopFormats(int k) {
+		return topFormats.top(k);
+	}
+
+	/**
+	 * @return the profile in the format of the cleaning service
+	 */
+	public JSONObject toChartData() throws JSONException {
+		ValueType type = getType();
+		JSONArray histogram = new JSONArray();
+		if (type == ValueType.Integer || type == ValueType.Decimal) {
+			addRangeBars(histogram);
+		} else {
+			// the invalid values are counted in their own bar
+			long shown = 0;
+			int bars = 0;
+			for (Map.Entry<String, Long> e : getTopValues(TOP_VALUES)) {
+				if (bars == HISTOGRAM_BARS - 1)
+					break;
+				if (type != ValueType.String && detectType(e.getKey()) != type)
+					continue;
+				histogram.put(bar(e.getKey(), e.getValue()));
+				shown += e.getValue();
+				bars++;
+			}
+			long remaining = getValidCount() - shown;
+			if (remaining > 0)
+				histogram.put(bar("Remaining", remaining));
+		}
+		// cleaning-charts.js looks for Missing then Invalid at the end
+		if (getMissingCount() > 0)
+			histogram.put(bar("Missing", getMissingCount()));
+		if (type != ValueType.String && getInvalidCount() > 0)
+			histogram.put(bar("Invalid", getInvalidCount()));
+
+		JSONObject chart = new JSONObject();
+		chart.put(ChartKeys.histogram.name(), histogram.toString());
+		chart.put(ChartKeys.xLabel.name(), type.name());
+		chart.put(ChartKeys.yLabel.name(), ChartKeys.Frequency.name());
+		chart.put(ChartKeys.Total_ID_Count.name(), total);
+		chart.put(ChartKeys.Valid_ID_Count.name(), getValidCount());
+		chart.put(ChartKeys.Invalid_ID_Count.name(), getInvalidCount());
+		chart.put(ChartKeys.Preferred_Length.name(), getPreferredLength());
+		chart.put(ChartKeys.Distinct_Count.name(), getDistinctCount());
+		JSONArray formats = new JSONArray();
+		for (Map.Entry<String, Long> e : getTopFormats(5))
+			formats.put(bar(e.getKey(), e.getValue()));
+		chart.put(ChartKeys.formats.name(), formats);
+		if ((type == ValueType.Integer || type == ValueType.Decimal) && max > min)
+			chart.put(ChartKeys.histogram_Colwidth.name(), formatNumber((max - min) / HISTOGRAM_BARS));
+		return chart;
+	}
+
+	private void addRangeBars(JSONArray histogram) throws JSONException {
+		if (numericCount == 0)
+			return;
+		if (max == min) {
+			histogram.put(bar(formatNumber(min), numericCount));
+			return;
+		}
+		int sampleSize = (int) Math.min(numericCount, RESERVOIR_SIZE);
+		long[] counts = new long[HISTOGRAM_BARS];
+		double width = (max - min) / HISTOGRAM_BARS;
+		for (int i = 0; i < sampleSize; i++) {
+			int bar = (int) ((reservoir[i] - min) / width);
+			counts[Math.min(bar, HISTOGRAM_BARS - 1)]++;
+		}
+		double scale = (double) numericCount / sampleSize;
+		for (int i = 0; i < HISTOGRAM_BARS; i++) {
+			histogram.put(bar(formatNumber(min + i * width), Math.round(counts[i] * scale)));
+		}
+	}
+
+	private static String formatNumber(double d) {
+		if (d == Math.rint(d) && Math.abs(d) < 1e15)
+			return Long.toString((long) d);
+		return String.format("%.4g", d);
+	}
+
+	private static JSONObject bar(String value, long frequency) throws JSONException {
+		JSONObject obj = new JSONObject();
+		obj.put(ChartKeys.Value.name(), value);
+		obj.put(ChartKeys.Frequency.name(), frequency);
+		return obj;
+	}
+
+	/**
+	 * Space saving counters (Metwally et al.): the k most frequent items of a
+	 * stream with k counters. When a new item arrives and all counters are used,
+	 * the smallest counter is given to the new item.
+	 */
+	private static class SpaceSaving {
+		private final int capacity;
+		private final Map<String, long[]> counters;
+
+		SpaceSaving(int capacity) {
+			this.capacity = capacity;
+			this.counters = new HashMap<>(capacity * 2);
+		}
+
+		void add(String item) {
+			long[] counter = counters.get(item);
+			if (counter != null) {
+				counter[0]++;
+				return;
+			}
+			if (counters.size() < capacity) {
+				counters.put(item, new long[] {1});
+				return;
+			}
+			String minItem = null;
+			long minCount = Long.MAX_VALUE;
+			for (Map.Entry<String, long[]> e : counters.entrySet()) {
+				if (e.getValue()[0] < minCount) {
+					minCount = e.getValue()[0];
+					minItem = e.getKey();
+				}
+			}
+			counter = counters.remove(minItem);
+			counter[0]++;
+			counters.put(item, counter);
+		}
+
+		List<Map.Entry<String, Long>> top(int k) {
+			List<Map.Entry<String, Long>> list = new ArrayList<>(counters.size());
+			for (Map.Entry<String, long[]> e : counters.entrySet())
+				list.add(new AbstractMap.SimpleEntry<>(e.getKey(), e.getValue()[0]));
+			Collections.sort(list, new Comparator<Map.Entry<String, Long>>() {
+				@Override
+				public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+					int c = Long.compare(e2.getValue(), e1.getValue());
+					return c != 0 ? c : e1.getKey().compareTo(e2.getKey());
+				}
+			});
+			return list.size() > k ? new ArrayList<>(list.subList(0, k)) : list;
+		}
+	}
+}
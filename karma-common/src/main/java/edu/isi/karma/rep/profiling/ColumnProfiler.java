@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.rep.profiling;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.isi.karma.controller.command.selection.SuperSelection;
+import edu.isi.karma.rep.HNodePath;
+import edu.isi.karma.rep.Node;
+import edu.isi.karma.rep.Worksheet;
+
+/**
+ * Computes the {@link ColumnProfile} of several columns of a worksheet in
+ * parallel, one task per column. The worksheet is only read, the caller must
+ * make sure it is not changed while the columns are profiled.
+ */
+public class ColumnProfiler {
+
+	private static Logger logger = LoggerFactory.getLogger(ColumnProfiler.class);
+
+	private static final ExecutorService pool = createPool();
+
+	private static ExecutorService createPool() {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "karma-profiler-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	private ColumnProfiler() {
+	}
+
+	/**
+	 * @return the profile of each column, by leaf hNodeId, in the order of the paths.
+	 * Columns that could not be profiled are left out.
+	 */
+	public static Map<String, ColumnProfile> profile(final Worksheet worksheet, List<HNodePath> paths,
+			final SuperSelection selection) {
+		Map<String, ColumnProfile> profiles = new LinkedHashMap<>();
+		if (paths.size() == 1) {
+			profiles.put(paths.get(0).getLeaf().getId(), profile(worksheet, paths.get(0), selection));
+			return profiles;
+		}
+
+		List<Future<ColumnProfile>> futures = new ArrayList<>(paths.size());
+		for (final HNodePath path : paths) {
+			futures.add(pool.submit(new Callable<ColumnProfile>() {
+				@Override
+				public ColumnProfile call() {
+					return profile(worksheet, path, selection);
+				}
+			}));
+		}
+		for (int i = 0; i < paths.size(); i++) {
+			String hNodeId = paths.get(i).getLeaf().getId();
+			try {
+				profiles.put(hNodeId, futures.get(i).get());
+			} catch (ExecutionException e) {
+				logger.error("Error while profiling column " + paths.get(i).toColumnNamePath(), e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<ColumnProfile> f : futures)
+					f.cancel(true);
+				break;
+			}
+		}
+		return profiles;
+	}
+
+	public static ColumnProfile profile(Worksheet worksheet, HNodePath path, SuperSelection selection) {
+		List<Node> nodes = new ArrayList<>(Math.max(1000, worksheet.getDataTable().getNumRows()));
+		worksheet.getDataTable().collectNodes(path, nodes, selection);
+		ColumnProfile profile = new ColumnProfile();
+		for (Node node : nodes)
+			profile.add(node.getValue() == null ? null : node.getValue().asString());
+		return profile;
+	}
+}
@@ -5,9 +5,17 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
@@ -19,6 +27,20 @@ public class EncodingDetector {
     
 	private static Logger logger = LoggerFactory.getLogger(EncodingDetector.class);
     public final static String DEFAULT_ENCODING = StandardCharsets.UTF_8.name();
+    public final static int DEFAULT_PREFIX_SIZE = 64 * 1024;
+    public final static int DEFAULT_NUM_SAMPLES = 8;
+    public final static int SAMPLE_SIZE = 4096;
+    private final static int MAX_CACHED_FILES = 256;
+
+    private static final Map<String, String> detectedEncodings = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_CACHED_FILES;
+                }
+            });
 
     private EncodingDetector() {
     }
@@ -52,24 +74,191 @@ public class EncodingDetector {
         return encoding;
     }
     
+    /**
+     * Detects the encoding of a file from its first {@link #DEFAULT_PREFIX_SIZE}
+     * bytes and {@link #DEFAULT_NUM_SAMPLES} samples of the rest of the file.
+     */
     public static String detect(File file) {
         try {
-	        FileInputStream fis = new FileInputStream(file);
-	        
-	        String encoding = EncodingDetector.detect(fis);
-	        
-	        logger.debug("Detected encoding for file: " + file.getName() + ": " + encoding);
-	        if (encoding == null) {
-	            encoding = DEFAULT_ENCODING;
-	        }
-			encoding = validateEncoding(encoding);	
-	        return encoding;
+            return detect(file, DEFAULT_PREFIX_SIZE, DEFAULT_NUM_SAMPLES).getEncoding();
         } catch(Exception e) {
         	logger.debug("Exception detecting encoding, using default: " + DEFAULT_ENCODING);
         }
         return DEFAULT_ENCODING;
     }
 
+    /**
+     * Detects the encoding of a file without reading all of it: the prefix and
+     * samples taken at random offsets of the rest of the file are checked. If
+     * they are valid UTF-8, the encoding is UTF-8, otherwise UniversalDetector
+     * is given the bytes read.
+     *
+     * The results are cached by path, length, modification time and parameters.
+     * @param prefixSize number of bytes read at the start of the file
+     * @param numSamples number of samples of {@link #SAMPLE_SIZE} bytes read after the prefix
+     */
+    public static Detection detect(File file, int prefixSize, int numSamples) throws IOException {
+        String key = file.getCanonicalPath() + ":" + file.length() + ":" + file.lastModified()
+                + ":" + prefixSize + ":" + numSamples;
+        String encoding = detectedEncodings.get(key);
+        if (encoding != null) {
+            return new Detection(encoding, 0);
+        }
+
+        List<byte[]> chunks = new ArrayList<>();
+        long bytesRead = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length <= prefixSize + (long) numSamples * SAMPLE_SIZE) {
+                prefixSize = (int) length;
+                numSamples = 0;
+            }
+            chunks.add(read(raf, 0, prefixSize));
+            bytesRead += prefixSize;
+            Random random = new Random(length);
+            long range = length - prefixSize - SAMPLE_SIZE;
+            for (int i = 0; i < numSamples; i++) {
+                // one sample in each of numSamples equal parts of the rest of the file
+                long offset = prefixSize + range * i / numSamples + (long) (random.nextDouble() * range / numSamples);
+                chunks.add(read(raf, offset, SAMPLE_SIZE));
+                bytesRead += SAMPLE_SIZE;
+            }
+        }
+        encoding = validateEncoding(detect(chunks));
+        logger.debug("Detected encoding for file: " + file.getName() + ": " + encoding + " from " + bytesRead + " bytes");
+        detectedEncodings.put(key, encoding);
+        return new Detection(encoding, bytesRead);
+    }
+
+    /**
+     * Detects the encoding from the first bytes of a stream
+     * @param maxBytes maximum number of bytes read
+     */
+    public static String detect(InputStream is, int maxBytes) throws IOException {
+        byte[] prefix = new byte[maxBytes];
+        int n = IOUtils.read(is, prefix);
+        List<byte[]> chunks = new ArrayList<>();
+        chunks.add(n == maxBytes ? prefix : Arrays.copyOf(prefix, n));
+        String encoding = validateEncoding(detect(chunks));
+        logger.debug("Detected encoding = " + encoding + " from " + n + " bytes");
+        return encoding;
+    }
+
+    private static byte[] read(RandomAccessFile raf, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        raf.seek(offset);
+        raf.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param chunks the prefix of the file followed by samples, which may start or end inside a character
+     */
+    private static String detect(List<byte[]> chunks) {
+        byte[] prefix = chunks.get(0);
+        if (prefix.length >= 3 && prefix[0] == (byte) 0xEF && prefix[1] == (byte) 0xBB && prefix[2] == (byte) 0xBF) {
+            return StandardCharsets.UTF_8.name();
+        }
+        boolean utf16Bom = prefix.length >= 2 && ((prefix[0] == (byte) 0xFE && prefix[1] == (byte) 0xFF)
+                || (prefix[0] == (byte) 0xFF && prefix[1] == (byte) 0xFE));
+        if (!utf16Bom) {
+            boolean valid = true;
+            for (int i = 0; i < chunks.size() && valid; i++) {
+                valid = isValidUTF8(chunks.get(i), i > 0);
+            }
+            if (valid) {
+                return StandardCharsets.UTF_8.name();
+            }
+        }
+        UniversalDetector detector = new UniversalDetector(null);
+        for (byte[] chunk : chunks) {
+            if (detector.isDone()) {
+                break;
+            }
+            detector.handleData(chunk, 0, chunk.length);
+        }
+        detector.dataEnd();
+        String encoding = detector.getDetectedCharset();
+        if (encoding == null) {
+            // not UTF-8, every byte is a character in ISO-8859-1
+            encoding = StandardCharsets.ISO_8859_1.name();
+        }
+        return encoding;
+    }
+
+    /**
+     * Checks the structure of the UTF-8 sequences, a sequence that is cut at
+     * the end of the bytes is valid.
+     * @param sample true if the bytes can start inside a sequence
+     */
+    static boolean isValidUTF8(byte[] bytes, boolean sample) {
+        int i = 0;
+        if (sample) {
+            while (i < bytes.length && i < 3 && (bytes[i] & 0xC0) == 0x80) {
+                i++;
+            }
+        }
+        while (i < bytes.length) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+            int length;
+            int min;
+            if (b >= 0xC2 && b <= 0xDF) {
+                length = 2;
+                min = 0x80;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                length = 3;
+                min = 0x800;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                length = 4;
+                min = 0x10000;
+            } else {
+                return false;
+            }
+            int codePoint = b & (0xFF >> (length + 1));
+            for (int j = 1; j < length; j++) {
+                if (i + j >= bytes.length) {
+                    return true;
+                }
+                int c = bytes[i + j] & 0xFF;
+                if ((c & 0xC0) != 0x80) {
+                    return false;
+                }
+                codePoint = (codePoint << 6) | (c & 0x3F);
+            }
+            if (codePoint < min || codePoint > 0x10FFFF || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+                return false;
+            }
+            i += length;
+        }
+        return true;
+    }
+
+    /**
+     * The encoding detected for a file and the number of bytes read to detect
+     * it, which is 0 when the encoding was cached.
+     */
+    public static class Detection {
+        private final String encoding;
+        private final long bytesRead;
+
+        Detection(String encoding, long bytesRead) {
+            this.encoding = encoding;
+            this.bytesRead = bytesRead;
+        }
+
+        public String getEncoding() {
+            return encoding;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+    }
+
     public static InputStreamReader getInputStreamReader(InputStream is, String encoding) throws IOException {
         
         logger.debug("Reading stream: using encoding: " + encoding);
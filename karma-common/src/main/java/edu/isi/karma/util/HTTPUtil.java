@@ -33,12 +33,15 @@ import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
 import org.json.JSONObject;
 import org.json.XML;
@@ -77,6 +80,27 @@ public class HTTPUtil {
 		return executeHTTPPostRequest(serviceURL, contentType, acceptContentType, new UrlEncodedFormEntity(formParams, "UTF-8"));
 	}
 	
+	/**
+	 * Posts the form parameters and passes the response to the handler, so
+	 * the response can be read as a stream
+	 */
+	public static <T> T executeHTTPPostRequest(String serviceURL, String acceptContentType,
+			Map<String, String> formParameters, ResponseHandler<? extends T> handler)
+					throws ClientProtocolException, IOException {
+		List<NameValuePair> formParams = new ArrayList<>();
+		for (Map.Entry<String, String> stringStringEntry : formParameters.entrySet()) {
+			formParams.add(new BasicNameValuePair(stringStringEntry.getKey(), stringStringEntry.getValue()));
+		}
+		HttpPost httpPost = new HttpPost(serviceURL);
+		httpPost.setEntity(new UrlEncodedFormEntity(formParams, "UTF-8"));
+		if (acceptContentType != null && !acceptContentType.isEmpty()) {
+			httpPost.setHeader(HTTP_HEADERS.Accept.name(), acceptContentType);
+		}
+		try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+			return httpClient.execute(httpPost, handler);
+		}
+	}
+	
 	public static String executeHTTPPostRequest(String serviceURL, String contentType, 
 			String acceptContentType, String rawPostBodyData) 
 					throws ClientProtocolException, IOException {
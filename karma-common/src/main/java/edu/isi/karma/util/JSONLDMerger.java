@@ -0,0 +1,233 @@
+package edu.isi.karma.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Merges the JSON-LD fragments of a subject like {@link JSONLDUtilSimple},
+ * in time linear in the size of the fragments. Each fragment is parsed once
+ * and added to a mutable accumulator where the values of a property are
+ * keyed by their uri, @id or value, so a value is found without scanning the
+ * property. The merged object is only built by {@link #toJSONObject()}.
+ *
+ * A property only seen in one fragment is kept as it is. The values of a
+ * merged property are sorted with {@link JSONLDReducerComparatorSimple}, and
+ * the provenance properties are merged as by JSONLDUtilSimple.
+ */
+public class JSONLDMerger implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private static final JSONLDReducerComparatorSimple comparator = new JSONLDReducerComparatorSimple();
+
+	private final Map<String, String> provenanceProperties;
+	private final MergedObject accumulator = new MergedObject();
+
+	public JSONLDMerger() {
+		this(new HashMap<String, String>());
+	}
+
+	/**
+	 * @param provenanceProperties the type, "string" or "date", of each provenance property
+	 */
+	public JSONLDMerger(Map<String, String> provenanceProperties) {
+		this.provenanceProperties = provenanceProperties;
+	}
+
+	public void add(String json) throws ParseException {
+		add((JSONObject) new JSONParser().parse(json));
+	}
+
+	/**
+	 * Adds a fragment. The fragment is not modified, but its values are
+	 * shared with the merged object.
+	 */
+	public void add(JSONObject object) {
+		accumulator.merge(object, provenanceProperties);
+	}
+
+	/**
+	 * Adds the fragments of another merger
+	 */
+	public void addAll(JSONLDMerger other) {
+		add(other.toJSONObject());
+	}
+
+	public boolean isEmpty() {
+		return accumulator.properties.isEmpty();
+	}
+
+	public JSONObject toJSONObject() {
+		return accumulator.toJSONObject();
+	}
+
+	private static String getIdentity(Object value) {
+		if (value instanceof JSONObject) {
+			JSONObject object = (JSONObject) value;
+			if (object.containsKey("uri"))
+				return object.get("uri").toString().toLowerCase();
+			if (object.containsKey("@id"))
+				return object.get("@id").toString().toLowerCase();
+			return object.toString().toLowerCase();
+		}
+		if (value instanceof MergedObject)
+			return ((MergedObject) value).identity;
+		return String.valueOf(value).toLowerCase();
+	}
+
+	/**
+	 * An object with the values of each of its properties
+	 */
+	private static class MergedObject implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Map<String, PropertyValues> properties = new LinkedHashMap<>();
+		private String identity;
+
+		/**
+		 * @return true if the fragment adds a string to the object
+		 */
+		private boolean merge(JSONObject right, Map<String, String> provenanceProperties) {
+			boolean rightAdded = false;
+			List<String> names = new ArrayList<>();
+			for (Object name : right.keySet())
+				names.add((String) name);
+			//Move provenance properties to the end of the list
+			for (String provProp : provenanceProperties.keySet()) {
+				if (names.remove(provProp))
+					names.add(provProp);
+			}
+			for (String name : names) {
+				Object rightObject = right.get(name);
+				PropertyValues values = properties.get(name);
+				if (values == null) {
+					properties.put(name, new PropertyValues(rightObject));
+					if (rightObject instanceof String)
+						rightAdded = true;
+					continue;
+				}
+				String provType = provenanceProperties.get(name);
+				if (provType != null && !rightAdded) {
+					//A provenance property is only added with new information, except the dates that keep their min and max
+					if (!provType.equals("date"))
+						continue;
+					values.addAll(rightObject, provenanceProperties);
+					values.keepMinAndMax();
+				} else {
+					rightAdded |= values.addAll(rightObject, provenanceProperties);
+				}
+			}
+			return rightAdded;
+		}
+
+		private JSONObject toJSONObject() {
+			JSONObject object = new JSONObject();
+			for (Entry<String, PropertyValues> entry : properties.entrySet())
+				object.put(entry.getKey(), entry.getValue().toJSON(entry.getKey()));
+			return object;
+		}
+	}
+
+	/**
+	 * The values of a property. The value of a property seen once is kept
+	 * until another value is added.
+	 */
+	private static class PropertyValues implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Object original;
+		private LinkedHashMap<String, Object> values;
+
+		PropertyValues(Object original) {
+			this.original = original;
+		}
+
+		/**
+		 * @return true if a string that was not a value is added
+		 */
+		private boolean addAll(Object rightObject, Map<String, String> provenanceProperties) {
+			if (values == null) {
+				values = new LinkedHashMap<>();
+				addAll(original, provenanceProperties);
+				original = null;
+			}
+			boolean rightAdded = false;
+			if (rightObject instanceof JSONArray) {
+				for (Object value : (JSONArray) rightObject)
+					rightAdded |= add(value, provenanceProperties);
+			} else {
+				rightAdded = add(rightObject, provenanceProperties);
+			}
+			return rightAdded;
+		}
+
+		private boolean add(Object value, Map<String, String> provenanceProperties) {
+			String identity = getIdentity(value);
+			Object existing = values.get(identity);
+			if (existing == null) {
+				values.put(identity, value);
+				return value instanceof String;
+			}
+			if (value instanceof JSONObject) {
+				if (existing instanceof String) {
+					values.put(identity, value);
+				} else {
+					MergedObject merged;
+					if (existing instanceof MergedObject) {
+						merged = (MergedObject) existing;
+					} else {
+						merged = new MergedObject();
+						merged.identity = identity;
+						if (existing instanceof JSONObject)
+							merged.merge((JSONObject) existing, provenanceProperties);
+						values.put(identity, merged);
+					}
+					merged.merge((JSONObject) value, provenanceProperties);
+				}
+			}
+			return false;
+		}
+
+		private void keepMinAndMax() {
+			Object min = null, max = null;
+			for (Object value : values.values()) {
+				String s = value.toString();
+				if (min == null || s.compareTo(min.toString()) < 0)
+					min = value;
+				if (max == null || s.compareTo(max.toString()) > 0)
+					max = value;
+			}
+			values.clear();
+			if (min != null) {
+				values.put(getIdentity(min), min);
+				values.put(getIdentity(max), max);
+			}
+		}
+
+		private Object toJSON(String name) {
+			if (values == null)
+				return original;
+			List<Object> sorted = new ArrayList<>(values.size());
+			for (Object value : values.values())
+				sorted.add(value instanceof MergedObject ? ((MergedObject) value).toJSONObject() : value);
+			if (sorted.size() == 1 && !name.equals("a"))
+				return sorted.get(0);
+			Collections.sort(sorted, comparator);
+			JSONArray array = new JSONArray();
+			array.addAll(sorted);
+			return array;
+		}
+	}
+}
@@ -34,18 +34,12 @@ public class JSONLDUtilSimple {
 
 	public static JSONObject mergeJSONObjects(Iterator<String> iterator, Map<String, String> provenanceProperties) throws ParseException {
 
-		JSONParser parser = new JSONParser(); 
-		JSONObject accumulatorObject = new JSONObject();
-		
+		JSONLDMerger merger = new JSONLDMerger(provenanceProperties);
 		while(iterator.hasNext())
 		{
-
-			String value = iterator.next();
-			JSONObject object = (JSONObject)parser.parse(value);
-			accumulatorObject = mergeJSONObjects(accumulatorObject, object, provenanceProperties);
+			merger.add(iterator.next());
 		}
-		
-		return accumulatorObject;
+		return merger.toJSONObject();
 	}
 
 	public static JSONObject mergeJSONObjects(JSONObject left, JSONObject right, Map<String, String> provenanceProperties)
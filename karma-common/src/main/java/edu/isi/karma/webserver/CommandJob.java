@@ -0,0 +1,202 @@
+package edu.isi.karma.webserver;
+
+import java.util.UUID;
+
+import org.json.JSONObject;
+
+import edu.isi.karma.controller.command.Command;
+import edu.isi.karma.controller.update.UpdateContainer;
+import edu.isi.karma.kr2rml.RDFGenerationProgressListener;
+
+/**
+ * A command submitted for asynchronous execution. The browser polls the job
+ * for its status and progress, and gets the updates of the command once it
+ * is finished.
+ *
+ * Long running commands can report progress through
+ * {@link #reportProgress(double, String)} and should check
+ * {@link #isCancelRequested()} between steps. These are no-ops when the
+ * command runs synchronously. The job of the current thread is also the
+ * progress listener of the RDF generation of the command.
+ */
+public class CommandJob implements RDFGenerationProgressListener {
+
+	public enum Status {
+		queued, running, done, failed, cancelled
+	}
+
+	public enum JsonKeys {
+		jobId, commandId, commandName, worksheetId, status, progress, message
+	}
+
+	private static final ThreadLocal<CommandJob> currentJob = new ThreadLocal<>();
+
+	private final String id = UUID.randomUUID().toString();
+	private final Command command;
+	private final String workspaceId;
+	private final String worksheetId;
+	private volatile Status status = Status.queued;
+	private volatile double progress = 0;
+	private volatile String message;
+	private volatile boolean cancelRequested = false;
+	private volatile Thread thread;
+	private UpdateContainer result = new UpdateContainer();
+	private volatile long finishedTime;
+
+	CommandJob(Command command, String workspaceId, String worksheetId) {
+		this.command = command;
+		this.workspaceId = workspaceId;
+		this.worksheetId = worksheetId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Command getCommand() {
+		return command;
+	}
+
+	public String getWorkspaceId() {
+		return workspaceId;
+	}
+
+	public String getWorksheetId() {
+		return worksheetId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public double getProgress() {
+		return progress;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public boolean isFinished() {
+		return status == Status.done || status == Status.failed || status == Status.cancelled;
+	}
+
+	long getFinishedTime() {
+		return finishedTime;
+	}
+
+	/**
+	 * Requests cancellation. A queued job never runs; a running job is
+	 * interrupted and is expected to stop at its next check.
+	 */
+	public synchronized void cancel() {
+		if (isFinished())
+			return;
+		cancelRequested = true;
+		if (status == Status.queued) {
+			finish(Status.cancelled, "Cancelled before it started");
+		} else if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelRequested;
+	}
+
+	@Override
+	public void rowsGenerated(int rows, int totalRows) {
+		progress = totalRows == 0 ? 1 : Math.min(1, (double) rows / totalRows);
+		message = "Generated RDF for " + rows + " of " + totalRows + " rows";
+	}
+
+	/**
+	 * @return the updates of the command once it is finished, they are only
+	 * returned once
+	 */
+	public synchronized UpdateContainer takeUpdates() {
+		UpdateContainer updates = result;
+		result = new UpdateContainer();
+		return updates;
+	}
+
+	public JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		json.put(JsonKeys.jobId.name(), id);
+		json.put(JsonKeys.commandId.name(), command.getId());
+		json.put(JsonKeys.commandName.name(), command.getCommandName());
+		if (worksheetId != null)
+			json.put(JsonKeys.worksheetId.name(), worksheetId);
+		json.put(JsonKeys.status.name(), status.name());
+		json.put(JsonKeys.progress.name(), progress);
+		if (message != null)
+			json.put(JsonKeys.message.name(), message);
+		return json;
+	}
+
+	synchronized boolean start() {
+		if (status != Status.queued)
+			return false;
+		status = Status.running;
+		thread = Thread.currentThread();
+		currentJob.set(this);
+		return true;
+	}
+
+	synchronized void complete(UpdateContainer result) {
+		currentJob.remove();
+		thread = null;
+		// clear an interrupt that arrived after the command stopped checking
+		Thread.interrupted();
+		if (result != null)
+			this.result.append(result);
+		if (cancelRequested)
+			finish(Status.cancelled, "Cancelled");
+		else
+			finish(Status.done, null);
+		progress = 1;
+	}
+
+	synchronized void fail(String message) {
+		currentJob.remove();
+		thread = null;
+		Thread.interrupted();
+		finish(Status.failed, message);
+	}
+
+	private void finish(Status status, String message) {
+		this.status = status;
+		if (message != null)
+			this.message = message;
+		finishedTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the job the current thread is executing, or null if the command
+	 * runs synchronously
+	 */
+	public static CommandJob getCurrentJob() {
+		return currentJob.get();
+	}
+
+	/**
+	 * Reports the progress of the command running on the current thread.
+	 * @param progress fraction of the work done, between 0 and 1
+	 */
+	public static void reportProgress(double progress, String message) {
+		CommandJob job = currentJob.get();
+		if (job != null) {
+			job.progress = Math.max(0, Math.min(1, progress));
+			job.message = message;
+		}
+	}
+
+	/**
+	 * @return true if the command running on the current thread should stop
+	 */
+	public static boolean isCancelRequested() {
+		CommandJob job = currentJob.get();
+		return job != null && job.cancelRequested;
+	}
+}
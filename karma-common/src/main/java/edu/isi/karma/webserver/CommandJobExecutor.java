@@ -0,0 +1,146 @@
+package edu.isi.karma.webserver;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs asynchronous command jobs on a bounded thread pool shared by all the
+ * workspaces. Jobs with the same lane key (a worksheet, or a workspace for
+ * commands that are not tied to a worksheet) run one at a time in the order
+ * they were submitted; jobs in different lanes run in parallel.
+ *
+ * Commands mostly wait on services and triple stores, so the pool has at
+ * least four threads. The size can be set with the karma.command.threads
+ * system property.
+ */
+public class CommandJobExecutor {
+
+	private static Logger logger = LoggerFactory.getLogger(CommandJobExecutor.class);
+
+	private static final int MAX_QUEUED_LANES = 256;
+	/** finished jobs are kept this long for the browser to poll them */
+	private static final long FINISHED_JOB_TTL = 10 * 60 * 1000;
+
+	private static CommandJobExecutor singleton = new CommandJobExecutor();
+
+	private final ThreadPoolExecutor pool;
+	private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+	private final Map<String, CommandJob> jobs = new ConcurrentHashMap<>();
+
+	public static CommandJobExecutor getInstance() {
+		return singleton;
+	}
+
+	private CommandJobExecutor() {
+		int threads = Integer.getInteger("karma.command.threads",
+				Math.max(4, Runtime.getRuntime().availableProcessors()));
+		final AtomicInteger threadCount = new AtomicInteger();
+		pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(MAX_QUEUED_LANES), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "karma-command-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		pool.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Queues the job behind the other jobs of its lane
+	 * @throws RejectedExecutionException if the server is too busy
+	 */
+	public void submit(String laneKey, CommandJob job, Runnable task) {
+		removeExpiredJobs();
+		jobs.put(job.getId(), job);
+		Lane lane;
+		synchronized (lanes) {
+			lane = lanes.get(laneKey);
+			if (lane == null) {
+				lane = new Lane(laneKey);
+				lanes.put(laneKey, lane);
+			}
+			lane.tasks.add(task);
+			if (lane.active)
+				return;
+			lane.active = true;
+		}
+		try {
+			pool.execute(lane);
+		} catch (RejectedExecutionException e) {
+			synchronized (lanes) {
+				lane.tasks.remove(task);
+				lane.active = false;
+				if (lane.tasks.isEmpty())
+					lanes.remove(laneKey);
+			}
+			jobs.remove(job.getId());
+			throw e;
+		}
+	}
+
+	public CommandJob getJob(String jobId) {
+		return jobs.get(jobId);
+	}
+
+	public void removeJob(String jobId) {
+		jobs.remove(jobId);
+	}
+
+	private void removeExpiredJobs() {
+		long now = System.currentTimeMillis();
+		Iterator<CommandJob> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			CommandJob job = it.next();
+			if (job.isFinished() && now - job.getFinishedTime() > FINISHED_JOB_TTL)
+				it.remove();
+		}
+	}
+
+	/**
+	 * Runs the tasks of one lane one after the other. A lane holds a pool
+	 * thread only while it has tasks.
+	 */
+	private class Lane implements Runnable {
+		private final String key;
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+		private boolean active = false;
+
+		Lane(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Runnable task;
+				synchronized (lanes) {
+					task = tasks.poll();
+					if (task == null) {
+						active = false;
+						lanes.remove(key);
+						return;
+					}
+				}
+				try {
+					task.run();
+				} catch (Throwable t) {
+					logger.error("Error running command job in lane " + key, t);
+				}
+			}
+		}
+	}
+}
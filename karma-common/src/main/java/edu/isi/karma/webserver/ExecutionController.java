@@ -19,6 +19,11 @@ package edu.isi.karma.webserver;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -34,6 +39,7 @@ import edu.isi.karma.controller.command.JSONInputCommandFactory;
 import edu.isi.karma.controller.update.ErrorUpdate;
 import edu.isi.karma.controller.update.UpdateContainer;
 import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.view.VWorkspace;
 
 /**
  * There is one ExecutionManager per user. In the HttpServlet implementation we
@@ -49,6 +55,13 @@ public class ExecutionController {
 			.getLogger(ExecutionController.class);
 	private static final HashMap<String, CommandFactory> commandFactoryMap = new HashMap<>();
 	private final Workspace workspace;
+	/**
+	 * Commands on a worksheet hold the read lock and the lock of their
+	 * worksheet, so commands on different worksheets run concurrently.
+	 * Commands that are not tied to a worksheet hold the write lock.
+	 */
+	private final ReentrantReadWriteLock workspaceLock = new ReentrantReadWriteLock(true);
+	private final ConcurrentHashMap<String, Lock> worksheetLocks = new ConcurrentHashMap<>();
 
 	static{
 		dynamicallyBuildCommandFactoryMap();
@@ -124,19 +137,119 @@ public class ExecutionController {
 	}
 
 	public UpdateContainer invokeCommand(Command command) {
-		synchronized (this) {
-			try {
-				UpdateContainer updateContainer = workspace.getCommandHistory().doCommand(command, workspace);
-				return updateContainer;
-			} catch (CommandException e) {
-				logger.error(
-						"Error occured with command " + command.toString(), e);
-				UpdateContainer updateContainer = new UpdateContainer();
-				updateContainer.add(new ErrorUpdate("Error occured with command " + command.toString()));
-				return updateContainer; // TODO probably need a return that indicates an
-				// error.
-			}
+		String worksheetId = getWorksheetId(command);
+		lock(worksheetId);
+		try {
+			UpdateContainer updateContainer = workspace.getCommandHistory().doCommand(command, workspace);
+			return updateContainer;
+		} catch (CommandException e) {
+			logger.error(
+					"Error occured with command " + command.toString(), e);
+			UpdateContainer updateContainer = new UpdateContainer();
+			updateContainer.add(new ErrorUpdate("Error occured with command " + command.toString()));
+			return updateContainer; // TODO probably need a return that indicates an
+			// error.
+		} finally {
+			unlock(worksheetId);
 		}
 
 	}
+
+	/**
+	 * Queues the command for execution on the shared command pool and returns
+	 * immediately. Commands on the same worksheet still run in the order they
+	 * were submitted. The result is collected by polling the returned job.
+	 */
+	public CommandJob submitCommand(final Command command) {
+		String worksheetId = getWorksheetId(command);
+		final CommandJob job = new CommandJob(command, workspace.getId(), worksheetId);
+		String laneKey = workspace.getId() + (worksheetId == null ? "" : "/" + worksheetId);
+		try {
+			CommandJobExecutor.getInstance().submit(laneKey, job, new Runnable() {
+				@Override
+				public void run() {
+					if (!job.start())
+						return;
+					try {
+						job.complete(invokeCommand(command));
+					} catch (Exception e) {
+						logger.error("Error occured with command " + command.toString(), e);
+						job.fail("Error occured with command " + command.toString() + ": " + e.getMessage());
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			logger.error("Too many queued commands, rejecting " + command.toString());
+			job.fail("The server is busy, please try again later");
+		}
+		return job;
+	}
+
+	/**
+	 * Applies the updates of a command and generates their json while no other
+	 * command changes the worksheet of the command, the updates read the
+	 * worksheet when they are generated.
+	 */
+	public String generateJson(Command command, UpdateContainer updateContainer, VWorkspace vWorkspace) {
+		String worksheetId = getWorksheetId(command);
+		lock(worksheetId);
+		try {
+			updateContainer.applyUpdates(vWorkspace);
+			return updateContainer.generateJson(vWorkspace);
+		} finally {
+			unlock(worksheetId);
+		}
+	}
+
+	public CommandJob getJob(String jobId) {
+		CommandJob job = CommandJobExecutor.getInstance().getJob(jobId);
+		if (job == null || !job.getWorkspaceId().equals(workspace.getId()))
+			return null;
+		return job;
+	}
+
+	public void removeJob(String jobId) {
+		if (getJob(jobId) != null)
+			CommandJobExecutor.getInstance().removeJob(jobId);
+	}
+
+	private String getWorksheetId(Command command) {
+		String worksheetId = workspace.getCommandHistory().getWorksheetId(command);
+		if (worksheetId == null || workspace.getWorksheet(worksheetId) == null)
+			return null;
+		return worksheetId;
+	}
+
+	private void lock(String worksheetId) {
+		// a read lock can not be upgraded, so a workspace command invoked from
+		// within a worksheet command runs under the locks the thread holds
+		if (worksheetId == null && workspaceLock.getReadHoldCount() > 0) {
+			workspaceLock.readLock().lock();
+			return;
+		}
+		if (worksheetId == null) {
+			workspaceLock.writeLock().lock();
+			return;
+		}
+		workspaceLock.readLock().lock();
+		Lock lock = worksheetLocks.get(worksheetId);
+		if (lock == null) {
+			worksheetLocks.putIfAbsent(worksheetId, new ReentrantLock(true));
+			lock = worksheetLocks.get(worksheetId);
+		}
+		lock.lock();
+	}
+
+	private void unlock(String worksheetId) {
+		if (worksheetId == null && !workspaceLock.isWriteLockedByCurrentThread()) {
+			workspaceLock.readLock().unlock();
+			return;
+		}
+		if (worksheetId == null) {
+			workspaceLock.writeLock().unlock();
+			return;
+		}
+		worksheetLocks.get(worksheetId).unlock();
+		workspaceLock.readLock().unlock();
+	}
 }
@@ -0,0 +1,20 @@
+package edu.isi.karma.controller.history;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class TestWorksheetCommandHistory {
+
+	@Test
+	public void testLockDoesNotAddHistory() {
+		WorksheetCommandHistory history = new WorksheetCommandHistory();
+		Object lock = history.getLock("WS1");
+		assertNotNull(lock);
+		assertSame(lock, history.getLock("WS1"));
+		assertFalse(history.getAllWorksheetId().contains("WS1"));
+		assertSame(history.getLock(null), history.getLock(null));
+	}
+}
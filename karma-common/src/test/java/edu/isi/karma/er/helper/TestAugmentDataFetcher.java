@@ -0,0 +1,237 @@
+package edu.isi.karma.er.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.isi.karma.webserver.KarmaException;
+
+public class TestAugmentDataFetcher {
+
+	private static final String PREDICATE = "http://example.org/name";
+
+	private HttpServer server;
+	private String url;
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<Integer>());
+	private final AtomicInteger queries = new AtomicInteger();
+	private volatile boolean fail;
+	private volatile int failedQuery;
+
+	/**
+	 * Stands in for the SPARQL endpoint of a repository: answers the size
+	 * request of the connection test, and the queries with two names for
+	 * each URI of the VALUES clause
+	 */
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/repositories/data", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (exchange.getRequestURI().getPath().endsWith("/size")) {
+					respond(exchange, 200, "42");
+					return;
+				}
+				int n = running.incrementAndGet();
+				synchronized (maxRunning) {
+					maxRunning.set(Math.max(maxRunning.get(), n));
+				}
+				try {
+					String query = null;
+					for (String param : IOUtils.toString(exchange.getRequestBody(), "UTF-8").split("&")) {
+						if (param.startsWith("query="))
+							query = URLDecoder.decode(param.substring("query=".length()), "UTF-8");
+					}
+					String values = query.substring(query.indexOf("VALUES"), query.indexOf('}', query.indexOf("VALUES")));
+					Matcher m = Pattern.compile("<([^>]*)>").matcher(values);
+					JSONArray bindings = new JSONArray();
+					int uris = 0;
+					while (m.find()) {
+						uris++;
+						for (int i = 0; i < 2; i++) {
+							JSONObject binding = new JSONObject();
+							binding.put("s", new JSONObject().put("type", "uri").put("value", m.group(1)));
+							binding.put("p", new JSONObject().put("type", "uri").put("value", PREDICATE));
+							binding.put("o", new JSONObject().put("type", "literal").put("value", m.group(1) + "/" + i));
+							bindings.put(binding);
+						}
+					}
+					chunkSizes.add(uris);
+					Thread.sleep(20);
+					if (fail || queries.incrementAndGet() == failedQuery) {
+						respond(exchange, 500, "MALFORMED QUERY");
+						return;
+					}
+					JSONObject response = new JSONObject();
+					response.put("head", new JSONObject().put("vars", new JSONArray(Arrays.asList("s", "p", "o", "filteredtype"))));
+					response.put("results", new JSONObject().put("bindings", bindings));
+					respond(exchange, 200, response.toString());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+				}
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		url = "http://localhost:" + server.getAddress().getPort() + "/repositories/data";
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testConcurrentChunksGrow() throws Exception {
+		List<String> subjects = getSubjects(1000);
+		AugmentDataFetcher fetcher = newFetcher();
+		fetcher.setConcurrency(3);
+		fetcher.setChunkSize(25, 10, 400);
+		fetcher.setTargetLatency(60000);
+		final Set<String> objects = new HashSet<>();
+		final Thread caller = Thread.currentThread();
+		fetcher.fetch(subjects, new AugmentDataFetcher.ResultHandler() {
+			@Override
+			public void result(String subject, String predicate, String object, String otherClass) {
+				assertEquals(caller, Thread.currentThread());
+				assertEquals(PREDICATE, predicate);
+				assertEquals("", otherClass);
+				assertTrue(object.startsWith(subject));
+				objects.add(object);
+			}
+
+			@Override
+			public void rollback() {
+				fail("Nothing to roll back");
+			}
+		});
+		assertEquals(2000, objects.size());
+		assertTrue(maxRunning.get() <= 3);
+		assertTrue(fetcher.getChunkSize() > 25);
+		assertTrue(fetcher.getNumberOfQueries() < 1000 / 25);
+	}
+
+	@Test
+	public void testChunksShrinkWithLargeResponses() throws Exception {
+		AugmentDataFetcher fetcher = newFetcher();
+		fetcher.setConcurrency(1);
+		fetcher.setChunkSize(200, 50, 1000);
+		fetcher.setMaxResultsPerQuery(100);
+		final AtomicInteger count = new AtomicInteger();
+		fetcher.fetch(getSubjects(600), new AugmentDataFetcher.ResultHandler() {
+			@Override
+			public void result(String subject, String predicate, String object, String otherClass) {
+				count.incrementAndGet();
+			}
+
+			@Override
+			public void rollback() {
+				fail("Nothing to roll back");
+			}
+		});
+		assertEquals(1200, count.get());
+		assertEquals(Arrays.asList(200, 100, 50, 50, 50, 50, 50, 50), chunkSizes);
+	}
+
+	@Test
+	public void testErrorIsReported() throws Exception {
+		fail = true;
+		try {
+			newFetcher().fetch(getSubjects(10), new AugmentDataFetcher.ResultHandler() {
+				@Override
+				public void result(String subject, String predicate, String object, String otherClass) {
+				}
+
+				@Override
+				public void rollback() {
+					fail("Nothing to roll back");
+				}
+			});
+			fail("The error of the triple store was not reported");
+		} catch (KarmaException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("500"));
+		}
+	}
+
+	@Test
+	public void testResultsAreRolledBackWhenALaterChunkFails() throws Exception {
+		failedQuery = 3;
+		AugmentDataFetcher fetcher = newFetcher();
+		fetcher.setConcurrency(1);
+		fetcher.setChunkSize(10, 10, 10);
+		final List<String> objects = new ArrayList<>();
+		final AtomicInteger delivered = new AtomicInteger();
+		final AtomicInteger rollbacks = new AtomicInteger();
+		try {
+			fetcher.fetch(getSubjects(50), new AugmentDataFetcher.ResultHandler() {
+				@Override
+				public void result(String subject, String predicate, String object, String otherClass) {
+					delivered.incrementAndGet();
+					objects.add(object);
+				}
+
+				@Override
+				public void rollback() {
+					rollbacks.incrementAndGet();
+					objects.clear();
+				}
+			});
+			fail("The error of the triple store was not reported");
+		} catch (KarmaException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("500"));
+		}
+		// the results of the first two chunks were passed, then undone
+		assertEquals(40, delivered.get());
+		assertEquals(1, rollbacks.get());
+		assertTrue(objects.isEmpty());
+	}
+
+	private AugmentDataFetcher newFetcher() {
+		return new AugmentDataFetcher(new TripleStoreUtil(), url, Arrays.asList(PREDICATE), Arrays.asList(""), null, false);
+	}
+
+	private static List<String> getSubjects(int n) {
+		List<String> subjects = new ArrayList<>();
+		for (int i = 0; i < n; i++)
+			subjects.add("http://example.org/person/" + i);
+		return subjects;
+	}
+}
@@ -0,0 +1,159 @@
+package edu.isi.karma.imp.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.opencsv.CSVReader;
+
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.WorkspaceManager;
+import edu.isi.karma.util.EncodingDetector;
+
+public class TestMappedCSVReader {
+
+	private Workspace workspace;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		workspace = WorkspaceManager.getInstance().createWorkspace("test");
+		file = File.createTempFile("test", ".csv");
+	}
+
+	@After
+	public void tearDown() {
+		WorkspaceManager.getInstance().removeWorkspace(workspace.getId());
+		file.delete();
+	}
+
+	@Test
+	public void testSameRowsAsOpenCSV() throws Exception {
+		String[] pieces = { "a", "bc", " ", ",", ",", "\"", "\"\"", "\\", "\n", "\r\n", "\r", "\u00e9", "x y" };
+		Random random = new Random(42);
+		for (int n = 0; n < 200; n++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(80);
+			for (int i = 0; i < length; i++)
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			String csv = sb.toString();
+			byte[] bytes = csv.getBytes("UTF-8");
+			write(bytes);
+			List<String[]> expected = readWithOpenCSV(bytes, ',', '"', '\\');
+			for (int segmentSize : new int[] { 1, 7, 1024 }) {
+				assertEquals(csv, toString(expected), toString(readMapped(',', '"', '\\', segmentSize)));
+			}
+		}
+	}
+
+	@Test
+	public void testQuotedValuesAcrossSegments() throws Exception {
+		String csv = "\uFEFFname,comment\r\nann,\"first line\nsecond, line\nthird \"\"line\"\"\"\nbob,plain\n"
+				+ "carl,\"  padded\" \ndave,\"not closed\nat the end";
+		byte[] bytes = csv.getBytes("UTF-8");
+		write(bytes);
+		List<String[]> rows = readMapped(',', '"', '\\', 4);
+		assertEquals(toString(readWithOpenCSV(bytes, ',', '"', '\\')), toString(rows));
+		assertEquals(5, rows.size());
+		assertEquals("name", rows.get(0)[0]);
+		assertEquals("first line\nsecond, line\nthird \"line\"", rows.get(1)[1]);
+		assertEquals("plain", rows.get(2)[1]);
+	}
+
+	@Test
+	public void testNoQuoteCharacter() throws Exception {
+		byte[] bytes = "a\t\"b\t\\c\n1\t\"2\t3".getBytes("UTF-8");
+		write(bytes);
+		assertEquals(toString(readWithOpenCSV(bytes, '\t', '\0', '\0')), toString(readMapped('\t', '\0', '\0', 3)));
+	}
+
+	@Test
+	public void testColumnProjection() throws Exception {
+		write("a,b,c\n1,2,3\n4,5,6,7\n".getBytes("UTF-8"));
+		try (MappedCSVReader reader = new MappedCSVReader(file, ',', '"', '\\', "UTF-8")) {
+			boolean[] columns = { false, true, false };
+			assertArrayEquals(new String[] { null, "b", null }, reader.readNext(columns));
+			assertArrayEquals(new String[] { null, "2", null }, reader.readNext(columns));
+			assertArrayEquals(new String[] { null, "5", null, "7" }, reader.readNext(columns));
+			assertNull(reader.readNext(columns));
+		}
+
+		HashSet<String> columnNames = new HashSet<>();
+		columnNames.add("b");
+		MappedCSVImport imp = new MappedCSVImport(1, 2, ',', '"', "UTF-8", -1, "source", file, workspace, null, columnNames);
+		Worksheet worksheet = imp.generateWorksheet();
+		assertEquals("source", worksheet.getTitle());
+		List<HNode> hNodes = worksheet.getHeaders().getSortedHNodes();
+		assertEquals(4, hNodes.size());
+		List<Row> rows = worksheet.getDataTable().getRows(0, 2, SuperSelectionManager.DEFAULT_SELECTION);
+		assertEquals(2, rows.size());
+		assertEquals("", rows.get(0).getNode(hNodes.get(0).getId()).getValue().asString());
+		assertEquals("2", rows.get(0).getNode(hNodes.get(1).getId()).getValue().asString());
+		assertEquals("7", rows.get(1).getNode(hNodes.get(3).getId()).getValue().asString());
+	}
+
+	@Test
+	public void testSupportedEncodings() {
+		assertTrue(MappedCSVReader.isSupported("UTF-8", ',', '"', '\\'));
+		assertTrue(MappedCSVReader.isSupported("ISO-8859-1", '\t', '\0', '\0'));
+		assertFalse(MappedCSVReader.isSupported("UTF-16", ',', '"', '\\'));
+		assertFalse(MappedCSVReader.isSupported("Shift_JIS", ',', '"', '\\'));
+		assertFalse(MappedCSVReader.isSupported("UTF-8", '\u00a7', '"', '\\'));
+	}
+
+	private void write(byte[] bytes) throws Exception {
+		try (OutputStream os = new FileOutputStream(file)) {
+			os.write(bytes);
+		}
+	}
+
+	private List<String[]> readMapped(char separator, char quote, char escape, int segmentSize) throws Exception {
+		List<String[]> rows = new ArrayList<>();
+		try (MappedCSVReader reader = new MappedCSVReader(file, separator, quote, escape, "UTF-8", segmentSize, 3)) {
+			String[] row;
+			while ((row = reader.readNext()) != null)
+				rows.add(row);
+		}
+		return rows;
+	}
+
+	private static List<String[]> readWithOpenCSV(byte[] bytes, char separator, char quote, char escape) throws Exception {
+		List<String[]> rows = new ArrayList<>();
+		try (CSVReader reader = new CSVReader(EncodingDetector.getInputStreamReader(
+				new ByteArrayInputStream(bytes), "UTF-8"), separator, quote, escape)) {
+			String[] row;
+			while ((row = reader.readNext()) != null)
+				rows.add(row);
+		}
+		return rows;
+	}
+
+	private static String toString(List<String[]> rows) {
+		StringBuilder sb = new StringBuilder();
+		for (String[] row : rows) {
+			for (String value : row)
+				sb.append('[').append(value).append(']');
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,144 @@
+package edu.isi.karma.imp.excel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.WorkspaceManager;
+
+public class TestXLSXImport {
+
+	private Workspace workspace;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		workspace = WorkspaceManager.getInstance().createWorkspace("test");
+		file = File.createTempFile("test", ".xlsx");
+
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		Sheet sheet = workbook.createSheet("first");
+		sheet.createRow(0).createCell(0).setCellValue("a title row");
+		org.apache.poi.ss.usermodel.Row header = sheet.createRow(1);
+		header.createCell(0).setCellValue("name");
+		header.createCell(1).setCellValue("age");
+		header.createCell(2).setCellValue("double");
+		for (int i = 0; i < 5; i++) {
+			org.apache.poi.ss.usermodel.Row row = sheet.createRow(i + 2);
+			row.createCell(0).setCellValue("person " + i);
+			row.createCell(1).setCellValue(20 + i);
+			row.createCell(2).setCellFormula("B" + (i + 3) + "*2");
+			row.getCell(2).setCellValue(2 * (20 + i));
+		}
+		// a missing row and a cell without a header
+		sheet.createRow(8).createCell(3).setCellValue("extra");
+		workbook.createSheet("second").createRow(0).createCell(0).setCellValue("x");
+
+		try (OutputStream os = new FileOutputStream(file)) {
+			workbook.write(os);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		WorkspaceManager.getInstance().removeWorkspace(workspace.getId());
+		file.delete();
+	}
+
+	@Test
+	public void testSheetNames() throws Exception {
+		assertTrue(XLSXSheetReader.isXLSX(file));
+		try (XLSXSheetReader reader = new XLSXSheetReader(file)) {
+			List<String> names = reader.getSheetNames();
+			assertEquals(2, names.size());
+			assertEquals("first", names.get(0));
+			assertEquals("second", names.get(1));
+		}
+	}
+
+	@Test
+	public void testHeaderAndDataIndexes() throws Exception {
+		XLSXImport imp = new XLSXImport(file, 0, 2, 3, "test", workspace, "UTF-8", -1);
+		Worksheet worksheet = imp.generateWorksheet();
+
+		List<HNode> hNodes = worksheet.getHeaders().getSortedHNodes();
+		assertEquals(4, hNodes.size());
+		assertEquals("name", hNodes.get(0).getColumnName());
+		assertEquals("double", hNodes.get(2).getColumnName());
+		assertEquals("Column_4", hNodes.get(3).getColumnName());
+
+		// rows 3 to 7, the missing row 8 and row 9
+		assertEquals(7, imp.getNumberOfRows());
+		List<Row> rows = worksheet.getDataTable().getRows(0, 7, SuperSelectionManager.DEFAULT_SELECTION);
+		assertEquals("person 1", rows.get(1).getNode(hNodes.get(0).getId()).getValue().asString());
+		assertEquals("21", rows.get(1).getNode(hNodes.get(1).getId()).getValue().asString());
+		assertEquals("42", rows.get(1).getNode(hNodes.get(2).getId()).getValue().asString());
+		assertEquals("", rows.get(5).getNode(hNodes.get(0).getId()).getValue().asString());
+		assertEquals("extra", rows.get(6).getNode(hNodes.get(3).getId()).getValue().asString());
+	}
+
+	@Test
+	public void testMaxNumLines() throws Exception {
+		try (XLSXSheetReader reader = new XLSXSheetReader(file)) {
+			XLSXImport imp = new XLSXImport(reader, 0, 2, 3, "test", workspace, "UTF-8", 2);
+			Worksheet worksheet = imp.generateWorksheet();
+			assertEquals(2, worksheet.getDataTable().getNumRows());
+
+			imp = new XLSXImport(reader, 1, 0, 1, "second", workspace, "UTF-8", -1);
+			worksheet = imp.generateWorksheet();
+			assertEquals("Column_1", worksheet.getHeaders().getSortedHNodes().get(0).getColumnName());
+			assertEquals(1, worksheet.getDataTable().getNumRows());
+		}
+		assertFalse(XLSXSheetReader.isXLSX(new java.io.BufferedInputStream(new java.io.ByteArrayInputStream("a,b".getBytes()))));
+	}
+
+	@Test(expected = IOException.class)
+	public void testDoctypeRejected() throws Exception {
+		File secret = File.createTempFile("secret", ".txt");
+		File xxe = File.createTempFile("xxe", ".xlsx");
+		try {
+			// the first sheet declares an external entity
+			try (ZipInputStream in = new ZipInputStream(new FileInputStream(file));
+					ZipOutputStream out = new ZipOutputStream(new FileOutputStream(xxe))) {
+				ZipEntry entry;
+				while ((entry = in.getNextEntry()) != null) {
+					out.putNextEntry(new ZipEntry(entry.getName()));
+					byte[] content = IOUtils.toByteArray(in);
+					if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+						String xml = new String(content, "UTF-8").replaceFirst("\\?>", "?><!DOCTYPE worksheet [<!ENTITY secret SYSTEM \""
+								+ secret.toURI() + "\">]>");
+						content = xml.getBytes("UTF-8");
+					}
+					out.write(content);
+					out.closeEntry();
+				}
+			}
+			new XLSXImport(xxe, 0, 2, 3, "test", workspace, "UTF-8", -1).generateWorksheet();
+		} finally {
+			secret.delete();
+			xxe.delete();
+		}
+	}
+}
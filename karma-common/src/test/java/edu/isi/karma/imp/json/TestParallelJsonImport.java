@@ -0,0 +1,141 @@
+package edu.isi.karma.imp.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode;
+import edu.isi.karma.rep.HTable;
+import edu.isi.karma.rep.Node;
+import edu.isi.karma.rep.Row;
+import edu.isi.karma.rep.Table;
+import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.WorkspaceManager;
+
+public class TestParallelJsonImport {
+
+	private Workspace workspace;
+
+	@Before
+	public void setUp() throws Exception {
+		workspace = WorkspaceManager.getInstance().createWorkspace("test");
+	}
+
+	@After
+	public void tearDown() {
+		WorkspaceManager.getInstance().removeWorkspace(workspace.getId());
+	}
+
+	@Test
+	public void testSameWorksheetAsSequentialImport() throws Exception {
+		JSONArray array = createArray(ParallelJsonImport.BATCH_SIZE + 2500);
+
+		Worksheet sequential = new JsonImport(array, "sequential", workspace, "UTF-8", -1).generateWorksheet();
+		JsonImport imp = new JsonImport(array, "parallel", workspace, "UTF-8", -1);
+		imp.setNumThreads(4);
+		Worksheet parallel = imp.generateWorksheet();
+
+		String expected = dump(sequential);
+		assertEquals(expected, dump(parallel));
+		assertEquals(array.length(), parallel.getDataTable().getNumRows());
+
+		File file = File.createTempFile("test", ".json");
+		try {
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+				writer.write(" [\n" + array.toString(1).substring(1));
+			}
+			imp = new JsonImport(file, "file", workspace, "UTF-8", -1, null, false);
+			imp.setNumThreads(3);
+			assertEquals(expected, dump(imp.generateWorksheet()));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testElementReader() throws Exception {
+		ParallelJsonImport.ElementReader reader = new ParallelJsonImport.ElementReader(
+				new java.io.StringReader(" {\"a\": \"x, ]\\\"}\"} , 12,'q,]' ,[1, [2]],\n null ] trailing"));
+		assertEquals("{\"a\": \"x, ]\\\"}\"}", reader.next().trim());
+		assertEquals("12", reader.next().trim());
+		assertEquals("'q,]'", reader.next().trim());
+		assertEquals("[1, [2]]", reader.next().trim());
+		assertEquals("null", reader.next().trim());
+		assertEquals(null, reader.next());
+	}
+
+	/**
+	 * Objects where the nested tables appear late, arrays of primitives,
+	 * nested arrays and null values. The second batch has empty values in a
+	 * column with a nested table, which are imported on one thread.
+	 */
+	private static JSONArray createArray(int length) throws Exception {
+		JSONArray array = new JSONArray();
+		for (int i = 0; i < length; i++) {
+			JSONObject o = new JSONObject();
+			o.put("id", i);
+			o.put("name", "name " + i);
+			if (i % 7 == 0)
+				o.put("comment", JSONObject.NULL);
+			if (i == 3000 || i == ParallelJsonImport.BATCH_SIZE + 1000) {
+				o.put("address", new JSONObject().put("city", "city " + i).put("geo", new JSONObject().put("lat", i)));
+			} else if (i > ParallelJsonImport.BATCH_SIZE && i % 11 == 0) {
+				o.put("address", "");
+			}
+			if (i > 6000 && i % 5 == 0)
+				o.put("tags", new JSONArray().put("a" + i).put(i).put(new JSONArray().put(true)));
+			if (i == ParallelJsonImport.BATCH_SIZE + 10)
+				o.put("late", new JSONArray());
+			array.put(o);
+		}
+		array.put("a primitive");
+		array.put(new JSONArray().put(1).put(2));
+		return array;
+	}
+
+	private static String dump(Worksheet worksheet) {
+		StringBuilder sb = new StringBuilder();
+		dumpHeaders(worksheet.getHeaders(), sb);
+		sb.append('\n');
+		dumpTable(worksheet.getDataTable(), worksheet.getHeaders(), sb);
+		return sb.toString();
+	}
+
+	private static void dumpHeaders(HTable headers, StringBuilder sb) {
+		sb.append('[');
+		for (HNode hNode : headers.getSortedHNodes()) {
+			sb.append(hNode.getColumnName());
+			if (hNode.hasNestedTable())
+				dumpHeaders(hNode.getNestedTable(), sb);
+			sb.append(',');
+		}
+		sb.append(']');
+	}
+
+	private static void dumpTable(Table table, HTable headers, StringBuilder sb) {
+		sb.append('[');
+		for (Row row : table.getRows(0, table.getNumRows(), SuperSelectionManager.DEFAULT_SELECTION)) {
+			sb.append('(');
+			for (HNode hNode : headers.getSortedHNodes()) {
+				Node node = row.getNode(hNode.getId());
+				sb.append(node.getValue() == null ? "" : node.getValue().asString());
+				if (hNode.hasNestedTable())
+					dumpTable(node.getNestedTable(), hNode.getNestedTable(), sb);
+				sb.append('|');
+			}
+			sb.append(")\n");
+		}
+		sb.append(']');
+	}
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.kr2rml.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.isi.karma.kr2rml.URIFormatter;
+
+public class TestTripleDeduplicator {
+
+	private static String triple(int i) {
+		return "<http://example.org/s" + (i % 1000) + "> <http://example.org/p> \"v" + (i % 1000) + "\" .";
+	}
+
+	@Test
+	public void testBloomRemovesDuplicates() throws Exception {
+		BloomTripleDeduplicator dedup = new BloomTripleDeduplicator(1000, 0.01, 1024 * 1024);
+		Set<String> written = new HashSet<>();
+		int writes = 0;
+		for (int i = 0; i < 5000; i++) {
+			if (dedup.add(triple(i))) {
+				written.add(triple(i));
+				writes++;
+			}
+		}
+		assertEquals(1000, written.size());
+		assertEquals(1000, writes);
+		assertEquals(4000, dedup.getDuplicateCount());
+		assertEquals(0, dedup.getUnverifiedCount());
+	}
+
+	@Test
+	public void testBloomNeverDropsUniqueValues() throws Exception {
+		// far more values than the filter and the fingerprint table are sized for
+		BloomTripleDeduplicator dedup = new BloomTripleDeduplicator(100, 0.1, 1024);
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(dedup.add("value" + i));
+		}
+		assertTrue(dedup.getUnverifiedCount() > 0);
+	}
+
+	@Test
+	public void testSortedRunsSpill() throws Exception {
+		// a small buffer forces several runs on disk
+		SortedRunTripleDeduplicator dedup = new SortedRunTripleDeduplicator(null, 4096);
+		for (int i = 0; i < 5000; i++) {
+			assertFalse(dedup.add(triple(i)));
+		}
+		List<String> values = new ArrayList<>();
+		Iterator<String> remaining = dedup.remaining();
+		while (remaining.hasNext()) {
+			values.add(remaining.next());
+		}
+		dedup.close();
+		assertEquals(1000, values.size());
+		assertEquals(1000, new HashSet<>(values).size());
+		for (int i = 1; i < values.size(); i++) {
+			assertTrue(values.get(i - 1).compareTo(values.get(i)) < 0);
+		}
+		assertEquals(4000, dedup.getDuplicateCount());
+	}
+
+	@Test
+	public void testN3WriterAcrossRows() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		N3KR2RMLRDFWriter writer = new N3KR2RMLRDFWriter(new URIFormatter(), new PrintWriter(out));
+		writer.setDeduplicator(new SortedRunTripleDeduplicator(null, 1024 * 1024));
+		for (int row = 0; row < 3; row++) {
+			writer.outputTripleWithURIObject("<http://example.org/a>", "http://example.org/p", "<http://example.org/b>");
+			writer.finishRow();
+		}
+		writer.flush();
+		writer.close();
+		assertEquals("<http://example.org/a> <http://example.org/p> <http://example.org/b> .",
+				out.toString("UTF-8").trim());
+	}
+
+	@Test
+	public void testSharedAcrossWriters() throws Exception {
+		SortedRunTripleDeduplicator dedup = new SortedRunTripleDeduplicator(null, 1024);
+		ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+		ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+		N3KR2RMLRDFWriter writer1 = new N3KR2RMLRDFWriter(new URIFormatter(), new PrintWriter(out1));
+		N3KR2RMLRDFWriter writer2 = new N3KR2RMLRDFWriter(new URIFormatter(), new PrintWriter(out2));
+		writer1.setDeduplicator(dedup);
+		writer2.setDeduplicator(dedup);
+		for (int i = 0; i < 100; i++) {
+			writer1.outputTripleWithURIObject("<http://example.org/a" + i + ">", "http://example.org/p", "<http://example.org/b>");
+			writer1.finishRow();
+			writer2.outputTripleWithURIObject("<http://example.org/a" + (i + 50) + ">", "http://example.org/p", "<http://example.org/b>");
+			writer2.finishRow();
+		}
+		// the last writer of the output writes the unique triples of both
+		writer1.close();
+		assertEquals("", out1.toString("UTF-8").trim());
+		writer2.close();
+		String[] lines = out2.toString("UTF-8").trim().split("\n");
+		assertEquals(150, lines.length);
+		assertEquals(150, new HashSet<>(Arrays.asList(lines)).size());
+		assertEquals(50, dedup.getDuplicateCount());
+	}
+
+	@Test
+	public void testWriterClosedTwice() throws Exception {
+		SortedRunTripleDeduplicator dedup = new SortedRunTripleDeduplicator(null, 1024);
+		ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+		ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+		N3KR2RMLRDFWriter writer1 = new N3KR2RMLRDFWriter(new URIFormatter(), new PrintWriter(out1));
+		N3KR2RMLRDFWriter writer2 = new N3KR2RMLRDFWriter(new URIFormatter(), new PrintWriter(out2));
+		writer1.setDeduplicator(dedup);
+		writer2.setDeduplicator(dedup);
+		for (int i = 0; i < 10; i++) {
+			writer1.outputTripleWithURIObject("<http://example.org/a" + i + ">", "http://example.org/p", "<http://example.org/b>");
+			writer1.finishRow();
+		}
+		// closing a writer again must not finish the output for the other one
+		writer1.close();
+		writer1.close();
+		writer2.close();
+		writer2.close();
+		dedup.release();
+		assertEquals("", out1.toString("UTF-8").trim());
+		assertEquals(10, out2.toString("UTF-8").trim().split("\n").length);
+	}
+
+	@Test
+	public void testOutputsKeptApart() throws Exception {
+		BloomTripleDeduplicator dedup = new BloomTripleDeduplicator(1000, 0.01, 1024 * 1024);
+		dedup.register('n');
+		dedup.register('j');
+		assertTrue(dedup.add('n', "value"));
+		assertTrue(dedup.add('j', "value"));
+		assertFalse(dedup.add('n', "value"));
+		assertFalse(dedup.finish('n').hasNext());
+
+		SortedRunTripleDeduplicator sorted = new SortedRunTripleDeduplicator(null, 64);
+		sorted.register('n');
+		sorted.register('j');
+		for (int i = 0; i < 10; i++) {
+			sorted.add('n', "n" + (i % 5));
+			sorted.add('j', "j" + i);
+		}
+		List<String> n = new ArrayList<>();
+		Iterator<String> remaining = sorted.finish('n');
+		while (remaining.hasNext()) {
+			n.add(remaining.next());
+		}
+		sorted.release();
+		List<String> j = new ArrayList<>();
+		remaining = sorted.finish('j');
+		while (remaining.hasNext()) {
+			j.add(remaining.next());
+		}
+		sorted.release();
+		assertEquals(5, n.size());
+		assertEquals("n0", n.get(0));
+		assertEquals(10, j.size());
+		assertEquals("j0", j.get(0));
+	}
+}
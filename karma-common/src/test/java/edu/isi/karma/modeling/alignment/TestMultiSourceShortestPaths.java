@@ -0,0 +1,119 @@
+package edu.isi.karma.modeling.alignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jgrapht.UndirectedGraph;
+import org.jgrapht.alg.DijkstraShortestPath;
+import org.jgrapht.graph.AsUndirectedGraph;
+import org.jgrapht.graph.DirectedWeightedMultigraph;
+import org.jgrapht.graph.WeightedMultigraph;
+import org.junit.Test;
+
+import edu.isi.karma.rep.alignment.DefaultLink;
+import edu.isi.karma.rep.alignment.InternalNode;
+import edu.isi.karma.rep.alignment.Label;
+import edu.isi.karma.rep.alignment.Node;
+
+public class TestMultiSourceShortestPaths {
+
+	private DirectedWeightedMultigraph<Node, DefaultLink> randomGraph(List<Node> nodes, int numOfNodes, int numOfLinks, long seed) {
+		Random random = new Random(seed);
+		DirectedWeightedMultigraph<Node, DefaultLink> graph = new DirectedWeightedMultigraph<>(DefaultLink.class);
+		for (int i = 0; i < numOfNodes; i++) {
+			Node n = new InternalNode("n" + i, new Label("http://example.org/C" + i));
+			nodes.add(n);
+			graph.addVertex(n);
+		}
+		for (int i = 0; i < numOfLinks; i++) {
+			Node source = nodes.get(random.nextInt(numOfNodes));
+			Node target = nodes.get(random.nextInt(numOfNodes));
+			DefaultLink link = new DefaultLink("l" + i);
+			graph.addEdge(source, target, link);
+			graph.setEdgeWeight(link, 0.1 + random.nextInt(100) / 10.0);
+		}
+		return graph;
+	}
+
+	@Test
+	public void testSameCostsAsDijkstra() {
+		List<Node> nodes = new ArrayList<>();
+		DirectedWeightedMultigraph<Node, DefaultLink> graph = randomGraph(nodes, 200, 500, 7);
+		UndirectedGraph<Node, DefaultLink> undirected = new AsUndirectedGraph<>(graph);
+		MultiSourceShortestPaths paths = MultiSourceShortestPaths.create(graph);
+
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < nodes.size(); j += 7) {
+				Node source = nodes.get(i);
+				Node target = nodes.get(j);
+				DijkstraShortestPath<Node, DefaultLink> expected = new DijkstraShortestPath<>(undirected, source, target);
+				List<DefaultLink> path = paths.getPathEdgeList(source, target);
+				if (expected.getPathEdgeList() == null) {
+					assertNull(path);
+					assertEquals(Double.POSITIVE_INFINITY, paths.getCost(source, target), 0);
+					continue;
+				}
+				assertEquals(expected.getPathLength(), paths.getCost(source, target), 1e-9);
+				double length = 0;
+				for (DefaultLink l : path)
+					length += graph.getEdgeWeight(l);
+				assertEquals(expected.getPathLength(), length, 1e-9);
+			}
+		}
+		assertEquals(10, paths.getNumberOfSearches());
+	}
+
+	@Test
+	public void testSearchesBounded() {
+		List<Node> nodes = new ArrayList<>();
+		DirectedWeightedMultigraph<Node, DefaultLink> graph = randomGraph(nodes, 200, 500, 3);
+		UndirectedGraph<Node, DefaultLink> undirected = new AsUndirectedGraph<>(graph);
+		MultiSourceShortestPaths paths = MultiSourceShortestPaths.create(graph);
+		Node target = nodes.get(1);
+		for (Node source : nodes)
+			paths.getCost(source, target);
+		assertEquals(MultiSourceShortestPaths.MAX_SEARCHES, paths.getNumberOfSearches());
+
+		// the search of the first source was dropped and starts again
+		Node source = nodes.get(0);
+		DijkstraShortestPath<Node, DefaultLink> expected = new DijkstraShortestPath<>(undirected, source, target);
+		double cost = expected.getPathEdgeList() == null ? Double.POSITIVE_INFINITY : expected.getPathLength();
+		assertEquals(cost, paths.getCost(source, target), 1e-9);
+		assertEquals(MultiSourceShortestPaths.MAX_SEARCHES, paths.getNumberOfSearches());
+	}
+
+	@Test
+	public void testNegativeWeights() {
+		List<Node> nodes = new ArrayList<>();
+		DirectedWeightedMultigraph<Node, DefaultLink> graph = randomGraph(nodes, 3, 3, 1);
+		graph.setEdgeWeight(graph.edgeSet().iterator().next(), -1.0);
+		assertNull(MultiSourceShortestPaths.create(graph));
+	}
+
+	@Test
+	public void testSteinerTreeCost() {
+		List<Node> nodes = new ArrayList<>();
+		DirectedWeightedMultigraph<Node, DefaultLink> graph = randomGraph(nodes, 300, 900, 11);
+		UndirectedGraph<Node, DefaultLink> undirected = new AsUndirectedGraph<>(graph);
+		List<Node> steinerNodes = new ArrayList<>();
+		for (int i = 0; i < 40; i++)
+			steinerNodes.add(nodes.get(i * 7));
+
+		WeightedMultigraph<Node, DefaultLink> expected = 
+				new SteinerTree(undirected, steinerNodes, null).getDefaultSteinerTree();
+		WeightedMultigraph<Node, DefaultLink> tree = 
+				new SteinerTree(undirected, steinerNodes, MultiSourceShortestPaths.create(graph)).getDefaultSteinerTree();
+		assertEquals(cost(graph, expected), cost(graph, tree), 1e-6);
+	}
+
+	private double cost(DirectedWeightedMultigraph<Node, DefaultLink> graph, WeightedMultigraph<Node, DefaultLink> tree) {
+		double sum = 0;
+		for (DefaultLink l : tree.edgeSet())
+			sum += graph.getEdgeWeight(l);
+		return sum;
+	}
+}
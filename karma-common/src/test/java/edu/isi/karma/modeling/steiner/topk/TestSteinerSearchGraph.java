@@ -0,0 +1,80 @@
+package edu.isi.karma.modeling.steiner.topk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class TestSteinerSearchGraph {
+
+	@Test
+	public void testIncomingEdgesSortedByWeight() {
+		Map<SteinerNode, TreeSet<SteinerEdge>> adjacency = new HashMap<>();
+		SteinerNode n1 = new SteinerNode("n1");
+		SteinerNode n2 = new SteinerNode("n2");
+		SteinerNode n3 = new SteinerNode("n3");
+		adjacency.put(n1, new TreeSet<SteinerEdge>());
+		adjacency.put(n2, new TreeSet<SteinerEdge>());
+		adjacency.put(n3, new TreeSet<SteinerEdge>());
+		// each node stores its incoming links, as GraphBuilderTopK does
+		adjacency.get(n3).add(new SteinerEdge(n1, "e1", n3, 0.9f));
+		adjacency.get(n3).add(new SteinerEdge(n2, "e2", n3, 0.2f));
+		adjacency.get(n2).add(new SteinerEdge(n1, "e3", n2, 0.5f));
+
+		SteinerSearchGraph graph = SteinerSearchGraph.fromAdjacency(adjacency);
+		assertEquals(3, graph.size());
+		assertEquals(3, graph.getNumberOfEdges());
+
+		int id3 = graph.getId("n3");
+		assertEquals(2, graph.getEndEdge(id3) - graph.getFirstEdge(id3));
+		int first = graph.getFirstEdge(id3);
+		assertEquals("n2", graph.getName(graph.getNeighbor(first)));
+		assertEquals(0.2f, graph.getWeight(first), 0);
+		assertEquals("e2", graph.getEdge(first).getEdgeLabel());
+		assertTrue(graph.isNeighborSource(first));
+		assertEquals("n1", graph.getName(graph.getNeighbor(first + 1)));
+
+		int id1 = graph.getId("n1");
+		assertEquals(graph.getFirstEdge(id1), graph.getEndEdge(id1));
+		assertEquals(-1, graph.getId("unknown"));
+	}
+
+	@Test
+	public void testUndirectedAdjacency() {
+		Map<SteinerNode, TreeSet<SteinerEdge>> adjacency = new HashMap<>();
+		SteinerNode a = new SteinerNode("a");
+		SteinerNode b = new SteinerNode("b");
+		adjacency.put(a, new TreeSet<SteinerEdge>());
+		adjacency.put(b, new TreeSet<SteinerEdge>());
+		SteinerEdge e = new SteinerEdge(a, "r", b, 1f);
+		adjacency.get(a).add(e);
+		adjacency.get(b).add(e);
+
+		SteinerSearchGraph graph = SteinerSearchGraph.fromAdjacency(adjacency);
+		int fromA = graph.getFirstEdge(graph.getId("a"));
+		int fromB = graph.getFirstEdge(graph.getId("b"));
+		assertEquals(graph.getId("b"), graph.getNeighbor(fromA));
+		assertFalse(graph.isNeighborSource(fromA));
+		assertEquals(graph.getId("a"), graph.getNeighbor(fromB));
+		assertTrue(graph.isNeighborSource(fromB));
+		assertTrue(graph.getEdge(fromA) == graph.getEdge(fromB));
+	}
+
+	@Test
+	public void testEdgeEndpointsWithoutEntryAreAdded() {
+		Map<SteinerNode, TreeSet<SteinerEdge>> adjacency = new HashMap<>();
+		SteinerNode a = new SteinerNode("a");
+		adjacency.put(a, new TreeSet<SteinerEdge>());
+		adjacency.get(a).add(new SteinerEdge(new SteinerNode("x"), "r", a, 1f));
+
+		SteinerSearchGraph graph = SteinerSearchGraph.fromAdjacency(adjacency);
+		assertEquals(2, graph.size());
+		int x = graph.getId("x");
+		assertEquals(graph.getFirstEdge(x), graph.getEndEdge(x));
+	}
+}
@@ -0,0 +1,162 @@
+package edu.isi.karma.rep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.controller.command.selection.Selection;
+import edu.isi.karma.controller.command.selection.StoredSelection;
+import edu.isi.karma.controller.command.selection.SuperSelection;
+import edu.isi.karma.controller.command.selection.SuperSelectionManager;
+import edu.isi.karma.rep.HNode.HNodeType;
+import edu.isi.karma.rep.Node.NodeStatus;
+
+public class TestWorksheetSnapshot {
+
+	private Workspace workspace;
+
+	@Before
+	public void setUp() {
+		workspace = WorkspaceManager.getInstance().createWorkspace("test");
+	}
+
+	@After
+	public void tearDown() {
+		WorkspaceManager.getInstance().removeWorkspace(workspace.getId());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		RepFactory factory = workspace.getFactory();
+		Worksheet worksheet = factory.createWorksheet("people", workspace, "UTF-8");
+		HNode name = worksheet.addHNode("name", HNodeType.Regular, factory);
+		HNode phones = worksheet.addHNode("phones", HNodeType.Regular, factory);
+		HTable phonesTable = phones.addNestedTable("phones", worksheet, factory);
+		HNode number = phonesTable.addHNode("number", HNodeType.Regular, worksheet, factory);
+		HNode upper = worksheet.addHNode("name_upper", HNodeType.Transformation, factory);
+		upper.setAsDerivedFromAnotherColumn(name.getId());
+
+		for (int i = 0; i < 100; i++) {
+			Row row = worksheet.addRow(factory);
+			row.setValue(name.getId(), "person " + (i % 10), NodeStatus.original, factory);
+			row.setValue(upper.getId(), "PERSON " + (i % 10), NodeStatus.edited, factory);
+			Table nested = row.getNode(phones.getId()).getNestedTable();
+			for (int j = 0; j < i % 3; j++) {
+				nested.addRow(factory).setValue(number.getId(), "555-" + j, NodeStatus.original, factory);
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		WorksheetSnapshot.write(worksheet, "key", out);
+
+		assertNull(WorksheetSnapshot.read(new ByteArrayInputStream(out.toByteArray()), "other", workspace));
+		Worksheet restored = WorksheetSnapshot.read(new ByteArrayInputStream(out.toByteArray()), "key", workspace);
+		assertNotEquals(worksheet.getId(), restored.getId());
+		assertEquals("people", restored.getTitle());
+		assertEquals("UTF-8", restored.getEncoding());
+
+		List<HNode> hNodes = restored.getHeaders().getSortedHNodes();
+		assertEquals(3, hNodes.size());
+		assertEquals("name", hNodes.get(0).getColumnName());
+		assertEquals("number", hNodes.get(1).getNestedTable().getSortedHNodes().get(0).getColumnName());
+		assertEquals(HNodeType.Transformation, hNodes.get(2).getHNodeType());
+		assertEquals(hNodes.get(0).getId(), hNodes.get(2).getOriginalColumnHNodeId());
+
+		Table data = restored.getDataTable();
+		assertEquals(100, data.getNumRows());
+		List<Row> rows = data.getRows(0, 100, SuperSelectionManager.DEFAULT_SELECTION);
+		for (int i = 0; i < 100; i++) {
+			Row row = rows.get(i);
+			assertEquals("person " + (i % 10), row.getNode(hNodes.get(0).getId()).getValue().asString());
+			Node derived = row.getNode(hNodes.get(2).getId());
+			assertEquals(NodeStatus.edited, derived.getStatus());
+			Table nested = row.getNode(hNodes.get(1).getId()).getNestedTable();
+			assertEquals(i % 3, nested.getNumRows());
+		}
+	}
+
+	@Test
+	public void testSelections() throws Exception {
+		RepFactory factory = workspace.getFactory();
+		Worksheet worksheet = factory.createWorksheet("people", workspace, "UTF-8");
+		HNode name = worksheet.addHNode("name", HNodeType.Regular, factory);
+		HNode phones = worksheet.addHNode("phones", HNodeType.Regular, factory);
+		HTable phonesTable = phones.addNestedTable("phones", worksheet, factory);
+		HNode number = phonesTable.addHNode("number", HNodeType.Regular, worksheet, factory);
+		List<Row> selectedRows = new ArrayList<>();
+		List<Row> selectedPhones = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			Row row = worksheet.addRow(factory);
+			row.setValue(name.getId(), "person " + i, NodeStatus.original, factory);
+			Row phone = row.getNode(phones.getId()).getNestedTable().addRow(factory);
+			phone.setValue(number.getId(), "555-" + i, NodeStatus.original, factory);
+			if (i % 3 == 0)
+				selectedRows.add(row);
+			if (i % 2 == 0)
+				selectedPhones.add(phone);
+		}
+		SuperSelection superSelection = worksheet.getSuperSelectionManager().defineSelection("odd");
+		Selection selection = new StoredSelection(workspace, worksheet.getId(), worksheet.getHeaders().getId(),
+				"rows", "odd", selectedRows);
+		selection.setTags(Arrays.asList(Selection.Tag.IGNORE_IN_JSON_EXPORT));
+		superSelection.addSelection(selection);
+		superSelection.addSelection(new StoredSelection(workspace, worksheet.getId(), phonesTable.getId(),
+				"phones", "odd", selectedPhones));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		WorksheetSnapshot.write(worksheet, "key", out);
+		Worksheet restored = WorksheetSnapshot.read(new ByteArrayInputStream(out.toByteArray()), "key", workspace);
+
+		SuperSelection restoredSelection = restored.getSuperSelectionManager().getSuperSelection("odd");
+		assertEquals(2, restoredSelection.getAllSelection().size());
+		Selection rows = restoredSelection.getSelection(restored.getHeaders().getId());
+		assertEquals(Arrays.asList(Selection.Tag.IGNORE_IN_JSON_EXPORT), rows.getTags());
+		HNode restoredPhones = restored.getHeaders().getSortedHNodes().get(1);
+		List<Row> restoredRows = restored.getDataTable().getRows(0, 10, SuperSelectionManager.DEFAULT_SELECTION);
+		for (int i = 0; i < 10; i++) {
+			Row row = restoredRows.get(i);
+			Row phone = row.getNode(restoredPhones.getId()).getNestedTable().getRows(0, 1, 
+					SuperSelectionManager.DEFAULT_SELECTION).get(0);
+			assertEquals(i % 3 == 0, restoredSelection.isSelected(row));
+			assertEquals(i % 2 == 0, restoredSelection.isSelected(phone));
+		}
+		assertEquals(0, restored.getSuperSelectionManager().getSuperSelection(
+				SuperSelectionManager.DEFAULT_SELECTION_TEST_NAME).getAllSelection().size());
+	}
+
+	@Test
+	public void testFileDigest() throws Exception {
+		File file = File.createTempFile("source", ".csv");
+		try {
+			String digest = WorksheetSnapshot.digest(file);
+			assertEquals(digest, WorksheetSnapshot.digest(file));
+			assertTrue(file.setLastModified(file.lastModified() - 10000));
+			assertNotEquals(digest, WorksheetSnapshot.digest(file));
+		} finally {
+			assertTrue(file.delete());
+		}
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void testKey() {
+		String key = WorksheetSnapshot.computeKey("digest", Arrays.asList("people", "CSV", "DELIMITER=,"));
+		assertEquals(key, WorksheetSnapshot.computeKey("digest", Arrays.asList("people", "CSV", "DELIMITER=,")));
+		assertNotEquals(key, WorksheetSnapshot.computeKey("digest", Arrays.asList("people", "CSV", "DELIMITER=;")));
+		assertNotEquals(key, WorksheetSnapshot.computeKey("digest", Arrays.asList("people", "JSON", "DELIMITER=,")));
+		assertNotEquals(key, WorksheetSnapshot.computeKey("other", Arrays.asList("people", "CSV", "DELIMITER=,")));
+	}
+}
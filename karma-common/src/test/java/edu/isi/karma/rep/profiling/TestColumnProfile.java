@@ -0,0 +1,70 @@
+package edu.isi.karma.rep.profiling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import edu.isi.karma.rep.profiling.ColumnProfile.ValueType;
+
+public class TestColumnProfile {
+
+	@Test
+	public void testDetectType() {
+		assertEquals(ValueType.Integer, ColumnProfile.detectType("-1,234"));
+		assertEquals(ValueType.Decimal, ColumnProfile.detectType("3.14"));
+		assertEquals(ValueType.Boolean, ColumnProfile.detectType("true"));
+		assertEquals(ValueType.DayOfWeek, ColumnProfile.detectType("Monday"));
+		assertEquals(ValueType.Date, ColumnProfile.detectType("2014-05-01"));
+		assertEquals(ValueType.String, ColumnProfile.detectType("abc 12"));
+	}
+
+	@Test
+	public void testDistinctCount() {
+		ColumnProfile profile = new ColumnProfile();
+		for (int i = 0; i < 100000; i++)
+			profile.add("value " + (i % 20000));
+		long distinct = profile.getDistinctCount();
+		assertTrue("estimate " + distinct, Math.abs(distinct - 20000) < 20000 * 0.05);
+	}
+
+	@Test
+	public void testChartData() throws Exception {
+		ColumnProfile profile = new ColumnProfile();
+		for (int i = 0; i < 1000; i++)
+			profile.add(String.valueOf(i));
+		profile.add("n/a");
+		profile.add("");
+		profile.add(null);
+
+		assertEquals(ValueType.Integer, profile.getType());
+		assertEquals(1003, profile.getTotalCount());
+		assertEquals(1000, profile.getValidCount());
+		assertEquals(1, profile.getInvalidCount());
+		assertEquals(2, profile.getMissingCount());
+
+		JSONObject chart = profile.toChartData();
+		assertEquals("Integer", chart.getString("xLabel"));
+		assertEquals(1003, chart.getLong("Total_ID_Count"));
+		JSONArray histogram = new JSONArray(chart.getString("histogram"));
+		assertEquals("Missing", histogram.getJSONObject(histogram.length() - 2).getString("Value"));
+		assertEquals("Invalid", histogram.getJSONObject(histogram.length() - 1).getString("Value"));
+		long sum = 0;
+		for (int i = 0; i < histogram.length() - 2; i++)
+			sum += histogram.getJSONObject(i).getLong("Frequency");
+		assertEquals(1000, sum);
+	}
+
+	@Test
+	public void testCategoricalChartData() throws Exception {
+		ColumnProfile profile = new ColumnProfile();
+		for (int i = 0; i < 500; i++)
+			profile.add("v" + (i % 50));
+		JSONArray histogram = new JSONArray(profile.toChartData().getString("histogram"));
+		JSONObject last = histogram.getJSONObject(histogram.length() - 1);
+		assertEquals("Remaining", last.getString("Value"));
+		assertEquals(410, last.getLong("Frequency"));
+	}
+}
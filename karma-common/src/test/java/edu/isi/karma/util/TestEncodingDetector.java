@@ -0,0 +1,79 @@
+package edu.isi.karma.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestEncodingDetector {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("test", ".csv");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testLargeASCIIFileIsSampled() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+			sb.append("row ").append(i).append(",value ").append(i).append('\n');
+		write(sb.toString().getBytes("US-ASCII"));
+
+		EncodingDetector.Detection detection = EncodingDetector.detect(file, 1024, 4);
+		assertEquals("UTF-8", detection.getEncoding());
+		assertEquals(1024 + 4 * EncodingDetector.SAMPLE_SIZE, detection.getBytesRead());
+		assertTrue(detection.getBytesRead() < file.length());
+
+		// cached until the file changes
+		assertEquals(0, EncodingDetector.detect(file, 1024, 4).getBytesRead());
+		sb.append("last row\n");
+		write(sb.toString().getBytes("US-ASCII"));
+		assertNotEquals(0, EncodingDetector.detect(file, 1024, 4).getBytesRead());
+	}
+
+	@Test
+	public void testUTF8AndLatin1() throws Exception {
+		String text = "name,city\nJos\u00e9,S\u00e3o Paulo\nZo\u00eb,K\u00f6ln\nFran\u00e7ois,Montr\u00e9al\n";
+		write(text.getBytes("UTF-8"));
+		assertEquals("UTF-8", EncodingDetector.detect(file));
+
+		write(text.getBytes("ISO-8859-1"));
+		assertNotEquals("UTF-8", EncodingDetector.detect(file));
+		assertNotEquals("UTF-8", EncodingDetector.detect(new ByteArrayInputStream(text.getBytes("ISO-8859-1")), 1024));
+	}
+
+	@Test
+	public void testUTF8Structure() throws Exception {
+		assertTrue(EncodingDetector.isValidUTF8("a\u00e9\u20ac\ud83d\ude00".getBytes("UTF-8"), false));
+		// a sample can start and end inside a character
+		byte[] euro = "\u20ac\u20ac".getBytes("UTF-8");
+		assertTrue(EncodingDetector.isValidUTF8(Arrays.copyOfRange(euro, 1, 5), true));
+		assertFalse(EncodingDetector.isValidUTF8(Arrays.copyOfRange(euro, 1, 5), false));
+		// overlong encoding and surrogate
+		assertFalse(EncodingDetector.isValidUTF8(new byte[] { (byte) 0xC0, (byte) 0xAF }, false));
+		assertFalse(EncodingDetector.isValidUTF8(new byte[] { (byte) 0xED, (byte) 0xA0, (byte) 0x80 }, false));
+	}
+
+	private void write(byte[] bytes) throws Exception {
+		try (OutputStream os = new FileOutputStream(file)) {
+			os.write(bytes);
+		}
+	}
+}
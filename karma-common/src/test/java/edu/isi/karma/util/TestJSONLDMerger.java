@@ -0,0 +1,100 @@
+package edu.isi.karma.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+public class TestJSONLDMerger {
+
+	private static final String JSON_LINE = "{\"a\": [\"Vulnerability\"], "
+			+ "\"dateRecorded\": [\"2017-02-10T12:13:51\",\"2017-02-09T18:13:51\"], "
+			+ "\"description\": \"d\", "
+			+ "\"publisher\": \"hg-cve\", \"uri\": \"http://effect.isi.edu/data/vulnerability/CVE-2013-2067\", "
+			+ "\"source\": \"hg-cve-2A7DF54A\", "
+			+ "\"hasCVSS\": {\"uri\" :\"http://effect.isi.edu/data/vulnerability/CVE-2013-2067/scoring\"}, "
+			+ "\"vulnerabilityOf\": [{\"uri\":\"cpe:/a:apache:tomcat:7.0.12\"}, {\"uri\": \"cpe:/a:apache:tomcat:6.0.27\"}], "
+			+ "\"name\": [\"CVE-2013-2067\"]}";
+
+	@Test
+	public void testProvenance() throws Exception {
+		HashMap<String, String> provProperties = new HashMap<>();
+		provProperties.put("source", "string");
+		provProperties.put("publisher", "string");
+		provProperties.put("dateRecorded", "date");
+
+		JSONParser parser = new JSONParser();
+		JSONObject json2 = (JSONObject) parser.parse(JSON_LINE);
+		json2.put("dateRecorded", "2017-02-09T16:13:51");
+		json2.put("source", "hg-cve-FFFFFFFF");
+		JSONLDMerger merger = new JSONLDMerger(provProperties);
+		merger.add(JSON_LINE);
+		merger.add(json2);
+
+		//dateRecorded should be min/max. source should be only for json1 as we have not added any new data
+		JSONObject result = merger.toJSONObject();
+		assertEquals("[\"2017-02-09T16:13:51\",\"2017-02-10T12:13:51\"]", result.get("dateRecorded").toString());
+		assertEquals("hg-cve-2A7DF54A", result.get("source").toString());
+
+		//Add new vulnerability. It should not be added to source as its an object property
+		JSONObject vul = new JSONObject();
+		vul.put("uri", "cpe:/a:apache:tomcat:8.0.12");
+		((JSONArray) json2.get("vulnerabilityOf")).add(vul);
+		merger.add(json2);
+		result = merger.toJSONObject();
+		assertEquals("hg-cve-2A7DF54A", result.get("source").toString());
+		assertEquals(3, ((JSONArray) result.get("vulnerabilityOf")).size());
+
+		//Add a new field to json2. The source should get added as we have added new data
+		json2.put("tempField", "test");
+		merger.add(json2);
+		result = merger.toJSONObject();
+		assertEquals("[\"2017-02-09T16:13:51\",\"2017-02-10T12:13:51\"]", result.get("dateRecorded").toString());
+		assertEquals("[\"hg-cve-2A7DF54A\",\"hg-cve-FFFFFFFF\"]", result.get("source").toString());
+	}
+
+	@Test
+	public void testSameResultAsPairwiseMerge() throws Exception {
+		JSONParser parser = new JSONParser();
+		String[] fragments = new String[] {
+				"{\"uri\":\"http://example.org/p\",\"a\":\"Person\",\"name\":\"Bob\",\"knows\":{\"uri\":\"http://example.org/q\",\"name\":\"Q\"}}",
+				"{\"uri\":\"http://example.org/p\",\"a\":\"Person\",\"name\":[\"Alice\",\"Bob\"],\"knows\":[{\"uri\":\"http://example.org/q\",\"age\":\"3\"},{\"uri\":\"http://example.org/r\"}]}",
+				"{\"uri\":\"http://example.org/p\",\"email\":\"p@example.org\",\"knows\":\"http://example.org/s\"}"
+		};
+		JSONObject expected = new JSONObject();
+		JSONLDMerger merger = new JSONLDMerger();
+		for (String fragment : fragments) {
+			expected = JSONLDUtilSimple.mergeJSONObjects(expected, (JSONObject) parser.parse(fragment), new HashMap<String, String>());
+			merger.add(fragment);
+		}
+		assertEquals(parser.parse(expected.toJSONString()), parser.parse(merger.toJSONObject().toJSONString()));
+	}
+
+	@Test
+	public void testManyFragments() throws Exception {
+		JSONLDMerger merger = new JSONLDMerger();
+		JSONLDMerger other = new JSONLDMerger();
+		for (int i = 0; i < 100000; i++) {
+			JSONObject fragment = new JSONObject();
+			fragment.put("uri", "http://example.org/popular");
+			fragment.put("name", "name" + (i % 50000));
+			JSONObject link = new JSONObject();
+			link.put("uri", "http://example.org/link/" + (i % 1000));
+			link.put("label", "label" + i % 3);
+			fragment.put("linkedFrom", link);
+			(i % 2 == 0 ? merger : other).add(fragment);
+		}
+		merger.addAll(other);
+		JSONObject result = merger.toJSONObject();
+		assertEquals(50000, ((JSONArray) result.get("name")).size());
+		JSONArray links = (JSONArray) result.get("linkedFrom");
+		assertEquals(1000, links.size());
+		for (Object link : links)
+			assertTrue(((JSONObject) link).get("label") instanceof JSONArray);
+	}
+}
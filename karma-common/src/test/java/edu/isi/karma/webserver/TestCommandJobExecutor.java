@@ -0,0 +1,98 @@
+package edu.isi.karma.webserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestCommandJobExecutor {
+
+	private final CommandJobExecutor executor = CommandJobExecutor.getInstance();
+
+	@Test
+	public void testSameLaneRunsInOrder() throws Exception {
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch done = new CountDownLatch(20);
+		for (int i = 0; i < 20; i++) {
+			final int n = i;
+			executor.submit("ws1/sheet1", new CommandJob(null, "ws1", "sheet1"), new Runnable() {
+				@Override
+				public void run() {
+					order.add(n);
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 20; i++) {
+			assertEquals(i, order.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testOtherLanesDoNotWait() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch otherDone = new CountDownLatch(1);
+		executor.submit("ws1/slow", new CommandJob(null, "ws1", "slow"), new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		executor.submit("ws1/fast", new CommandJob(null, "ws1", "fast"), new Runnable() {
+			@Override
+			public void run() {
+				otherDone.countDown();
+			}
+		});
+		boolean ranWhileBlocked = otherDone.await(10, TimeUnit.SECONDS);
+		release.countDown();
+		assertTrue(ranWhileBlocked);
+	}
+
+	@Test
+	public void testCancelQueuedJob() throws Exception {
+		CommandJob job = new CommandJob(null, "ws1", "sheet2");
+		job.cancel();
+		assertEquals(CommandJob.Status.cancelled, job.getStatus());
+		assertFalse(job.start());
+	}
+
+	@Test
+	public void testRDFGenerationProgress() throws Exception {
+		CommandJob job = new CommandJob(null, "ws1", "sheet3");
+		assertTrue(job.start());
+		try {
+			assertSame(job, CommandJob.getCurrentJob());
+			job.rowsGenerated(2000, 8000);
+			assertEquals(0.25, job.getProgress(), 0);
+			assertFalse(job.isCancelled());
+			job.cancel();
+			assertTrue(job.isCancelled());
+			assertTrue(Thread.interrupted());
+		} finally {
+			job.complete(null);
+		}
+		assertEquals(CommandJob.Status.cancelled, job.getStatus());
+		assertNull(CommandJob.getCurrentJob());
+	}
+
+	@Test
+	public void testProgressOutsideJobIsIgnored() {
+		CommandJob.reportProgress(0.5, "half");
+		assertFalse(CommandJob.isCancelRequested());
+	}
+}
@@ -22,12 +22,22 @@
 package edu.isi.karma.rdf;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -45,6 +55,7 @@ import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
 import edu.isi.karma.kr2rml.mapping.WorksheetR2RMLJenaModelParser;
 import edu.isi.karma.kr2rml.writer.JSONKR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
+import edu.isi.karma.metrics.MetricsRegistry;
 import edu.isi.karma.rep.HNode;
 import edu.isi.karma.rep.HNode.HNodeType;
 import edu.isi.karma.rep.HTable;
@@ -72,6 +83,15 @@ public class DatabaseTableRDFGenerator extends RdfGenerator {
 	private String encoding;
 	private ServletContextParameterMap contextParameters;
 	private static int DATABASE_TABLE_FETCH_SIZE = 10000;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Creates the writers of a partition of the partitioned extraction.
+	 * The writers are flushed and closed when the partition is done.
+	 */
+	public interface PartitionWriters {
+		List<KR2RMLRDFWriter> createWriters(int partition) throws Exception;
+	}
 	
 	public DatabaseTableRDFGenerator(DBType dbType, String hostname,
 			int portnumber, String username, String password,
@@ -115,6 +135,250 @@ public class DatabaseTableRDFGenerator extends RdfGenerator {
 		generateRDF(tablename, query, writers, id, baseURI);
 	}
 	
+	/**
+	 * Sets the number of partitions read at a time by the partitioned extraction
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+	
+	/**
+	 * Generates the RDF of a table by splitting it on the ranges of a column,
+	 * each range is read on its own connection and written to the writers of
+	 * its partition.
+	 * @param partitionColumn the column to split the table on, by default its
+	 * primary key if the key has a single column
+	 * @return the number of partitions, the partitions are numbered in the
+	 * order of the column
+	 */
+	public int generateRDFFromTable(String tablename, String partitionColumn, int numberOfPartitions,
+			PartitionWriters partitionWriters, R2RMLMappingIdentifier id, 
+			ContextIdentifier contextId, String baseURI)
+			throws IOException, JSONException, KarmaException, SQLException, ClassNotFoundException {
+		AbstractJDBCUtil dbUtil = JDBCUtilFactory.getInstance(dbType);
+		if (partitionColumn == null) {
+			partitionColumn = getPrimaryKeyColumn(tablename);
+			if (partitionColumn == null) {
+				logger.warn("No single column primary key found for " + tablename + ", the table is read as one partition");
+				numberOfPartitions = 1;
+			}
+		}
+		return generatePartitions(tablename, dbUtil.escapeTablename(tablename), partitionColumn, numberOfPartitions,
+				partitionWriters, id, contextId, baseURI);
+	}
+	
+	/**
+	 * Generates the RDF of the rows of a query by splitting them on the ranges
+	 * of one of its columns, like {@link #generateRDFFromTable(String, String, int, PartitionWriters, R2RMLMappingIdentifier, ContextIdentifier, String)}
+	 * @return the number of partitions
+	 */
+	public int generateRDFFromSQL(String query, String partitionColumn, int numberOfPartitions,
+			PartitionWriters partitionWriters, R2RMLMappingIdentifier id, 
+			ContextIdentifier contextId, String baseURI)
+			throws IOException, JSONException, KarmaException, SQLException, ClassNotFoundException {
+		String wkname = query.replace(" ", "_");
+		if(wkname.length() > 100)
+			wkname = wkname.substring(0, 99) + "...";
+		query = query.trim();
+		if (query.endsWith(";"))
+			query = query.substring(0, query.length() - 1);
+		return generatePartitions(wkname, "(" + query + ") karma_partition", partitionColumn, numberOfPartitions,
+				partitionWriters, id, contextId, baseURI);
+	}
+	
+	private int generatePartitions(final String wkname, String from, String partitionColumn, int numberOfPartitions,
+			final PartitionWriters partitionWriters, final R2RMLMappingIdentifier id, 
+			final ContextIdentifier contextId, final String baseURI)
+			throws IOException, JSONException, KarmaException, SQLException, ClassNotFoundException {
+		AbstractJDBCUtil dbUtil = JDBCUtilFactory.getInstance(dbType);
+		final List<String> queries = new ArrayList<>();
+		final List<List<Object>> parameters = new ArrayList<>();
+		String query = "Select * FROM " + from;
+		List<Object> boundaries = Collections.emptyList();
+		if (partitionColumn != null && numberOfPartitions > 1) {
+			String column = dbUtil.prepareName(partitionColumn);
+			boundaries = getPartitionBoundaries(from, column, numberOfPartitions);
+			for (int i = 0; i <= boundaries.size() && !boundaries.isEmpty(); i++) {
+				List<Object> values = new ArrayList<>();
+				if (i == 0) {
+					queries.add(query + " WHERE " + column + " < ? OR " + column + " IS NULL");
+					values.add(boundaries.get(0));
+				} else if (i == boundaries.size()) {
+					queries.add(query + " WHERE " + column + " >= ?");
+					values.add(boundaries.get(i - 1));
+				} else {
+					queries.add(query + " WHERE " + column + " >= ? AND " + column + " < ?");
+					values.add(boundaries.get(i - 1));
+					values.add(boundaries.get(i));
+				}
+				parameters.add(values);
+			}
+		}
+		if (queries.isEmpty()) {
+			queries.add(query);
+			parameters.add(Collections.<Object>emptyList());
+		}
+		logger.info("Generating RDF of " + wkname + " in " + queries.size() + " partitions on " + partitionColumn);
+
+		// The mapping does not change between the partitions, it is only parsed once
+		final KR2RMLMapping mapping = new WorksheetR2RMLJenaModelParser(id).parse();
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, queries.size()));
+		try {
+			for (int i = 0; i < queries.size(); i++) {
+				final int partition = i;
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						if (!errors.isEmpty())
+							return;
+						long start = System.currentTimeMillis();
+						List<KR2RMLRDFWriter> writers = null;
+						try {
+							writers = partitionWriters.createWriters(partition);
+							initializeWriter(id, contextId, writers);
+							generateRDF(wkname, queries.get(partition), parameters.get(partition), writers, mapping, baseURI);
+							logger.info("Generated partition " + partition + " of " + wkname + " in " 
+									+ (System.currentTimeMillis() - start) + " ms");
+						} catch (Throwable t) {
+							logger.error("Unable to generate partition " + partition + " of " + wkname, t);
+							errors.add(t);
+						} finally {
+							if (writers != null) {
+								for (KR2RMLRDFWriter writer : writers) {
+									writer.flush();
+									writer.close();
+								}
+							}
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.info("Generating RDF of " + wkname + "...");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new KarmaException("Interrupted while generating RDF of " + wkname);
+		} finally {
+			executor.shutdownNow();
+		}
+		if (!errors.isEmpty()) {
+			throw new KarmaException("Unable to generate RDF of " + wkname + ": " + errors.get(0).getMessage());
+		}
+		return queries.size();
+	}
+	
+	private String getPrimaryKeyColumn(String tablename) throws SQLException, ClassNotFoundException {
+		Connection conn = getConnection();
+		try {
+			String schema = null;
+			int idx = tablename.indexOf(".");
+			if (idx != -1) {
+				schema = tablename.substring(0, idx);
+				tablename = tablename.substring(idx + 1);
+			}
+			DatabaseMetaData metaData = conn.getMetaData();
+			List<String> columns = new ArrayList<>();
+			ResultSet r = metaData.getPrimaryKeys(conn.getCatalog(), schema, tablename);
+			while (r.next()) {
+				columns.add(r.getString("COLUMN_NAME"));
+			}
+			r.close();
+			return columns.size() == 1 ? columns.get(0) : null;
+		} finally {
+			conn.close();
+		}
+	}
+	
+	/**
+	 * Splits the values of a column in ranges of about the same size. The
+	 * ranges of a numeric column are of the same width between its minimum
+	 * and its maximum, the other columns are scanned in order and split on
+	 * every count / numberOfPartitions values.
+	 * @return the lower bounds of the partitions after the first one, in
+	 * increasing order
+	 */
+	private List<Object> getPartitionBoundaries(String from, String column, int numberOfPartitions)
+			throws SQLException, ClassNotFoundException {
+		Connection conn = getConnection();
+		List<Object> boundaries = new ArrayList<>();
+		try {
+			conn.setAutoCommit(false);
+			Object min;
+			Object max;
+			long count;
+			Statement stmt = conn.createStatement();
+			try {
+				ResultSet r = stmt.executeQuery("Select MIN(" + column + "), MAX(" + column + "), COUNT(" + column + ") FROM " + from);
+				r.next();
+				min = r.getObject(1);
+				max = r.getObject(2);
+				count = r.getLong(3);
+				r.close();
+			} finally {
+				stmt.close();
+			}
+			if (min == null || max == null || count < numberOfPartitions) {
+				return boundaries;
+			}
+			if (min instanceof Number && max instanceof Number) {
+				BigDecimal low = new BigDecimal(min.toString());
+				BigDecimal width = new BigDecimal(max.toString()).subtract(low);
+				boolean integral = isIntegral(min) && isIntegral(max);
+				for (int i = 1; i < numberOfPartitions; i++) {
+					BigDecimal boundary = low.add(width.multiply(BigDecimal.valueOf(i))
+							.divide(BigDecimal.valueOf(numberOfPartitions), 10, RoundingMode.FLOOR));
+					if (integral)
+						boundary = boundary.setScale(0, RoundingMode.FLOOR);
+					if (boundary.compareTo(low) > 0)
+						addBoundary(boundaries, boundary);
+				}
+				return boundaries;
+			}
+			stmt = conn.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY);
+			try {
+				stmt.setFetchSize(DATABASE_TABLE_FETCH_SIZE);
+				ResultSet r = stmt.executeQuery("Select " + column + " FROM " + from + " WHERE " + column + " IS NOT NULL ORDER BY " + column);
+				long step = (count + numberOfPartitions - 1) / numberOfPartitions;
+				long n = 0;
+				while (r.next()) {
+					if (n > 0 && n % step == 0) {
+						addBoundary(boundaries, r.getObject(1));
+					}
+					n++;
+				}
+				r.close();
+			} finally {
+				stmt.close();
+			}
+			return boundaries;
+		} finally {
+			conn.close();
+		}
+	}
+	
+	/**
+	 * Opens a new connection to the database, it is closed by the caller
+	 */
+	protected Connection getConnection() throws SQLException, ClassNotFoundException {
+		return JDBCUtilFactory.getInstance(dbType).getConnection(hostname, portnumber, username, password, dBorSIDName);
+	}
+	
+	private static boolean isIntegral(Object value) {
+		if (value instanceof BigDecimal)
+			return ((BigDecimal) value).scale() <= 0;
+		return value instanceof Long || value instanceof Integer || value instanceof Short 
+				|| value instanceof Byte || value instanceof BigInteger;
+	}
+	
+	private static void addBoundary(List<Object> boundaries, Object boundary) {
+		if (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(boundary)) {
+			boundaries.add(boundary);
+		}
+	}
+	
 	private void initializeWriter(R2RMLMappingIdentifier id, ContextIdentifier contextId, List<KR2RMLRDFWriter> writers) {
 		JSONObject contextObj = new JSONObject();
 		if (contextId != null) {
@@ -146,16 +410,55 @@ public class DatabaseTableRDFGenerator extends RdfGenerator {
 			writer.setR2RMLMappingIdentifier(id);
 
 		}
+		generateRDF(wkname, query, Collections.<Object>emptyList(), writers, mapping, baseURI);
+		logger.debug("done");
+	}
+
+	/**
+	 * Generates the RDF of the rows of the query, with a new worksheet for
+	 * every DATABASE_TABLE_FETCH_SIZE rows. The mapping is only parsed once
+	 * by the callers, it does not change between the worksheets.
+	 * 
+	 * The worksheet of a window cannot be reused for the next one: the
+	 * history of the mapping is applied to it, and its transformations add
+	 * columns and values to the worksheet, so replaying the history on the
+	 * same worksheet would add the columns again. The windows and the ranges
+	 * of the partitions each get a new workspace, which is removed once its
+	 * rows are written.
+	 * @param parameters the values of the parameters of the query
+	 */
+	private void generateRDF(String wkname, String query, List<Object> parameters,
+			List<KR2RMLRDFWriter> writers, KR2RMLMapping mapping, String baseURI) 
+			throws IOException, JSONException, KarmaException, SQLException, ClassNotFoundException{
 		AbstractJDBCUtil dbUtil = JDBCUtilFactory.getInstance(dbType);
-		Connection conn = dbUtil.getConnection(hostname, portnumber, username, password, dBorSIDName);
-		conn.setAutoCommit(false);
-		
-		java.sql.Statement stmt = conn.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
-				java.sql.ResultSet.CONCUR_READ_ONLY);
-		stmt.setFetchSize(DATABASE_TABLE_FETCH_SIZE);
-		
-		ResultSet r = stmt.executeQuery(query);
-		ResultSetMetaData meta = r.getMetaData();;
+		Connection conn = getConnection();
+		try {
+			conn.setAutoCommit(false);
+			PreparedStatement stmt = conn.prepareStatement(query, java.sql.ResultSet.TYPE_FORWARD_ONLY,
+					java.sql.ResultSet.CONCUR_READ_ONLY);
+			try {
+				stmt.setFetchSize(DATABASE_TABLE_FETCH_SIZE);
+				for (int i = 0; i < parameters.size(); i++) {
+					stmt.setObject(i + 1, parameters.get(i));
+				}
+				ResultSet r = stmt.executeQuery();
+				try {
+					generateRDF(wkname, r, dbUtil, writers, mapping, baseURI);
+				} finally {
+					r.close();
+				}
+			} finally {
+				stmt.close();
+			}
+		} finally {
+			conn.close();
+		}
+	}
+	
+	private void generateRDF(String wkname, ResultSet r, AbstractJDBCUtil dbUtil,
+			List<KR2RMLRDFWriter> writers, KR2RMLMapping mapping, String baseURI) 
+			throws IOException, JSONException, KarmaException, SQLException {
+		ResultSetMetaData meta = r.getMetaData();
 		
 		// Get the column names
 		List<String> columnNames = new ArrayList<>();
@@ -164,48 +467,47 @@ public class DatabaseTableRDFGenerator extends RdfGenerator {
 		}
 		
 		// Prepare required Karma objects
-	     Workspace workspace = initializeWorkspace(contextParameters);
- 	
-		RepFactory factory = workspace.getFactory();
-		Worksheet wk = factory.createWorksheet(wkname, workspace, encoding);
-		List<String> headersList = addHeaders(wk, columnNames, factory);
-		
-		int counter = 0;
-		
-		List<String> rowValues = null;
-		while ((rowValues = dbUtil.parseResultSetRow(r)) != null) {
-			// Generate RDF and create a new worksheet for every DATABASE_TABLE_FETCH_SIZE rows
-			if(counter%DATABASE_TABLE_FETCH_SIZE == 0 && counter != 0) {
-				generateRDFFromWorksheet(wk, workspace, mapping, writers, baseURI);
-				logger.debug("Done for " + counter + " rows ..." );
-			    removeWorkspace(workspace);
-			    
-			    parserTest = new WorksheetR2RMLJenaModelParser(id);
-				mapping = parserTest.parse();
-			    workspace = initializeWorkspace(contextParameters);
-			    factory = workspace.getFactory();
-				wk = factory.createWorksheet(wkname, workspace, encoding);
-				headersList = addHeaders(wk, columnNames, factory);
+		Workspace workspace = initializeWorkspace(contextParameters);
+		try {
+			RepFactory factory = workspace.getFactory();
+			Worksheet wk = factory.createWorksheet(wkname, workspace, encoding);
+			List<String> headersList = addHeaders(wk, columnNames, factory);
+			
+			int counter = 0;
+			
+			// the rows are imported while they are fetched
+			MetricsRegistry.Timer importTimer = metrics.start(MetricsRegistry.IMPORT);
+			List<String> rowValues = null;
+			while ((rowValues = dbUtil.parseResultSetRow(r)) != null) {
+				// Generate RDF and create a new worksheet for every DATABASE_TABLE_FETCH_SIZE rows
+				if(counter%DATABASE_TABLE_FETCH_SIZE == 0 && counter != 0) {
+					importTimer.stop();
+					generateRDFFromWorksheet(wk, workspace, mapping, writers, baseURI);
+					logger.debug("Done for " + counter + " rows ..." );
+				    removeWorkspace(workspace);
+				    
+				    workspace = initializeWorkspace(contextParameters);
+				    factory = workspace.getFactory();
+					wk = factory.createWorksheet(wkname, workspace, encoding);
+					headersList = addHeaders(wk, columnNames, factory);
+					importTimer = metrics.start(MetricsRegistry.IMPORT);
+				}
+				
+				/** Add the data **/
+		        Table dataTable = wk.getDataTable();
+		        Row row = dataTable.addRow(factory);
+		        for(int i=0; i<rowValues.size(); i++) {
+		        	row.setValue(headersList.get(i), rowValues.get(i), factory);
+		        }
 				
+				counter++;
 			}
+			importTimer.stop();
 			
-			/** Add the data **/
-	        Table dataTable = wk.getDataTable();
-	        Row row = dataTable.addRow(factory);
-	        for(int i=0; i<rowValues.size(); i++) {
-	        	row.setValue(headersList.get(i), rowValues.get(i), factory);
-	        }
-			
-			counter++;
+			generateRDFFromWorksheet(wk, workspace, mapping, writers, baseURI);
+		} finally {
+			removeWorkspace(workspace);
 		}
-		
-		generateRDFFromWorksheet(wk, workspace, mapping, writers, baseURI);
-		
-		// Releasing all the resources
-		r.close();
-		conn.close();
-		stmt.close();
-		logger.debug("done");
 	}
 	
 	private void generateRDFFromWorksheet(Worksheet wk, 
@@ -225,6 +527,7 @@ public class DatabaseTableRDFGenerator extends RdfGenerator {
 		KR2RMLWorksheetRDFGenerator rdfGen = new KR2RMLWorksheetRDFGenerator(wk,
 				workspace, writers, false,
 				mapping, errorReport, selection);
+		rdfGen.setMetrics(metrics);
 
 		// Generate the rdf
 		rdfGen.generateRDF(false);
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ * This code was developed by the Information Integration Group as part 
+ * of the Karma project at the Information Sciences Institute of the 
+ * University of Southern California.  For more information, publications, 
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.rdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.isi.karma.kr2rml.URIFormatter;
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
+import edu.isi.karma.kr2rml.writer.N3KR2RMLRDFWriter;
+import edu.isi.karma.util.DBType;
+import edu.isi.karma.webserver.ContextParametersRegistry;
+
+/**
+ * Generates the RDF of an in-memory H2 table, the connections of the
+ * generator are opened on it and the names are quoted like PostgreSQL does.
+ */
+public class TestDatabaseTableRDFGenerator {
+
+	private static final String URL = "jdbc:h2:mem:karma-jdbc;DB_CLOSE_DELAY=-1";
+	private static final Pattern SUBJECT = Pattern.compile("^<http://example.org/person/(\\d+)>");
+	private static final int ROWS = 100;
+
+	private static Connection keepAlive;
+
+	private R2RMLMappingIdentifier id;
+	private final List<StringWriter> partitions = new ArrayList<>();
+
+	/**
+	 * PERSON(ID, NAME, SCORE): the names are in the reverse order of the ids,
+	 * the scores are the ids except for every tenth person, who has none
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		keepAlive = DriverManager.getConnection(URL);
+		Statement stmt = keepAlive.createStatement();
+		stmt.execute("CREATE TABLE PERSON (ID INT PRIMARY KEY, NAME VARCHAR(20), SCORE INT)");
+		stmt.close();
+		PreparedStatement insert = keepAlive.prepareStatement("INSERT INTO PERSON VALUES (?, ?, ?)");
+		for (int i = 1; i <= ROWS; i++) {
+			insert.setInt(1, i);
+			insert.setString(2, String.format("name-%03d", ROWS - i));
+			if (i % 10 == 0)
+				insert.setNull(3, Types.INTEGER);
+			else
+				insert.setInt(3, i);
+			insert.executeUpdate();
+		}
+		insert.close();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		keepAlive.close();
+	}
+
+	@Test
+	public void testNumericBoundaries() throws Exception {
+		// the primary key is split in ranges of the same width between 1 and 100
+		assertEquals(4, generatePartitions(null, 4));
+		assertEquals(range(1, 24), getSubjects(0));
+		assertEquals(range(25, 49), getSubjects(1));
+		assertEquals(range(50, 74), getSubjects(2));
+		assertEquals(range(75, 100), getSubjects(3));
+	}
+
+	@Test
+	public void testNonNumericBoundaries() throws Exception {
+		// the names are split every 25 values in their order
+		assertEquals(4, generatePartitions("NAME", 4));
+		assertEquals(range(76, 100), getSubjects(0));
+		assertEquals(range(51, 75), getSubjects(1));
+		assertEquals(range(26, 50), getSubjects(2));
+		assertEquals(range(1, 25), getSubjects(3));
+	}
+
+	@Test
+	public void testNullKeysInFirstPartition() throws Exception {
+		// the scores from 1 to 99 are split on 33 and 66
+		assertEquals(3, generatePartitions("SCORE", 3));
+		Set<Integer> first = range(1, 32);
+		for (int i = 10; i <= ROWS; i += 10) {
+			first.add(i);
+		}
+		assertEquals(first, getSubjects(0));
+		assertFalse(getSubjects(1).contains(40));
+		assertFalse(getSubjects(2).contains(100));
+		int total = 0;
+		for (int i = 0; i < partitions.size(); i++) {
+			total += getSubjects(i).size();
+		}
+		assertEquals(ROWS, total);
+	}
+
+	@Test
+	public void testPartitionsInOrderEqualUnpartitioned() throws Exception {
+		StringWriter sw = new StringWriter();
+		createGenerator().generateRDFFromTable("PERSON", null, createWriters(sw), getMappingIdentifier(), null,
+				"http://localhost:8080/source/");
+		List<String> expected = getLines(sw.toString());
+		assertEquals(2 * ROWS, expected.size());
+
+		assertEquals(5, generatePartitions(null, 5));
+		List<String> lines = new ArrayList<>();
+		for (StringWriter partition : partitions) {
+			lines.addAll(getLines(partition.toString()));
+		}
+		assertEquals(expected, lines);
+	}
+
+	@Test
+	public void testLessRowsThanPartitions() throws Exception {
+		assertEquals(1, createGenerator().generateRDFFromSQL("Select * FROM PERSON WHERE ID <= 2;", "ID", 4,
+				createPartitionWriters(), getMappingIdentifier(), null, "http://localhost:8080/source/"));
+		assertEquals(range(1, 2), getSubjects(0));
+	}
+
+	private int generatePartitions(String partitionColumn, int numberOfPartitions) throws Exception {
+		DatabaseTableRDFGenerator generator = createGenerator();
+		generator.setNumThreads(2);
+		return generator.generateRDFFromTable("PERSON", partitionColumn, numberOfPartitions,
+				createPartitionWriters(), getMappingIdentifier(), null, "http://localhost:8080/source/");
+	}
+
+	private DatabaseTableRDFGenerator.PartitionWriters createPartitionWriters() {
+		partitions.clear();
+		for (int i = 0; i < 10; i++) {
+			partitions.add(new StringWriter());
+		}
+		return new DatabaseTableRDFGenerator.PartitionWriters() {
+			@Override
+			public List<KR2RMLRDFWriter> createWriters(int partition) {
+				return TestDatabaseTableRDFGenerator.this.createWriters(partitions.get(partition));
+			}
+		};
+	}
+
+	private List<KR2RMLRDFWriter> createWriters(StringWriter sw) {
+		List<KR2RMLRDFWriter> writers = new LinkedList<>();
+		writers.add(new N3KR2RMLRDFWriter(new URIFormatter(), new PrintWriter(sw)));
+		return writers;
+	}
+
+	private DatabaseTableRDFGenerator createGenerator() {
+		return new DatabaseTableRDFGenerator(DBType.PostGIS, null, 0, null, null, null, "UTF-8", null,
+				ContextParametersRegistry.getInstance().getDefault()) {
+			@Override
+			protected Connection getConnection() throws SQLException {
+				return DriverManager.getConnection(URL);
+			}
+		};
+	}
+
+	private R2RMLMappingIdentifier getMappingIdentifier() {
+		if (id == null)
+			id = new R2RMLMappingIdentifier("person-model", getClass().getClassLoader().getResource("person-model.ttl"));
+		return id;
+	}
+
+	private Set<Integer> getSubjects(int partition) {
+		Set<Integer> subjects = new TreeSet<>();
+		for (String line : getLines(partitions.get(partition).toString())) {
+			Matcher matcher = SUBJECT.matcher(line);
+			assertTrue(line, matcher.find());
+			subjects.add(Integer.parseInt(matcher.group(1)));
+		}
+		return subjects;
+	}
+
+	private static List<String> getLines(String rdf) {
+		List<String> lines = new ArrayList<>();
+		for (String line : rdf.split("(\r\n|\n)")) {
+			if (!line.trim().isEmpty())
+				lines.add(line.trim());
+		}
+		return lines;
+	}
+
+	private static Set<Integer> range(int from, int to) {
+		Set<Integer> values = new TreeSet<>();
+		for (int i = from; i <= to; i++) {
+			values.add(i);
+		}
+		return values;
+	}
+}
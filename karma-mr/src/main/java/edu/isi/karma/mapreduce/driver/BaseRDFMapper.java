@@ -1,5 +1,7 @@
 package edu.isi.karma.mapreduce.driver;
 
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
+import edu.isi.karma.metrics.SimpleMetricsRegistry.Stage;
 import edu.isi.karma.rdf.BaseRDFImpl;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
@@ -9,11 +11,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.Properties;
 
 public abstract class BaseRDFMapper extends Mapper<Writable, Text, Text, Text> {
 
 	private static Logger LOG = LoggerFactory.getLogger(BaseRDFMapper.class);
+	public static final String METRICS_COUNTER_GROUP = "Karma metrics";
 	protected BaseRDFImpl process;
 	@Override
 	public void setup(Context context) throws IOException {
@@ -39,6 +44,27 @@ public abstract class BaseRDFMapper extends Mapper<Writable, Text, Text, Text> {
 		}
 	}
 
+	/**
+	 * Adds the timers and the counters of the generation to the counters of
+	 * the job, when karma.metrics.enabled is true
+	 */
+	@Override
+	protected void cleanup(Context context) throws IOException, InterruptedException {
+		SimpleMetricsRegistry metrics = process.getMetrics();
+		if (metrics == null)
+			return;
+		for (Entry<String, Stage> entry : metrics.getStages().entrySet()) {
+			Stage stage = entry.getValue();
+			context.getCounter(METRICS_COUNTER_GROUP, entry.getKey() + ".count").increment(stage.getCount());
+			context.getCounter(METRICS_COUNTER_GROUP, entry.getKey() + ".millis").increment(stage.getMillis());
+			if (stage.getAllocatedBytes() >= 0)
+				context.getCounter(METRICS_COUNTER_GROUP, entry.getKey() + ".allocatedBytes").increment(stage.getAllocatedBytes());
+		}
+		for (Entry<String, AtomicLong> entry : metrics.getCounters().entrySet()) {
+			context.getCounter(METRICS_COUNTER_GROUP, entry.getKey()).increment(entry.getValue().get());
+		}
+	}
+
 	protected abstract void writeRDFToContext(Context context, String results)
 			throws IOException, InterruptedException;
 
@@ -28,6 +28,7 @@ public class JSONAvroProcessor extends KarmaProcessor {
         job.setJarByClass(JSONAvroProcessor.class);
         job.setOutputFormatClass(SequenceFileOutputFormat.class);
         job.setMapperClass(JSONMapper.class);
+        job.setCombinerClass(JSONReducer.class);
         job.setReducerClass(JSONReducer.class);
         job.setMapOutputKeyClass(Text.class);
         job.setMapOutputValueClass(Text.class);
@@ -27,6 +27,7 @@ public class JSONProcessor extends KarmaProcessor {
 		job.setJarByClass(JSONProcessor.class);
 		job.setOutputFormatClass(SequenceFileOutputFormat.class);
 		job.setMapperClass(JSONMapper.class);
+		job.setCombinerClass(JSONReducer.class);
 		job.setReducerClass(JSONReducer.class);
 		job.setMapOutputKeyClass(Text.class);
 		job.setMapOutputValueClass(Text.class);
@@ -4,10 +4,9 @@ import java.io.IOException;
 
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
 
-import edu.isi.karma.util.JSONLDUtilSimple;
+import edu.isi.karma.util.JSONLDMerger;
 
 
 
@@ -21,13 +20,15 @@ public class JSONReducer extends Reducer<Text,Text,Text,Text>{
 	}
 	protected void reduce(Text key, Iterable<Text> values, Context context) throws IOException, InterruptedException
 	{
-		JSONObject accumulatorObject = null;
+		JSONLDMerger merger = new JSONLDMerger();
 		try {
-			accumulatorObject = JSONLDUtilSimple.mergeJSONObjects(new TextToStringIterator(values.iterator()));
+			for (Text value : values) {
+				merger.add(value.toString());
+			}
 		} catch (ParseException e) {
 			throw new IOException(e);
 		}
-		reusableOutputValue.set(accumulatorObject.toString());
+		reusableOutputValue.set(merger.toJSONObject().toString());
 		context.write(key, reusableOutputValue);
 	}
 	
@@ -0,0 +1,119 @@
+package edu.isi.karma.mapreduce.inputformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.isi.karma.imp.parquet.ParquetProjectionReadSupport;
+import edu.isi.karma.kr2rml.mapping.KR2RMLMappingInputColumns;
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.kr2rml.mapping.WorksheetR2RMLJenaModelParser;
+
+/**
+ * Reads Parquet files as batches of JSON records, split by row group. Only the
+ * columns in karma.input.columns are read. When it is not set and
+ * karma.input.columns.model is true, the columns referenced by the model in
+ * model.uri, model.file or model.content are read; otherwise all the columns
+ * are read.
+ */
+public class ParquetBatchInputFormat extends FileInputFormat<Text, Text> {
+
+	private static Logger LOG = LoggerFactory.getLogger(ParquetBatchInputFormat.class);
+
+	public static final String INPUT_COLUMNS = "karma.input.columns";
+	public static final String INPUT_COLUMNS_FROM_MODEL = "karma.input.columns.model";
+
+	private final ParquetInputFormat<Group> parquetInputFormat = new ParquetInputFormat<>(InputColumnsReadSupport.class);
+
+	@Override
+	public List<InputSplit> getSplits(JobContext job) throws IOException {
+		return parquetInputFormat.getSplits(job);
+	}
+
+	@Override
+	public RecordReader<Text, Text> createRecordReader(InputSplit split,
+			TaskAttemptContext context) throws IOException, InterruptedException {
+		return new ParquetBatchRecordReader(parquetInputFormat.createRecordReader(split, context));
+	}
+
+	public static void setInputColumns(Configuration conf, Collection<String> columnNames) {
+		StringBuilder builder = new StringBuilder();
+		for (String columnName : columnNames) {
+			if (builder.length() > 0)
+				builder.append(",");
+			builder.append(columnName);
+		}
+		conf.set(INPUT_COLUMNS, builder.toString());
+	}
+
+	/**
+	 * @return the top level columns to read, null to read all the columns
+	 */
+	public static Collection<String> getInputColumns(Configuration conf) {
+		String columns = conf.get(INPUT_COLUMNS);
+		if (columns != null) {
+			List<String> columnNames = new ArrayList<>();
+			for (String columnName : columns.split(",")) {
+				if (!columnName.trim().isEmpty())
+					columnNames.add(columnName.trim());
+			}
+			return columnNames;
+		}
+
+		if (!conf.getBoolean(INPUT_COLUMNS_FROM_MODEL, false))
+			return null;
+		String modelUri = conf.get("model.uri");
+		String modelFile = conf.get("model.file");
+		String modelContent = conf.get("model.content");
+		if (modelUri == null && modelFile == null && modelContent == null)
+			return null;
+		try {
+			URL modelURL = null;
+			if (modelUri != null)
+				modelURL = new URL(modelUri);
+			else if (modelFile != null)
+				modelURL = new File(modelFile).toURI().toURL();
+			WorksheetR2RMLJenaModelParser parser = new WorksheetR2RMLJenaModelParser(
+					new R2RMLMappingIdentifier("model", modelURL, modelContent));
+			Collection<String> columnNames = KR2RMLMappingInputColumns.getColumnNames(parser.parse());
+			if (columnNames == null)
+				LOG.info("The model may read any column, reading all the columns");
+			else
+				LOG.info("Reading the columns of the model: " + columnNames);
+			return columnNames;
+		} catch (Exception e) {
+			LOG.warn("Unable to find the columns of the model, reading all the columns", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Projects each file on the input columns of the configuration
+	 */
+	public static class InputColumnsReadSupport extends ParquetProjectionReadSupport {
+
+		public InputColumnsReadSupport() {
+			super(null);
+		}
+
+		@Override
+		protected Collection<String> getColumnNames(Configuration conf) {
+			return getInputColumns(conf);
+		}
+	}
+}
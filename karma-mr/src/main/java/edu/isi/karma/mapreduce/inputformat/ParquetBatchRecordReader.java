@@ -0,0 +1,63 @@
+package edu.isi.karma.mapreduce.inputformat;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.parquet.example.data.Group;
+
+import edu.isi.karma.imp.parquet.ParquetJSONReader;
+
+public class ParquetBatchRecordReader extends RecordReader<Text, Text> {
+
+	private static final int batchSize = 10000;
+	private final RecordReader<Void, Group> reader;
+	private final StringBuilder batch = new StringBuilder();
+
+	public ParquetBatchRecordReader(RecordReader<Void, Group> reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public void initialize(InputSplit split, TaskAttemptContext context)
+			throws IOException, InterruptedException {
+		reader.initialize(split, context);
+	}
+
+	@Override
+	public synchronized boolean nextKeyValue() throws IOException, InterruptedException {
+		batch.setLength(0);
+		batch.append("[");
+		int i = 0;
+		while (i < batchSize && reader.nextKeyValue()) {
+			if (i > 0)
+				batch.append(",");
+			batch.append(ParquetJSONReader.toJSON(reader.getCurrentValue()).toString());
+			i++;
+		}
+		batch.append("]");
+		return i > 0;
+	}
+
+	@Override
+	public Text getCurrentKey() throws IOException, InterruptedException {
+		return new Text("json");
+	}
+
+	@Override
+	public Text getCurrentValue() throws IOException, InterruptedException {
+		return new Text(batch.toString());
+	}
+
+	@Override
+	public float getProgress() throws IOException, InterruptedException {
+		return reader.getProgress();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,188 @@
+package edu.isi.karma.mapreduce.tripleparser;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Splits N-Triples/N-Quads lines and the tab separated keys produced by
+ * {@link TripleReducer} directly on the bytes of a {@link Text}, without
+ * regular expressions or intermediate strings.
+ *
+ * A tokenizer keeps its term offsets in reusable arrays, so a mapper should
+ * hold on to one instance and call it for every record. Offsets are only
+ * valid until the next call to {@link #tokenize} or {@link #split}.
+ */
+public class NTriplesTokenizer {
+
+	/** subject, predicate, object, graph and the terminating dot */
+	private static final int MAX_TERMS = 5;
+
+	private static final byte TAB = '\t';
+	private static final byte QUOTE = '"';
+	private static final byte BACKSLASH = '\\';
+
+	private final int[] starts = new int[MAX_TERMS];
+	private final int[] ends = new int[MAX_TERMS];
+	private byte[] bytes;
+	private int count;
+
+	/**
+	 * Tokenizes one N-Triples or N-Quads statement. A quoted literal is a term
+	 * on its own; a language tag or datatype that follows it is skipped, the
+	 * same way the old regular expression separated it from the literal.
+	 * @return false if the line does not have 4 or 5 terms
+	 */
+	public boolean tokenize(byte[] bytes, int length) {
+		this.bytes = bytes;
+		this.count = 0;
+		int i = 0;
+		while (true) {
+			while (i < length && isWhitespace(bytes[i]))
+				i++;
+			if (i >= length)
+				break;
+			if (count == MAX_TERMS)
+				return false;
+			int start = i;
+			if (bytes[i] == QUOTE) {
+				i++;
+				while (i < length && bytes[i] != QUOTE) {
+					if (bytes[i] == BACKSLASH)
+						i++;
+					i++;
+				}
+				if (i >= length)
+					return false;
+				i++;
+				starts[count] = start;
+				ends[count] = i;
+				count++;
+				if (i < length && (bytes[i] == '@' || bytes[i] == '^')) {
+					while (i < length && !isWhitespace(bytes[i]))
+						i++;
+				}
+			} else {
+				while (i < length && !isWhitespace(bytes[i]))
+					i++;
+				starts[count] = start;
+				ends[count] = i;
+				count++;
+			}
+		}
+		return count == 4 || count == 5;
+	}
+
+	public boolean tokenize(Text text) {
+		return tokenize(text.getBytes(), text.getLength());
+	}
+
+	/**
+	 * Splits the bytes on a single byte separator.
+	 * @return the number of fields, or maxFields + 1 if there are more
+	 */
+	public int split(byte[] bytes, int length, byte separator, int maxFields) {
+		this.bytes = bytes;
+		this.count = 0;
+		int limit = Math.min(maxFields, MAX_TERMS);
+		int start = 0;
+		for (int i = 0; i <= length; i++) {
+			if (i == length || bytes[i] == separator) {
+				if (count == limit)
+					return limit + 1;
+				starts[count] = start;
+				ends[count] = i;
+				count++;
+				start = i + 1;
+			}
+		}
+		return count;
+	}
+
+	public int split(Text text, byte separator, int maxFields) {
+		return split(text.getBytes(), text.getLength(), separator, maxFields);
+	}
+
+	public int getTermCount() {
+		return count;
+	}
+
+	public int getStart(int term) {
+		return starts[term];
+	}
+
+	public int getEnd(int term) {
+		return ends[term];
+	}
+
+	public int getLength(int term) {
+		return ends[term] - starts[term];
+	}
+
+	public boolean isIRI(int term) {
+		return getLength(term) >= 2 && bytes[starts[term]] == '<' && bytes[ends[term] - 1] == '>';
+	}
+
+	public boolean isLiteral(int term) {
+		return getLength(term) >= 2 && bytes[starts[term]] == QUOTE;
+	}
+
+	public boolean isBlank(int term) {
+		for (int i = starts[term]; i < ends[term]; i++) {
+			if (!isWhitespace(bytes[i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Compares a term to an ASCII value ignoring case
+	 */
+	public boolean equalsIgnoreCase(int term, byte[] value) {
+		if (getLength(term) != value.length)
+			return false;
+		for (int i = 0; i < value.length; i++) {
+			if (toLowerCase(bytes[starts[term] + i]) != toLowerCase(value[i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the term to out, dropping its enclosing angle brackets
+	 */
+	public void appendIRI(int term, Text out, boolean dropTabs) {
+		append(starts[term] + 1, ends[term] - 1, out, dropTabs, false);
+	}
+
+	/**
+	 * Appends the term to out, dropping tabs and, optionally, backslashes
+	 */
+	public void appendTerm(int term, Text out, boolean dropTabs, boolean dropBackslashes) {
+		append(starts[term], ends[term], out, dropTabs, dropBackslashes);
+	}
+
+	private void append(int from, int to, Text out, boolean dropTabs, boolean dropBackslashes) {
+		if (!dropTabs && !dropBackslashes) {
+			out.append(bytes, from, to - from);
+			return;
+		}
+		int runStart = from;
+		for (int i = from; i < to; i++) {
+			byte b = bytes[i];
+			if ((dropTabs && b == TAB) || (dropBackslashes && b == BACKSLASH)) {
+				if (i > runStart)
+					out.append(bytes, runStart, i - runStart);
+				runStart = i + 1;
+			}
+		}
+		if (to > runStart)
+			out.append(bytes, runStart, to - runStart);
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == TAB || b == '\r' || b == '\n';
+	}
+
+	private static byte toLowerCase(byte b) {
+		return (b >= 'A' && b <= 'Z') ? (byte)(b + ('a' - 'A')) : b;
+	}
+}
@@ -0,0 +1,31 @@
+package edu.isi.karma.mapreduce.tripleparser;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Collapses the labels of a node on the map side. Emits the first Class or 
+ * Literal label, which is the one {@link NodeReducer} would pick, and falls
+ * back to Uri.
+ */
+public class NodeCombiner extends
+		Reducer<Text, Text, Text, Text> {
+
+	private static final Text URI_LABEL = new Text("Uri");
+
+	@Override
+	public void reduce(Text key, Iterable<Text> values, Context context)
+			throws IOException, InterruptedException {
+
+		for (Text t : values) {
+			if (!t.equals(URI_LABEL)) {
+				context.write(key, t);
+				return;
+			}
+		}
+		context.write(key, URI_LABEL);
+	}
+
+}
@@ -1,45 +1,56 @@
 package edu.isi.karma.mapreduce.tripleparser;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 
 public class NodeMapper extends Mapper<Text, Text, Text, Text> {
 
+	private static final byte[] RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type".getBytes(StandardCharsets.UTF_8);
+	private static final byte TAB = '\t';
+	private static final byte[] TAB_BYTES = {TAB};
+
+	private static final Text URI_LABEL = new Text("Uri");
+	private static final Text CLASS_LABEL = new Text("Class");
+	private static final Text LITERAL_LABEL = new Text("Literal");
+
+	private final NTriplesTokenizer tokenizer = new NTriplesTokenizer();
+	private final Text node = new Text();
+
 	@Override
 	public void map(Text key, Text value, Context context)
 			throws IOException, InterruptedException {
 
-
-		String keyStr = key.toString();
-		String[] parts = keyStr.split("\\t");
-		
-		if (parts == null || parts.length != 3) return;
-		
-		String subject = parts[0];
-		String object = parts[2];
-		String predicate = parts[1];
-				
-		String node1, node2, label;
-		
-		label = "Uri";
-		node1 = subject + "\t" + subject; 
-		context.write(new Text(node1), new Text(label));
-
-		if (value.toString().length() == 0) {
-			if (predicate.equalsIgnoreCase("http://www.w3.org/1999/02/22-rdf-syntax-ns#type")) {
-				node2 = object + "\t" + object;
-				label = "Class";
+		if (tokenizer.split(key, TAB, 3) != 3) return;
+
+		int subject = 0;
+		int predicate = 1;
+		int object = 2;
+
+		node.clear();
+		tokenizer.appendTerm(subject, node, false, false);
+		node.append(TAB_BYTES, 0, 1);
+		tokenizer.appendTerm(subject, node, false, false);
+		context.write(node, URI_LABEL);
+
+		Text label;
+		node.clear();
+		tokenizer.appendTerm(object, node, false, false);
+		node.append(TAB_BYTES, 0, 1);
+		if (value.getLength() == 0) {
+			tokenizer.appendTerm(object, node, false, false);
+			if (tokenizer.equalsIgnoreCase(predicate, RDF_TYPE)) {
+				label = CLASS_LABEL;
 			} else {
-				node2 = object + "\t" + object;
-				label = "Uri";
+				label = URI_LABEL;
 			}
 		} else {
-			node2 = object + "\t" + value; 
-			label = "Literal";
+			node.append(value.getBytes(), 0, value.getLength());
+			label = LITERAL_LABEL;
 		}
-		context.write(new Text(node2), new Text(label));
+		context.write(node, label);
 	}
 
 }
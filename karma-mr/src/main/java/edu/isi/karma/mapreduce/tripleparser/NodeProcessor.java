@@ -46,6 +46,7 @@ public class NodeProcessor implements Runnable {
 
 			job.setJarByClass(Neo4jCSVGenerator.class);
 			job.setMapperClass(NodeMapper.class);
+			job.setCombinerClass(NodeCombiner.class);
 			job.setReducerClass(NodeReducer.class);
 			job.setNumReduceTasks(1);
 
@@ -0,0 +1,25 @@
+package edu.isi.karma.mapreduce.tripleparser;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Collapses duplicate relationships on the map side, {@link RelationshipReducer}
+ * only writes the key once.
+ */
+public class RelationshipCombiner extends
+		Reducer<Text, Text, Text, Text> {
+
+	@Override
+	public void reduce(Text key, Iterable<Text> values, Context context)
+			throws IOException, InterruptedException {
+
+		for (Text t : values) {
+			context.write(key, t);
+			return;
+		}
+	}
+
+}
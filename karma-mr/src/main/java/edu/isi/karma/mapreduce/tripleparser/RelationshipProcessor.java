@@ -47,6 +47,7 @@ public class RelationshipProcessor implements Runnable {
 
 			job.setJarByClass(Neo4jCSVGenerator.class);
 			job.setMapperClass(Mapper.class);
+			job.setCombinerClass(RelationshipCombiner.class);
 			job.setReducerClass(RelationshipReducer.class);
 			job.setNumReduceTasks(1);
 
@@ -0,0 +1,23 @@
+package edu.isi.karma.mapreduce.tripleparser;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Collapses duplicate triples on the map side, {@link TripleReducer} only 
+ * needs to see each triple once.
+ */
+public class TripleCombiner extends
+		Reducer<Text, NullWritable, Text, NullWritable> {
+
+	@Override
+	public void reduce(Text key, Iterable<NullWritable> values, Context context)
+			throws IOException, InterruptedException {
+
+		context.write(key, NullWritable.get());
+	}
+
+}
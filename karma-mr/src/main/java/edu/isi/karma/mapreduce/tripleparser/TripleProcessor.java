@@ -32,6 +32,7 @@ public class TripleProcessor {
 
 			job.setJarByClass(Neo4jCSVGenerator.class);
 			job.setMapperClass(TripleMapper.class);
+			job.setCombinerClass(TripleCombiner.class);
 			job.setReducerClass(TripleReducer.class);
 			job.setNumReduceTasks(6);
 
@@ -0,0 +1,99 @@
+package edu.isi.karma.mapreduce.inputformat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestParquetBatchInputFormat {
+
+	private Configuration conf;
+
+	@Before
+	public void setUp() throws Exception {
+		conf = new Configuration();
+		conf.set("model.file", getResource("people-model.ttl").getAbsolutePath());
+	}
+
+	@Test
+	public void testInputColumns() throws Exception {
+		ParquetBatchInputFormat.setInputColumns(conf, Arrays.asList("name", "id"));
+		assertEquals(Arrays.asList("name", "id"), ParquetBatchInputFormat.getInputColumns(conf));
+		conf.set(ParquetBatchInputFormat.INPUT_COLUMNS, " name, ,id ");
+		assertEquals(Arrays.asList("name", "id"), ParquetBatchInputFormat.getInputColumns(conf));
+	}
+
+	@Test
+	public void testModelColumnsAreOptIn() throws Exception {
+		assertNull(ParquetBatchInputFormat.getInputColumns(conf));
+
+		conf.setBoolean(ParquetBatchInputFormat.INPUT_COLUMNS_FROM_MODEL, true);
+		Collection<String> columnNames = ParquetBatchInputFormat.getInputColumns(conf);
+		assertTrue(columnNames.contains("name"));
+		assertFalse(columnNames.contains("codes"));
+
+		// the columns that are set win over the model
+		ParquetBatchInputFormat.setInputColumns(conf, Arrays.asList("id"));
+		assertEquals(Arrays.asList("id"), ParquetBatchInputFormat.getInputColumns(conf));
+	}
+
+	@Test
+	public void testReadAllColumns() throws Exception {
+		JSONArray records = readBatch();
+		assertEquals(3, records.length());
+		JSONObject alice = records.getJSONObject(0);
+		assertEquals(9, alice.length());
+		assertEquals("Alice", alice.get("name"));
+		assertEquals("Los Angeles", alice.getJSONObject("address").get("city"));
+		assertEquals(3, alice.getJSONArray("phones").length());
+		assertEquals(2, alice.getJSONArray("codes").length());
+		assertEquals("Carol", records.getJSONObject(2).get("name"));
+	}
+
+	@Test
+	public void testReadInputColumns() throws Exception {
+		ParquetBatchInputFormat.setInputColumns(conf, Arrays.asList("name", "codes"));
+		JSONArray records = readBatch();
+		assertEquals(3, records.length());
+		for (int i = 0; i < records.length(); i++) {
+			JSONObject record = records.getJSONObject(i);
+			assertEquals(2, record.length());
+			assertTrue(record.has("name"));
+			assertTrue(record.has("codes"));
+		}
+	}
+
+	private JSONArray readBatch() throws Exception {
+		File file = getResource("data/people.parquet");
+		FileSplit split = new FileSplit(new Path(file.toURI()), 0, file.length(), null);
+		TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+		ParquetBatchInputFormat inputFormat = new ParquetBatchInputFormat();
+		try (RecordReader<?, ?> reader = inputFormat.createRecordReader(split, context)) {
+			reader.initialize(split, context);
+			assertTrue(reader.nextKeyValue());
+			JSONArray records = new JSONArray(reader.getCurrentValue().toString());
+			assertFalse(reader.nextKeyValue());
+			return records;
+		}
+	}
+
+	private File getResource(String name) throws Exception {
+		return new File(getClass().getClassLoader().getResource(name).toURI());
+	}
+}
@@ -0,0 +1,68 @@
+package edu.isi.karma.mapreduce.tripleparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class TestNTriplesTokenizer {
+
+	private NTriplesTokenizer tokenizer = new NTriplesTokenizer();
+
+	private String term(Text line, int i) {
+		return new String(line.getBytes(), tokenizer.getStart(i), tokenizer.getLength(i), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testUriTriple() {
+		Text line = new Text("<http://ex.org/s> <http://ex.org/p> <http://ex.org/o> .");
+		assertTrue(tokenizer.tokenize(line));
+		assertEquals(4, tokenizer.getTermCount());
+		assertEquals("<http://ex.org/s>", term(line, 0));
+		assertEquals("<http://ex.org/o>", term(line, 2));
+		assertTrue(tokenizer.isIRI(2));
+	}
+
+	@Test
+	public void testLiteralWithLanguageAndEscapes() {
+		Text line = new Text("<http://ex.org/s> <http://ex.org/p> \"say \\\"hi\\\" there\"@en .");
+		assertTrue(tokenizer.tokenize(line));
+		assertEquals(4, tokenizer.getTermCount());
+		assertEquals("\"say \\\"hi\\\" there\"", term(line, 2));
+		assertTrue(tokenizer.isLiteral(2));
+
+		Text out = new Text();
+		tokenizer.appendTerm(2, out, true, true);
+		assertEquals("\"say \"hi\" there\"", out.toString());
+	}
+
+	@Test
+	public void testQuadWithTypedLiteral() {
+		Text line = new Text("<http://ex.org/s>\t<http://ex.org/p> \"42\"^^<http://www.w3.org/2001/XMLSchema#int> <http://ex.org/g> .");
+		assertTrue(tokenizer.tokenize(line));
+		assertEquals(5, tokenizer.getTermCount());
+		assertEquals("\"42\"", term(line, 2));
+		assertEquals("<http://ex.org/g>", term(line, 3));
+	}
+
+	@Test
+	public void testMalformed() {
+		assertFalse(tokenizer.tokenize(new Text("<http://ex.org/s> <http://ex.org/p> .")));
+		assertFalse(tokenizer.tokenize(new Text("<http://ex.org/s> <http://ex.org/p> \"open literal .")));
+		assertFalse(tokenizer.tokenize(new Text("<a> <b> <c> <d> <e> .")));
+	}
+
+	@Test
+	public void testSplit() {
+		Text key = new Text("http://ex.org/s\thttp://ex.org/p\thttp://ex.org/o");
+		assertEquals(3, tokenizer.split(key, (byte)'\t', 3));
+		assertEquals("http://ex.org/p", term(key, 1));
+		assertTrue(tokenizer.equalsIgnoreCase(1, "HTTP://EX.ORG/P".getBytes(StandardCharsets.UTF_8)));
+		assertEquals(4, tokenizer.split(new Text("a\tb\tc\td"), (byte)'\t', 3));
+		assertEquals(2, tokenizer.split(new Text("a\tb"), (byte)'\t', 3));
+	}
+}
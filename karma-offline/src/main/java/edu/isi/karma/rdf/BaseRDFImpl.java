@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import edu.isi.karma.kr2rml.planning.UserSpecifiedRootStrategy;
 import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
 
 /**
  * Created by chengyey on 12/6/15.
@@ -39,6 +40,7 @@ public abstract class BaseRDFImpl implements Serializable {
     protected JSONArray jKarmaConfig = null;
     protected Map<String, Pattern> urlPatterns=null;
     protected boolean disableNesting = false;
+    protected SimpleMetricsRegistry metrics = null;
     public BaseRDFImpl(String propertyPath) {
         try {
             final Properties properties = new Properties();
@@ -82,6 +84,11 @@ public abstract class BaseRDFImpl implements Serializable {
         disableNesting = Boolean.parseBoolean((String)configuration.getProperty("rdf.generation.disable.nesting", "false"));
         karma.setup("./karma.zip/karma", inputTypeString, modelUri, modelFile, model,
                 baseURI, contextURI, context, rdfGenerationRoot, rdfSelection);
+        if (Boolean.parseBoolean(configuration.getProperty("karma.metrics.enabled", "false"))) {
+            metrics = new SimpleMetricsRegistry(
+                    Boolean.parseBoolean(configuration.getProperty("karma.metrics.allocations", "false")));
+            karma.getGenerator().setMetrics(metrics);
+        }
 
 
         readKarmaConfig = Boolean.parseBoolean((String)configuration.get("read.karma.config"));
@@ -272,5 +279,13 @@ public abstract class BaseRDFImpl implements Serializable {
         return results;
     }
 
+    /**
+     * @return the timers and the counters of the generation, or null unless
+     * karma.metrics.enabled is true
+     */
+    public SimpleMetricsRegistry getMetrics() {
+        return metrics;
+    }
+
     protected abstract KR2RMLRDFWriter configureRDFWriter(StringWriter sw);
 }
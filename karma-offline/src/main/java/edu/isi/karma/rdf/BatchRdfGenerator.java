@@ -0,0 +1,323 @@
+package edu.isi.karma.rdf;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates the RDF of many files on a fixed number of threads. The files
+ * are given by a directory or a glob, and the generator of each file shares
+ * the parsed model with the others.
+ *
+ * The N-Triples output goes to one file per input file, or to shards of a
+ * given number of triples. The JSON-LD and bloom filter outputs go to one
+ * file per input file. The output of a file is written to a temporary file
+ * first, so a file that fails leaves no partial output and does not stop
+ * the other files. The outputs and errors of each file are listed in
+ * manifest.json in the output directory.
+ */
+public class BatchRdfGenerator {
+
+	private static Logger logger = LoggerFactory.getLogger(BatchRdfGenerator.class);
+
+	public static final String MANIFEST = "manifest.json";
+	private static final String GLOB_CHARACTERS = "*?[{";
+	private static final String TMP_EXTENSION = ".tmp";
+
+	/**
+	 * Generates the RDF of one file into the outputs, the outputs that are
+	 * not requested are null
+	 */
+	public interface FileGenerator {
+		void generate(File inputFile, File n3File, File jsonFile, File bloomFiltersFile) throws Exception;
+	}
+
+	private final int numThreads;
+	private final File n3Directory;
+	private final File jsonDirectory;
+	private final File bloomFiltersDirectory;
+	private final long triplesPerShard;
+	private final JSONArray manifestFiles = new JSONArray();
+	private final JSONArray manifestShards = new JSONArray();
+	private Writer shard;
+	private File shardFile;
+	private long shardTriples;
+	private int numberOfShards;
+	private int numberOfFailures;
+
+	/**
+	 * @param triplesPerShard 0 to write the N-Triples of each file to its own file
+	 */
+	public BatchRdfGenerator(int numThreads, File n3Directory, File jsonDirectory,
+			File bloomFiltersDirectory, long triplesPerShard) {
+		this.numThreads = Math.max(1, numThreads);
+		this.n3Directory = n3Directory;
+		this.jsonDirectory = jsonDirectory;
+		this.bloomFiltersDirectory = bloomFiltersDirectory;
+		this.triplesPerShard = triplesPerShard;
+	}
+
+	/**
+	 * @return true for a directory or a path with glob characters
+	 */
+	public static boolean isBatchPath(String path) {
+		if (new File(path).isDirectory())
+			return true;
+		for (char c : GLOB_CHARACTERS.toCharArray()) {
+			if (path.indexOf(c) != -1)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the files of a directory, or the files matching a glob such
+	 *         as data/*.json or data/**.csv, sorted
+	 */
+	public static List<File> listFiles(String path) throws IOException {
+		final List<File> files = new ArrayList<>();
+		File directory = new File(path);
+		if (directory.isDirectory()) {
+			File[] children = directory.listFiles();
+			if (children != null) {
+				for (File f : children) {
+					if (f.isFile() && !f.isHidden())
+						files.add(f);
+				}
+			}
+		} else {
+			// walk from the longest directory without glob characters
+			String normalized = new File(path).getAbsolutePath();
+			int glob = normalized.length();
+			for (char c : GLOB_CHARACTERS.toCharArray()) {
+				if (normalized.indexOf(c) != -1)
+					glob = Math.min(glob, normalized.indexOf(c));
+			}
+			File base = new File(normalized.substring(0, normalized.lastIndexOf(File.separatorChar, glob) + 1));
+			final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalized);
+			if (base.isDirectory()) {
+				Files.walkFileTree(base.toPath(), new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						if (attrs.isRegularFile() && matcher.matches(file.toAbsolutePath()))
+							files.add(file.toFile());
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			}
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * Generates the RDF of the files and writes the manifest
+	 * @return the number of files that failed
+	 */
+	public int generate(List<File> inputFiles, final FileGenerator generator) throws IOException, InterruptedException {
+		if (n3Directory == null && jsonDirectory == null && bloomFiltersDirectory == null)
+			throw new IllegalArgumentException("No output directory is given");
+		for (File directory : Arrays.asList(n3Directory, jsonDirectory, bloomFiltersDirectory)) {
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+				throw new IOException("Unable to create the output directory " + directory);
+		}
+		List<String> names = getOutputNames(inputFiles);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			for (int i = 0; i < inputFiles.size(); i++) {
+				final File inputFile = inputFiles.get(i);
+				final String name = names.get(i);
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						generate(inputFile, name, generator);
+					}
+				});
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.info("Generated the RDF of {} of {} files", getNumberOfGeneratedFiles(), inputFiles.size());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		closeShard();
+		writeManifest(inputFiles.size());
+		return numberOfFailures;
+	}
+
+	private int getNumberOfGeneratedFiles() {
+		synchronized (manifestFiles) {
+			return manifestFiles.length();
+		}
+	}
+
+	private void generate(File inputFile, String name, FileGenerator generator) {
+		long start = System.currentTimeMillis();
+		File n3File = n3Directory == null ? null : new File(n3Directory, name + ".ttl");
+		File jsonFile = jsonDirectory == null ? null : new File(jsonDirectory, name + ".json");
+		File bloomFiltersFile = bloomFiltersDirectory == null ? null : new File(bloomFiltersDirectory, name + ".bloom.ttl");
+		File n3Tmp = tmp(n3File);
+		File jsonTmp = tmp(jsonFile);
+		File bloomFiltersTmp = tmp(bloomFiltersFile);
+		JSONObject entry = new JSONObject();
+		entry.put("input", inputFile.getPath());
+		JSONArray outputs = new JSONArray();
+		try {
+			generator.generate(inputFile, n3Tmp, jsonTmp, bloomFiltersTmp);
+			if (n3Tmp != null) {
+				if (triplesPerShard > 0) {
+					entry.put("triples", appendToShards(n3Tmp, outputs));
+					n3Tmp.delete();
+				} else {
+					entry.put("triples", countTriples(n3Tmp));
+					rename(n3Tmp, n3File, outputs);
+				}
+			}
+			rename(jsonTmp, jsonFile, outputs);
+			rename(bloomFiltersTmp, bloomFiltersFile, outputs);
+			entry.put("status", "ok");
+		} catch (Throwable t) {
+			logger.error("Unable to generate the RDF of " + inputFile, t);
+			for (File f : Arrays.asList(n3Tmp, jsonTmp, bloomFiltersTmp)) {
+				if (f != null)
+					f.delete();
+			}
+			entry.put("status", "failed");
+			entry.put("error", String.valueOf(t.getMessage()));
+			outputs = new JSONArray();
+		}
+		entry.put("outputs", outputs);
+		entry.put("millis", System.currentTimeMillis() - start);
+		synchronized (manifestFiles) {
+			if ("failed".equals(entry.getString("status")))
+				numberOfFailures++;
+			manifestFiles.put(entry);
+		}
+	}
+
+	private static File tmp(File f) {
+		return f == null ? null : new File(f.getPath() + TMP_EXTENSION);
+	}
+
+	private static void rename(File tmp, File f, JSONArray outputs) throws IOException {
+		if (tmp == null)
+			return;
+		if (f.exists() && !f.delete() || !tmp.renameTo(f))
+			throw new IOException("Unable to write " + f);
+		outputs.put(f.getName());
+	}
+
+	private static long countTriples(File f) throws IOException {
+		long triples = 0;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty())
+					triples++;
+			}
+		}
+		return triples;
+	}
+
+	/**
+	 * Appends the triples of a file to the current shard, starting a new
+	 * shard when the current one is full. The triples of a file are
+	 * appended together, after the file is done.
+	 */
+	private synchronized long appendToShards(File f, JSONArray outputs) throws IOException {
+		long triples = 0;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty())
+					continue;
+				if (shard == null || shardTriples >= triplesPerShard) {
+					closeShard();
+					shardFile = new File(n3Directory, String.format("part-%05d.ttl", numberOfShards++));
+					shard = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(shardFile), "UTF-8"));
+					shardTriples = 0;
+				}
+				if (outputs.length() == 0 || !shardFile.getName().equals(outputs.getString(outputs.length() - 1)))
+					outputs.put(shardFile.getName());
+				shard.write(line);
+				shard.write('\n');
+				shardTriples++;
+				triples++;
+			}
+		}
+		return triples;
+	}
+
+	private synchronized void closeShard() throws IOException {
+		if (shard == null)
+			return;
+		shard.close();
+		shard = null;
+		JSONObject entry = new JSONObject();
+		entry.put("file", shardFile.getName());
+		entry.put("triples", shardTriples);
+		manifestShards.put(entry);
+	}
+
+	/**
+	 * The output names are the file names, with the parent directories when
+	 * files in different directories have the same name
+	 */
+	private static List<String> getOutputNames(List<File> inputFiles) {
+		List<String> names = new ArrayList<>();
+		Set<String> fileNames = new HashSet<>();
+		Set<String> duplicates = new HashSet<>();
+		for (File f : inputFiles) {
+			if (!fileNames.add(f.getName()))
+				duplicates.add(f.getName());
+		}
+		for (File f : inputFiles) {
+			if (duplicates.contains(f.getName()))
+				names.add(f.getPath().replace(File.separatorChar, '_').replace(':', '_'));
+			else
+				names.add(f.getName());
+		}
+		return names;
+	}
+
+	private void writeManifest(int numberOfFiles) throws IOException {
+		File directory = n3Directory != null ? n3Directory : jsonDirectory != null ? jsonDirectory : bloomFiltersDirectory;
+		JSONObject manifest = new JSONObject();
+		manifest.put("files", manifestFiles);
+		if (triplesPerShard > 0)
+			manifest.put("shards", manifestShards);
+		manifest.put("succeeded", numberOfFiles - numberOfFailures);
+		manifest.put("failed", numberOfFailures);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, MANIFEST)), "UTF-8")) {
+			writer.write(manifest.toString(2));
+		}
+	}
+}
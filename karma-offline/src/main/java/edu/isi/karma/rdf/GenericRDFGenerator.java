@@ -5,12 +5,21 @@ import edu.isi.karma.controller.command.selection.SuperSelectionManager;
 import edu.isi.karma.imp.Import;
 import edu.isi.karma.imp.avro.AvroImport;
 import edu.isi.karma.imp.csv.CSVImport;
+import edu.isi.karma.imp.csv.MappedCSVImport;
 import edu.isi.karma.imp.excel.ToCSV;
+import edu.isi.karma.imp.excel.XLSXImport;
+import edu.isi.karma.imp.excel.XLSXSheetReader;
+import edu.isi.karma.imp.json.JsonHeaderUnion;
 import edu.isi.karma.imp.json.JsonImport;
+import edu.isi.karma.imp.json.JsonLinesReader;
+import edu.isi.karma.imp.json.RecordImport;
+import edu.isi.karma.imp.json.RecordReader;
+import edu.isi.karma.imp.json.XMLRecordReader;
 import edu.isi.karma.kr2rml.ContextIdentifier;
 import edu.isi.karma.kr2rml.ErrorReport;
 import edu.isi.karma.kr2rml.KR2RMLWorksheetRDFGenerator;
 import edu.isi.karma.kr2rml.mapping.KR2RMLMapping;
+import edu.isi.karma.kr2rml.mapping.KR2RMLMappingInputColumns;
 import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
 import edu.isi.karma.kr2rml.mapping.WorksheetR2RMLJenaModelParser;
 import edu.isi.karma.kr2rml.planning.RootStrategy;
@@ -18,9 +27,12 @@ import edu.isi.karma.kr2rml.planning.SteinerTreeRootStrategy;
 import edu.isi.karma.kr2rml.planning.WorksheetDepthRootStrategy;
 import edu.isi.karma.kr2rml.writer.JSONKR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
+import edu.isi.karma.metrics.MetricsRegistry;
 import edu.isi.karma.rdf.InputProperties.InputProperty;
 import edu.isi.karma.rep.Worksheet;
+import edu.isi.karma.rep.WorksheetSnapshot;
 import edu.isi.karma.rep.Workspace;
+import edu.isi.karma.rep.metadata.WorksheetProperties.SourceTypes;
 import edu.isi.karma.util.EncodingDetector;
 import edu.isi.karma.util.JSONUtil;
 import edu.isi.karma.webserver.ContextParametersRegistry;
@@ -48,15 +60,18 @@ import org.xml.sax.SAXException;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class GenericRDFGenerator extends RdfGenerator {
 
 	private static Logger logger = LoggerFactory.getLogger(GenericRDFGenerator.class);
+	private static final int DEFAULT_RECORDS_PER_WORKSHEET = 10000;
 	protected ConcurrentHashMap<String, R2RMLMappingIdentifier> modelIdentifiers;
 	protected ConcurrentHashMap<String, WorksheetR2RMLJenaModelParser> readModelParsers;
 	protected HashMap<String, ContextIdentifier> contextIdentifiers;
@@ -107,7 +122,8 @@ public class GenericRDFGenerator extends RdfGenerator {
 	
 	private void generateRDF(String modelName, String sourceName,String contextName, InputStream data, InputType dataType,  InputProperties inputTypeParameters, 
 			boolean addProvenance, List<KR2RMLRDFWriter> writers, RootStrategy rootStrategy, 
-			List<String> tripleMapToKill, List<String> tripleMapToStop, List<String> POMToKill, ServletContextParameterMap contextParameters)
+			List<String> tripleMapToKill, List<String> tripleMapToStop, List<String> POMToKill, ServletContextParameterMap contextParameters,
+			File snapshotDirectory, String sourceDigest, File inputFile)
 					throws KarmaException, IOException {
 		
 		R2RMLMappingIdentifier id = this.modelIdentifiers.get(modelName);
@@ -140,12 +156,14 @@ public class GenericRDFGenerator extends RdfGenerator {
 		}
 		//Check if the parser for this model exists, else create one
 		WorksheetR2RMLJenaModelParser modelParser = getModelParser(modelName);
-		generateRDF(modelParser, sourceName, data, dataType, inputTypeParameters, addProvenance, writers, rootStrategy, tripleMapToKill, tripleMapToStop, POMToKill, contextParameters);
+		generateRDF(modelParser, sourceName, data, dataType, inputTypeParameters, addProvenance, writers, rootStrategy, tripleMapToKill, tripleMapToStop, POMToKill, contextParameters,
+				snapshotDirectory, sourceDigest, inputFile);
 	}
 	
 	private void generateRDF(WorksheetR2RMLJenaModelParser modelParser, String sourceName, InputStream data, InputType dataType,  InputProperties inputTypeParameters,
 			boolean addProvenance, List<KR2RMLRDFWriter> writers, RootStrategy rootStrategy, 
-			List<String> tripleMapToKill, List<String> tripleMapToStop, List<String> POMToKill, ServletContextParameterMap contextParameters) throws KarmaException, IOException {
+			List<String> tripleMapToKill, List<String> tripleMapToStop, List<String> POMToKill, ServletContextParameterMap contextParameters,
+			File snapshotDirectory, String sourceDigest, File inputFile) throws KarmaException, IOException {
 		logger.debug("Generating rdf for " + sourceName);
 		
 		if(contextParameters == null)
@@ -153,21 +171,71 @@ public class GenericRDFGenerator extends RdfGenerator {
 			contextParameters = ContextParametersRegistry.getInstance().getDefault();
 			logger.debug("No context specified.  Defaulting to: " + contextParameters.getKarmaHome());
 		}
+		if (dataType == InputType.XML && inputTypeParameters != null
+				&& inputTypeParameters.get(InputProperty.XML_RECORD_ELEMENT) != null) {
+			String encoding = (String)inputTypeParameters.get(InputProperty.ENCODING);
+			String recordElement = (String)inputTypeParameters.get(InputProperty.XML_RECORD_ELEMENT);
+			try (XMLRecordReader reader = new XMLRecordReader(new BufferedInputStream(data), encoding, recordElement)) {
+				generateRDFFromRecords(modelParser, sourceName, reader, SourceTypes.XML, inputTypeParameters, 
+						addProvenance, writers, rootStrategy, tripleMapToKill, tripleMapToStop, POMToKill, contextParameters);
+			}
+			return;
+		}
+		// JSON Lines are only generated in windows if a window size is given
+		if (dataType == InputType.JL && snapshotDirectory == null && inputTypeParameters != null
+				&& inputTypeParameters.get(InputProperty.RECORDS_PER_WORKSHEET) != null) {
+			String encoding = (inputTypeParameters != null)? (String)inputTypeParameters.get(InputProperty.ENCODING) : null;
+			try (JsonLinesReader reader = new JsonLinesReader(data, encoding)) {
+				generateRDFFromRecords(modelParser, sourceName, reader, SourceTypes.JSON, inputTypeParameters, 
+						addProvenance, writers, rootStrategy, tripleMapToKill, tripleMapToStop, POMToKill, contextParameters);
+				if (reader.getNumberOfMalformedLines() > 0)
+					logger.warn("Skipped {} malformed lines of {}", reader.getNumberOfMalformedLines(), sourceName);
+			}
+			return;
+		}
 		logger.debug("Initializing workspace for {}", sourceName);
 		Workspace workspace = initializeWorkspace(contextParameters);
 		logger.debug("Initialized workspace for {}", sourceName);
 		try
 		{
 		
-			logger.debug("Generating worksheet for {}", sourceName);
-			Worksheet worksheet = generateWorksheet(sourceName, new BufferedInputStream(data), dataType, inputTypeParameters,
-					workspace);
-			logger.debug("Generated worksheet for {}", sourceName);
 			logger.debug("Parsing mapping for {}", sourceName);
 			//Generate mappping data for the worksheet using the model parser
 			KR2RMLMapping mapping = modelParser.parse();
 			logger.debug("Parsed mapping for {}", sourceName);
-			applyHistoryToWorksheet(workspace, worksheet, mapping);
+			Worksheet worksheet = null;
+			File snapshotFile = null;
+			String snapshotKey = null;
+			if (snapshotDirectory != null && sourceDigest != null) {
+				// the snapshot is taken after the history, so the history is part of the key
+				List<String> parameters = getImportParameters(sourceName, dataType, inputTypeParameters);
+				parameters.add(mapping.getWorksheetHistoryString());
+				snapshotKey = WorksheetSnapshot.computeKey(sourceDigest, parameters);
+				snapshotFile = WorksheetSnapshot.getSnapshotFile(snapshotDirectory, snapshotKey);
+				worksheet = loadWorksheetSnapshot(snapshotFile, snapshotKey, workspace);
+			}
+			if (worksheet == null) {
+				logger.debug("Generating worksheet for {}", sourceName);
+				MetricsRegistry.Timer timer = metrics.start(MetricsRegistry.IMPORT);
+				if (dataType == InputType.CSV && inputFile != null) {
+					// a snapshot is reused by other mappings, so it gets the values of all the columns
+					Set<String> columnNames = null;
+					if (snapshotFile == null && inputTypeParameters != null
+							&& Boolean.TRUE.equals(inputTypeParameters.get(InputProperty.MAPPED_COLUMNS_ONLY)))
+						columnNames = KR2RMLMappingInputColumns.getColumnNames(mapping);
+					worksheet = generateWorksheetFromDelimitedStream(sourceName, null, inputFile, 
+							inputTypeParameters != null ? inputTypeParameters : new InputProperties(), workspace, columnNames);
+				} else {
+					worksheet = generateWorksheet(sourceName, new BufferedInputStream(data), dataType, inputTypeParameters,
+							workspace);
+				}
+				timer.stop();
+				logger.debug("Generated worksheet for {}", sourceName);
+				applyHistoryToWorksheet(workspace, worksheet, mapping);
+				if (snapshotFile != null) {
+					saveWorksheetSnapshot(worksheet, snapshotKey, snapshotFile);
+				}
+			}
 			SuperSelection selection = SuperSelectionManager.DEFAULT_SELECTION;
 			if (selectionName != null && !selectionName.trim().isEmpty())
 				selection = worksheet.getSuperSelectionManager().getSuperSelection(selectionName);
@@ -184,6 +252,7 @@ public class GenericRDFGenerator extends RdfGenerator {
 			        workspace, writers,
 			        addProvenance, rootStrategy, tripleMapToKill, tripleMapToStop, POMToKill, 
 			        mapping, errorReport, selection);
+			rdfGen.setMetrics(metrics);
 			rdfGen.generateRDF(true);
 			logger.debug("Generated output for {}", sourceName);
 		}
@@ -200,15 +269,111 @@ public class GenericRDFGenerator extends RdfGenerator {
 		logger.debug("Generated rdf for {}", sourceName);
 	}
 	
+	/**
+	 * Generates the RDF of the records of a reader in windows of
+	 * RECORDS_PER_WORKSHEET records: each window is imported into a new worksheet,
+	 * the history is applied, the RDF is generated and the worksheet is released.
+	 * Each worksheet gets the columns of all the records read before it.
+	 * Worksheet snapshots are not used in this mode.
+	 */
+	private void generateRDFFromRecords(WorksheetR2RMLJenaModelParser modelParser, String sourceName, 
+			RecordReader reader, SourceTypes sourceType, InputProperties inputTypeParameters, boolean addProvenance, 
+			List<KR2RMLRDFWriter> writers, RootStrategy rootStrategy, List<String> tripleMapToKill, 
+			List<String> tripleMapToStop, List<String> POMToKill, ServletContextParameterMap contextParameters) 
+					throws KarmaException {
+		if (inputTypeParameters == null)
+			inputTypeParameters = new InputProperties();
+		String encoding = (String)inputTypeParameters.get(InputProperty.ENCODING);
+		int recordsPerWorksheet = (inputTypeParameters.get(InputProperty.RECORDS_PER_WORKSHEET) != null)? 
+				(int)inputTypeParameters.get(InputProperty.RECORDS_PER_WORKSHEET) : DEFAULT_RECORDS_PER_WORKSHEET;
+		int maxNumLines = (inputTypeParameters.get(InputProperty.MAX_NUM_LINES) != null)? 
+				(int)inputTypeParameters.get(InputProperty.MAX_NUM_LINES) : -1;
+		if(rootStrategy == null)
+		{
+			rootStrategy = new SteinerTreeRootStrategy(new WorksheetDepthRootStrategy());
+		}
+		
+		int numRecords = 0;
+		JsonHeaderUnion headerUnion = new JsonHeaderUnion();
+		try
+		{
+			KR2RMLMapping mapping = modelParser.parse();
+			while (maxNumLines <= 0 || numRecords < maxNumLines)
+			{
+				int windowSize = recordsPerWorksheet;
+				if (maxNumLines > 0)
+					windowSize = Math.min(windowSize, maxNumLines - numRecords);
+				Workspace workspace = initializeWorkspace(contextParameters);
+				try
+				{
+					MetricsRegistry.Timer timer = metrics.start(MetricsRegistry.IMPORT);
+					RecordImport imp = new RecordImport(reader, headerUnion, sourceType, sourceName, workspace, encoding, windowSize);
+					Worksheet worksheet = imp.generateWorksheet();
+					timer.stop();
+					if (imp.getNumberOfRecords() == 0)
+						break;
+					numRecords += imp.getNumberOfRecords();
+					applyHistoryToWorksheet(workspace, worksheet, mapping);
+					SuperSelection selection = SuperSelectionManager.DEFAULT_SELECTION;
+					if (selectionName != null && !selectionName.trim().isEmpty())
+						selection = worksheet.getSuperSelectionManager().getSuperSelection(selectionName);
+					if (selection == null)
+						return;
+					KR2RMLWorksheetRDFGenerator rdfGen = new KR2RMLWorksheetRDFGenerator(worksheet,
+					        workspace, writers,
+					        addProvenance, rootStrategy, tripleMapToKill, tripleMapToStop, POMToKill, 
+					        mapping, new ErrorReport(), selection);
+					rdfGen.setMetrics(metrics);
+					rdfGen.generateRDF(false);
+					logger.debug("Generated rdf for {} records of {}", numRecords, sourceName);
+					if (imp.getNumberOfRecords() < windowSize)
+						break;
+				}
+				finally
+				{
+					removeWorkspace(workspace);
+				}
+			}
+			// the writers are finished once, after the last window, as
+			// generateRDF(true) does for a single worksheet
+			for (KR2RMLRDFWriter writer : writers) {
+				writer.flush();
+				writer.close();
+			}
+		}
+		catch( Exception e)
+		{
+			logger.error("Error occurred while generating RDF", e);
+			throw new KarmaException(e.getMessage());
+		}
+	}
+	
 	public void generateRDF(RDFGeneratorRequest request) throws KarmaException, IOException
 	{
 		InputStream inputStream = null;
+		String sourceDigest = null;
 		if(request.getInputFile() != null)
 		{
-			inputStream = new FileInputStream(request.getInputFile());
+			if(request.getSnapshotDirectory() != null)
+			{
+				sourceDigest = WorksheetSnapshot.digest(request.getInputFile());
+			}
+			// a local CSV file is read by the mapped reader, not from a stream
+			if(request.getDataType() != InputType.CSV)
+			{
+				try(InputStream is = new FileInputStream(request.getInputFile()))
+				{
+					generateRDF(request, is, sourceDigest);
+				}
+				return;
+			}
 		}
 		else if(request.getInputData() != null)
 		{
+			if(request.getSnapshotDirectory() != null)
+			{
+				sourceDigest = WorksheetSnapshot.digest(IOUtils.toInputStream(request.getInputData(), Charset.forName("UTF-8")));
+			}
 			inputStream = IOUtils.toInputStream(request.getInputData(), Charset.forName("UTF-8"));
 			request.setEncoding("UTF-8");
 		}
@@ -216,11 +381,71 @@ public class GenericRDFGenerator extends RdfGenerator {
 		{
 			inputStream = request.getInputStream();
 		}
-		
+		generateRDF(request, inputStream, sourceDigest);
+	}
+
+	private void generateRDF(RDFGeneratorRequest request, InputStream inputStream, String sourceDigest)
+			throws KarmaException, IOException
+	{
 		generateRDF(request.getModelName(), request.getSourceName(), request.getContextName(), 
 				inputStream, request.getDataType(), request.getInputTypeProperties(), request.isAddProvenance(), 
 				request.getWriters(), request.getStrategy(), 
-				request.getTripleMapToKill(), request.getTripleMapToStop(), request.getPOMToKill(), request.getContextParameters());
+				request.getTripleMapToKill(), request.getTripleMapToStop(), request.getPOMToKill(), request.getContextParameters(),
+				request.getSnapshotDirectory(), sourceDigest, request.getInputFile());
+	}
+	
+	/**
+	 * The parameters of the import that are part of the key of a worksheet
+	 * snapshot, a change in any of them gives another worksheet. The number of
+	 * threads of the import does not change the worksheet.
+	 */
+	static List<String> getImportParameters(String sourceName, InputType dataType, InputProperties inputTypeParameters) {
+		List<String> parameters = new ArrayList<>();
+		parameters.add(sourceName);
+		parameters.add(String.valueOf(dataType));
+		for (InputProperty property : InputProperty.values()) {
+			if (property == InputProperty.IMPORT_THREADS)
+				continue;
+			Object value = inputTypeParameters == null ? null : inputTypeParameters.get(property);
+			parameters.add(property.name() + "=" + (value == null ? "" : value));
+		}
+		return parameters;
+	}
+	
+	/**
+	 * Loads a snapshot of the imported worksheet, the history is applied to it
+	 * as to an imported worksheet.
+	 * @return the worksheet, or null if there is no usable snapshot
+	 */
+	private Worksheet loadWorksheetSnapshot(File snapshotFile, String snapshotKey, Workspace workspace) {
+		if (!snapshotFile.exists())
+			return null;
+		Worksheet worksheet;
+		MetricsRegistry.Timer timer = metrics.start(MetricsRegistry.IMPORT);
+		try {
+			worksheet = WorksheetSnapshot.read(snapshotFile, snapshotKey, workspace);
+		} catch (IOException e) {
+			logger.warn("Unable to read worksheet snapshot " + snapshotFile, e);
+			return null;
+		} finally {
+			timer.stop();
+		}
+		if (worksheet == null)
+			return null;
+		logger.debug("Loaded worksheet snapshot {}", snapshotFile);
+		return worksheet;
+	}
+	
+	private void saveWorksheetSnapshot(Worksheet worksheet, String snapshotKey, File snapshotFile) {
+		try {
+			if (!snapshotFile.getParentFile().exists()) {
+				snapshotFile.getParentFile().mkdirs();
+			}
+			WorksheetSnapshot.write(worksheet, snapshotKey, snapshotFile);
+			logger.debug("Saved worksheet snapshot {}", snapshotFile);
+		} catch (IOException e) {
+			logger.warn("Unable to save worksheet snapshot " + snapshotFile, e);
+		}
 	}
 	
 	private InputType getInputType(Metadata metadata) {
@@ -283,7 +508,7 @@ public class GenericRDFGenerator extends RdfGenerator {
 			} else if(inputParameters.get(InputProperty.ENCODING) != null) {
 				encoding = (String)inputParameters.get(InputProperty.ENCODING);
 			} else {
-				encoding = EncodingDetector.detect(is);
+				encoding = EncodingDetector.detect(is, EncodingDetector.DEFAULT_PREFIX_SIZE);
 			}
 			is.reset();
 			
@@ -307,7 +532,7 @@ public class GenericRDFGenerator extends RdfGenerator {
 				}
 				case CSV : {
 					worksheet = generateWorksheetFromDelimitedStream(sourceName,
-							is, inputParameters, workspace);
+							is, null, inputParameters, workspace, null);
 					break;
 				}
 				case EXCEL: {
@@ -370,18 +595,36 @@ public class GenericRDFGenerator extends RdfGenerator {
 		
 		int worksheetIndex =  (inputTypeParams.get(InputProperty.WORKSHEET_INDEX) != null)? 
 				(int)inputTypeParams.get(InputProperty.WORKSHEET_INDEX) : 1;
+		
+		if (is.markSupported() && XLSXSheetReader.isXLSX(is)) {
+			int headerStartIndex =  (inputTypeParams.get(InputProperty.HEADER_START_INDEX) != null)? 
+					(int)inputTypeParams.get(InputProperty.HEADER_START_INDEX) : 1;
+			int dataStartIndex =  (inputTypeParams.get(InputProperty.DATA_START_INDEX) != null)? 
+					(int)inputTypeParams.get(InputProperty.DATA_START_INDEX) : 2;
+			String encoding = (String)inputTypeParams.get(InputProperty.ENCODING);
+			int maxNumLines = (inputTypeParams.get(InputProperty.MAX_NUM_LINES) != null)? 
+					(int)inputTypeParams.get(InputProperty.MAX_NUM_LINES) : -1;
+			try (XLSXSheetReader reader = new XLSXSheetReader(is)) {
+				return new XLSXImport(reader, worksheetIndex-1, headerStartIndex, dataStartIndex, 
+						sourceName, workspace, encoding, maxNumLines).generateWorksheet();
+			}
+		}
 				
-		 // Convert the Excel file to a CSV file.
+		 // Convert the Excel (xls) file to a CSV file.
         ToCSV csvConverter = new ToCSV();
         StringWriter writer = new StringWriter();
         csvConverter.convertWorksheetToCSV(is, worksheetIndex-1, writer);
         String csv= writer.toString();
         InputStream sheet = IOUtils.toInputStream(csv);
-        return this.generateWorksheetFromDelimitedStream(sourceName, sheet, inputTypeParams, workspace);	
+        return this.generateWorksheetFromDelimitedStream(sourceName, sheet, null, inputTypeParams, workspace, null);	
 	}
 	
-	private Worksheet generateWorksheetFromDelimitedStream(String sourceName, InputStream is,  InputProperties inputTypeParams,
-			Workspace workspace) throws IOException,
+	/**
+	 * Imports the stream, or the local file with a memory mapped reader if it is given
+	 * @param columnNames the columns of the file whose values are imported, null for all the columns
+	 */
+	private Worksheet generateWorksheetFromDelimitedStream(String sourceName, InputStream is, File file, 
+			InputProperties inputTypeParams, Workspace workspace, Set<String> columnNames) throws IOException,
 			KarmaException, ClassNotFoundException {
 		Worksheet worksheet;
 		int headerStartIndex =  (inputTypeParams.get(InputProperty.HEADER_START_INDEX) != null)? 
@@ -398,8 +641,13 @@ public class GenericRDFGenerator extends RdfGenerator {
 		int maxNumLines = (inputTypeParams.get(InputProperty.MAX_NUM_LINES) != null)? 
 				(int)inputTypeParams.get(InputProperty.MAX_NUM_LINES) : -1;
 		
-		Import fileImport = new CSVImport(headerStartIndex, dataStartIndex, delimiter, qualifier, encoding, maxNumLines, 
-				sourceName, is, workspace, null);
+		Import fileImport;
+		if (file != null)
+			fileImport = new MappedCSVImport(headerStartIndex, dataStartIndex, delimiter, qualifier, encoding, maxNumLines, 
+					sourceName, file, workspace, null, columnNames);
+		else
+			fileImport = new CSVImport(headerStartIndex, dataStartIndex, delimiter, qualifier, encoding, maxNumLines, 
+					sourceName, is, workspace, null);
 
 		worksheet = fileImport.generateWorksheet();
 		return worksheet;
@@ -412,6 +660,12 @@ public class GenericRDFGenerator extends RdfGenerator {
 		String encoding = (String)inputTypeParams.get(InputProperty.ENCODING);
 		int maxNumLines = (inputTypeParams.get(InputProperty.MAX_NUM_LINES) != null)? 
 				(int)inputTypeParams.get(InputProperty.MAX_NUM_LINES) : -1;
+		String recordElement = (String)inputTypeParams.get(InputProperty.XML_RECORD_ELEMENT);
+		if (recordElement != null) {
+			try (XMLRecordReader reader = new XMLRecordReader(is, encoding, recordElement)) {
+				return new RecordImport(reader, null, SourceTypes.XML, sourceName, workspace, encoding, maxNumLines).generateWorksheet();
+			}
+		}
 				
 		String contents = IOUtils.toString(is, encoding);
 		JSONObject json = XML.toJSONObject(contents);
@@ -430,6 +684,8 @@ public class GenericRDFGenerator extends RdfGenerator {
 		Reader reader = EncodingDetector.getInputStreamReader(is, encoding);
 		Object json = JSONUtil.createJson(reader);
 		JsonImport imp = new JsonImport(json, sourceName, workspace, encoding, maxNumLines);
+		if (inputTypeParams.get(InputProperty.IMPORT_THREADS) != null)
+			imp.setNumThreads((int)inputTypeParams.get(InputProperty.IMPORT_THREADS));
 		worksheet = imp.generateWorksheet();
 		return worksheet;
 	}
@@ -450,10 +706,12 @@ public class GenericRDFGenerator extends RdfGenerator {
 		Worksheet worksheet;
 		String encoding = (String)inputTypeParams.get(InputProperty.ENCODING);
 		int maxNumLines = (inputTypeParams.get(InputProperty.MAX_NUM_LINES) != null)? (int)inputTypeParams.get(InputProperty.MAX_NUM_LINES) : -1;
-		Object json=JSONUtil.convertJSONLinesToJSONArray(is,encoding);
-		
-		JsonImport imp = new JsonImport(json, sourceName, workspace, encoding, maxNumLines);
-		worksheet = imp.generateWorksheet();
+		try (JsonLinesReader reader = new JsonLinesReader(is, encoding)) {
+			RecordImport imp = new RecordImport(reader, null, SourceTypes.JSON, sourceName, workspace, encoding, maxNumLines);
+			worksheet = imp.generateWorksheet();
+			if (reader.getNumberOfMalformedLines() > 0)
+				logger.warn("Skipped {} malformed lines of {}", reader.getNumberOfMalformedLines(), sourceName);
+		}
 		return worksheet;
 		
 	}
@@ -11,7 +11,17 @@ public class InputProperties {
 		TEXT_QUALIFIER,
 		HEADER_START_INDEX,
 		DATA_START_INDEX,
-		WORKSHEET_INDEX
+		WORKSHEET_INDEX,
+		/* name of the repeating XML element imported as a row, see XMLRecordReader */
+		XML_RECORD_ELEMENT,
+		/* number of records imported in one worksheet when the input is read in windows,
+		   JSON Lines are only read in windows if it is set */
+		RECORDS_PER_WORKSHEET,
+		/* true to only import the values of the columns the mapping reads, for a local CSV file,
+		   see KR2RMLMappingInputColumns */
+		MAPPED_COLUMNS_ONLY,
+		/* number of threads that import the elements of a top level JSON array, see JsonImport.setNumThreads */
+		IMPORT_THREADS
 		
 	}
 	private HashMap<InputProperty, Object> properties;
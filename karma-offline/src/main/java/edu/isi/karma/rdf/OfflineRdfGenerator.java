@@ -23,11 +23,14 @@
 
 package edu.isi.karma.rdf;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
@@ -43,6 +46,8 @@ import java.util.Set;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,10 +69,14 @@ import edu.isi.karma.kr2rml.URIFormatter;
 import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
 import edu.isi.karma.kr2rml.mapping.WorksheetR2RMLJenaModelParser;
 import edu.isi.karma.kr2rml.planning.UserSpecifiedRootStrategy;
+import edu.isi.karma.kr2rml.writer.BloomTripleDeduplicator;
 import edu.isi.karma.kr2rml.writer.JSONKR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.N3KR2RMLRDFWriter;
+import edu.isi.karma.kr2rml.writer.SortedRunTripleDeduplicator;
+import edu.isi.karma.kr2rml.writer.TripleDeduplicator;
 import edu.isi.karma.metadata.KarmaMetadataManager;
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
 import edu.isi.karma.metadata.PythonTransformationMetadata;
 import edu.isi.karma.metadata.UserConfigMetadata;
 import edu.isi.karma.metadata.UserPreferencesMetadata;
@@ -99,6 +108,10 @@ public class OfflineRdfGenerator {
 	private String outputFilePath;
 	private String outputFileJSONPath;
 	private String bloomFiltersFilePath;
+	private String dedupMode;
+	private long dedupExpected = 10000000L;
+	private long dedupMemory = 256L * 1024 * 1024;
+	private TripleDeduplicator deduplicator;
 	private List<KR2RMLRDFWriter> writers;
 	private URL modelURL;
 	private String dbtypeStr;
@@ -127,6 +140,15 @@ public class OfflineRdfGenerator {
 	private String contextURLString;
 	private URL contextURL;
 	private ServletContextParameterMap contextParameters;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private int importThreads = 1;
+	private long triplesPerShard;
+	private int numberOfPartitions;
+	private String partitionColumn;
+	private String partitionOutput;
+	private String metricsFilePath;
+	private SimpleMetricsRegistry metrics;
+	private static Class<? extends KR2RMLRDFWriter> bloomFilterWriterClass;
 	public OfflineRdfGenerator(CommandLine cl)
 	{
 
@@ -163,9 +185,17 @@ public class OfflineRdfGenerator {
 			setupKarmaMetadata();
 			generateRDF();
 			closeWriters();
+			writeMetrics();
 		}
 	}
 
+	private void writeMetrics() throws IOException {
+		if (metrics == null)
+			return;
+		FileUtils.writeStringToFile(new File(metricsFilePath), metrics.toJSON().toString(4), "UTF-8");
+		logger.info("Metrics published at: " + metricsFilePath);
+	}
+
 	private void generateRDF() throws Exception
 	{
 		/**
@@ -232,6 +262,13 @@ public class OfflineRdfGenerator {
 		outputFileJSONPath = (String) cl.getOptionValue("jsonoutputfile");
 		baseURI = (String) cl.getOptionValue("baseuri");
 		bloomFiltersFilePath = (String) cl.getOptionValue("outputbloomfilter");
+		dedupMode = (String) cl.getOptionValue("dedup");
+		if (cl.getOptionValue("dedupexpected") != null) {
+			dedupExpected = Long.parseLong(cl.getOptionValue("dedupexpected"));
+		}
+		if (cl.getOptionValue("dedupmemory") != null) {
+			dedupMemory = Long.parseLong(cl.getOptionValue("dedupmemory")) * 1024 * 1024;
+		}
 		selectionName = (String) cl.getOptionValue("selection");
 		rootTripleMap = (String) cl.getOptionValue("root");
 		String killTripleMap = (String) cl.getOptionValue("killtriplemap");
@@ -293,6 +330,15 @@ public class OfflineRdfGenerator {
 		topkrows = (String) cl.getOptionValue("topkrows");
 		queryFile = (String) cl.getOptionValue("queryfile");
 		portnumber = (String) cl.getOptionValue("portnumber");
+		partitionColumn = (String) cl.getOptionValue("partitioncolumn");
+		partitionOutput = (String) cl.getOptionValue("partitionoutput");
+		metricsFilePath = (String) cl.getOptionValue("metrics");
+		if (metricsFilePath != null) {
+			metrics = new SimpleMetricsRegistry(cl.hasOption("metricsallocations"));
+		}
+		if (cl.getOptionValue("partitions") != null) {
+			numberOfPartitions = Integer.parseInt(cl.getOptionValue("partitions"));
+		}
 	}
 
 	protected void parseFileCommandLineOptions(CommandLine cl)
@@ -301,6 +347,15 @@ public class OfflineRdfGenerator {
 		sourceFilePath = (String) cl.getOptionValue("filepath");
 		sMaxNumLines = (String) cl.getOptionValue("maxNumLines");
 		sourceName = (String) cl.getOptionValue("sourcename");
+		if (cl.getOptionValue("threads") != null) {
+			numThreads = Integer.parseInt(cl.getOptionValue("threads"));
+		}
+		if (cl.getOptionValue("triplespershard") != null) {
+			triplesPerShard = Long.parseLong(cl.getOptionValue("triplespershard"));
+		}
+		if (cl.getOptionValue("importthreads") != null) {
+			importThreads = Integer.parseInt(cl.getOptionValue("importthreads"));
+		}
 	}
 	protected boolean validateCommandLineOptions() throws IOException
 	{
@@ -328,13 +383,23 @@ public class OfflineRdfGenerator {
 
 
 	private boolean validateFileCommandLineOptions() {
-		inputFile = new File(sourceFilePath);
-		if (!inputFile.exists()) {
-			logger.error("File not found: " + inputFile.getAbsolutePath());
+		if (sourceFilePath == null) {
+			logger.error("You need to supply a value for '--filepath'");
 			return false;
 		}
-		if(encoding == null) {
-			encoding = EncodingDetector.detect(inputFile);
+		if (!BatchRdfGenerator.isBatchPath(sourceFilePath)) {
+			inputFile = new File(sourceFilePath);
+			if (!inputFile.exists()) {
+				logger.error("File not found: " + inputFile.getAbsolutePath());
+				return false;
+			}
+			if(encoding == null) {
+				encoding = EncodingDetector.detect(inputFile);
+			}
+		} else if ("sort".equalsIgnoreCase(dedupMode)) {
+			logger.error("The sort dedup writes the unique triples once all of them are generated, "
+					+ "please use the bloom dedup with several files.");
+			return false;
 		}
 
 		maxNumLines = -1;
@@ -408,12 +473,15 @@ public class OfflineRdfGenerator {
 
 		DatabaseTableRDFGenerator dbRdfGen = new DatabaseTableRDFGenerator(dbType,
 				hostname, port, username, password, dBorSIDName, encoding, selectionName, contextParameters);
+		dbRdfGen.setMetrics(metrics);
 		ContextIdentifier contextId = null;
 		if (contextURL != null) {
 			
 			contextId = new ContextIdentifier(contextURL.getQuery(), contextURL, null);
 		}
-		if(inputType.equals("DB")) {
+		if (numberOfPartitions > 1 && topkrows == null) {
+			generateRdfFromDatabasePartitions(dbRdfGen, contextId);
+		} else if(inputType.equals("DB")) {
 			R2RMLMappingIdentifier id = new R2RMLMappingIdentifier(tablename, modelURL, null);
 			createWriters();
 			dbRdfGen.generateRDFFromTable(tablename, topkrows, writers, id, contextId, baseURI);
@@ -427,6 +495,101 @@ public class OfflineRdfGenerator {
 
 	}
 
+	/**
+	 * Generates the RDF of the ranges of the partition column on separate
+	 * connections. Each partition is written to its own files, which are
+	 * concatenated in the order of the partitions unless the output is sharded.
+	 */
+	private void generateRdfFromDatabasePartitions(DatabaseTableRDFGenerator dbRdfGen, ContextIdentifier contextId) throws Exception {
+		dbRdfGen.setNumThreads(numThreads);
+		DatabaseTableRDFGenerator.PartitionWriters partitionWriters = new DatabaseTableRDFGenerator.PartitionWriters() {
+			@Override
+			public List<KR2RMLRDFWriter> createWriters(int partition) throws Exception {
+				return OfflineRdfGenerator.this.createWriters(getPartitionPath(outputFilePath, partition),
+						getPartitionPath(outputFileJSONPath, partition), getPartitionPath(bloomFiltersFilePath, partition));
+			}
+		};
+		int partitions;
+		if(inputType.equals("DB")) {
+			R2RMLMappingIdentifier id = new R2RMLMappingIdentifier(tablename, modelURL, null);
+			partitions = dbRdfGen.generateRDFFromTable(tablename, partitionColumn, numberOfPartitions, partitionWriters, id, contextId, baseURI);
+		} else {
+			String query = loadQueryFromFile();
+			R2RMLMappingIdentifier id = new R2RMLMappingIdentifier(modelURL.toString(), modelURL, null);
+			partitions = dbRdfGen.generateRDFFromSQL(query, partitionColumn, numberOfPartitions, partitionWriters, id, contextId, baseURI);
+		}
+		if (isShardedPartitionOutput()) {
+			logger.info("Generated " + partitions + " partitions");
+			return;
+		}
+		concatenatePartitions(outputFilePath, partitions, false);
+		concatenatePartitions(outputFileJSONPath, partitions, true);
+	}
+
+	private boolean isShardedPartitionOutput() {
+		return "sharded".equalsIgnoreCase(partitionOutput);
+	}
+
+	/**
+	 * Appends the objects of a JSON-LD array of a partition. The writer puts
+	 * the brackets of the array on their own lines, the objects have no empty line.
+	 * @return true if nothing has been appended yet
+	 */
+	private static boolean appendJSONArray(BufferedReader in, BufferedWriter out, boolean empty) throws IOException {
+		in.readLine();
+		boolean first = true;
+		String previous = null;
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.isEmpty())
+				continue;
+			if (previous != null) {
+				out.write(first && !empty ? ",\n" : "\n");
+				out.write(previous);
+				first = false;
+				empty = false;
+			}
+			previous = line;
+		}
+		return empty;
+	}
+
+	private static String getPartitionPath(String path, int partition) {
+		return path == null || path.trim().isEmpty() ? null : String.format("%s.part-%05d", path, partition);
+	}
+
+	/**
+	 * Concatenates the files of the partitions in their order and removes
+	 * them. The JSON-LD arrays of the partitions are merged in one array.
+	 */
+	private static void concatenatePartitions(String path, int partitions, boolean jsonArray) throws IOException {
+		if (path == null) {
+			return;
+		}
+		try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), "UTF-8"))) {
+			if (jsonArray) {
+				out.write("[");
+			}
+			boolean empty = true;
+			for (int i = 0; i < partitions; i++) {
+				File partition = new File(getPartitionPath(path, i));
+				try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(partition), "UTF-8"))) {
+					if (jsonArray) {
+						empty = appendJSONArray(in, out, empty);
+					} else {
+						IOUtils.copy(in, out);
+					}
+				}
+				if (!partition.delete()) {
+					logger.warn("Unable to delete " + partition);
+				}
+			}
+			if (jsonArray) {
+				out.write("\n]\n");
+			}
+		}
+	}
+
 	private boolean validateDatabaseCommandLineOptions() {
 		if(encoding == null)
 			encoding = "UTF-8";
@@ -458,6 +621,21 @@ public class OfflineRdfGenerator {
 			return false;
 		}
 
+		if (numberOfPartitions > 1 && inputType.equals("SQL") && partitionColumn == null) {
+			logger.error("A partitioncolumn is required to partition the rows of a query.");
+			return false;
+		}
+		if (numberOfPartitions > 1 && !isShardedPartitionOutput() && bloomFiltersFilePath != null) {
+			logger.error("The bloom filters of the partitions can not be concatenated, "
+					+ "please use a sharded partitionoutput.");
+			return false;
+		}
+		if (numberOfPartitions > 1 && "sort".equalsIgnoreCase(dedupMode)) {
+			logger.error("The sort dedup writes the unique triples once all of them are generated, "
+					+ "please use the bloom dedup with partitions.");
+			return false;
+		}
+
 		dbType = DBType.valueOf(dbtypeStr);
 		if (dbType == null) {
 			logger.error("Unidentified database type. Valid values: "
@@ -487,8 +665,22 @@ public class OfflineRdfGenerator {
 		createN3Writer();
 		createBloomFilterWriter();
 	}
+
+	private List<KR2RMLRDFWriter> createWriters(String outputFilePath, String outputFileJSONPath, String bloomFiltersFilePath) throws Exception
+	{
+		List<KR2RMLRDFWriter> writers = new LinkedList<>();
+		createN3Writer(writers, outputFilePath, outputFileJSONPath);
+		createBloomFilterWriter(writers, bloomFiltersFilePath);
+		return writers;
+	}
+
 	protected void createN3Writer()
 			throws UnsupportedEncodingException, FileNotFoundException {
+		createN3Writer(writers, outputFilePath, outputFileJSONPath);
+	}
+
+	private void createN3Writer(List<KR2RMLRDFWriter> writers, String outputFilePath, String outputFileJSONPath)
+			throws UnsupportedEncodingException, FileNotFoundException {
 
 		if(outputFilePath != null)
 		{
@@ -501,15 +693,52 @@ public class OfflineRdfGenerator {
 			{
 				n3Writer.setBaseURI(baseURI);
 			}
+			if (getDeduplicator() != null) {
+				n3Writer.setDeduplicator(getDeduplicator());
+			}
 			writers.add(n3Writer);
 		}
 		if (outputFileJSONPath != null) {
 			JSONKR2RMLRDFWriter jsonWriter = new JSONKR2RMLRDFWriter(new PrintWriter(outputFileJSONPath), baseURI);
+			if (getDeduplicator() != null) {
+				jsonWriter.setDeduplicator(getDeduplicator());
+			}
 			writers.add(jsonWriter);
 		}
 	}
 
+	/**
+	 * @return the deduplicator shared by all the writers of the generation, so
+	 * the duplicates are removed across the outputs of the files or the
+	 * partitions within a single memory budget
+	 */
+	private synchronized TripleDeduplicator getDeduplicator() {
+		if (deduplicator == null) {
+			deduplicator = createDeduplicator();
+		}
+		return deduplicator;
+	}
+
+	private TripleDeduplicator createDeduplicator() {
+		if (dedupMode == null) {
+			return null;
+		}
+		if (dedupMode.equalsIgnoreCase("bloom")) {
+			// the filter takes about 10 bits per value, the rest holds fingerprints
+			long filterMemory = dedupExpected * 10 / 8;
+			return new BloomTripleDeduplicator(dedupExpected, 0.01, Math.max(dedupMemory - filterMemory, 1024 * 1024));
+		}
+		if (dedupMode.equalsIgnoreCase("sort")) {
+			return new SortedRunTripleDeduplicator(null, dedupMemory);
+		}
+		throw new IllegalArgumentException("Unknown dedup mode: " + dedupMode + ". Valid values: bloom, sort");
+	}
+
 	protected void createBloomFilterWriter() throws Exception {
+		createBloomFilterWriter(writers, bloomFiltersFilePath);
+	}
+
+	private void createBloomFilterWriter(List<KR2RMLRDFWriter> writers, String bloomFiltersFilePath) throws Exception {
 		if (bloomFiltersFilePath != null && !bloomFiltersFilePath.trim().isEmpty()) {
 			PrintWriter bloomfilterpw = new PrintWriter(new File(bloomFiltersFilePath));
 			logger.info(bloomFiltersFilePath);
@@ -521,23 +750,18 @@ public class OfflineRdfGenerator {
 	private KR2RMLRDFWriter createBloomFilterWriter(PrintWriter bloomfilterpw, Boolean isRDF, String baseURI)
 			throws Exception {
 		
-		Reflections reflections = new Reflections("edu.isi.karma.kr2rml.writer");
-
-		Set<Class<? extends KR2RMLRDFWriter>> subTypes =
-				reflections.getSubTypesOf(KR2RMLRDFWriter.class);
-		
-		for (Class<? extends KR2RMLRDFWriter> subType : subTypes)
+		Class<? extends KR2RMLRDFWriter> subType = getBloomFilterWriterClass();
+		if (subType != null)
 		{
-			if(!Modifier.isAbstract(subType.getModifiers()) && !subType.isInterface() && subType.getName().equals("BloomFilterKR2RMLRDFWriter"))
-				try
+			try
 			{
-					KR2RMLRDFWriter writer = subType.newInstance();
-					writer.setWriter(bloomfilterpw);
-					Properties p = new Properties();
-					p.setProperty("is.rdf", isRDF.toString());
-					p.setProperty("base.uri", baseURI);
-					writer.initialize(p);
-					return writer;
+				KR2RMLRDFWriter writer = subType.newInstance();
+				writer.setWriter(bloomfilterpw);
+				Properties p = new Properties();
+				p.setProperty("is.rdf", isRDF.toString());
+				p.setProperty("base.uri", baseURI);
+				writer.initialize(p);
+				return writer;
 			}
 			catch (Exception e)
 			{
@@ -550,6 +774,28 @@ public class OfflineRdfGenerator {
 		throw new Exception("Bloom filter writing support not enabled.  Please recompile with -Pbloom");
 	}
 
+	/**
+	 * Scans the classpath once, the batch mode creates a writer per file
+	 */
+	private static synchronized Class<? extends KR2RMLRDFWriter> getBloomFilterWriterClass() {
+		if (bloomFilterWriterClass != null)
+			return bloomFilterWriterClass;
+		Reflections reflections = new Reflections("edu.isi.karma.kr2rml.writer");
+
+		Set<Class<? extends KR2RMLRDFWriter>> subTypes =
+				reflections.getSubTypesOf(KR2RMLRDFWriter.class);
+		
+		for (Class<? extends KR2RMLRDFWriter> subType : subTypes)
+		{
+			if(!Modifier.isAbstract(subType.getModifiers()) && !subType.isInterface() && subType.getName().equals("BloomFilterKR2RMLRDFWriter"))
+			{
+				bloomFilterWriterClass = subType;
+				break;
+			}
+		}
+		return bloomFilterWriterClass;
+	}
+
 	private void generateRdfFromFile()
 			throws Exception {
 		if(!validateFileCommandLineOptions())
@@ -559,21 +805,10 @@ public class OfflineRdfGenerator {
 		}
 		R2RMLMappingIdentifier id = new R2RMLMappingIdentifier(sourceName, modelURL, null);
 
-		createWriters();
 		GenericRDFGenerator rdfGenerator = new GenericRDFGenerator(selectionName);
+		rdfGenerator.setMetrics(metrics);
 		rdfGenerator.addModel(id);
 		
-		InputType inputType = null;
-		if(this.inputType.equalsIgnoreCase("CSV"))
-			inputType = InputType.CSV;
-		else if(this.inputType.equalsIgnoreCase("JSON"))
-			inputType = InputType.JSON;
-		else if(this.inputType.equalsIgnoreCase("XML"))
-			inputType = InputType.XML;
-		else if(this.inputType.equalsIgnoreCase("AVRO"))
-			inputType = InputType.AVRO;
-		else if(this.inputType.equalsIgnoreCase("JL"))
-			inputType = InputType.JL;
 		Model model = rdfGenerator.getModelParser(sourceName).getModel();
 		if (rootTripleMap != null && !rootTripleMap.isEmpty()) {
 			StmtIterator itr = model.listStatements(null, model.getProperty(Uris.KM_NODE_ID_URI), rootTripleMap);
@@ -588,6 +823,76 @@ public class OfflineRdfGenerator {
 				}
 			}
 		}
+		if (contextURL != null) {
+			ContextIdentifier contextId = new ContextIdentifier(contextURL.getQuery(), contextURL, null);
+			rdfGenerator.addContext(contextId);
+		}
+		if (BatchRdfGenerator.isBatchPath(sourceFilePath)) {
+			generateRdfFromFiles(rdfGenerator);
+			return;
+		}
+		createWriters();
+		rdfGenerator.generateRDF(createRequest(inputFile, writers));
+	}
+
+	/**
+	 * Generates the RDF of the files of a directory or glob with the same
+	 * generator, so the model and the context are only loaded once. The
+	 * output options are directories in this mode.
+	 */
+	private void generateRdfFromFiles(final GenericRDFGenerator rdfGenerator) throws Exception {
+		List<File> files = BatchRdfGenerator.listFiles(sourceFilePath);
+		if (files.isEmpty()) {
+			logger.error("No files found for " + sourceFilePath);
+			return;
+		}
+		rdfGenerator.getModelParser(sourceName).parse();
+		if (contextURL != null) {
+			try {
+				rdfGenerator.loadContext(new ContextIdentifier(contextURL.getQuery(), contextURL, null));
+			} catch (IOException e) {
+				logger.error("Unable to load the context " + contextURL, e);
+			}
+		}
+		BatchRdfGenerator batch = new BatchRdfGenerator(numThreads, getDirectory(outputFilePath),
+				getDirectory(outputFileJSONPath), getDirectory(bloomFiltersFilePath), triplesPerShard);
+		int failures = batch.generate(files, new BatchRdfGenerator.FileGenerator() {
+			@Override
+			public void generate(File inputFile, File n3File, File jsonFile, File bloomFiltersFile) throws Exception {
+				List<KR2RMLRDFWriter> writers = createWriters(getPath(n3File), getPath(jsonFile), getPath(bloomFiltersFile));
+				try {
+					rdfGenerator.generateRDF(createRequest(inputFile, writers));
+				} finally {
+					for (KR2RMLRDFWriter writer : writers) {
+						writer.flush();
+						writer.close();
+					}
+				}
+			}
+		});
+		logger.info("Generated the RDF of " + files.size() + " files, " + failures + " failed");
+	}
+
+	private static File getDirectory(String path) {
+		return path == null || path.trim().isEmpty() ? null : new File(path);
+	}
+
+	private static String getPath(File f) {
+		return f == null ? null : f.getPath();
+	}
+
+	private RDFGeneratorRequest createRequest(File inputFile, List<KR2RMLRDFWriter> writers) {
+		InputType inputType = null;
+		if(this.inputType.equalsIgnoreCase("CSV"))
+			inputType = InputType.CSV;
+		else if(this.inputType.equalsIgnoreCase("JSON"))
+			inputType = InputType.JSON;
+		else if(this.inputType.equalsIgnoreCase("XML"))
+			inputType = InputType.XML;
+		else if(this.inputType.equalsIgnoreCase("AVRO"))
+			inputType = InputType.AVRO;
+		else if(this.inputType.equalsIgnoreCase("JL"))
+			inputType = InputType.JL;
 		RDFGeneratorRequest request = new RDFGeneratorRequest(sourceName, inputFile.getName());
 		request.setInputFile(inputFile);
 		request.setDataType(inputType);
@@ -598,6 +903,7 @@ public class OfflineRdfGenerator {
 		if(inputDataStartIndex != null) request.setDataStartIndex(Integer.parseInt(inputDataStartIndex));
 		
 		request.setMaxNumLines(maxNumLines);
+		if (importThreads > 1) request.setImportThreads(importThreads);
 		request.setAddProvenance(false);
 		request.addWriters(writers);
 		request.setPOMToKill(POMToKill);
@@ -606,11 +912,9 @@ public class OfflineRdfGenerator {
 		request.setStrategy(new UserSpecifiedRootStrategy(rootTripleMap));
 		request.setContextParameters(contextParameters);
 		if (contextURL != null) {
-			ContextIdentifier contextId = new ContextIdentifier(contextURL.getQuery(), contextURL, null);
-			rdfGenerator.addContext(contextId);
 			request.setContextName(contextURL.getQuery());
 		}
-		rdfGenerator.generateRDF(request);
+		return request;
 	}
 
 
@@ -624,11 +928,11 @@ public class OfflineRdfGenerator {
 		options.addOption(new Option("textqualifier","textQualifier", true, "text qualifier for CSV file"));
 		options.addOption(new Option("headerindex", "headerindex", true, "header index for CSV file"));
 		options.addOption(new Option("dataindex", "dataindex", true, "data start index for CSV file"));
-		options.addOption(new Option("filepath", "filepath", true, "location of the input file"));
+		options.addOption(new Option("filepath", "filepath", true, "location of the input file, or a directory or glob of input files for the batch mode"));
 		options.addOption(new Option("modelfilepath", "modelfilepath", true, "location of the model file"));
 		options.addOption(new Option("modelurl", "modelurl", true, "location of the model"));
 		options.addOption(new Option("sourcename", "sourcename", true, "name of the source in the model to use"));
-		options.addOption(new Option("outputfile", "outputfile", true, "location of the output file"));
+		options.addOption(new Option("outputfile", "outputfile", true, "location of the output file, or output directory in the batch mode"));
 		options.addOption(new Option("dbtype", "dbtype", true, "database type. Valid values: Oracle, MySQL, SQLServer, PostGIS"));
 		options.addOption(new Option("hostname", "hostname", true, "hostname for database connection"));
 		options.addOption(new Option("username", "username", true, "username for database connection"));
@@ -648,6 +952,17 @@ public class OfflineRdfGenerator {
 		options.addOption(new Option("jsonoutputfile", "jsonoutputfile", true, "specifies JSONOutputFile"));
 		options.addOption(new Option("contextfile", "contextile", true, "specifies global context file"));
 		options.addOption(new Option("contexturl", "contexturl", true, "specifies global context url"));
+		options.addOption(new Option("dedup", "dedup", true, "remove duplicate triples across rows. Valid values: bloom (streaming, bounded memory), sort (exact, spills to disk)"));
+		options.addOption(new Option("dedupexpected", "dedupexpected", true, "expected number of distinct triples for bloom dedup"));
+		options.addOption(new Option("dedupmemory", "dedupmemory", true, "memory in MB for dedup"));
+		options.addOption(new Option("threads", "threads", true, "number of files processed at a time in the batch mode"));
+		options.addOption(new Option("importthreads", "importthreads", true, "number of threads that import the elements of a top level JSON array, 1 by default"));
+		options.addOption(new Option("triplespershard", "triplespershard", true, "number of triples per output file in the batch mode, by default one output file per input file"));
+		options.addOption(new Option("partitions", "partitions", true, "number of ranges of the partition column read on separate connections from a database"));
+		options.addOption(new Option("partitioncolumn", "partitioncolumn", true, "column to partition the rows on, by default the primary key of the table"));
+		options.addOption(new Option("partitionoutput", "partitionoutput", true, "output of the partitions. Valid values: ordered (one file), sharded (one file per partition)"));
+		options.addOption(new Option("metrics", "metrics", true, "location of a JSON file for the time and the counts of triples of each stage of the generation"));
+		options.addOption(new Option("metricsallocations", "metricsallocations", false, "also estimate the allocations of each stage in the metrics, which slows the generation down"));
 		options.addOption(new Option("help", "help", false, "print this message"));
 
 		return options;
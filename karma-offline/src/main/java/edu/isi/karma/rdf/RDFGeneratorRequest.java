@@ -31,6 +31,7 @@ public class RDFGeneratorRequest {
 	private List<String> tripleMapToStop;
 	private List<String> POMToKill;
 	private ServletContextParameterMap contextParameters;
+	private File snapshotDirectory;
 	public RDFGeneratorRequest(String modelName, String sourceName)
 	{
 
@@ -46,6 +47,7 @@ public class RDFGeneratorRequest {
 		tripleMapToStop = new ArrayList<>();
 		POMToKill = new ArrayList<>();
 		contextParameters = null;
+		snapshotDirectory = null;
 	}
 
 	public void setTripleMapToKill(List<String> tripleMapToKill) {
@@ -130,6 +132,22 @@ public class RDFGeneratorRequest {
 	public void setWorksheetIndex(int index) {
 		this.inputProperties.set(InputProperty.WORKSHEET_INDEX, index);
 	}
+	
+	public void setXMLRecordElement(String recordElement) {
+		this.inputProperties.set(InputProperty.XML_RECORD_ELEMENT, recordElement);
+	}
+	
+	public void setRecordsPerWorksheet(int records) {
+		this.inputProperties.set(InputProperty.RECORDS_PER_WORKSHEET, records);
+	}
+	
+	public void setMappedColumnsOnly(boolean mappedColumnsOnly) {
+		this.inputProperties.set(InputProperty.MAPPED_COLUMNS_ONLY, mappedColumnsOnly);
+	}
+	
+	public void setImportThreads(int threads) {
+		this.inputProperties.set(InputProperty.IMPORT_THREADS, threads);
+	}
 
 	public InputProperties getInputTypeProperties() {
 		return this.inputProperties;
@@ -204,5 +222,19 @@ public class RDFGeneratorRequest {
 	{
 		return this.contextParameters;
 	}
+	
+	/**
+	 * Directory used to cache binary snapshots of the imported worksheet.
+	 * Snapshots are only used when the input is a file or a string.
+	 */
+	public void setSnapshotDirectory(File snapshotDirectory)
+	{
+		this.snapshotDirectory = snapshotDirectory;
+	}
+	
+	public File getSnapshotDirectory()
+	{
+		return this.snapshotDirectory;
+	}
 
 }
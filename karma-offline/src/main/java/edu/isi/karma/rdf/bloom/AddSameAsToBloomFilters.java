@@ -17,8 +17,6 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.apache.hadoop.util.bloom.Key;
-import org.apache.hadoop.util.hash.Hash;
 
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
@@ -26,7 +24,7 @@ import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.rdf.model.StmtIterator;
 
 import edu.isi.karma.er.helper.BloomFilterTripleStoreUtil;
-import edu.isi.karma.kr2rml.writer.KR2RMLBloomFilter;
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
 import edu.isi.karma.rdf.CommandLineArgumentParser;
 import edu.isi.karma.webserver.KarmaException;
 
@@ -55,14 +53,12 @@ public class AddSameAsToBloomFilters {
         	predicateObjectMaps.addAll(Arrays.asList(t.split(",")));
         }
         Map<String, String> serializedmapping = utilObj.getBloomFiltersForMaps(triplestoreURL, null, predicateObjectMaps);
-        Map<String, KR2RMLBloomFilter> mapping = new HashMap<>();
+        Map<String, BlockedBloomFilter> mapping = new HashMap<>();
         
         for (Entry<String, String> entry : serializedmapping.entrySet()) {
         	String key = entry.getKey();
         	String value = entry.getValue();
-        	KR2RMLBloomFilter bf = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
-        	bf.populateFromCompressedAndBase64EncodedString(value);
-        	mapping.put(key, bf);
+        	mapping.put(key, BlockedBloomFilter.fromCompressedAndBase64EncodedString(value));
         }
         
         Model model = ModelFactory.createDefaultModel();
@@ -74,12 +70,14 @@ public class AddSameAsToBloomFilters {
 			Statement st = iterator.next();
 			String subject = "<" + st.getSubject().toString() + ">";
 			String object = "<" + st.getObject().toString() + ">";
-			for (Entry<String, KR2RMLBloomFilter> entry : mapping.entrySet()) {
-				KR2RMLBloomFilter bf = entry.getValue();
-				if (bf.membershipTest(new Key(subject.getBytes("UTF-8"))))
-					bf.add(new Key(object.getBytes("UTF-8")));
-				if (bf.membershipTest(new Key(object.getBytes("UTF-8"))))
-					bf.add(new Key(subject.getBytes("UTF-8")));
+			long subjectHash = BlockedBloomFilter.hash(subject);
+			long objectHash = BlockedBloomFilter.hash(object);
+			for (Entry<String, BlockedBloomFilter> entry : mapping.entrySet()) {
+				BlockedBloomFilter bf = entry.getValue();
+				if (bf.membershipTest(subjectHash))
+					bf.add(objectHash);
+				if (bf.membershipTest(objectHash))
+					bf.add(subjectHash);
 			}
 		}
 		
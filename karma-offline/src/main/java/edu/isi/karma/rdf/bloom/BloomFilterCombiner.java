@@ -0,0 +1,293 @@
+package edu.isi.karma.rdf.bloom;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
+
+/**
+ * Combines the bloom filters of the triples maps on a fixed number of
+ * threads. The filters of a triples map are decoded in parallel and merged
+ * with a tree reduction, each round merging pairs of filters.
+ *
+ * With a checkpoint directory, the combined filter of each triples map and
+ * the RDF files already read are kept there, so a run only reads the new
+ * files and merges their filters into the filters of the previous runs.
+ */
+public class BloomFilterCombiner implements Closeable {
+
+	private static final String PROCESSED_FILES = "processed-files.txt";
+	private static final String CHECKPOINT_EXTENSION = ".kbf";
+
+	private final ExecutorService executor;
+	private final File checkpointDirectory;
+
+	/**
+	 * @param checkpointDirectory null to combine all the filters every time
+	 */
+	public BloomFilterCombiner(int numThreads, File checkpointDirectory) throws IOException {
+		this.executor = Executors.newFixedThreadPool(numThreads);
+		this.checkpointDirectory = checkpointDirectory;
+		if (checkpointDirectory != null && !checkpointDirectory.isDirectory() && !checkpointDirectory.mkdirs())
+			throw new IOException("Unable to create the checkpoint directory " + checkpointDirectory);
+	}
+
+	/**
+	 * @return the files of the directory with an extension that are not in the checkpoint
+	 */
+	public List<File> getNewFiles(File directory) throws IOException {
+		Set<String> processed = readProcessedFiles();
+		List<File> files = new ArrayList<>();
+		File[] children = directory.listFiles();
+		if (children == null)
+			return files;
+		Arrays.sort(children);
+		for (File f : children) {
+			if (f.isFile() && !FilenameUtils.getExtension(f.getName()).isEmpty()
+					&& !processed.contains(getProcessedKey(f)))
+				files.add(f);
+		}
+		return files;
+	}
+
+	/**
+	 * Reads the hasBloomFilter triples of Turtle files in parallel
+	 * @return the serialized filters of each triples map
+	 */
+	public Map<String, List<String>> readBloomFilters(List<File> files) throws IOException {
+		List<Callable<Map<String, List<String>>>> tasks = new ArrayList<>();
+		for (final File f : files) {
+			tasks.add(new Callable<Map<String, List<String>>>() {
+				@Override
+				public Map<String, List<String>> call() throws IOException {
+					return readBloomFilters(f);
+				}
+			});
+		}
+		Map<String, List<String>> serializedBloomFilters = new HashMap<>();
+		for (Map<String, List<String>> fileFilters : invokeAll(tasks)) {
+			for (Entry<String, List<String>> entry : fileFilters.entrySet())
+				getList(serializedBloomFilters, entry.getKey()).addAll(entry.getValue());
+		}
+		return serializedBloomFilters;
+	}
+
+	private static Map<String, List<String>> readBloomFilters(File f) throws IOException {
+		Map<String, List<String>> serializedBloomFilters = new HashMap<>();
+		Model model = ModelFactory.createDefaultModel();
+		try (InputStream s = new FileInputStream(f)) {
+			model.read(s, null, "TURTLE");
+		}
+		StmtIterator iterator = model.listStatements();
+		while (iterator.hasNext()) {
+			Statement st = iterator.next();
+			if (st.getPredicate().toString().contains("hasBloomFilter"))
+				getList(serializedBloomFilters, st.getSubject().toString()).add(st.getObject().toString());
+		}
+		model.close();
+		return serializedBloomFilters;
+	}
+
+	/**
+	 * Decodes the filters of each triples map and merges them with the
+	 * filter of the checkpoint
+	 */
+	public Map<String, BlockedBloomFilter> combine(Map<String, List<String>> serializedBloomFilters) throws IOException {
+		List<String> ids = new ArrayList<>();
+		List<Callable<BlockedBloomFilter>> decodeTasks = new ArrayList<>();
+		for (final Entry<String, List<String>> entry : serializedBloomFilters.entrySet()) {
+			if (checkpointDirectory != null) {
+				ids.add(entry.getKey());
+				decodeTasks.add(new Callable<BlockedBloomFilter>() {
+					@Override
+					public BlockedBloomFilter call() throws IOException {
+						return readCheckpoint(entry.getKey());
+					}
+				});
+			}
+			for (final String serializedBloomFilter : entry.getValue()) {
+				ids.add(entry.getKey());
+				decodeTasks.add(new Callable<BlockedBloomFilter>() {
+					@Override
+					public BlockedBloomFilter call() throws IOException {
+						return BlockedBloomFilter.fromCompressedAndBase64EncodedString(serializedBloomFilter);
+					}
+				});
+			}
+		}
+		List<BlockedBloomFilter> decoded = invokeAll(decodeTasks);
+		Map<String, List<BlockedBloomFilter>> filters = new HashMap<>();
+		for (int i = 0; i < ids.size(); i++) {
+			if (decoded.get(i) != null)
+				getList(filters, ids.get(i)).add(decoded.get(i));
+		}
+		return reduce(filters);
+	}
+
+	/**
+	 * Merges the filters of each triples map in rounds, each round merges
+	 * the pairs of filters of all the triples maps in parallel
+	 */
+	private Map<String, BlockedBloomFilter> reduce(Map<String, List<BlockedBloomFilter>> filters) throws IOException {
+		boolean merged = true;
+		while (merged) {
+			merged = false;
+			List<String> ids = new ArrayList<>();
+			List<Callable<BlockedBloomFilter>> tasks = new ArrayList<>();
+			for (Entry<String, List<BlockedBloomFilter>> entry : filters.entrySet()) {
+				final List<BlockedBloomFilter> list = entry.getValue();
+				for (int i = 0; i < list.size(); i += 2) {
+					ids.add(entry.getKey());
+					final int index = i;
+					tasks.add(new Callable<BlockedBloomFilter>() {
+						@Override
+						public BlockedBloomFilter call() {
+							BlockedBloomFilter bf = list.get(index);
+							if (index + 1 < list.size())
+								bf.or(list.get(index + 1));
+							return bf;
+						}
+					});
+				}
+				merged |= list.size() > 1;
+			}
+			if (!merged)
+				break;
+			List<BlockedBloomFilter> results = invokeAll(tasks);
+			filters = new HashMap<>();
+			for (int i = 0; i < ids.size(); i++)
+				getList(filters, ids.get(i)).add(results.get(i));
+		}
+		Map<String, BlockedBloomFilter> bfs = new HashMap<>();
+		for (Entry<String, List<BlockedBloomFilter>> entry : filters.entrySet())
+			bfs.put(entry.getKey(), entry.getValue().get(0));
+		return bfs;
+	}
+
+	/**
+	 * Saves the filters and marks the files as read. Does nothing without a
+	 * checkpoint directory.
+	 */
+	public void checkpoint(Map<String, BlockedBloomFilter> bfs, List<File> files) throws IOException {
+		if (checkpointDirectory == null)
+			return;
+		for (Entry<String, BlockedBloomFilter> entry : bfs.entrySet()) {
+			File tmp = new File(checkpointDirectory, getCheckpointName(entry.getKey()) + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+				out.writeUTF(entry.getKey());
+				byte[] bytes = entry.getValue().toByteArray();
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			File checkpoint = getCheckpointFile(entry.getKey());
+			if (checkpoint.exists() && !checkpoint.delete() || !tmp.renameTo(checkpoint))
+				throw new IOException("Unable to write the checkpoint " + checkpoint);
+		}
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(checkpointDirectory, PROCESSED_FILES), true), "UTF-8"))) {
+			for (File f : files) {
+				writer.write(getProcessedKey(f));
+				writer.newLine();
+			}
+		}
+	}
+
+	private BlockedBloomFilter readCheckpoint(String id) throws IOException {
+		File checkpoint = getCheckpointFile(id);
+		if (!checkpoint.exists())
+			return null;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(checkpoint))) {
+			if (!id.equals(in.readUTF()))
+				return null;
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return BlockedBloomFilter.fromByteArray(bytes);
+		}
+	}
+
+	private File getCheckpointFile(String id) {
+		return new File(checkpointDirectory, getCheckpointName(id) + CHECKPOINT_EXTENSION);
+	}
+
+	private static String getCheckpointName(String id) {
+		return Long.toHexString(BlockedBloomFilter.hash(id));
+	}
+
+	private Set<String> readProcessedFiles() throws IOException {
+		Set<String> processed = new HashSet<>();
+		if (checkpointDirectory == null)
+			return processed;
+		File f = new File(checkpointDirectory, PROCESSED_FILES);
+		if (!f.exists())
+			return processed;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"))) {
+			processed.addAll(IOUtils.readLines(reader));
+		}
+		return processed;
+	}
+
+	private static String getProcessedKey(File f) {
+		return f.getAbsolutePath() + "\t" + f.length() + "\t" + f.lastModified();
+	}
+
+	private static <T> List<T> getList(Map<String, List<T>> map, String key) {
+		List<T> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<>();
+			map.put(key, list);
+		}
+		return list;
+	}
+
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+		List<T> results = new ArrayList<>();
+		try {
+			for (Future<T> future : executor.invokeAll(tasks))
+				results.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+		return results;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
@@ -1,12 +1,9 @@
 package edu.isi.karma.rdf.bloom;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -14,17 +11,9 @@ import java.util.Set;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
-import org.apache.hadoop.util.bloom.BloomFilter;
-import org.apache.hadoop.util.hash.Hash;
-
-import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
-import com.hp.hpl.jena.rdf.model.Statement;
-import com.hp.hpl.jena.rdf.model.StmtIterator;
-import com.uwyn.jhighlight.tools.FileUtils;
 
 import edu.isi.karma.er.helper.BloomFilterTripleStoreUtil;
-import edu.isi.karma.kr2rml.writer.KR2RMLBloomFilter;
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
 import edu.isi.karma.rdf.CommandLineArgumentParser;
 import edu.isi.karma.webserver.KarmaException;
 
@@ -49,86 +38,56 @@ public class CombineBloomFiltersFromRDF {
         if (filepath == null || triplestoreURL == null || context == null)
         	return;
 		File file = new File(filepath);
-		Map<String, BloomFilterWorker> workers = new HashMap<>();
-		Map<String, KR2RMLBloomFilter> bfs = new HashMap<>();
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		if (cl.hasOption("threads"))
+			numThreads = Integer.parseInt(cl.getOptionValue("threads"));
+		File checkpoint = cl.hasOption("checkpoint") ? new File(cl.getOptionValue("checkpoint")) : null;
 		long start = System.currentTimeMillis();
 		if (file.isDirectory()) {
-			File[] files = file.listFiles();
-			for (File f : files) {
-				if (FileUtils.getExtension(f.getName()) != null) {
-					Model model = ModelFactory.createDefaultModel();
-					InputStream s = new FileInputStream(f);
-					model.read(s, null, "TURTLE");
-					StmtIterator iterator = model.listStatements();
-					while(iterator.hasNext()) {
-						Statement st = iterator.next();
-						String subject = st.getSubject().toString();
-						String object = st.getObject().toString();
-						String predicate = st.getPredicate().toString();
-						if (predicate.contains("hasBloomFilter")) {
-							//predicateURI = predicate;
-							BloomFilterWorker worker = workers.get(subject);
-							if (worker == null) {
-								worker = new BloomFilterWorker();
-								Thread t = new Thread(worker);
-								t.start();
-							}
-							worker.addBloomfilters(object);
-							workers.put(subject, worker);
-						}
-					}
-				}
-
-			}
-			for (Entry<String, BloomFilterWorker> entry : workers.entrySet()) {
-				entry.getValue().setDone();
+			try (BloomFilterCombiner combiner = new BloomFilterCombiner(numThreads, checkpoint)) {
+				List<File> files = combiner.getNewFiles(file);
+				Map<String, BlockedBloomFilter> bfs = combiner.combine(combiner.readBloomFilters(files));
+				if (!bfs.isEmpty())
+					updateTripleStore(bfs, start);
+				combiner.checkpoint(bfs, files);
 			}
-			for (Entry<String, BloomFilterWorker> entry : workers.entrySet()) {
-				while(!entry.getValue().isFinished());
-				bfs.put(entry.getKey(), entry.getValue().getKR2RMLBloomFilter());
-			}
-			BloomFilterTripleStoreUtil utilObj = new BloomFilterTripleStoreUtil();
-			Set<String> triplemaps = bfs.keySet();
-			Map<String, String> bloomfilterMapping = new HashMap<>();
-			bloomfilterMapping.putAll(utilObj.getBloomFiltersForMaps(triplestoreURL, context, triplemaps));
-			utilObj.updateTripleStoreWithBloomFilters(bfs, bloomfilterMapping, triplestoreURL, context);
-			System.out.println("process time: " + (System.currentTimeMillis() - start));
-			Map<String, String> verification = new HashMap<>();
-			verification.putAll(utilObj.getBloomFiltersForMaps(triplestoreURL, context, triplemaps));
-			boolean verify = true;
-			for (Entry<String, String> entry : verification.entrySet()) {
-				String key = entry.getKey();
-				String value = entry.getValue();
-				KR2RMLBloomFilter bf2 = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
-				KR2RMLBloomFilter bf = bfs.get(key);
-				bf2.populateFromCompressedAndBase64EncodedString(value);
-				bf2.and(bf);
-				bf2.xor(bf);
-				try {
-					Field f = BloomFilter.class.getDeclaredField("bits");
-					f.setAccessible(true);
-					BitSet bits = (BitSet) f.get(bf2);
-					if (bits.cardinality() != 0) {
-						verify = false;
-						break;
-					}
-				} catch (Exception e) {
+		}
 
-				}
-			}
-			if (!verify) {
-				utilObj.updateTripleStoreWithBloomFilters(bfs, verification, triplestoreURL, context);
+	}
+
+	private static void updateTripleStore(Map<String, BlockedBloomFilter> bfs, long start) throws KarmaException, IOException {
+		BloomFilterTripleStoreUtil utilObj = new BloomFilterTripleStoreUtil();
+		Set<String> triplemaps = bfs.keySet();
+		Map<String, String> bloomfilterMapping = new HashMap<>();
+		bloomfilterMapping.putAll(utilObj.getBloomFiltersForMaps(triplestoreURL, context, triplemaps));
+		utilObj.updateTripleStoreWithBloomFilters(bfs, bloomfilterMapping, triplestoreURL, context);
+		System.out.println("process time: " + (System.currentTimeMillis() - start));
+		Map<String, String> verification = new HashMap<>();
+		verification.putAll(utilObj.getBloomFiltersForMaps(triplestoreURL, context, triplemaps));
+		boolean verify = true;
+		for (Entry<String, String> entry : verification.entrySet()) {
+			String key = entry.getKey();
+			String value = entry.getValue();
+			BlockedBloomFilter bf = bfs.get(key);
+			if (!BlockedBloomFilter.isEncodedBlockedBloomFilter(value)
+					|| !BlockedBloomFilter.fromCompressedAndBase64EncodedString(value).containsAll(bf)) {
+				verify = false;
+				break;
 			}
 		}
-
+		if (!verify) {
+			utilObj.updateTripleStoreWithBloomFilters(bfs, verification, triplestoreURL, context);
+		}
 	}
 
 	private static Options createCommandLineOptions() {
 
 		Options options = new Options();
-		options.addOption(new Option("filepath", "filepath", false, "location of the input file directory"));
+		options.addOption(new Option("filepath", "filepath", true, "location of the input file directory"));
 		options.addOption(new Option("triplestoreurl", "triplestoreurl", true, "location of the triplestore"));
 		options.addOption(new Option("context", "context", true, "the context uri"));
+		options.addOption(new Option("threads", "threads", true, "number of threads, the number of processors by default"));
+		options.addOption(new Option("checkpoint", "checkpoint", true, "directory where the combined filters are kept, to only read the new files in the next runs"));
 		options.addOption(new Option("help", "help", false, "print this message"));
 
 		return options;
@@ -7,6 +7,9 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -160,4 +163,24 @@ public class TestBasicJSONRDFGenerator extends TestJSONRDFGenerator {
 			fail("Execption: " + e.getMessage());
 		}
 	}
+
+	@Test
+	public void testGenerateRDFWithImportThreads() throws Exception {
+		Set<String> rdf = generateRDF("employees.json", "employees-model", 0);
+		assertEquals(rdf, generateRDF("employees.json", "employees-model", 3));
+	}
+
+	private Set<String> generateRDF(String filename, String modelName, int importThreads) throws Exception {
+		StringWriter sw = new StringWriter();
+		RDFGeneratorRequest request = new RDFGeneratorRequest(modelName, filename);
+		request.setInputFile(new File(getTestResource(filename).toURI()));
+		request.setDataType(InputType.JSON);
+		request.setAddProvenance(false);
+		request.addWriters(createBasicWriter(new PrintWriter(sw)));
+		request.setContextParameters(ContextParametersRegistry.getInstance().getDefault());
+		if (importThreads > 0)
+			request.setImportThreads(importThreads);
+		rdfGen.generateRDF(request);
+		return new HashSet<>(Arrays.asList(sw.toString().replaceAll("_N[0-9]+", "_N").split("(\r\n|\n)")));
+	}
 }
@@ -0,0 +1,126 @@
+package edu.isi.karma.rdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestBatchRdfGenerator {
+
+	private File directory;
+	private File input;
+	private File output;
+
+	/**
+	 * Writes one triple per line of the input file, and fails on the files named bad.json
+	 */
+	private final BatchRdfGenerator.FileGenerator generator = new BatchRdfGenerator.FileGenerator() {
+		@Override
+		public void generate(File inputFile, File n3File, File jsonFile, File bloomFiltersFile) throws Exception {
+			StringBuilder sb = new StringBuilder();
+			for (String line : FileUtils.readLines(inputFile, "UTF-8"))
+				sb.append("<http://example.org/").append(line).append("> <http://example.org/p> \"").append(line).append("\" .\n");
+			FileUtils.writeStringToFile(n3File, sb.toString(), "UTF-8");
+			if (inputFile.getName().equals("bad.json"))
+				throw new IOException("bad input");
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("batch", "");
+		directory.delete();
+		input = new File(directory, "input");
+		output = new File(directory, "output");
+		writeInput("a.json", 3);
+		writeInput("b.json", 4);
+		writeInput("bad.json", 2);
+		writeInput("c.csv", 5);
+		writeInput("sub/a.json", 1);
+	}
+
+	private void writeInput(String name, int lines) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines; i++)
+			sb.append(name).append(i).append('\n');
+		FileUtils.writeStringToFile(new File(input, name), sb.toString(), "UTF-8");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testListFiles() throws Exception {
+		String base = input.getPath() + File.separator;
+		assertTrue(BatchRdfGenerator.isBatchPath(input.getPath()));
+		assertTrue(BatchRdfGenerator.isBatchPath(base + "*.json"));
+		assertFalse(BatchRdfGenerator.isBatchPath(base + "a.json"));
+		assertEquals(4, BatchRdfGenerator.listFiles(input.getPath()).size());
+		assertEquals(3, BatchRdfGenerator.listFiles(base + "*.json").size());
+		assertEquals(4, BatchRdfGenerator.listFiles(base + "**.json").size());
+	}
+
+	@Test
+	public void testFileOutputsAndFailures() throws Exception {
+		List<File> files = BatchRdfGenerator.listFiles(input.getPath() + File.separator + "**.json");
+		BatchRdfGenerator batch = new BatchRdfGenerator(3, output, null, null, 0);
+		assertEquals(1, batch.generate(files, generator));
+
+		assertFalse(new File(output, "bad.json.ttl").exists());
+		assertFalse(new File(output, "bad.json.ttl.tmp").exists());
+		assertEquals(4, FileUtils.readLines(new File(output, "b.json.ttl"), "UTF-8").size());
+
+		JSONObject manifest = new JSONObject(FileUtils.readFileToString(new File(output, BatchRdfGenerator.MANIFEST), "UTF-8"));
+		assertEquals(3, manifest.getInt("succeeded"));
+		assertEquals(1, manifest.getInt("failed"));
+		JSONArray entries = manifest.getJSONArray("files");
+		int triples = 0;
+		for (int i = 0; i < entries.length(); i++) {
+			JSONObject entry = entries.getJSONObject(i);
+			if (entry.getString("input").endsWith("bad.json")) {
+				assertEquals("failed", entry.getString("status"));
+				assertEquals("bad input", entry.getString("error"));
+			} else {
+				triples += entry.getLong("triples");
+			}
+		}
+		assertEquals(8, triples);
+		// the two a.json are written to different outputs
+		assertEquals(4, output.list().length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoOutputDirectory() throws Exception {
+		new BatchRdfGenerator(1, null, null, null, 0).generate(BatchRdfGenerator.listFiles(input.getPath()), generator);
+	}
+
+	@Test
+	public void testShards() throws Exception {
+		List<File> files = BatchRdfGenerator.listFiles(input.getPath());
+		BatchRdfGenerator batch = new BatchRdfGenerator(2, output, null, null, 4);
+		assertEquals(1, batch.generate(files, generator));
+
+		JSONObject manifest = new JSONObject(FileUtils.readFileToString(new File(output, BatchRdfGenerator.MANIFEST), "UTF-8"));
+		JSONArray shards = manifest.getJSONArray("shards");
+		assertEquals(3, shards.length());
+		long triples = 0;
+		for (int i = 0; i < shards.length(); i++) {
+			File shard = new File(output, shards.getJSONObject(i).getString("file"));
+			assertTrue(shards.getJSONObject(i).getLong("triples") <= 4);
+			triples += FileUtils.readLines(shard, "UTF-8").size();
+		}
+		assertEquals(12, triples);
+	}
+}
@@ -0,0 +1,79 @@
+package edu.isi.karma.rdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.metrics.MetricsRegistry;
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
+import edu.isi.karma.rdf.GenericRDFGenerator.InputType;
+import edu.isi.karma.webserver.ContextParametersRegistry;
+
+public class TestJSONLinesRDFGenerator extends TestJSONRDFGenerator {
+
+	@Before
+	public void setUp() throws Exception {
+		R2RMLMappingIdentifier modelIdentifier = new R2RMLMappingIdentifier(
+				"people-model", getTestResource("people-model.ttl"));
+		rdfGen.addModel(modelIdentifier);
+	}
+
+	@Test
+	public void testJSONLinesInWindows() throws Exception {
+		// people.jl has the records of people.json, a malformed line and a blank line
+		Set<String> json = generate("people.json", InputType.JSON, 0, -1);
+		Set<String> jl = generate("people.jl", InputType.JL, 2, -1);
+		assertNotEquals(0, jl.size());
+		assertEquals(json, jl);
+		assertEquals(json, generate("people.jl", InputType.JL, 0, -1));
+	}
+
+	@Test
+	public void testJSONLinesMaxNumLines() throws Exception {
+		Set<String> json = generate("people.json", InputType.JSON, 0, 3);
+		Set<String> jl = generate("people.jl", InputType.JL, 2, 3);
+		assertEquals(json, jl);
+		assertNotEquals(generate("people.jl", InputType.JL, 2, -1), jl);
+	}
+
+	@Test
+	public void testJSONLinesInOneWorksheetByDefault() throws Exception {
+		SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+		rdfGen.setMetrics(metrics);
+		try {
+			generate("people.jl", InputType.JL, 0, -1);
+			assertEquals(1, metrics.getStages().get(MetricsRegistry.IMPORT).getCount());
+			generate("people.jl", InputType.JL, 2, -1);
+			assertTrue(metrics.getStages().get(MetricsRegistry.IMPORT).getCount() > 2);
+		} finally {
+			rdfGen.setMetrics(null);
+		}
+	}
+
+	private Set<String> generate(String filename, InputType type, 
+			int recordsPerWorksheet, int maxNumLines) throws Exception {
+		StringWriter sw = new StringWriter();
+		RDFGeneratorRequest request = new RDFGeneratorRequest("people-model", filename);
+		request.setInputFile(new File(getTestResource(filename).toURI()));
+		request.setAddProvenance(false);
+		request.setDataType(type);
+		request.addWriters(createBasicWriter(new PrintWriter(sw)));
+		request.setContextParameters(ContextParametersRegistry.getInstance().getDefault());
+		if (recordsPerWorksheet > 0)
+			request.setRecordsPerWorksheet(recordsPerWorksheet);
+		request.setMaxNumLines(maxNumLines);
+		rdfGen.generateRDF(request);
+		return new HashSet<>(Arrays.asList(sw.toString().split("(\r\n|\n)")));
+	}
+}
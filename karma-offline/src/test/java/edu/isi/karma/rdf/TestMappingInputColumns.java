@@ -0,0 +1,71 @@
+package edu.isi.karma.rdf;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import edu.isi.karma.kr2rml.mapping.KR2RMLMapping;
+import edu.isi.karma.kr2rml.mapping.KR2RMLMappingInputColumns;
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.kr2rml.mapping.WorksheetR2RMLJenaModelParser;
+
+public class TestMappingInputColumns {
+
+	@Test
+	public void testPeopleModel() throws Exception {
+		Set<String> columns = getColumnNames("people-model.ttl");
+		// the columns of the term maps and the input of the python transformations
+		for (String column : new String[] {"name", "email", "title", "homepage", "depiction", "twitter"})
+			assertTrue(column, columns.contains(column));
+	}
+
+	@Test
+	public void testNestedColumns() throws Exception {
+		// nested columns are reported by their top level column
+		Set<String> columns = getColumnNames("employees-model.ttl");
+		assertTrue(columns.contains("employees"));
+		assertTrue(columns.contains("division"));
+		assertFalse(columns.contains("email"));
+	}
+
+	@Test
+	public void testPythonColumnNames() throws Exception {
+		KR2RMLMapping mapping = parse("people-model.ttl");
+		JSONArray history = mapping.getWorksheetHistory();
+		history.put(transformation("return v('address') + getValueFromNestedColumnByIndex(\"phones\", \"number\", 0)"));
+		Set<String> columns = KR2RMLMappingInputColumns.getColumnNames(mapping);
+		assertTrue(columns.contains("address"));
+		assertTrue(columns.contains("phones"));
+
+		// the column read by a transformation cannot be known
+		history.put(transformation("c = 'na' + 'me'\nreturn getValue(c)"));
+		assertNull(KR2RMLMappingInputColumns.getColumnNames(mapping));
+	}
+
+	private JSONObject transformation(String code) {
+		JSONObject parameter = new JSONObject();
+		parameter.put("name", "transformationCode");
+		parameter.put("value", code);
+		parameter.put("type", "other");
+		JSONObject command = new JSONObject();
+		command.put("commandName", "SubmitPythonTransformationCommand");
+		command.put("inputParameters", new JSONArray().put(parameter));
+		return command;
+	}
+
+	private Set<String> getColumnNames(String modelFile) throws Exception {
+		return KR2RMLMappingInputColumns.getColumnNames(parse(modelFile));
+	}
+
+	private KR2RMLMapping parse(String modelFile) throws Exception {
+		WorksheetR2RMLJenaModelParser parser = new WorksheetR2RMLJenaModelParser(
+				new R2RMLMappingIdentifier(modelFile, getClass().getClassLoader().getResource(modelFile)));
+		return parser.parse();
+	}
+}
@@ -0,0 +1,86 @@
+package edu.isi.karma.rdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
+import edu.isi.karma.metrics.MetricsRegistry;
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
+import edu.isi.karma.rdf.GenericRDFGenerator.InputType;
+import edu.isi.karma.webserver.ContextParametersRegistry;
+
+public class TestMetricsRDFGenerator extends TestJSONRDFGenerator {
+
+	@Before
+	public void setUp() throws Exception {
+		R2RMLMappingIdentifier modelIdentifier = new R2RMLMappingIdentifier(
+				"people-model", getTestResource("people-model.ttl"));
+		rdfGen.addModel(modelIdentifier);
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+		rdfGen.setMetrics(metrics);
+		String rdf = generate("people.json", InputType.JSON);
+		int triples = 0;
+		for (String line : rdf.split("(\r\n|\n)")) {
+			if (!line.trim().isEmpty())
+				triples++;
+		}
+		assertNotEquals(0, triples);
+		assertEquals(triples, metrics.getCounter(MetricsRegistry.WRITTEN_TRIPLES));
+		// the N3 writer removes the duplicates of a row
+		assertTrue(metrics.getCounter(MetricsRegistry.TRIPLES) >= triples);
+		assertNotEquals(0, metrics.getCounter(MetricsRegistry.ROWS));
+		for (String stage : new String[] {MetricsRegistry.IMPORT, MetricsRegistry.HISTORY, MetricsRegistry.PLANNING,
+				MetricsRegistry.EXECUTION, MetricsRegistry.URI_NORMALIZATION, MetricsRegistry.SERIALIZATION}) {
+			assertTrue(stage, metrics.getStages().containsKey(stage));
+		}
+		assertEquals(1, metrics.getStages().get(MetricsRegistry.IMPORT).getCount());
+
+		JSONObject json = metrics.toJSON();
+		assertEquals(triples, json.getJSONObject("counters").getLong(MetricsRegistry.WRITTEN_TRIPLES));
+		assertFalse(json.getJSONObject("stages").getJSONObject(MetricsRegistry.IMPORT).has("allocatedBytes"));
+
+		SimpleMetricsRegistry merged = new SimpleMetricsRegistry();
+		merged.merge(metrics);
+		merged.merge(metrics);
+		assertEquals(2 * triples, merged.getCounter(MetricsRegistry.WRITTEN_TRIPLES));
+		assertEquals(2, merged.getStages().get(MetricsRegistry.IMPORT).getCount());
+
+		rdfGen.setMetrics(null);
+		generate("people.json", InputType.JSON);
+		assertEquals(triples, metrics.getCounter(MetricsRegistry.WRITTEN_TRIPLES));
+	}
+
+	private String generate(String filename, InputType type) throws Exception {
+		StringWriter sw = new StringWriter();
+		RDFGeneratorRequest request = new RDFGeneratorRequest("people-model", filename);
+		request.setInputFile(new File(getTestResource(filename).toURI()));
+		request.setAddProvenance(false);
+		request.setDataType(type);
+		List<KR2RMLRDFWriter> writers = createBasicWriter(new PrintWriter(sw));
+		request.addWriters(writers);
+		request.setContextParameters(ContextParametersRegistry.getInstance().getDefault());
+		rdfGen.generateRDF(request);
+		// the registry is only set on the writers during the generation
+		for (KR2RMLRDFWriter writer : writers) {
+			assertSame(MetricsRegistry.DISABLED, writer.getMetrics());
+		}
+		return sw.toString();
+	}
+}
@@ -0,0 +1,88 @@
+package edu.isi.karma.rdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.metrics.MetricsRegistry;
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
+import edu.isi.karma.rdf.GenericRDFGenerator.InputType;
+import edu.isi.karma.rep.WorksheetSnapshot;
+import edu.isi.karma.webserver.ContextParametersRegistry;
+
+public class TestSnapshotRDFGenerator extends TestJSONRDFGenerator {
+
+	@Rule
+	public TemporaryFolder snapshotDirectory = new TemporaryFolder();
+
+	@Before
+	public void setUp() throws Exception {
+		R2RMLMappingIdentifier modelIdentifier = new R2RMLMappingIdentifier(
+				"selection-model", getTestResource("selection/selection-model.ttl"));
+		rdfGen.addModel(modelIdentifier);
+	}
+
+	@Test
+	public void testSnapshot() throws Exception {
+		HashSet<String> expected = generate(null, null);
+		assertNotEquals(0, expected.size());
+
+		// the snapshot is taken after the history, with its selections
+		assertEquals(expected, generate(snapshotDirectory.getRoot(), null));
+		assertEquals(1, countSnapshots());
+		SimpleMetricsRegistry metrics = new SimpleMetricsRegistry();
+		rdfGen.setMetrics(metrics);
+		assertEquals(expected, generate(snapshotDirectory.getRoot(), null));
+		assertEquals(1, countSnapshots());
+		// the loaded worksheet already has the history and its selections
+		assertFalse(metrics.getStages().containsKey(MetricsRegistry.HISTORY));
+	}
+
+	@Test
+	public void testInputPropertyChanged() throws Exception {
+		generate(snapshotDirectory.getRoot(), null);
+		assertEquals(1, countSnapshots());
+		generate(snapshotDirectory.getRoot(), 1000);
+		assertEquals(2, countSnapshots());
+		generate(snapshotDirectory.getRoot(), 1000);
+		assertEquals(2, countSnapshots());
+	}
+
+	private int countSnapshots() {
+		int count = 0;
+		for (String name : snapshotDirectory.getRoot().list()) {
+			if (name.endsWith(WorksheetSnapshot.FILE_EXTENSION))
+				count++;
+		}
+		return count;
+	}
+
+	private HashSet<String> generate(File snapshotDirectory, Integer maxNumLines) throws Exception {
+		String filename = "selection/selection.json";
+		StringWriter sw = new StringWriter();
+		RDFGeneratorRequest request = new RDFGeneratorRequest("selection-model", filename);
+		request.setInputFile(new File(getTestResource(filename).toURI()));
+		request.setAddProvenance(false);
+		request.setDataType(InputType.JSON);
+		request.addWriters(createBasicWriter(new PrintWriter(sw)));
+		request.setContextParameters(ContextParametersRegistry.getInstance().getDefault());
+		request.setSnapshotDirectory(snapshotDirectory);
+		if (maxNumLines != null)
+			request.setMaxNumLines(maxNumLines);
+		rdfGen.generateRDF(request);
+		// the blank nodes are named after the ids of the nodes, which are not kept in a snapshot
+		return new HashSet<>(Arrays.asList(sw.toString().replaceAll("_N[0-9]+", "_N").split("(\r\n|\n)")));
+	}
+}
@@ -0,0 +1,67 @@
+package edu.isi.karma.rdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
+import edu.isi.karma.rdf.GenericRDFGenerator.InputType;
+import edu.isi.karma.webserver.ContextParametersRegistry;
+
+public class TestXMLRDFGenerator extends TestJSONRDFGenerator {
+
+	@Before
+	public void setUp() throws Exception {
+		R2RMLMappingIdentifier modelIdentifier = new R2RMLMappingIdentifier(
+				"people-model", getTestResource("people-model.ttl"));
+		rdfGen.addModel(modelIdentifier);
+	}
+
+	@Test
+	public void testXMLRecordsInWindows() throws Exception {
+		Set<String> json = generate("people.json", InputType.JSON, null, 0, -1);
+		Set<String> xml = generate("people.xml", InputType.XML, "person", 2, -1);
+		assertNotEquals(0, xml.size());
+		assertEquals(json, xml);
+	}
+
+	@Test
+	public void testXMLRecordsMaxNumLines() throws Exception {
+		Set<String> json = generate("people.json", InputType.JSON, null, 0, 3);
+		Set<String> xml = generate("people.xml", InputType.XML, "person", 2, 3);
+		assertEquals(json, xml);
+		assertNotEquals(generate("people.xml", InputType.XML, "person", 2, -1), xml);
+	}
+
+	private Set<String> generate(String filename, InputType type, String recordElement, 
+			int recordsPerWorksheet, int maxNumLines) throws Exception {
+		StringWriter sw = new StringWriter();
+		RDFGeneratorRequest request = createRequest(filename, type, sw);
+		if (recordElement != null) {
+			request.setXMLRecordElement(recordElement);
+			request.setRecordsPerWorksheet(recordsPerWorksheet);
+		}
+		request.setMaxNumLines(maxNumLines);
+		rdfGen.generateRDF(request);
+		return new HashSet<>(Arrays.asList(sw.toString().split("(\r\n|\n)")));
+	}
+
+	private RDFGeneratorRequest createRequest(String filename, InputType type, StringWriter sw) throws Exception {
+		RDFGeneratorRequest request = new RDFGeneratorRequest("people-model", filename);
+		request.setInputFile(new File(getTestResource(filename).toURI()));
+		request.setAddProvenance(false);
+		request.setDataType(type);
+		request.addWriters(createBasicWriter(new PrintWriter(sw)));
+		request.setContextParameters(ContextParametersRegistry.getInstance().getDefault());
+		return request;
+	}
+}
@@ -0,0 +1,88 @@
+package edu.isi.karma.rdf.bloom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
+import edu.isi.karma.modeling.Uris;
+
+public class TestBloomFilterCombiner {
+
+	private static final String MAP1 = "http://isi.edu/integration/karma/dev#TriplesMap_1";
+	private static final String MAP2 = "http://isi.edu/integration/karma/dev#PredicateObjectMap_2";
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("bloom", "");
+		directory.delete();
+		new File(directory, "rdf").mkdirs();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testIncrementalCombine() throws Exception {
+		writeBatch("batch1.ttl", 0, 5);
+		File checkpoint = new File(directory, "checkpoint");
+		try (BloomFilterCombiner combiner = new BloomFilterCombiner(3, checkpoint)) {
+			List<File> files = combiner.getNewFiles(new File(directory, "rdf"));
+			assertEquals(1, files.size());
+			Map<String, BlockedBloomFilter> bfs = combiner.combine(combiner.readBloomFilters(files));
+			assertEquals(2, bfs.size());
+			assertTrue(bfs.get(MAP1).membershipTest("<http://example.org/1/4/0>"));
+			combiner.checkpoint(bfs, files);
+		}
+
+		writeBatch("batch2.ttl", 5, 12);
+		Map<String, BlockedBloomFilter> incremental;
+		try (BloomFilterCombiner combiner = new BloomFilterCombiner(2, checkpoint)) {
+			List<File> files = combiner.getNewFiles(new File(directory, "rdf"));
+			assertEquals(1, files.size());
+			assertEquals("batch2.ttl", files.get(0).getName());
+			incremental = combiner.combine(combiner.readBloomFilters(files));
+		}
+
+		try (BloomFilterCombiner combiner = new BloomFilterCombiner(4, null)) {
+			List<File> files = combiner.getNewFiles(new File(directory, "rdf"));
+			assertEquals(2, files.size());
+			Map<String, BlockedBloomFilter> all = combiner.combine(combiner.readBloomFilters(files));
+			assertEquals(all, incremental);
+			for (int i = 0; i < 12; i++)
+				assertTrue(all.get(MAP2).membershipTest("<http://example.org/2/" + i + "/1>"));
+		}
+	}
+
+	/**
+	 * Writes one filter per triples map and batch, with URIs of both maps
+	 */
+	private void writeBatch(String name, int from, int to) throws Exception {
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(new File(directory, "rdf"), name)), "UTF-8")) {
+			for (int batch = from; batch < to; batch++) {
+				for (int map = 1; map <= 2; map++) {
+					BlockedBloomFilter bf = new BlockedBloomFilter(10 * (batch + 1));
+					for (int i = 0; i < 10 * (batch + 1); i++)
+						bf.add("<http://example.org/" + map + "/" + batch + "/" + i + ">");
+					writer.write("<" + (map == 1 ? MAP1 : MAP2) + "> <" + Uris.KM_HAS_BLOOMFILTER + "> \""
+							+ bf.compressAndBase64Encode() + "\" .\n");
+				}
+			}
+		}
+	}
+}
@@ -33,8 +33,6 @@ import java.io.StringWriter;
 import java.net.URISyntaxException;
 import java.net.URL;
 
-import org.apache.hadoop.util.bloom.Key;
-import org.apache.hadoop.util.hash.Hash;
 import org.json.JSONObject;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -45,7 +43,7 @@ import org.slf4j.LoggerFactory;
 
 import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
 import edu.isi.karma.kr2rml.writer.BloomFilterKR2RMLRDFWriter;
-import edu.isi.karma.kr2rml.writer.KR2RMLBloomFilter;
+import edu.isi.karma.kr2rml.writer.BlockedBloomFilter;
 import edu.isi.karma.kr2rml.writer.KR2RMLBloomFilterManager;
 import edu.isi.karma.rdf.GenericRDFGenerator;
 import edu.isi.karma.rdf.GenericRDFGenerator.InputType;
@@ -107,45 +105,32 @@ public class TestJSONRDFGeneratorWithBloomFilters extends TestRdfGenerator{
 
 			KR2RMLBloomFilterManager peopleBloomFilterManager = getBloomFilterManagerForSource("people.json", InputType.JSON, "people-model");
 			KR2RMLBloomFilterManager scheduleBloomFilterManager = getBloomFilterManagerForSource("schedule.csv", InputType.CSV, "schedule-model");
-			KR2RMLBloomFilter peoplePersonWithTwitterIdBF = peopleBloomFilterManager.getBloomFilter("http://isi.edu/integration/karma/dev#PredicateObjectMap_5fcf2d39-f62b-4cdd-863e-bde21493e1bd");
-			Key k = new Key(("<http://lod.isi.edu/cs548/person/Slepicka>").getBytes());
-			assertFalse(peoplePersonWithTwitterIdBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Taheriyan>").getBytes());
-			assertTrue(peoplePersonWithTwitterIdBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Kozareva>").getBytes());
-			assertFalse(peoplePersonWithTwitterIdBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Ambite>").getBytes());
-			assertFalse(peoplePersonWithTwitterIdBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Szekely>").getBytes());
-			assertTrue(peoplePersonWithTwitterIdBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Knoblock>").getBytes());
-			assertTrue(peoplePersonWithTwitterIdBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Wu>").getBytes());
-			assertFalse(peoplePersonWithTwitterIdBF.membershipTest(k));
+			BlockedBloomFilter peoplePersonWithTwitterIdBF = peopleBloomFilterManager.getBloomFilter("http://isi.edu/integration/karma/dev#PredicateObjectMap_5fcf2d39-f62b-4cdd-863e-bde21493e1bd");
+			assertFalse(peoplePersonWithTwitterIdBF.membershipTest("<http://lod.isi.edu/cs548/person/Slepicka>"));
+			assertTrue(peoplePersonWithTwitterIdBF.membershipTest("<http://lod.isi.edu/cs548/person/Taheriyan>"));
+			assertFalse(peoplePersonWithTwitterIdBF.membershipTest("<http://lod.isi.edu/cs548/person/Kozareva>"));
+			assertFalse(peoplePersonWithTwitterIdBF.membershipTest("<http://lod.isi.edu/cs548/person/Ambite>"));
+			assertTrue(peoplePersonWithTwitterIdBF.membershipTest("<http://lod.isi.edu/cs548/person/Szekely>"));
+			assertTrue(peoplePersonWithTwitterIdBF.membershipTest("<http://lod.isi.edu/cs548/person/Knoblock>"));
+			assertFalse(peoplePersonWithTwitterIdBF.membershipTest("<http://lod.isi.edu/cs548/person/Wu>"));
 			assertEquals(3, peoplePersonWithTwitterIdBF.estimateNumberOfHashedValues());
-			KR2RMLBloomFilter schedulePersonBF = scheduleBloomFilterManager.getBloomFilter("http://isi.edu/integration/karma/dev#TriplesMap_413a6176-d893-45aa-b1c2-6661b5c491ab");
-			k = new Key(("<http://lod.isi.edu/cs548/person/Slepicka>").getBytes());
-			assertTrue(schedulePersonBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Taheriyan>").getBytes());
-			assertTrue(schedulePersonBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Ambite>").getBytes());
-			assertTrue(schedulePersonBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Szekely>").getBytes());
-			assertTrue(schedulePersonBF.membershipTest(k));
-			k = new Key(("<http://lod.isi.edu/cs548/person/Knoblock>").getBytes());
-			assertTrue(schedulePersonBF.membershipTest(k));
+			BlockedBloomFilter schedulePersonBF = scheduleBloomFilterManager.getBloomFilter("http://isi.edu/integration/karma/dev#TriplesMap_413a6176-d893-45aa-b1c2-6661b5c491ab");
+			assertTrue(schedulePersonBF.membershipTest("<http://lod.isi.edu/cs548/person/Slepicka>"));
+			assertTrue(schedulePersonBF.membershipTest("<http://lod.isi.edu/cs548/person/Taheriyan>"));
+			assertTrue(schedulePersonBF.membershipTest("<http://lod.isi.edu/cs548/person/Ambite>"));
+			assertTrue(schedulePersonBF.membershipTest("<http://lod.isi.edu/cs548/person/Szekely>"));
+			assertTrue(schedulePersonBF.membershipTest("<http://lod.isi.edu/cs548/person/Knoblock>"));
 			assertEquals(5, schedulePersonBF.estimateNumberOfHashedValues());
 			
-			KR2RMLBloomFilter intersectionBF = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
+			BlockedBloomFilter intersectionBF = new BlockedBloomFilter(0);
 			intersectionBF.or(peoplePersonWithTwitterIdBF);
 			intersectionBF.and(schedulePersonBF);
 			assertEquals(3, intersectionBF.estimateNumberOfHashedValues());
 			
-			KR2RMLBloomFilter hasInstructorBF = scheduleBloomFilterManager.getBloomFilter("http://isi.edu/integration/karma/dev#RefObjectMap_bb82f923-2953-4bd4-bc7b-d1196e05dbf6");
+			BlockedBloomFilter hasInstructorBF = scheduleBloomFilterManager.getBloomFilter("http://isi.edu/integration/karma/dev#RefObjectMap_bb82f923-2953-4bd4-bc7b-d1196e05dbf6");
 			
-			k = new Key(("<http://lod.isi.edu/cs548/person/Szekely>").getBytes());
-			assertTrue(hasInstructorBF.membershipTest(k));
-			intersectionBF = new KR2RMLBloomFilter(KR2RMLBloomFilter.defaultVectorSize, KR2RMLBloomFilter.defaultnbHash, Hash.JENKINS_HASH);
+			assertTrue(hasInstructorBF.membershipTest("<http://lod.isi.edu/cs548/person/Szekely>"));
+			intersectionBF = new BlockedBloomFilter(0);
 			intersectionBF.or(hasInstructorBF);
 			intersectionBF.and(peoplePersonWithTwitterIdBF);
 			assertEquals(3, intersectionBF.estimateNumberOfHashedValues());
@@ -0,0 +1,9 @@
+{"name": "Pedro Szekely", "email": "pszekely@isi.edu", "title": "Prof", "homepage": "http://www.isi.edu/~szekely", "depiction": "http://www.isi.edu/~szekely/assets/img/staff/pedro.jpeg", "twitter": "szeke"}
+{"name": "José Luis Ambite", "email": "ambite@isi.edu", "title": "Prof", "homepage": "http://www.isi.edu/~ambite", "depiction": "http://drop.isi.edu/sites/default/files/imagecache/profile_photo/photos/users/picture-32.jpg"}
+{"name": "Craig Knoblock", "email": "knoblock@isi.edu", "title": "Prof", "homepage": "http://www.isi.edu/~knoblock", "depiction": "http://www.isi.edu/integration/people/knoblock/img/CraigKnoblock.jpg", "twitter": "caknoblock"}
+{"name": "broken", 
+{"name": "Zornitsa Kozareva", "email": "kozareva@isi.edu", "title": "Prof", "homepage": "http://www.isi.edu/~kozareva", "depiction": "http://www.isi.edu/~kozareva/imagenes/zori_mini.jpg"}
+
+{"name": "Mohsen Taheriyan", "email": "mohsen@isi.edu", "title": "Mr", "homepage": "http://www-scf.usc.edu/~taheriya/", "depiction": "http://www-scf.usc.edu/~taheriya/images/image24958.jpg", "twitter": "taheriyan"}
+{"name": "Bo Wu", "email": "bowu@isi.edu", "title": "Mr", "homepage": "http://www-scf.usc.edu/~wubo/", "depiction": "http://www-scf.usc.edu/~wubo/_MG_0004-Edit.jpg"}
+{"name": "Jason Slepicka", "email": "slepicka@isi.edu", "title": "Mr", "depiction": "https://lh4.googleusercontent.com/-uonc-uQiTGw/AAAAAAAAAAI/AAAAAAAAATk/V_iGc4e8Vwk/photo.jpg?sz=80"}
@@ -29,7 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import scala.Tuple2;
-import edu.isi.karma.util.JSONLDUtilSimple;
+import edu.isi.karma.util.JSONLDMerger;
 
 public class JSONReducerDriver {
 	private static Logger logger = LoggerFactory.getLogger(JSONReducerDriver.class);
@@ -153,25 +153,44 @@ public class JSONReducerDriver {
 	
 	public static JavaPairRDD<String, String> reduceJSON(int numPartitions,
 				JavaPairRDD<String, JSONObject> pairs, final HashMap<String, String> provenaceProperties) {
-		JavaPairRDD<String, JSONObject> reducedPairs = pairs
-		.reduceByKey(new Function2<JSONObject, JSONObject, JSONObject>() {
+		JavaPairRDD<String, JSONLDMerger> reducedPairs = pairs
+		.combineByKey(new Function<JSONObject, JSONLDMerger>() {
+			private static final long serialVersionUID = 2640367391618536317L;
+
+			@Override
+			public JSONLDMerger call(JSONObject object) throws Exception {
+				JSONLDMerger merger = new JSONLDMerger(provenaceProperties);
+				merger.add(object);
+				return merger;
+			}
+		}, new Function2<JSONLDMerger, JSONObject, JSONLDMerger>() {
 			private static final long serialVersionUID = -3238789305990222436L;
 
 			@Override
-			public JSONObject call(JSONObject left, JSONObject right)
+			public JSONLDMerger call(JSONLDMerger merger, JSONObject object)
+					throws Exception {
+				merger.add(object);
+				return merger;
+			}
+		}, new Function2<JSONLDMerger, JSONLDMerger, JSONLDMerger>() {
+			private static final long serialVersionUID = 6187297893521640981L;
+
+			@Override
+			public JSONLDMerger call(JSONLDMerger left, JSONLDMerger right)
 					throws Exception {
-				return JSONLDUtilSimple.mergeJSONObjects(left, right, provenaceProperties);
+				left.addAll(right);
+				return left;
 			}
 		}, numPartitions);
 		return reducedPairs
-		.mapValues(new Function<JSONObject, String>() {
+		.mapValues(new Function<JSONLDMerger, String>() {
 
 			private static final long serialVersionUID = -1945629738808728265L;
 
 			@Override
-			public String call(JSONObject object) throws Exception {
+			public String call(JSONLDMerger merger) throws Exception {
 
-				return object.toJSONString();
+				return merger.toJSONObject().toJSONString();
 			}
 		});
 	}
@@ -17,9 +17,11 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.spark.Accumulator;
 import org.apache.spark.SparkConf;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
@@ -36,6 +38,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import scala.Tuple2;
+import edu.isi.karma.mapreduce.inputformat.ParquetBatchInputFormat;
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
 import edu.isi.karma.rdf.JSONImpl;
 import edu.isi.karma.rdf.N3Impl;
 import edu.isi.karma.util.JSONLDUtilSimple;
@@ -85,6 +89,8 @@ public class KarmaDriver {
         conf.set("spark.yarn.dist.files", "job.properties");
         
         final JavaSparkContext sc = new JavaSparkContext(conf);
+        Properties properties = new Properties();
+        properties.load(new FileInputStream("job.properties"));
         JavaPairRDD<String, String> pairs;
         if (inputFormat.equals("text")) {
             JavaRDD<String> input = sc.textFile(filePath, partitions);
@@ -98,6 +104,28 @@ public class KarmaDriver {
                 }
             });
         }
+        else if (inputFormat.equals("parquet")) {
+            // the job properties can restrict the columns read, see ParquetBatchInputFormat
+            Configuration hadoopConf = new Configuration(sc.hadoopConfiguration());
+            for (String name : properties.stringPropertyNames()) {
+                hadoopConf.set(name, properties.getProperty(name));
+            }
+            JavaPairRDD<Text, Text> input = sc.newAPIHadoopFile(filePath, ParquetBatchInputFormat.class, 
+            		Text.class, Text.class, hadoopConf);
+            pairs = input.flatMapToPair(new PairFlatMapFunction<Tuple2<Text, Text>, String, String>() {
+                private static final long serialVersionUID = -1408372262520402405L;
+
+				@Override
+                public Iterable<Tuple2<String, String>> call(Tuple2<Text, Text> batch) throws Exception {
+                    List<Tuple2<String, String>> results = new LinkedList<>();
+                    JSONArray records = (JSONArray) new JSONParser().parse(batch._2.toString());
+                    for (Object record : records) {
+                        results.add(new Tuple2<>(batch._1.toString(), ((JSONObject) record).toJSONString()));
+                    }
+                    return results;
+                }
+            });
+        }
         else {
             JavaPairRDD<Writable, Text> input = sc.sequenceFile(filePath, Writable.class, Text.class, partitions);
             pairs = input.mapToPair(new PairFunction<Tuple2<Writable, Text>, String, String>() {
@@ -110,11 +138,26 @@ public class KarmaDriver {
             });
         }
         
-        Properties properties = new Properties();
-        properties.load(new FileInputStream("job.properties"));
-        applyModel(sc, pairs, properties, batchSize)
+        Accumulator<SimpleMetricsRegistry> metrics = createMetricsAccumulator(sc, properties);
+        applyModel(sc, pairs, properties, batchSize, 
+        		sc.getConf().getInt("spark.default.parallelism", 1), metrics)
         		.saveAsNewAPIHadoopFile(outputPath, Text.class, Text.class, SequenceFileOutputFormat.class);
+        if (metrics != null) {
+        	logger.info("Karma metrics: " + metrics.value().toJSON());
+        }
     }
+
+	/**
+	 * @return an accumulator of the timers and the counters of the generation,
+	 * or null unless karma.metrics.enabled is true. Its value is only complete
+	 * once an action has run on the output of applyModel.
+	 */
+	public static Accumulator<SimpleMetricsRegistry> createMetricsAccumulator(JavaSparkContext sc, 
+			Properties karmaSettings) {
+		if (!Boolean.parseBoolean(karmaSettings.getProperty("karma.metrics.enabled", "false")))
+			return null;
+		return sc.accumulator(new SimpleMetricsRegistry(), "Karma metrics", new MetricsAccumulatorParam());
+	}
  
 	public static JavaPairRDD<Text, Text> applyModel(JavaSparkContext sc,
 			JavaPairRDD<String, String> input, final Properties karmaSettings,
@@ -127,6 +170,18 @@ public class KarmaDriver {
     			JavaPairRDD<String, String> input, 
     			final Properties karmaSettings,
         		final int batchSize, int numPartitions) throws IOException {
+    	return applyModel(sc, input, karmaSettings, batchSize, numPartitions, null);
+    }
+
+    /**
+     * @param metrics the accumulator of the timers and the counters of the
+     * generation, see createMetricsAccumulator, or null
+     */
+    public static JavaPairRDD<Text, Text> applyModel(JavaSparkContext sc, 
+    			JavaPairRDD<String, String> input, 
+    			final Properties karmaSettings,
+        		final int batchSize, int numPartitions, 
+        		Accumulator<SimpleMetricsRegistry> metrics) throws IOException {
     
 		String input_type = karmaSettings.getProperty("karma.input.type");
 		String modelUrl = karmaSettings.getProperty("model.uri");
@@ -187,11 +242,11 @@ public class KarmaDriver {
 		if(outputFormat != null && outputFormat.equals("n3")) {
 			return applyModelToGetN3(input, 
 		    		 karmaSettings,model, context,
-		    		outputFormat, numPartitions);
+		    		outputFormat, numPartitions, metrics);
 		}
 		else
 		{
-		    return applyModelToGetJSON(input, karmaSettings, model, context, outputFormat, numPartitions);	
+		    return applyModelToGetJSON(input, karmaSettings, model, context, outputFormat, numPartitions, metrics);	
 		}
 		
     }
@@ -227,6 +282,14 @@ public class KarmaDriver {
 			JavaPairRDD<String, String> input, final Properties karmaSettings,
 			final Broadcast<String> model, final Broadcast<String> context,
 			final String outputFormat, int numPartitions) {
+		return applyModelToGetJSON(input, karmaSettings, model, context, outputFormat, numPartitions, null);
+	}
+
+	public static JavaPairRDD<Text, Text> applyModelToGetJSON(
+			JavaPairRDD<String, String> input, final Properties karmaSettings,
+			final Broadcast<String> model, final Broadcast<String> context,
+			final String outputFormat, int numPartitions, 
+			final Accumulator<SimpleMetricsRegistry> metrics) {
 
 		JavaPairRDD<String, JSONObject> pairs = input
 				.flatMapToPair(new PairFlatMapFunction<Tuple2<String, String>, String, JSONObject>() {
@@ -252,6 +315,9 @@ public class KarmaDriver {
 						String result = mapper.mapResult(
 								writableIterableTuple2._1,
 								writableIterableTuple2._2);
+						if (metrics != null && mapper.getMetrics() != null) {
+							metrics.add(mapper.getMetrics());
+						}
 						JSONParser parser = new JSONParser();
 						JSONArray generatedObjects = ((JSONArray) parser
 								.parse(result));
@@ -316,6 +382,14 @@ public class KarmaDriver {
     public static JavaPairRDD<Text, Text>applyModelToGetN3(JavaPairRDD<String, String> input, 
     		final Properties karmaSettings,final Broadcast<String> model, final Broadcast<String> context,
     		final String outputFormat, int numPartitions )
+    {
+    	return applyModelToGetN3(input, karmaSettings, model, context, outputFormat, numPartitions, null);
+    }
+
+    public static JavaPairRDD<Text, Text>applyModelToGetN3(JavaPairRDD<String, String> input, 
+    		final Properties karmaSettings,final Broadcast<String> model, final Broadcast<String> context,
+    		final String outputFormat, int numPartitions, 
+    		final Accumulator<SimpleMetricsRegistry> metrics)
     {
     	JavaPairRDD<String, String> pairs = input.flatMapToPair(
 				new PairFlatMapFunction<Tuple2<String,String>, String, String>() {
@@ -333,6 +407,9 @@ public class KarmaDriver {
         if(outputFormat != null && outputFormat.equals("n3")) {
         	final N3Impl mapper = new N3Impl(karmaContentSettings);
         	String result = mapper.mapResult(writableIterableTuple2._1, writableIterableTuple2._2);
+        	if (metrics != null && mapper.getMetrics() != null) {
+        		metrics.add(mapper.getMetrics());
+        	}
         	String[] lines = result.split("(\r\n|\n)");
     		for(String line : lines)
     		{
@@ -380,7 +457,7 @@ public class KarmaDriver {
         Options options = new Options();
         options.addOption(new Option("filepath", "filepath", true, "Path to coordinate sequence file"));
         options.addOption(new Option("outputpath", "outputpath", true, "Path to output directory"));
-        options.addOption(new Option("inputformat", "inputformat", true, "Path to output directory"));
+        options.addOption(new Option("inputformat", "inputformat", true, "Input format: text, parquet or sequence"));
         options.addOption(new Option("partitions", "partitions", true, "Number of partitions"));
         return options;
     }
@@ -0,0 +1,30 @@
+package edu.isi.karma.spark;
+
+import org.apache.spark.AccumulatorParam;
+
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
+
+/**
+ * Merges the timers and the counters of the generation of the tasks into an
+ * accumulator
+ */
+public class MetricsAccumulatorParam implements AccumulatorParam<SimpleMetricsRegistry> {
+
+	private static final long serialVersionUID = -2218693604151834262L;
+
+	@Override
+	public SimpleMetricsRegistry addAccumulator(SimpleMetricsRegistry r, SimpleMetricsRegistry t) {
+		return addInPlace(r, t);
+	}
+
+	@Override
+	public SimpleMetricsRegistry addInPlace(SimpleMetricsRegistry r1, SimpleMetricsRegistry r2) {
+		r1.merge(r2);
+		return r1;
+	}
+
+	@Override
+	public SimpleMetricsRegistry zero(SimpleMetricsRegistry initialValue) {
+		return new SimpleMetricsRegistry();
+	}
+}
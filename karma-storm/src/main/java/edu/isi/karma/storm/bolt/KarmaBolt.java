@@ -9,6 +9,7 @@ import org.json.JSONArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import backtype.storm.metric.api.IMetric;
 import backtype.storm.task.OutputCollector;
 import backtype.storm.task.TopologyContext;
 import backtype.storm.topology.OutputFieldsDeclarer;
@@ -18,6 +19,7 @@ import backtype.storm.tuple.Tuple;
 import backtype.storm.tuple.Values;
 import edu.isi.karma.kr2rml.writer.JSONKR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
+import edu.isi.karma.metrics.SimpleMetricsRegistry;
 import edu.isi.karma.rdf.BaseKarma;
 import edu.isi.karma.rdf.RDFGeneratorRequest;
 import edu.isi.karma.storm.strategy.KarmaHomeStrategy;
@@ -86,7 +88,7 @@ public class KarmaBolt extends BaseRichBolt {
 	
 	@SuppressWarnings("rawtypes")
 	@Override
-	public void prepare(Map globalConfig, TopologyContext arg1, OutputCollector outputCollector) {
+	public void prepare(Map globalConfig, TopologyContext topologyContext, OutputCollector outputCollector) {
 		this.outputCollector = outputCollector;
 		String karmaHomeDirectory = null;
 		if(karmaHomeStrategy != null){
@@ -101,7 +103,27 @@ public class KarmaBolt extends BaseRichBolt {
 				(String)localConfig.get("base.uri"), 
 				(String)localConfig.get("context.uri"), (String)localConfig.get("context.content"),
 				(String)localConfig.get("rdf.generation.root"), (String)localConfig.get("rdf.generation.selection"));
-		
+		if (Boolean.parseBoolean(String.valueOf(localConfig.get("karma.metrics.enabled")))) {
+			registerMetrics(topologyContext);
+		}
+	}
+
+	/**
+	 * Reports the timers and the counters of the generation of this bolt, as
+	 * JSON, to the metrics consumers of the topology every minute. The values
+	 * are the totals since the bolt was prepared.
+	 */
+	private void registerMetrics(TopologyContext topologyContext) {
+		final SimpleMetricsRegistry metrics = new SimpleMetricsRegistry(
+				Boolean.parseBoolean(String.valueOf(localConfig.get("karma.metrics.allocations"))));
+		karma.getGenerator().setMetrics(metrics);
+		topologyContext.registerMetric("karma", new IMetric() {
+
+			@Override
+			public Object getValueAndReset() {
+				return metrics.toJSON().toString();
+			}
+		}, 60);
 	}
 
 	@Override
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright 2012 University of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This code was developed by the Information Integration Group as part
+ * of the Karma project at the Information Sciences Institute of the
+ * University of Southern California.  For more information, publications,
+ * and related projects, please see: http://www.isi.edu/integration
+ ******************************************************************************/
+package edu.isi.karma.imp.excel;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the sheets of an XLSX workbook row by row with the POI event model,
+ * without building the workbook object model. The cell values are formatted
+ * the same way {@link ToCSV} formats them, and the cached results of the
+ * formulas are used.
+ *
+ * Only the shared strings table of the workbook is kept in memory.
+ */
+public class XLSXSheetReader implements Closeable {
+
+	/**
+	 * Receives the rows of a sheet. Rows that are missing in the sheet are
+	 * passed as empty rows, so the row indexes are the ones shown by Excel minus 1.
+	 */
+	public interface RowHandler {
+		/**
+		 * @param rowIndex 0 based index of the row
+		 * @param values formatted values of the cells, the missing cells are empty strings
+		 * @return false to stop reading the sheet
+		 */
+		boolean row(int rowIndex, List<String> values);
+	}
+
+	private final OPCPackage pkg;
+	private final File tempFile;
+	private ReadOnlySharedStringsTable strings;
+	private StylesTable styles;
+	private List<String> sheetNames;
+
+	public XLSXSheetReader(File file) throws IOException {
+		this(file, null);
+	}
+
+	/**
+	 * The stream is copied to a temporary file, which is deleted by {@link #close()}.
+	 * The zip entries of a file can be read one at a time, those of a stream cannot.
+	 */
+	public XLSXSheetReader(InputStream is) throws IOException {
+		this(null, copyToTempFile(is));
+	}
+
+	private XLSXSheetReader(File file, File tempFile) throws IOException {
+		this.tempFile = tempFile;
+		if (file == null)
+			file = tempFile;
+		try {
+			this.pkg = OPCPackage.open(file.getPath(), PackageAccess.READ);
+		} catch (InvalidFormatException e) {
+			if (tempFile != null)
+				tempFile.delete();
+			throw new IOException("Not an XLSX file: " + e.getMessage(), e);
+		}
+	}
+
+	private static File copyToTempFile(InputStream is) throws IOException {
+		File file = File.createTempFile("karma-xlsx", ".xlsx");
+		try (OutputStream os = new FileOutputStream(file)) {
+			IOUtils.copy(is, os);
+		}
+		return file;
+	}
+
+	/**
+	 * @param is a stream that supports mark
+	 * @return true if the stream starts with the signature of a zip file, which XLSX files are
+	 */
+	public static boolean isXLSX(InputStream is) throws IOException {
+		is.mark(4);
+		byte[] header = new byte[4];
+		int n = IOUtils.read(is, header);
+		is.reset();
+		return n == 4 && header[0] == 'P' && header[1] == 'K' && header[2] == 3 && header[3] == 4;
+	}
+
+	public static boolean isXLSX(File file) throws IOException {
+		try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+			return isXLSX(is);
+		}
+	}
+
+	public List<String> getSheetNames() throws IOException {
+		if (sheetNames == null) {
+			List<String> names = new ArrayList<>();
+			XSSFReader.SheetIterator sheets = getSheets();
+			while (sheets.hasNext()) {
+				sheets.next().close();
+				names.add(sheets.getSheetName());
+			}
+			sheetNames = Collections.unmodifiableList(names);
+		}
+		return sheetNames;
+	}
+
+	/**
+	 * Reads the rows of a sheet in order
+	 * @param sheetIndex 0 based index of the sheet
+	 */
+	public void readSheet(int sheetIndex, RowHandler handler) throws IOException {
+		XSSFReader.SheetIterator sheets = getSheets();
+		for (int i = 0; sheets.hasNext(); i++) {
+			try (InputStream sheet = sheets.next()) {
+				if (i == sheetIndex) {
+					parse(sheet, handler);
+					return;
+				}
+			}
+		}
+		throw new IOException("The workbook does not have a sheet with index " + sheetIndex);
+	}
+
+	private XSSFReader.SheetIterator getSheets() throws IOException {
+		try {
+			XSSFReader reader = new XSSFReader(pkg);
+			if (strings == null) {
+				strings = new ReadOnlySharedStringsTable(pkg);
+				styles = reader.getStylesTable();
+			}
+			return (XSSFReader.SheetIterator) reader.getSheetsData();
+		} catch (OpenXML4JException | SAXException e) {
+			throw new IOException("Unable to read the workbook: " + e.getMessage(), e);
+		}
+	}
+
+	private void parse(InputStream sheet, RowHandler handler) throws IOException {
+		try {
+			// a sheet never has a DTD, so none is read and no entity is resolved
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+			factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+			XMLReader parser = factory.newSAXParser().getXMLReader();
+			parser.setContentHandler(new SheetHandler(handler));
+			parser.parse(new InputSource(sheet));
+		} catch (StopReadingException e) {
+			// the handler does not want more rows
+		} catch (SAXException | ParserConfigurationException e) {
+			throw new IOException("Unable to read the sheet: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		pkg.revert();
+		if (tempFile != null)
+			tempFile.delete();
+	}
+
+	private static class StopReadingException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Collects the cells of each row element of the sheet XML, puts them at
+	 * their column index and passes the missing rows as empty rows.
+	 */
+	private class SheetHandler extends DefaultHandler {
+
+		private final RowHandler handler;
+		private final DataFormatter formatter = new DataFormatter(true);
+		private final List<String> values = new ArrayList<>();
+		private final StringBuilder text = new StringBuilder();
+		private int nextRow = 0;
+		private int currentRow;
+		private String cellReference;
+		private String cellType;
+		private String cellStyle;
+		private boolean inValue;
+
+		SheetHandler(RowHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+			if ("row".equals(localName)) {
+				String r = attributes.getValue("r");
+				currentRow = r == null ? nextRow : Integer.parseInt(r) - 1;
+				values.clear();
+			} else if ("c".equals(localName)) {
+				cellReference = attributes.getValue("r");
+				cellType = attributes.getValue("t");
+				cellStyle = attributes.getValue("s");
+				text.setLength(0);
+			} else if ("v".equals(localName) || "t".equals(localName)) {
+				inValue = true;
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (inValue)
+				text.append(ch, start, length);
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			if ("v".equals(localName) || "t".equals(localName)) {
+				inValue = false;
+			} else if ("c".equals(localName)) {
+				int column = cellReference == null ? values.size() : new CellReference(cellReference).getCol();
+				while (values.size() < column)
+					values.add("");
+				values.add(formatValue().replace("\n", " ").replace("\r", " "));
+			} else if ("row".equals(localName)) {
+				boolean more = true;
+				while (more && nextRow < currentRow)
+					more = handler.row(nextRow++, Collections.<String>emptyList());
+				if (more)
+					more = handler.row(nextRow++, new ArrayList<>(values));
+				if (!more)
+					throw new StopReadingException();
+			}
+		}
+
+		private String formatValue() {
+			String value = text.toString();
+			if (value.isEmpty())
+				return value;
+			if ("s".equals(cellType))
+				return strings.getEntryAt(Integer.parseInt(value));
+			if ("b".equals(cellType))
+				return "0".equals(value) ? "FALSE" : "TRUE";
+			if (cellType != null && !"n".equals(cellType))
+				return value;
+			try {
+				double number = Double.parseDouble(value);
+				int formatIndex = 0;
+				String format = "General";
+				if (cellStyle != null && styles != null) {
+					XSSFCellStyle style = styles.getStyleAt(Integer.parseInt(cellStyle));
+					formatIndex = style.getDataFormat();
+					format = style.getDataFormatString();
+					if (format == null)
+						format = BuiltinFormats.getBuiltinFormat(formatIndex);
+					if (format == null)
+						format = "General";
+				}
+				return formatter.formatRawCellContents(number, formatIndex, format);
+			} catch (NumberFormatException e) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package edu.isi.karma.web.services.publish.es;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContextBuilder;
+import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Indexes documents in Elastic Search with the bulk API. The documents are
+ * written as they are added into the body of the current bulk, which is sent
+ * once it has the maximum number of documents or bytes. A bounded number of
+ * bulks are sent at a time, and adding a document waits while they are all
+ * in flight.
+ *
+ * The bulks are built and submitted under a lock of the indexer that the
+ * threads sending them never take, so a sender always gets to release its
+ * slot while a document waits for one.
+ *
+ * The bulks are sent with an HTTP client that is shared by all the indexers,
+ * so the connections to Elastic Search are kept alive between bulks and
+ * between requests.
+ */
+public class BulkIndexer implements Closeable {
+
+	private static Logger logger = LoggerFactory.getLogger(BulkIndexer.class);
+
+	public static final int DEFAULT_MAX_DOCUMENTS = 100;
+	public static final int DEFAULT_MAX_BYTES = 5 * 1024 * 1024;
+	public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+	public static final int DEFAULT_RETRIES = 10;
+	public static final long DEFAULT_RETRY_INTERVAL = 100;
+
+	private static final int MAX_CONNECTIONS = 64;
+	private static final Map<String, CloseableHttpClient> httpClients = new HashMap<>();
+
+	private final String url;
+	private final String index;
+	private final String type;
+	private int maxDocuments = DEFAULT_MAX_DOCUMENTS;
+	private int maxBytes = DEFAULT_MAX_BYTES;
+	private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	private int retries = DEFAULT_RETRIES;
+	private long retryInterval = DEFAULT_RETRY_INTERVAL;
+	private final CloseableHttpClient httpClient;
+	private final Object lock = new Object();
+	private ExecutorService executor;
+	private Semaphore inFlight;
+	private Bulk bulk;
+	private volatile Exception failure;
+	private final AtomicLong numberOfDocuments = new AtomicLong();
+	private final AtomicInteger numberOfBulks = new AtomicInteger();
+	private final AtomicInteger numberOfFailedDocuments = new AtomicInteger();
+	private boolean closed;
+
+	public BulkIndexer(ElasticSearchConfig esConfig) throws GeneralSecurityException {
+		this.url = esConfig.getProtocol() + "://" + esConfig.getHostname() + ":" + esConfig.getPort()
+				+ "/" + esConfig.getIndex() + "/_bulk";
+		this.index = esConfig.getIndex();
+		this.type = esConfig.getType();
+		this.httpClient = getHttpClient(esConfig.getProtocol());
+	}
+
+	/**
+	 * A bulk is sent when it has maxDocuments documents or when adding a
+	 * document would make it larger than maxBytes
+	 */
+	public void setBulkSize(int maxDocuments, int maxBytes) {
+		this.maxDocuments = Math.max(1, maxDocuments);
+		this.maxBytes = Math.max(1, maxBytes);
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = Math.max(1, maxInFlight);
+	}
+
+	/**
+	 * @param retryInterval the time to wait before the first retry in ms,
+	 *                      which grows with the number of attempts
+	 */
+	public void setRetries(int retries, long retryInterval) {
+		this.retries = Math.max(0, retries);
+		this.retryInterval = retryInterval;
+	}
+
+	private static synchronized CloseableHttpClient getHttpClient(String protocol) throws GeneralSecurityException {
+		String key = protocol.toLowerCase();
+		CloseableHttpClient httpClient = httpClients.get(key);
+		if (httpClient == null) {
+			RegistryBuilder<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+					.register("http", PlainConnectionSocketFactory.getSocketFactory());
+			if (key.equals("https")) {
+				SSLContextBuilder builder = new SSLContextBuilder();
+				builder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
+				registry.register("https", new SSLConnectionSocketFactory(builder.build()));
+			} else if (!key.equals("http")) {
+				throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+			}
+			Registry<ConnectionSocketFactory> socketFactories = registry.build();
+			PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+			connectionManager.setMaxTotal(MAX_CONNECTIONS);
+			connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+			httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+			httpClients.put(key, httpClient);
+		}
+		return httpClient;
+	}
+
+	/**
+	 * Adds a document to the current bulk. Once a bulk has failed, the
+	 * documents are dropped and the failure is thrown by {@link #close()}.
+	 * @param id the id of the document, or null to let Elastic Search generate one
+	 */
+	public void add(String id, JSONObject document) {
+		synchronized (lock) {
+			addToBulk(id, document);
+		}
+	}
+
+	private void addToBulk(String id, JSONObject document) {
+		if (closed)
+			throw new IllegalStateException("The indexer is closed");
+		if (failure != null)
+			return;
+		if (bulk == null)
+			bulk = new Bulk();
+		int mark = bulk.size();
+		try {
+			JSONObject action = new JSONObject();
+			action.put("_index", index);
+			action.put("_type", type);
+			if (id != null)
+				action.put("_id", id);
+			bulk.writer.write("{\"index\":");
+			action.write(bulk.writer);
+			bulk.writer.write("}\n");
+			document.write(bulk.writer);
+			bulk.writer.write('\n');
+			bulk.writer.flush();
+		} catch (IOException e) {
+			failure = e;
+			return;
+		}
+		numberOfDocuments.incrementAndGet();
+		bulk.numberOfDocuments++;
+		if (bulk.size() > maxBytes && bulk.numberOfDocuments > 1) {
+			// the document goes to the next bulk
+			Bulk next = new Bulk();
+			next.write(bulk.buffer(), mark, bulk.size() - mark);
+			next.numberOfDocuments++;
+			bulk.truncate(mark);
+			bulk.numberOfDocuments--;
+			submit(bulk);
+			bulk = next;
+		}
+		if (bulk.numberOfDocuments >= maxDocuments || bulk.size() >= maxBytes) {
+			submit(bulk);
+			bulk = null;
+		}
+	}
+
+	/**
+	 * Adds the objects of a JSON-LD array, or a single JSON-LD object, as
+	 * they are read
+	 */
+	public void addAll(Reader reader) throws JSONException {
+		JSONTokener x = new JSONTokener(reader);
+		char c = x.nextClean();
+		if (c != '[') {
+			x.back();
+			add((JSONObject) x.nextValue());
+			return;
+		}
+		while (true) {
+			c = x.nextClean();
+			if (c == ']' || c == 0)
+				return;
+			if (c == ',')
+				continue;
+			x.back();
+			add((JSONObject) x.nextValue());
+		}
+	}
+
+	/**
+	 * Adds a document with its uri as id
+	 */
+	public void add(JSONObject document) {
+		add(document.has("uri") ? document.getString("uri") : null, document);
+	}
+
+	/**
+	 * Waits for a slot and sends the bulk on the executor
+	 */
+	private void submit(final Bulk bulk) {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(maxInFlight);
+			inFlight = new Semaphore(maxInFlight);
+		}
+		try {
+			inFlight.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure = e;
+			return;
+		}
+		numberOfBulks.incrementAndGet();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (failure == null)
+						send(bulk);
+				} catch (Exception e) {
+					logger.error("Unable to send a bulk of " + bulk.numberOfDocuments + " documents to " + url, e);
+					failure = e;
+				} finally {
+					inFlight.release();
+				}
+			}
+		});
+	}
+
+	private void send(Bulk bulk) throws IOException, InterruptedException {
+		HttpPost httpPost = new HttpPost(url);
+		httpPost.setEntity(new ByteArrayEntity(bulk.buffer(), 0, bulk.size(), ContentType.APPLICATION_JSON));
+		for (int attempt = 0; ; attempt++) {
+			StatusLine statusLine;
+			String body;
+			try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+				statusLine = response.getStatusLine();
+				HttpEntity entity = response.getEntity();
+				body = entity == null ? "" : EntityUtils.toString(entity, "UTF-8");
+			} catch (IOException e) {
+				if (attempt >= retries)
+					throw e;
+				logger.warn("Unable to send a bulk to " + url + ", retrying: " + e.getMessage());
+				Thread.sleep(retryInterval * (attempt + 1));
+				continue;
+			}
+			int status = statusLine.getStatusCode();
+			if (status < 300) {
+				countFailedDocuments(body, bulk.numberOfDocuments);
+				return;
+			}
+			// only the server errors and the rejections are worth retrying
+			if (status < 500 && status != 429 || attempt >= retries)
+				throw new IOException("Elastic Search returned " + statusLine + ": " + body);
+			logger.warn("Elastic Search returned " + statusLine + ", retrying");
+			Thread.sleep(retryInterval * (attempt + 1));
+		}
+	}
+
+	/**
+	 * Logs the documents that Elastic Search rejected in a bulk that succeeded
+	 */
+	private void countFailedDocuments(String body, int numberOfDocuments) {
+		if (!body.contains("\"errors\":true"))
+			return;
+		int failed = 0;
+		String error = null;
+		try {
+			JSONArray items = new JSONObject(body).getJSONArray("items");
+			for (int i = 0; i < items.length(); i++) {
+				JSONObject item = items.getJSONObject(i).optJSONObject("index");
+				if (item != null && item.has("error")) {
+					failed++;
+					error = item.get("error").toString();
+				}
+			}
+		} catch (JSONException e) {
+			logger.error("Unable to parse the response of Elastic Search", e);
+			return;
+		}
+		numberOfFailedDocuments.addAndGet(failed);
+		logger.error(failed + " of " + numberOfDocuments + " documents were not indexed: " + error);
+	}
+
+	/**
+	 * Sends the last bulk and waits for all the bulks
+	 * @throws IOException if a bulk could not be sent
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (closed)
+				return;
+			if (bulk != null && bulk.numberOfDocuments > 0 && failure == null)
+				submit(bulk);
+			bulk = null;
+			closed = true;
+			if (executor != null) {
+				executor.shutdown();
+				try {
+					while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+						logger.info("Waiting for the bulks to be sent to " + url);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					executor.shutdownNow();
+					throw new IOException("Interrupted while sending the bulks", e);
+				}
+			}
+		}
+		if (failure != null)
+			throw failure instanceof IOException ? (IOException) failure : new IOException(failure.getMessage(), failure);
+	}
+
+	public long getNumberOfDocuments() {
+		return numberOfDocuments.get();
+	}
+
+	public int getNumberOfBulks() {
+		return numberOfBulks.get();
+	}
+
+	public int getNumberOfFailedDocuments() {
+		return numberOfFailedDocuments.get();
+	}
+
+	/**
+	 * The body of a bulk, which is sent from its buffer without a copy
+	 */
+	private static class Bulk extends ByteArrayOutputStream {
+
+		private final Writer writer;
+		private int numberOfDocuments;
+
+		Bulk() {
+			super(8192);
+			try {
+				writer = new OutputStreamWriter(this, "UTF-8");
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		byte[] buffer() {
+			return buf;
+		}
+
+		void truncate(int size) {
+			count = size;
+		}
+	}
+}
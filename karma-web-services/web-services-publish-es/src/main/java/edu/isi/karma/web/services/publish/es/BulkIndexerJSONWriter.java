@@ -0,0 +1,35 @@
+package edu.isi.karma.web.services.publish.es;
+
+import java.io.PrintWriter;
+
+import org.apache.commons.io.output.NullWriter;
+import org.json.JSONObject;
+
+import edu.isi.karma.kr2rml.writer.JSONKR2RMLRDFWriter;
+
+/**
+ * Adds the JSON-LD objects to a {@link BulkIndexer} as their rows are
+ * finished, instead of writing them to a JSON array
+ */
+public class BulkIndexerJSONWriter extends JSONKR2RMLRDFWriter {
+
+	private final BulkIndexer indexer;
+
+	public BulkIndexerJSONWriter(BulkIndexer indexer) {
+		super(new PrintWriter(new NullWriter()));
+		this.indexer = indexer;
+	}
+
+	@Override
+	protected void initializeOutput() {
+	}
+
+	@Override
+	protected void writeObject(JSONObject object) {
+		indexer.add(object);
+	}
+
+	@Override
+	protected void finishOutput() {
+	}
+}
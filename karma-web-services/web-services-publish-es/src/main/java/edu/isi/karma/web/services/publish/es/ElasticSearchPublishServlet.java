@@ -2,14 +2,11 @@ package edu.isi.karma.web.services.publish.es;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
@@ -24,14 +21,6 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.SSLContextBuilder;
-import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
@@ -50,7 +39,6 @@ import edu.isi.karma.er.helper.PythonRepositoryRegistry;
 import edu.isi.karma.kr2rml.ContextIdentifier;
 import edu.isi.karma.kr2rml.mapping.R2RMLMappingIdentifier;
 import edu.isi.karma.kr2rml.planning.UserSpecifiedRootStrategy;
-import edu.isi.karma.kr2rml.writer.JSONKR2RMLRDFWriter;
 import edu.isi.karma.kr2rml.writer.KR2RMLRDFWriter;
 import edu.isi.karma.metadata.KarmaMetadataManager;
 import edu.isi.karma.metadata.PythonTransformationMetadata;
@@ -71,9 +59,10 @@ public class ElasticSearchPublishServlet extends Application {
 	private static Logger logger = LoggerFactory
 			.getLogger(ElasticSearchPublishServlet.class);
 
-	private static final int retry = 10;
-	private int bulksize = 100;
-	private int sleepTime = 100;
+	private int bulksize = BulkIndexer.DEFAULT_MAX_DOCUMENTS;
+	private int bulkBytes = BulkIndexer.DEFAULT_MAX_BYTES;
+	private int bulkConcurrency = BulkIndexer.DEFAULT_MAX_IN_FLIGHT;
+	private long sleepTime = BulkIndexer.DEFAULT_RETRY_INTERVAL;
 	private ServletContext context;
 	
 	public ElasticSearchPublishServlet(@Context ServletContext context) {
@@ -86,9 +75,15 @@ public class ElasticSearchPublishServlet extends Application {
 		String bulksize = context.getInitParameter("ESBulkSize");
 		if(bulksize != null)
 			this.bulksize = Integer.parseInt(bulksize);
+		String bulkBytes = context.getInitParameter("ESBulkBytes");
+		if(bulkBytes != null)
+			this.bulkBytes = Integer.parseInt(bulkBytes);
+		String bulkConcurrency = context.getInitParameter("ESBulkConcurrency");
+		if(bulkConcurrency != null)
+			this.bulkConcurrency = Integer.parseInt(bulkConcurrency);
 		String sleep = context.getInitParameter("ESUploadInterval");
 		if(sleep != null)
-			this.sleepTime = Integer.parseInt(sleep);
+			this.sleepTime = Long.parseLong(sleep);
 	}
 
 	@POST
@@ -99,9 +94,9 @@ public class ElasticSearchPublishServlet extends Application {
 			logger.info("Path - es/json . Generate jsonld and publish to ES");
 			ElasticSearchConfig esConfig = ElasticSearchConfig.parse(context, formParams);
 			R2RMLConfig r2rmlConfig = R2RMLConfig.parse(context, formParams);
-			String jsonld = generateJSONLD(r2rmlConfig);
-			if(jsonld != null)
-				return publishES(jsonld, esConfig);
+			BulkIndexer indexer = createBulkIndexer(esConfig);
+			if(generateJSONLD(r2rmlConfig, indexer))
+				return publishES(indexer);
 		} catch (Exception e) {
 			logger.error("Error generating JSON", e);
 			return "Exception: " + e.getMessage();
@@ -119,9 +114,9 @@ public class ElasticSearchPublishServlet extends Application {
 			R2RMLConfig r2rmlConfig = R2RMLConfig.parse(context, null);
 			InputStream is = IOUtils.toInputStream(json.toString());
 			r2rmlConfig.setInput(is);
-			String jsonld = generateJSONLD(r2rmlConfig);
-			if(jsonld != null)
-				return publishES(jsonld, esConfig);
+			BulkIndexer indexer = createBulkIndexer(esConfig);
+			if(generateJSONLD(r2rmlConfig, indexer))
+				return publishES(indexer);
 		} catch (Exception e) {
 			logger.error("Error generating JSON", e);
 			return "Exception: " + e.getMessage();
@@ -138,9 +133,17 @@ public class ElasticSearchPublishServlet extends Application {
 			logger.info("Path - es/jsonld . Publish JSONLD to ES");
 			ElasticSearchConfig esConfig = ElasticSearchConfig.parse(context, formParams);
 			R2RMLConfig r2rmlConfig = R2RMLConfig.parse(context, formParams);
-			String jsonld = IOUtils.toString(r2rmlConfig.getInput());
-			if(jsonld != null)
-				return publishES(jsonld, esConfig);
+			InputStream is = r2rmlConfig.getInput();
+			if(is != null) {
+				BulkIndexer indexer = createBulkIndexer(esConfig);
+				try {
+					indexer.addAll(new InputStreamReader(is, "UTF-8"));
+				} catch (Exception e) {
+					IOUtils.closeQuietly(indexer);
+					throw e;
+				}
+				return publishES(indexer);
+			}
 		} catch (Exception e) {
 			logger.error("Error generating JSON", e);
 			return "Exception: " + e.getMessage();
@@ -149,124 +152,34 @@ public class ElasticSearchPublishServlet extends Application {
 	}
 
 	
-	private String publishES(String jsonld, ElasticSearchConfig esConfig) throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
-		
-		CloseableHttpClient httpClient = getHttpClient(esConfig);
-		HttpPost httpPost = getHttpPost(esConfig);
-		
-		String bulkFormat = null;
-		StringBuilder sb = new StringBuilder();
-		
-//		System.out.println("GOt JSONLD:");
-//		System.out.println(jsonld);
-		
-		logger.info("Got JSONLD, now pushing to ES");
-		JSONArray jsonArray = null;
-		if(jsonld.startsWith("["))
-			jsonArray = new JSONArray(jsonld);
-		else {
-			JSONObject jObj = new JSONObject(jsonld);
-			jsonArray = new JSONArray();
-			jsonArray.put(jObj);
-		}
-		logger.info("FInished de-serializing JSON-LD");
-		
-		long counter = 0;
-		Exception postException = null;
-		String index = esConfig.getIndex();
-		String type = esConfig.getType();
-		
-		for(int k=0; k<jsonArray.length(); k++) {
-			JSONObject jObj = jsonArray.getJSONObject(k);
-		
-			
-			String id = null;
-			
-			if(jObj.has("uri"))
-			{
-				id = jObj.getString("uri");
-			}
-			
-			if(id != null)
-			{
-				bulkFormat = "{\"index\":{\"_index\":\"" + index+ "\",\"_type\":\""+ type +"\",\"_id\":\""+id+"\"}}";
-			}
-			else
-			{
-				bulkFormat = "{\"index\":{\"_index\":\"" + index+ "\",\"_type\":\""+ type +"\"}}";
-			}
-			sb.append(bulkFormat);
-			sb.append(System.getProperty("line.separator"));
-			sb.append(jObj.toString());
-			sb.append(System.getProperty("line.separator"));
-			counter++;
-			if (counter % bulksize == 0) {
-				int i = 0;
-				Exception ex = null;
-				while (i < retry) {
-					try {
-						StringEntity entity = new StringEntity(sb.toString(),"UTF-8");
-						entity.setContentType("application/json");
-						httpPost.setEntity(entity);
-						httpClient.execute(httpPost);
-						httpClient.close();
-						System.out.println(counter + " processed");
-						break;
-					}catch(Exception e) {
-						ex = e;
-						logger.error("Error", e);
-						i++;
-					}
-				}
-				if (i > 0) {
-					logger.error("Exception occurred!", ex);
-					postException = ex;
-					break;
-				}
-				httpClient = getHttpClient(esConfig);
-				httpPost = getHttpPost(esConfig);
-				sb = new StringBuilder();
-				try {
-					Thread.sleep(sleepTime);
-				} catch (InterruptedException e) {
-				}
-			}
-		}
+	private BulkIndexer createBulkIndexer(ElasticSearchConfig esConfig) throws GeneralSecurityException {
+		BulkIndexer indexer = new BulkIndexer(esConfig);
+		indexer.setBulkSize(bulksize, bulkBytes);
+		indexer.setMaxInFlight(bulkConcurrency);
+		indexer.setRetries(BulkIndexer.DEFAULT_RETRIES, sleepTime);
+		return indexer;
+	}
+	
+	/**
+	 * Waits for the bulks of the indexer to be sent
+	 */
+	private String publishES(BulkIndexer indexer) {
 		try {
-			StringEntity entity = new StringEntity(sb.toString(),"UTF-8");
-			entity.setContentType("application/json");
-			httpPost.setEntity(entity);
-			httpClient.execute(httpPost);
-			httpClient.close();
-		} catch(Exception e) {
-			postException = e;
-		}
-		
-		if (postException != null) {
-			logger.error("Exception occurred!", postException);
-			return "{\"result\": {\"code\": \"0\", \"message\": \"" + postException.getMessage() + "\"}}";
+			indexer.close();
+		} catch (IOException e) {
+			logger.error("Exception occurred!", e);
+			return "{\"result\": {\"code\": \"0\", \"message\": \"" + e.getMessage() + "\"}}";
 		}
+		logger.info("Published " + indexer.getNumberOfDocuments() + " documents in " + indexer.getNumberOfBulks() + " bulks, "
+				+ indexer.getNumberOfFailedDocuments() + " were not indexed");
 		return "{\"result\": {\"code\": \"1\", \"message\": \"success\"}}";
 	}
 	
-	private HttpPost getHttpPost(ElasticSearchConfig esConfig) {
-		return new HttpPost(esConfig.getProtocol()+"://" + esConfig.getHostname() + 
-				":" + esConfig.getPort() + "/" + esConfig.getIndex() + "/_bulk");
-	}
-	
-	private CloseableHttpClient getHttpClient(ElasticSearchConfig esConfig) throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
-		if(esConfig.getProtocol().equalsIgnoreCase("https")) {
-			SSLContextBuilder builder = new SSLContextBuilder();
-			builder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
-			SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(builder.build());
-			return HttpClients.custom().setSSLSocketFactory(sslsf).build();
-		} else if(esConfig.getProtocol().equalsIgnoreCase("http"))
-			return HttpClients.createDefault();
-		return null;
-		
-	}
-	
-	private String generateJSONLD(R2RMLConfig config) throws JSONException, MalformedURLException, KarmaException, IOException{
+	/**
+	 * Generates the JSON-LD of the input into the indexer
+	 * @return false if there is no input
+	 */
+	private boolean generateJSONLD(R2RMLConfig config, BulkIndexer indexer) throws JSONException, MalformedURLException, KarmaException, IOException{
 
 		InputStream is = config.getInput();
 		
@@ -283,21 +196,22 @@ public class ElasticSearchPublishServlet extends Application {
 			rdfGen.addModel(modelIdentifier);
 			Model model = rdfGen.getModelParser("generic-model").getModel();
 			
-			StringWriter sw = new StringWriter();
-			PrintWriter pw = new PrintWriter(sw);
-			
 			JSONTokener token = new JSONTokener(contextConnection.getInputStream());
 
 			ContextIdentifier contextId = new ContextIdentifier("generic-context", contextLocation);
-			JSONKR2RMLRDFWriter writer = new JSONKR2RMLRDFWriter(pw);
+			BulkIndexerJSONWriter writer = new BulkIndexerJSONWriter(indexer);
 			writer.setGlobalContext(new org.json.JSONObject(token), contextId); 
 			RDFGeneratorRequest request = generateRDFRequest("generic-model", model, "Karma-Web-Services", is, config, writer);
-			rdfGen.generateRDF(request);
-			String rdf = sw.toString();
-			return rdf;
+			try {
+				rdfGen.generateRDF(request);
+			} catch (KarmaException | IOException e) {
+				IOUtils.closeQuietly(indexer);
+				throw e;
+			}
+			return true;
 		}
 		
-		return null;
+		return false;
 	}
 	
 	private RDFGeneratorRequest generateRDFRequest(String modelName, Model model, String sourceName, InputStream is, R2RMLConfig config, KR2RMLRDFWriter writer) {
@@ -0,0 +1,215 @@
+package edu.isi.karma.web.services.publish.es;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestBulkIndexer {
+
+	private HttpServer server;
+	private ElasticSearchConfig esConfig;
+	private final List<String> bulks = Collections.synchronizedList(new ArrayList<String>());
+	private final Set<String> connections = Collections.synchronizedSet(new HashSet<String>());
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	private volatile int status = 200;
+	private volatile boolean rejectDocuments;
+
+	/**
+	 * Stands in for the bulk endpoint of Elastic Search: keeps the bodies,
+	 * and fails the first requests or rejects the documents when asked to
+	 */
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/karma/_bulk", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int n = running.incrementAndGet();
+				synchronized (maxRunning) {
+					maxRunning.set(Math.max(maxRunning.get(), n));
+				}
+				try {
+					connections.add(exchange.getRemoteAddress().toString());
+					String body = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+					Thread.sleep(20);
+					if (failures.getAndDecrement() > 0) {
+						respond(exchange, status, "{\"error\":\"unavailable\"}");
+						return;
+					}
+					bulks.add(body);
+					if (rejectDocuments) {
+						StringBuilder items = new StringBuilder();
+						for (int i = 0; i < body.split("\n").length / 2; i++) {
+							items.append(i == 0 ? "" : ",").append("{\"index\":{\"status\":400,\"error\":\"MapperParsingException\"}}");
+						}
+						respond(exchange, 200, "{\"took\":1,\"errors\":true,\"items\":[" + items + "]}");
+					} else {
+						respond(exchange, 200, "{\"took\":1,\"errors\":false,\"items\":[]}");
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+				}
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		esConfig = new ElasticSearchConfig();
+		esConfig.setProtocol("http");
+		esConfig.setHostname("localhost");
+		esConfig.setPort(String.valueOf(server.getAddress().getPort()));
+		esConfig.setIndex("karma");
+		esConfig.setType("WebPage");
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testBulksByCount() throws Exception {
+		BulkIndexer indexer = new BulkIndexer(esConfig);
+		indexer.setBulkSize(100, Integer.MAX_VALUE);
+		indexer.setMaxInFlight(2);
+		for (int i = 0; i < 450; i++)
+			indexer.add(getDocument(i, 10));
+		indexer.close();
+
+		assertEquals(450, indexer.getNumberOfDocuments());
+		assertEquals(5, indexer.getNumberOfBulks());
+		assertEquals(5, bulks.size());
+		assertTrue(maxRunning.get() <= 2);
+		// the connections are kept alive between bulks
+		assertTrue(connections.size() <= 2);
+		Set<String> ids = new HashSet<>();
+		for (String bulk : bulks) {
+			String[] lines = bulk.split("\n");
+			assertEquals(0, lines.length % 2);
+			assertTrue(bulk.endsWith("\n"));
+			for (int i = 0; i < lines.length; i += 2) {
+				JSONObject action = new JSONObject(lines[i]).getJSONObject("index");
+				assertEquals("karma", action.getString("_index"));
+				assertEquals("WebPage", action.getString("_type"));
+				assertEquals(action.getString("_id"), new JSONObject(lines[i + 1]).getString("uri"));
+				ids.add(action.getString("_id"));
+			}
+		}
+		assertEquals(450, ids.size());
+	}
+
+	@Test
+	public void testBulksBySize() throws Exception {
+		BulkIndexer indexer = new BulkIndexer(esConfig);
+		indexer.setBulkSize(1000, 4096);
+		for (int i = 0; i < 100; i++)
+			indexer.add(getDocument(i, 500));
+		indexer.close();
+
+		int documents = 0;
+		for (String bulk : bulks) {
+			assertTrue(bulk.getBytes("UTF-8").length <= 4096);
+			documents += bulk.split("\n").length / 2;
+		}
+		assertEquals(100, documents);
+		assertTrue(bulks.size() > 10);
+	}
+
+	@Test
+	public void testJSONLDArray() throws Exception {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < 5; i++)
+			sb.append(i == 0 ? "" : ",\n").append(getDocument(i, 1).toString(4));
+		sb.append("\n]\n");
+		BulkIndexer indexer = new BulkIndexer(esConfig);
+		indexer.addAll(new StringReader(sb.toString()));
+		indexer.close();
+		assertEquals(1, bulks.size());
+		assertEquals(10, bulks.get(0).split("\n").length);
+	}
+
+	@Test
+	public void testRetries() throws Exception {
+		status = 503;
+		failures.set(2);
+		BulkIndexer indexer = new BulkIndexer(esConfig);
+		indexer.setRetries(3, 1);
+		indexer.add(getDocument(0, 1));
+		indexer.close();
+		assertEquals(1, bulks.size());
+	}
+
+	@Test
+	public void testErrorIsReported() throws Exception {
+		status = 400;
+		failures.set(1);
+		BulkIndexer indexer = new BulkIndexer(esConfig);
+		indexer.setBulkSize(1, Integer.MAX_VALUE);
+		for (int i = 0; i < 20; i++)
+			indexer.add(getDocument(i, 1));
+		try {
+			indexer.close();
+			fail("The error of Elastic Search was not reported");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("400"));
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testRejectedDocuments() throws Exception {
+		rejectDocuments = true;
+		BulkIndexer indexer = new BulkIndexer(esConfig);
+		indexer.setBulkSize(2, Integer.MAX_VALUE);
+		// every add after the first bulk waits for the sender that counts the rejections
+		indexer.setMaxInFlight(1);
+		for (int i = 0; i < 20; i++)
+			indexer.add(getDocument(i, 1));
+		assertTrue(indexer.getNumberOfFailedDocuments() <= 20);
+		indexer.close();
+		assertEquals(10, bulks.size());
+		assertEquals(20, indexer.getNumberOfFailedDocuments());
+	}
+
+	private static JSONObject getDocument(int i, int length) {
+		JSONObject document = new JSONObject();
+		document.put("uri", "http://example.org/page/" + i);
+		StringBuilder sb = new StringBuilder();
+		for (int j = 0; j < length; j++)
+			sb.append('a');
+		document.put("text", sb.toString());
+		return document;
+	}
+}
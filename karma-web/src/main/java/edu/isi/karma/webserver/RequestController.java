@@ -32,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 import edu.isi.karma.controller.command.CommandType;
 import edu.isi.karma.controller.update.HistoryUpdate;
 
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,7 +65,12 @@ public class RequestController extends HttpServlet {
 		boolean isPreview = Boolean.parseBoolean(request.getParameter("isPreview"));
 		boolean isUserInteraction = Boolean.parseBoolean(request.getParameter("isUserInteraction"));
 		boolean isExecute = Boolean.parseBoolean(request.getParameter("execute"));
-		if (isUserInteraction) {
+		boolean isAsync = Boolean.parseBoolean(request.getParameter("async"));
+		String jobId = request.getParameter("jobId");
+		if (jobId != null) {
+			responseString = handleJobRequest(ctrl, vWorkspace, jobId, request.getParameter("jobAction"));
+		}
+		else if (isUserInteraction) {
 			String commandId = request.getParameter("commandId");
 			Command currentCommand = (Command) ctrl.getWorkspace().getCommandHistory().getPreviewCommand(commandId);
 			try {
@@ -93,6 +99,15 @@ public class RequestController extends HttpServlet {
 			}
 
 		}
+		else if (isAsync) {
+			Command command = ctrl.getCommand(request);
+			try {
+				CommandJob job = ctrl.submitCommand(command);
+				responseString = generateJobJson(job.toJSON(), new UpdateContainer().generateJson(vWorkspace));
+			} catch(Exception e) {
+				responseString = getErrorMessage(vWorkspace, e);
+			}
+		}
 		else {
 			Command command = ctrl.getCommand(request);
 			try {
@@ -100,8 +115,7 @@ public class RequestController extends HttpServlet {
 				if (command.getCommandType() != CommandType.notInHistory) {
 					updateContainer.add(new HistoryUpdate(vWorkspace.getWorkspace().getCommandHistory()));
 				}
-				updateContainer.applyUpdates(vWorkspace);
-				responseString = updateContainer.generateJson(vWorkspace);
+				responseString = ctrl.generateJson(command, updateContainer, vWorkspace);
 			} catch(Exception e) {
 				responseString = getErrorMessage(vWorkspace, e);
 			}
@@ -113,6 +127,49 @@ public class RequestController extends HttpServlet {
 		response.flushBuffer();
 	}
 
+	/**
+	 * Reports the status of an asynchronous command, with its updates once it
+	 * is finished, or cancels it when jobAction is cancel.
+	 */
+	private String handleJobRequest(ExecutionController ctrl, VWorkspace vWorkspace, String jobId, String jobAction) {
+		CommandJob job = ctrl.getJob(jobId);
+		if (job == null) {
+			UpdateContainer updateContainer = new UpdateContainer();
+			updateContainer.add(new ErrorUpdate("Unknown job " + jobId));
+			return updateContainer.generateJson(vWorkspace);
+		}
+		if ("cancel".equalsIgnoreCase(jobAction)) {
+			job.cancel();
+		}
+		try {
+			// the updates read the worksheet, so they are only generated once
+			// the command no longer changes it. The status is read once, so a
+			// job is never reported finished without its updates.
+			JSONObject jobJson = job.toJSON();
+			CommandJob.Status status = CommandJob.Status.valueOf(jobJson.getString(CommandJob.JsonKeys.status.name()));
+			if (status == CommandJob.Status.queued || status == CommandJob.Status.running) {
+				return generateJobJson(jobJson, new UpdateContainer().generateJson(vWorkspace));
+			}
+			UpdateContainer updateContainer = job.takeUpdates();
+			if (job.getStatus() == CommandJob.Status.failed) {
+				updateContainer.add(new ErrorUpdate(job.getMessage()));
+			}
+			else if (job.getCommand().getCommandType() != CommandType.notInHistory) {
+				updateContainer.add(new HistoryUpdate(vWorkspace.getWorkspace().getCommandHistory()));
+			}
+			ctrl.removeJob(jobId);
+			return generateJobJson(jobJson, ctrl.generateJson(job.getCommand(), updateContainer, vWorkspace));
+		} catch (Exception e) {
+			return getErrorMessage(vWorkspace, e);
+		}
+	}
+
+	private String generateJobJson(JSONObject jobJson, String updatesJson) {
+		JSONObject json = new JSONObject(updatesJson);
+		json.put("job", jobJson);
+		return json.toString();
+	}
+
 	private String getErrorMessage(VWorkspace vWorkspace, Throwable e) {
 		e.printStackTrace();
 		UpdateContainer updateContainer = new UpdateContainer();
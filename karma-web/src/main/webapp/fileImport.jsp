@@ -53,6 +53,12 @@
 					    Avro
 					  </label>
 					</div>
+					<div class="radio">
+					  <label>
+					    <input type="radio" name="FileFormatSelection" id="ParquetFileFormat" value="ParquetFile">
+					    Parquet
+					  </label>
+					</div>
 					<div class="radio">
 					  <label>
 					    <input type="radio" name="FileFormatSelection" id="XLSFileFormat" value="ExcelFile">
@@ -474,6 +474,43 @@ function parse(data) {
 
 			// Remove any tags
 			//			$("span.tag", tdTag).remove();
+		} else if (element["updateType"] == "WorksheetDataDeltaUpdate") {
+			var worksheetPanel = $("div.Worksheet#" + element["worksheetId"]);
+			$.each(element["rows"], function(index, row) {
+				var rowTr = $("tr#" + row["rowId"], worksheetPanel);
+				if (row["isSelected"])
+					rowTr.addClass("wk-row-selected");
+				else
+					rowTr.removeClass("wk-row-selected");
+			});
+			$.each(element["cells"], function(index, cell) {
+				var cellDiv = $("div#" + cell["nodeId"], worksheetPanel);
+				cellDiv.text(cell["displayValue"])
+					.attr("title", cell["expandedValue"]);
+				$.removeData(cellDiv, 'expandedValue');
+				cellDiv.data("expandedValue", cell["expandedValue"]);
+				if (cell["newStatus"] == "E") {
+					cellDiv.addClass("editedValue");
+				} else {
+					cellDiv.removeClass("editedValue");
+				}
+			});
+		} else if (element["updateType"] == "WorksheetColumnDeltaUpdate") {
+			var worksheetPanel = $("div.Worksheet#" + element["worksheetId"]);
+			var dataContainer = $("div.table-data-container", worksheetPanel);
+			$.each(element["removedColumns"], function(index, columnClass) {
+				$("td." + columnClass, dataContainer).remove();
+			});
+			$.each(element["cells"], function(index, cell) {
+				var rowTr = $("tr#" + cell["rowId"], worksheetPanel);
+				var td = createWorksheetValueCell(element["worksheetId"], cell);
+				var next = rowTr.children("td").eq(cell["index"]);
+				if (next.length == 0) {
+					rowTr.append(td);
+				} else {
+					next.before(td);
+				}
+			});
 		} else if (element["updateType"] == "NewImportDatabaseTableCommandUpdate") {
 			$("#databaseImportDialog").data("commandId", element["commandId"]);
 		} else if (element["updateType"] == "ImportSQLCommandUpdate") {
@@ -1045,34 +1082,11 @@ function addWorksheetDataRecurse(worksheetId, rows, dataTable, isOdd) {
 
 				dataDiv.append(nestedTableDataContainer);
 				dataDiv.addClass(cell["columnClass"]);
+				td.append(dataDiv);
 			} else {
-				var dataDiv3 = $("<div>").addClass("wk-value");
-				//console.log(stylesheet)
-				dataDiv.addClass(cell["columnClass"]);
-				dataDiv3.text(cell["displayValue"])
-					.attr('id', cell["nodeId"])
-					.data("expandedValue", cell["expandedValue"])
-					.attr("title", cell["expandedValue"]) //for tooltip
-					.click(function(e) {
-						if (!dataDiv3.hasClass("editable")) {
-							dataDiv3.editable({
-								type: 'text',
-								success: function(response, newValue) {
-									console.log("Set new value:" + newValue);
-									submitTableCellEdit(worksheetId, cell["nodeId"], newValue);
-								},
-								showbuttons: 'bottom',
-								mode: 'popup',
-								inputclass: 'worksheetInputEdit'
-							});
-							dataDiv3.editable('toggle');
-						}
-					});
-				
-				dataDiv.append(dataDiv3);
-				td.addClass(cell["columnClass"]);
+				td = createWorksheetValueCell(worksheetId, cell);
 			}
-			rowTr.append(td.append(dataDiv));
+			rowTr.append(td);
 		});
 
 		dataTable.append(rowTr);
@@ -1080,6 +1094,36 @@ function addWorksheetDataRecurse(worksheetId, rows, dataTable, isOdd) {
 	return;
 }
 
+function createWorksheetValueCell(worksheetId, cell) {
+	var td = $("<td>").addClass("wk-cell");
+	var dataDiv = $("<div>");
+	var dataDiv3 = $("<div>").addClass("wk-value");
+	dataDiv.addClass(cell["columnClass"]);
+	dataDiv3.text(cell["displayValue"])
+		.attr('id', cell["nodeId"])
+		.data("expandedValue", cell["expandedValue"])
+		.attr("title", cell["expandedValue"]) //for tooltip
+		.click(function(e) {
+			if (!dataDiv3.hasClass("editable")) {
+				dataDiv3.editable({
+					type: 'text',
+					success: function(response, newValue) {
+						console.log("Set new value:" + newValue);
+						submitTableCellEdit(worksheetId, cell["nodeId"], newValue);
+					},
+					showbuttons: 'bottom',
+					mode: 'popup',
+					inputclass: 'worksheetInputEdit'
+				});
+				dataDiv3.editable('toggle');
+			}
+		});
+
+	dataDiv.append(dataDiv3);
+	td.addClass(cell["columnClass"]);
+	return td.append(dataDiv);
+}
+
 function submitTableCellEdit(worksheetId, nodeId, value) {
 	var edits = generateInfoObject(worksheetId, "", "EditCellCommand");
 	edits["value"] = value;
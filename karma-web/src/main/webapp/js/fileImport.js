@@ -46,6 +46,8 @@ var FileFormatSelectionDialog = (function() {
 					$(":radio[name=FileFormatSelection][value=JSONLinesFile]").prop("checked", true);
 				} else if (fileName.match(".avro$")) {
 					$(":radio[name=FileFormatSelection][value=AvroFile]").prop("checked", true);
+				} else if (fileName.match(".parquet$")) {
+					$(":radio[name=FileFormatSelection][value=ParquetFile]").prop("checked", true);
 				}
 
 				var worksheets = $('.Worksheet');
@@ -165,7 +167,8 @@ var FileOptionsDialog = (function() {
 			"XMLFile": ["colEncoding", "colMaxNumLines"],
 			"ExcelFile": ["colEncoding", "colMaxNumLines"],
 			"Ontology": ["colEncoding", "colMaxNumLines"],
-			"AvroFile": ["colEncoding", "colMaxNumLines"]
+			"AvroFile": ["colEncoding", "colMaxNumLines"],
+			"ParquetFile": ["colEncoding", "colMaxNumLines"]
 		};
 
 		function init() {
@@ -214,7 +217,7 @@ var FileOptionsDialog = (function() {
 			$.each(optionSetting, function(index, val) {
 				$("#" + val).show();
 			});
-			if (format == "JSONFile" || format == "XMLFile" || format == "AvroFile" || format == "JSONLinesFile") {
+			if (format == "JSONFile" || format == "XMLFile" || format == "AvroFile" || format == "ParquetFile" || format == "JSONLinesFile") {
 				$('#lblMaxNumLines').text("Objects to import");
 				$(".help-block", $("#colMaxNumLines")).text("Enter 0 to import all objects");
 			} else {
@@ -192,7 +192,8 @@ var PublishRDFDialog = (function() {
 		}
 
 		function returnFunc(info) {
-			sendRequest(info, info['worksheetId']);
+			// the generation can take long, its progress is polled
+			sendAsyncRequest(info, info['worksheetId']);
 		}
 
 		function showLoadingRDF(worksheetId, message) {
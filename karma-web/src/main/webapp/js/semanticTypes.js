@@ -2106,6 +2106,10 @@ var AugmentDataDialog = (function() {
 					var json = $.parseJSON(xhr.responseText);
 					json = json.elements[0];
 					console.log(json);
+					if (json["updateType"] == "KarmaError") {
+						alert(json["Error"]);
+						json = [];
+					}
 					outgoing = json;
 					//hideLoading(info["worksheetId"]);
 				},
@@ -2130,6 +2134,10 @@ var AugmentDataDialog = (function() {
 					var json = $.parseJSON(xhr.responseText);
 					json = json.elements[0];
 					console.log(json);
+					if (json["updateType"] == "KarmaError") {
+						alert(json["Error"]);
+						json = [];
+					}
 					incoming = json;
 
 					//hideLoading(info["worksheetId"]);
@@ -38,6 +38,70 @@ function sendRequest(info, worksheetId, callback) {
 	});
 }
 
+/**
+ * Runs a long command as a job on the server, and polls the job until it is
+ * finished. The progress of the job is shown on the waiting sign, and the
+ * updates are parsed once the job is finished.
+ */
+function sendAsyncRequest(info, worksheetId, callback) {
+	info["async"] = true;
+	$.ajax({
+		url: "RequestController",
+		type: "POST",
+		data: info,
+		dataType: "json",
+		success: function(json) {
+			pollJob(json, info, worksheetId, callback);
+		},
+		error: function(xhr, textStatus) {
+			alert("Error occured with " + info['command'] + textStatus);
+			if (worksheetId == undefined)
+				hideWaitingSignOnScreen();
+			else
+				hideLoading(worksheetId);
+		}
+	});
+}
+
+function pollJob(json, info, worksheetId, callback) {
+	parse(json);
+	var job = json["job"];
+	if (job == undefined || job["status"] == "done" || job["status"] == "failed" || job["status"] == "cancelled") {
+		if (worksheetId == undefined)
+			hideWaitingSignOnScreen();
+		else
+			hideLoading(worksheetId);
+		if(callback)
+			callback(json);
+		return;
+	}
+	if (job["message"]) {
+		var waitingDiv = (worksheetId == undefined) ? $("div#WaitingDiv") : $("div#WaitingDiv_" + worksheetId);
+		$("b", waitingDiv).text(job["message"]);
+	}
+	window.setTimeout(function() {
+		$.ajax({
+			url: "RequestController",
+			type: "POST",
+			data: {
+				"workspaceId": $.workspaceGlobalInformation.id,
+				"jobId": job["jobId"]
+			},
+			dataType: "json",
+			success: function(json) {
+				pollJob(json, info, worksheetId, callback);
+			},
+			error: function(xhr, textStatus) {
+				alert("Error occured with " + info['command'] + textStatus);
+				if (worksheetId == undefined)
+					hideWaitingSignOnScreen();
+				else
+					hideLoading(worksheetId);
+			}
+		});
+	}, 1000);
+}
+
 function getColumnHeadings(worksheetId) {
 	var columnNames = [];
 